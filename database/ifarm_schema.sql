@@ -200,6 +200,7 @@ CREATE TABLE adoption_projects (
     KEY idx_project_status (project_status),
     KEY idx_planting_date (planting_date),
     KEY idx_create_time (create_time),
+    KEY idx_update_time (update_time),
     FOREIGN KEY (plot_id) REFERENCES farm_plots(id),
     FOREIGN KEY (crop_id) REFERENCES crops(id)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='认养项目表';
@@ -218,6 +219,8 @@ CREATE TABLE project_units (
     UNIQUE KEY uk_project_unit (project_id, unit_number),
     KEY idx_project_id (project_id),
     KEY idx_unit_status (unit_status),
+    KEY idx_project_unit_status (project_id, unit_status),
+    KEY idx_update_time (update_time),
     FOREIGN KEY (project_id) REFERENCES adoption_projects(id)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='项目单元表';
 
@@ -240,17 +243,21 @@ CREATE TABLE adoption_orders (
     payment_method VARCHAR(20) COMMENT '支付方式：wechat,alipay',
     payment_time DATETIME COMMENT '支付时间',
     payment_no VARCHAR(64) COMMENT '支付流水号',
+    summary_applied TINYINT(1) NOT NULL DEFAULT 0 COMMENT '支付是否已计入用户概览：0-否，1-是',
     remark TEXT COMMENT '订单备注',
     create_time DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
     update_time DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
     deleted TINYINT(1) NOT NULL DEFAULT 0 COMMENT '是否删除：0-未删除，1-已删除',
 
     KEY idx_order_no (order_no),
-    KEY idx_user_id (user_id),
-    KEY idx_project_id (project_id),
+    KEY idx_user_create_time (user_id, create_time),
+    KEY idx_user_status_create_time (user_id, order_status, create_time),
+    KEY idx_project_status (project_id, order_status),
     KEY idx_order_status (order_status),
     KEY idx_payment_time (payment_time),
     KEY idx_create_time (create_time),
+    KEY idx_update_time (update_time),
+    KEY idx_status_create_time (order_status, deleted, create_time),
     FOREIGN KEY (user_id) REFERENCES users(id),
     FOREIGN KEY (project_id) REFERENCES adoption_projects(id)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='认养订单表';
@@ -273,10 +280,12 @@ CREATE TABLE adoption_records (
     deleted TINYINT(1) NOT NULL DEFAULT 0 COMMENT '是否删除：0-未删除，1-已删除',
 
     KEY idx_order_id (order_id),
-    KEY idx_user_id (user_id),
+    KEY idx_user_create_time (user_id, create_time),
+    KEY idx_user_status_create_time (user_id, adoption_status, create_time),
     KEY idx_project_id (project_id),
     KEY idx_unit_id (unit_id),
     KEY idx_adoption_status (adoption_status),
+    KEY idx_project_adoption_status (project_id, adoption_status),
     KEY idx_adoption_date (adoption_date),
     FOREIGN KEY (order_id) REFERENCES adoption_orders(id),
     FOREIGN KEY (user_id) REFERENCES users(id),
@@ -284,6 +293,110 @@ CREATE TABLE adoption_records (
     FOREIGN KEY (unit_id) REFERENCES project_units(id)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='用户认养记录表';
 
+-- 认养候补表
+CREATE TABLE project_waitlist (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT COMMENT '候补ID',
+    project_id BIGINT NOT NULL COMMENT '项目ID',
+    user_id BIGINT NOT NULL COMMENT '用户ID',
+    unit_count INT NOT NULL COMMENT '候补单元数',
+    waitlist_status TINYINT(1) NOT NULL DEFAULT 1 COMMENT '候补状态：1-排队中，2-已分配，3-已下单，4-已失效，5-已取消',
+    offer_time DATETIME COMMENT '分配时间',
+    offer_expire_time DATETIME COMMENT '分配保留截止时间',
+    create_time DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    update_time DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+    deleted TINYINT(1) NOT NULL DEFAULT 0 COMMENT '是否删除：0-未删除，1-已删除',
+
+    KEY idx_project_status (project_id, waitlist_status),
+    KEY idx_user_id (user_id),
+    FOREIGN KEY (project_id) REFERENCES adoption_projects(id),
+    FOREIGN KEY (user_id) REFERENCES users(id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='认养候补表';
+
+-- 支付通知表
+CREATE TABLE payment_notifications (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT COMMENT '通知ID',
+    payment_no VARCHAR(64) NOT NULL COMMENT '支付流水号',
+    order_no VARCHAR(32) NOT NULL COMMENT '订单号',
+    amount DECIMAL(10,2) NOT NULL COMMENT '支付金额',
+    payment_method VARCHAR(20) NOT NULL COMMENT '支付方式',
+    notify_status TINYINT(1) NOT NULL DEFAULT 1 COMMENT '处理状态：1-待处理，2-已处理，3-处理失败',
+    retry_count INT NOT NULL DEFAULT 0 COMMENT '处理失败次数',
+    fail_reason VARCHAR(200) COMMENT '失败原因',
+    process_time DATETIME COMMENT '处理完成时间',
+    create_time DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    update_time DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+    deleted TINYINT(1) NOT NULL DEFAULT 0 COMMENT '是否删除：0-未删除，1-已删除',
+
+    UNIQUE KEY uk_payment_no (payment_no),
+    KEY idx_order_no (order_no),
+    KEY idx_status_create_time (notify_status, create_time)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='支付通知表';
+
+-- 事务发件箱表（与业务数据在同一事务写入，由后台投递线程按聚合顺序投递给事件处理器）
+CREATE TABLE outbox_events (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT COMMENT '事件ID',
+    aggregate_type VARCHAR(32) NOT NULL COMMENT '聚合类型',
+    aggregate_id BIGINT NOT NULL COMMENT '聚合ID',
+    event_type VARCHAR(50) NOT NULL COMMENT '事件类型',
+    payload TEXT NOT NULL COMMENT '事件内容（JSON格式）',
+    event_status TINYINT(1) NOT NULL DEFAULT 1 COMMENT '投递状态：1-待投递，2-已投递，3-投递失败',
+    retry_count INT NOT NULL DEFAULT 0 COMMENT '投递失败次数',
+    next_retry_time DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '下次投递时间',
+    last_error VARCHAR(200) COMMENT '最近一次失败原因',
+    process_time DATETIME COMMENT '投递完成时间',
+    create_time DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    update_time DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+
+    KEY idx_status_retry_time (event_status, next_retry_time),
+    KEY idx_aggregate_status (aggregate_type, aggregate_id, event_status, id),
+    KEY idx_status_process_time (event_status, process_time)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='事务发件箱表';
+
+-- 项目批量退款任务表（项目取消后分块退款已支付订单，记录进度以便中断后继续）
+CREATE TABLE project_refund_jobs (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT COMMENT '任务ID',
+    project_id BIGINT NOT NULL COMMENT '项目ID',
+    job_status TINYINT(1) NOT NULL DEFAULT 1 COMMENT '任务状态：1-进行中，2-已完成',
+    total_orders INT NOT NULL DEFAULT 0 COMMENT '任务开始时待退款的订单数',
+    refunded_orders INT NOT NULL DEFAULT 0 COMMENT '已退款订单数',
+    refunded_units INT NOT NULL DEFAULT 0 COMMENT '已释放单元数',
+    refunded_amount DECIMAL(12,2) NOT NULL DEFAULT 0.00 COMMENT '已退款金额',
+    last_order_id BIGINT NOT NULL DEFAULT 0 COMMENT '已处理到的订单ID（断点）',
+    last_error VARCHAR(200) COMMENT '最近一次失败原因',
+    start_time DATETIME COMMENT '开始时间',
+    finish_time DATETIME COMMENT '完成时间',
+    create_time DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    update_time DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+
+    UNIQUE KEY uk_project_id (project_id),
+    KEY idx_job_status (job_status),
+    FOREIGN KEY (project_id) REFERENCES adoption_projects(id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='项目批量退款任务表';
+
+-- 促销规则表（启用的规则在内存中预编译，订单报价时不访问数据库）
+CREATE TABLE promotion_rules (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT COMMENT '规则ID',
+    name VARCHAR(100) NOT NULL COMMENT '规则名称',
+    rule_type TINYINT(1) NOT NULL COMMENT '规则类型：1-数量阶梯，2-用户等级，3-限时活动，4-首单优惠',
+    project_id BIGINT COMMENT '适用项目ID（为空时适用全部项目）',
+    min_units INT NOT NULL DEFAULT 1 COMMENT '最少认养单元数',
+    min_user_tier INT NOT NULL DEFAULT 0 COMMENT '最低用户等级',
+    discount_rate DECIMAL(5,4) NOT NULL DEFAULT 0.0000 COMMENT '按订单总额的优惠比例（0.0500表示优惠5%）',
+    discount_amount DECIMAL(10,2) NOT NULL DEFAULT 0.00 COMMENT '每单固定优惠金额',
+    start_time DATETIME COMMENT '生效开始时间（为空时立即生效）',
+    end_time DATETIME COMMENT '生效结束时间（为空时长期有效）',
+    priority INT NOT NULL DEFAULT 0 COMMENT '优先级（同类型规则只取优先级最高的一条命中规则）',
+    rule_status TINYINT(1) NOT NULL DEFAULT 1 COMMENT '状态：0-停用，1-启用',
+    create_time DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    update_time DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+    deleted TINYINT(1) NOT NULL DEFAULT 0 COMMENT '是否删除：0-未删除，1-已删除',
+
+    KEY idx_status_end_time (rule_status, end_time),
+    KEY idx_project_id (project_id),
+    KEY idx_update_time (update_time),
+    FOREIGN KEY (project_id) REFERENCES adoption_projects(id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='促销规则表';
+
 -- ================================
 -- 种植管理系统表
 -- ================================
@@ -313,7 +426,8 @@ CREATE TABLE growth_records (
     update_time DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
     deleted TINYINT(1) NOT NULL DEFAULT 0 COMMENT '是否删除：0-未删除，1-已删除',
 
-    KEY idx_project_id (project_id),
+    KEY idx_project_create_time (project_id, create_time),
+    KEY idx_project_stage_create_time (project_id, growth_stage, create_time),
     KEY idx_record_date (record_date),
     KEY idx_growth_stage (growth_stage),
     KEY idx_recorder_id (recorder_id),
@@ -383,7 +497,8 @@ CREATE TABLE delivery_orders (
 
     KEY idx_order_no (order_no),
     KEY idx_adoption_record_id (adoption_record_id),
-    KEY idx_user_id (user_id),
+    KEY idx_user_create_time (user_id, create_time),
+    KEY idx_user_status_create_time (user_id, delivery_status, create_time),
     KEY idx_delivery_status (delivery_status),
     KEY idx_tracking_number (tracking_number),
     KEY idx_shipped_time (shipped_time),
@@ -442,6 +557,41 @@ CREATE TABLE media_files (
     FOREIGN KEY (uploader_id) REFERENCES users(id)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='媒体文件表';
 
+-- ================================
+-- 统计系统表
+-- ================================
+
+-- 热度统计表（按小时分桶，用于热度引擎重启恢复）
+CREATE TABLE popularity_stats (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT COMMENT '统计ID',
+    item_type TINYINT NOT NULL COMMENT '对象类型：1-项目，2-农场，3-作物',
+    item_id BIGINT NOT NULL COMMENT '对象ID',
+    bucket_hour BIGINT NOT NULL COMMENT '统计小时（自1970-01-01 00:00 UTC起的小时数）',
+    view_count BIGINT NOT NULL DEFAULT 0 COMMENT '浏览次数',
+    adoption_count BIGINT NOT NULL DEFAULT 0 COMMENT '认养单元数',
+    create_time DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    update_time DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+
+    UNIQUE KEY uk_item_bucket (item_type, item_id, bucket_hour),
+    KEY idx_bucket_hour (bucket_hour)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='热度统计表';
+
+-- 用户概览表（"我的"页面读模型，随订单、认养记录、配送订单状态变化增量维护，订单支付经事务发件箱异步更新）
+CREATE TABLE user_summary (
+    user_id BIGINT PRIMARY KEY COMMENT '用户ID',
+    pending_order_count INT NOT NULL DEFAULT 0 COMMENT '待支付订单数',
+    paid_order_count INT NOT NULL DEFAULT 0 COMMENT '已支付订单数',
+    completed_order_count INT NOT NULL DEFAULT 0 COMMENT '已完成订单数',
+    cancelled_order_count INT NOT NULL DEFAULT 0 COMMENT '已取消订单数',
+    refunded_order_count INT NOT NULL DEFAULT 0 COMMENT '已退款订单数',
+    paid_amount DECIMAL(12,2) NOT NULL DEFAULT 0.00 COMMENT '累计支付金额（已支付和已完成订单）',
+    active_adoption_count INT NOT NULL DEFAULT 0 COMMENT '进行中的认养数（已认养至已收获）',
+    total_yield DECIMAL(12,2) NOT NULL DEFAULT 0.00 COMMENT '累计收获产量（kg）',
+    in_flight_delivery_count INT NOT NULL DEFAULT 0 COMMENT '未签收的配送订单数（待发货至派送中）',
+    create_time DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    update_time DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间'
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='用户概览表';
+
 -- ================================
 -- 初始化数据
 -- ================================
@@ -535,102 +685,94 @@ GROUP BY ap.id;
 
 DELIMITER //
 
--- 创建认养订单的存储过程
+-- 创建认养订单的存储过程（ifarm.checkout.mode=procedure 时使用）
+-- 在一次调用中完成项目校验、行锁下的条件扣减可认养单元和订单插入，与Java下单的库存语义一致。
+-- 不开启、提交或回滚事务，由调用方事务统一提交；SQL异常原样抛给调用方回滚。
+-- 订单号、金额（含促销优惠）和创建时间由调用方计算后传入，单元价格与传入值不一致时拒绝下单。
+-- 结果码：0-成功，1-项目不存在，2-项目不可认养，3-可认养单元数不足，4-单元价格已变更
+DROP PROCEDURE IF EXISTS CreateAdoptionOrder //
+
 CREATE PROCEDURE CreateAdoptionOrder(
     IN p_user_id BIGINT,
     IN p_project_id BIGINT,
     IN p_unit_count INT,
+    IN p_reserved TINYINT,
+    IN p_order_no VARCHAR(32),
+    IN p_unit_price DECIMAL(10,2),
+    IN p_total_amount DECIMAL(10,2),
+    IN p_discount_amount DECIMAL(10,2),
+    IN p_actual_amount DECIMAL(10,2),
+    IN p_remark TEXT,
+    IN p_create_time DATETIME,
     OUT p_order_id BIGINT,
-    OUT p_result_code INT,
-    OUT p_result_msg VARCHAR(200)
+    OUT p_result_code INT
 )
-BEGIN
+proc: BEGIN
+    DECLARE v_project_status TINYINT DEFAULT NULL;
     DECLARE v_available_units INT DEFAULT 0;
-    DECLARE v_unit_price DECIMAL(10,2) DEFAULT 0;
-    DECLARE v_total_amount DECIMAL(10,2) DEFAULT 0;
-    DECLARE v_order_no VARCHAR(32);
-    DECLARE EXIT HANDLER FOR SQLEXCEPTION
-    BEGIN
-        ROLLBACK;
-        SET p_result_code = -1;
-        SET p_result_msg = '创建订单失败';
-    END;
-
-    START TRANSACTION;
-
-    -- 检查项目可用单元数
-    SELECT available_units, unit_price INTO v_available_units, v_unit_price
-    FROM adoption_projects
-    WHERE id = p_project_id AND project_status = 2 AND deleted = 0;
-
-    IF v_available_units < p_unit_count THEN
-        SET p_result_code = -2;
-        SET p_result_msg = '可认养单元数不足';
-        ROLLBACK;
+    DECLARE v_unit_price DECIMAL(10,2) DEFAULT NULL;
+
+    SET p_order_id = NULL;
+
+    IF p_reserved = 1 THEN
+        -- 单元已由候补分配预占，只校验项目状态和价格
+        SELECT project_status, unit_price INTO v_project_status, v_unit_price
+        FROM adoption_projects
+        WHERE id = p_project_id AND deleted = 0;
+
+        IF v_project_status IS NULL THEN
+            SET p_result_code = 1;
+            LEAVE proc;
+        ELSEIF v_project_status <> 2 THEN
+            SET p_result_code = 2;
+            LEAVE proc;
+        ELSEIF v_unit_price <> p_unit_price THEN
+            SET p_result_code = 4;
+            LEAVE proc;
+        END IF;
     ELSE
-        -- 生成订单号
-        SET v_order_no = CONCAT('AD', DATE_FORMAT(NOW(), '%Y%m%d'), LPAD(FLOOR(RAND() * 999999), 6, '0'));
-        SET v_total_amount = v_unit_price * p_unit_count;
-
-        -- 创建订单
-        INSERT INTO adoption_orders (order_no, user_id, project_id, unit_count, unit_price, total_amount, actual_amount)
-        VALUES (v_order_no, p_user_id, p_project_id, p_unit_count, v_unit_price, v_total_amount, v_total_amount);
+        -- 条件扣减：项目行锁持有到调用方事务结束
+        UPDATE adoption_projects
+        SET available_units = available_units - p_unit_count
+        WHERE id = p_project_id AND project_status = 2 AND deleted = 0
+          AND available_units >= p_unit_count AND unit_price = p_unit_price;
+
+        IF ROW_COUNT() = 0 THEN
+            SELECT project_status, available_units, unit_price
+            INTO v_project_status, v_available_units, v_unit_price
+            FROM adoption_projects
+            WHERE id = p_project_id AND deleted = 0;
+
+            IF v_project_status IS NULL THEN
+                SET p_result_code = 1;
+            ELSEIF v_project_status <> 2 THEN
+                SET p_result_code = 2;
+            ELSEIF v_unit_price <> p_unit_price THEN
+                SET p_result_code = 4;
+            ELSE
+                SET p_result_code = 3;
+            END IF;
+            LEAVE proc;
+        END IF;
+    END IF;
 
-        SET p_order_id = LAST_INSERT_ID();
-        SET p_result_code = 0;
-        SET p_result_msg = '订单创建成功';
+    INSERT INTO adoption_orders (order_no, user_id, project_id, unit_count, unit_price, total_amount,
+                                 discount_amount, actual_amount, order_status, remark, create_time, update_time)
+    VALUES (p_order_no, p_user_id, p_project_id, p_unit_count, p_unit_price, p_total_amount,
+            p_discount_amount, p_actual_amount, 1, p_remark, p_create_time, p_create_time);
 
-        COMMIT;
-    END IF;
+    SET p_order_id = LAST_INSERT_ID();
+    SET p_result_code = 0;
 END //
 
 DELIMITER ;
 
 -- ================================
--- 创建触发器
+-- 触发器
 -- ================================
 
--- 订单支付成功后自动分配单元的触发器
-DELIMITER //
-
-CREATE TRIGGER tr_adoption_order_paid
-    AFTER UPDATE ON adoption_orders
-    FOR EACH ROW
-BEGIN
-    DECLARE v_unit_id BIGINT;
-    DECLARE v_counter INT DEFAULT 0;
-    DECLARE done INT DEFAULT FALSE;
-    DECLARE unit_cursor CURSOR FOR
-        SELECT pu.id FROM project_units pu
-        WHERE pu.project_id = NEW.project_id AND pu.unit_status = 1
-        ORDER BY pu.id LIMIT NEW.unit_count;
-    DECLARE CONTINUE HANDLER FOR NOT FOUND SET done = TRUE;
-
-    -- 当订单状态从待支付变为已支付时
-    IF OLD.order_status = 1 AND NEW.order_status = 2 THEN
-        OPEN unit_cursor;
-        read_loop: LOOP
-            FETCH unit_cursor INTO v_unit_id;
-            IF done THEN
-                LEAVE read_loop;
-            END IF;
-
-            -- 更新单元状态为已认养
-            UPDATE project_units SET unit_status = 2 WHERE id = v_unit_id;
-
-            -- 创建认养记录
-            INSERT INTO adoption_records (order_id, user_id, project_id, unit_id, adoption_status, adoption_date)
-            VALUES (NEW.id, NEW.user_id, NEW.project_id, v_unit_id, 1, NEW.payment_time);
-
-            SET v_counter = v_counter + 1;
-        END LOOP;
-        CLOSE unit_cursor;
-
-        -- 更新项目可用单元数
-        UPDATE adoption_projects
-        SET available_units = available_units - NEW.unit_count
-        WHERE id = NEW.project_id;
-    END IF;
-END //
-
-DELIMITER ;
\ No newline at end of file
+-- 订单支付后的单元分配、认养记录创建和库存确认由应用在支付事务中完成
+-- （内存单元位图分配，下单时已扣减可认养单元数）。
+-- 原支付触发器会再分配一批单元、重复插入认养记录并再次扣减可认养单元数，已移除；
+-- 已部署的数据库需删除该触发器，应用启动时会检查并告警。
+DROP TRIGGER IF EXISTS tr_adoption_order_paid;
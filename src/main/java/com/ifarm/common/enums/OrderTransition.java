@@ -0,0 +1,48 @@
+package com.ifarm.common.enums;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 订单状态迁移
+ * 每个迁移声明起始状态、目标状态和是否只允许订单所属用户执行，
+ * 执行时作为一条 UPDATE ... WHERE id = ? AND order_status = ? 提交，以更新行数判定是否成功
+ *
+ * 订单状态：1-待支付，2-已支付，3-已完成，4-已取消，5-已退款
+ *
+ * @author ifarm
+ * @since 2025-01-19
+ */
+@Getter
+@AllArgsConstructor
+public enum OrderTransition {
+
+    PAY("支付", 1, 2, false),
+    CANCEL("取消", 1, 4, true),
+    TIMEOUT_CANCEL("超时取消", 1, 4, false),
+    PROJECT_CANCEL("项目取消", 1, 4, false),
+    COMPLETE("完成", 2, 3, false),
+    REFUND("申请退款", 2, 5, true),
+    APPROVE_REFUND("同意退款", 2, 5, false),
+    PROJECT_REFUND("项目取消退款", 2, 5, false);
+
+    /**
+     * 迁移名称
+     */
+    private final String description;
+
+    /**
+     * 起始状态
+     */
+    private final int fromStatus;
+
+    /**
+     * 目标状态
+     */
+    private final int toStatus;
+
+    /**
+     * 是否只允许订单所属用户执行（条件中附加 user_id）
+     */
+    private final boolean ownerOnly;
+}
@@ -0,0 +1,46 @@
+package com.ifarm.common.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * 订单已支付事件
+ * 与订单支付在同一事务写入事务发件箱，提交后由后台投递，用于更新用户概览、项目热度等派生数据
+ *
+ * @author ifarm
+ * @since 2025-01-19
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderPaidEvent {
+
+    /**
+     * 聚合类型（同一订单的事件按写入顺序投递）
+     */
+    public static final String AGGREGATE_TYPE = "ORDER";
+
+    /**
+     * 事件类型
+     */
+    public static final String EVENT_TYPE = "ORDER_PAID";
+
+    private Long orderId;
+
+    private Long userId;
+
+    private Long projectId;
+
+    /**
+     * 分配的单元数
+     */
+    private Integer unitCount;
+
+    /**
+     * 实付金额
+     */
+    private BigDecimal amount;
+}
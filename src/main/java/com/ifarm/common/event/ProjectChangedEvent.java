@@ -0,0 +1,59 @@
+package com.ifarm.common.event;
+
+import lombok.Getter;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 项目变更领域事件
+ * 项目信息、单元状态、生长记录或收获记录变化后发布，用于刷新项目相关的读模型
+ *
+ * @author ifarm
+ * @since 2025-01-19
+ */
+@Getter
+public class ProjectChangedEvent {
+
+    /**
+     * 变更类型
+     */
+    public enum ChangeType {
+        /** 项目信息或状态更新 */
+        PROJECT_UPDATED,
+        /** 项目删除 */
+        PROJECT_DELETED,
+        /** 单元状态变化 */
+        UNIT_STATUS_CHANGED,
+        /** 生长记录变化 */
+        GROWTH_RECORD_CHANGED,
+        /** 收获记录变化 */
+        HARVEST_RECORD_CHANGED
+    }
+
+    /**
+     * 项目ID（仅知道单元ID时为null）
+     */
+    private final Long projectId;
+
+    /**
+     * 变化的单元ID（仅单元状态变化且不知道项目ID时填充）
+     */
+    private final List<Long> unitIds;
+
+    private final ChangeType changeType;
+
+    private ProjectChangedEvent(Long projectId, List<Long> unitIds, ChangeType changeType) {
+        this.projectId = projectId;
+        this.unitIds = unitIds;
+        this.changeType = changeType;
+    }
+
+    public static ProjectChangedEvent of(Long projectId, ChangeType changeType) {
+        return new ProjectChangedEvent(projectId, List.of(), changeType);
+    }
+
+    public static ProjectChangedEvent ofUnits(Collection<Long> unitIds) {
+        return new ProjectChangedEvent(null, List.copyOf(unitIds), ChangeType.UNIT_STATUS_CHANGED);
+    }
+}
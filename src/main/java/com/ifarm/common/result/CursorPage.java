@@ -0,0 +1,80 @@
+package com.ifarm.common.result;
+
+import com.ifarm.common.util.SeekCursor;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * 游标分页结果
+ * 不统计总数，客户端以nextCursor请求下一页，hasMore为false时到底
+ *
+ * @author ifarm
+ * @since 2025-01-19
+ */
+@Data
+public class CursorPage<T> {
+
+    /**
+     * 默认每页大小
+     */
+    public static final int DEFAULT_SIZE = 10;
+
+    /**
+     * 最大每页大小
+     */
+    public static final int MAX_SIZE = 50;
+
+    /**
+     * 本页数据
+     */
+    private List<T> records;
+
+    /**
+     * 下一页游标（没有更多数据时为null）
+     */
+    private String nextCursor;
+
+    /**
+     * 是否还有更多数据
+     */
+    private Boolean hasMore;
+
+    /**
+     * 规范每页大小
+     *
+     * @param size 请求的每页大小
+     * @return 1到MAX_SIZE之间的每页大小
+     */
+    public static int normalizeSize(Integer size) {
+        if (size == null || size <= 0) {
+            return DEFAULT_SIZE;
+        }
+        return Math.min(size, MAX_SIZE);
+    }
+
+    /**
+     * 由多查询一行的结果构造分页（查询时LIMIT size + 1，多出的一行只用于判断是否还有下一页）
+     *
+     * @param rows 查询结果
+     * @param size 每页大小
+     * @param createTime 创建时间取值函数
+     * @param id ID取值函数
+     * @return 游标分页结果
+     */
+    public static <T> CursorPage<T> of(List<T> rows, int size,
+                                       Function<T, LocalDateTime> createTime, Function<T, Long> id) {
+        CursorPage<T> page = new CursorPage<>();
+        boolean hasMore = rows.size() > size;
+        List<T> records = hasMore ? rows.subList(0, size) : rows;
+        page.setRecords(records);
+        page.setHasMore(hasMore);
+        if (hasMore) {
+            T last = records.get(records.size() - 1);
+            page.setNextCursor(new SeekCursor(createTime.apply(last), id.apply(last)).encode());
+        }
+        return page;
+    }
+}
@@ -0,0 +1,161 @@
+package com.ifarm.common.util;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 分布式ID生成器
+ * ID结构：41位毫秒时间（自2025-01-01起）+ 10位节点号 + 12位序列号，同一节点内严格递增。
+ * 时间与序列号合并保存在一个AtomicLong中，每次生成只做一次CAS：
+ * 取 max(上次值+1, 当前毫秒<<12)，同一毫秒内序列号用尽或时钟回拨时顺延到后续毫秒，不等待也不加锁；
+ * 节点号不同的生成器之间不会重复。
+ *
+ * @author ifarm
+ * @since 2025-01-19
+ */
+@Slf4j
+public class IdGenerator {
+
+    /**
+     * 时间起点 2025-01-01T00:00:00Z
+     */
+    private static final long EPOCH = 1735689600000L;
+
+    private static final int WORKER_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+
+    public static final int MAX_WORKER_ID = (1 << WORKER_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    /**
+     * 逻辑时间领先系统时钟超过该值时告警（时钟回拨或持续超过每毫秒4096个）
+     */
+    private static final long DRIFT_WARN_MILLIS = 1000;
+
+    private static final DateTimeFormatter SECOND_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+
+    /**
+     * 单号中时间之后的位数：毫秒3位 + 节点号4位 + 序列号4位
+     */
+    private static final int NO_SUFFIX_LENGTH = 14 + 3 + 4 + 4;
+
+    @Getter
+    private final int workerId;
+    private final ZoneId zone;
+
+    /**
+     * (相对毫秒 << 12) | 序列号
+     */
+    private final AtomicLong state = new AtomicLong();
+
+    /**
+     * 最近一次格式化的秒及其字符，同一秒内的单号复用
+     */
+    private volatile SecondStamp secondStamp = new SecondStamp(Long.MIN_VALUE, new char[14]);
+
+    private volatile long lastDriftWarn;
+
+    public IdGenerator(int workerId) {
+        this(workerId, ZoneId.systemDefault());
+    }
+
+    public IdGenerator(int workerId, ZoneId zone) {
+        if (workerId < 0 || workerId > MAX_WORKER_ID) {
+            throw new IllegalArgumentException("节点号必须在0到" + MAX_WORKER_ID + "之间: " + workerId);
+        }
+        this.workerId = workerId;
+        this.zone = zone;
+    }
+
+    /**
+     * 生成ID
+     *
+     * @return 节点内严格递增的ID
+     */
+    public long nextId() {
+        long now = System.currentTimeMillis() - EPOCH;
+        long next;
+        while (true) {
+            long last = state.get();
+            next = Math.max(last + 1, now << SEQUENCE_BITS);
+            if (state.compareAndSet(last, next)) {
+                break;
+            }
+        }
+
+        long millis = next >>> SEQUENCE_BITS;
+        if (millis - now > DRIFT_WARN_MILLIS) {
+            warnDrift(millis - now);
+        }
+        return (millis << (WORKER_BITS + SEQUENCE_BITS)) | ((long) workerId << SEQUENCE_BITS) | (next & SEQUENCE_MASK);
+    }
+
+    /**
+     * 生成可读单号：前缀 + yyyyMMddHHmmss + 3位毫秒 + 4位节点号 + 4位序列号
+     *
+     * @param prefix 前缀（如订单AD、配送单DL）
+     * @return 单号，与ID一一对应
+     */
+    public String nextNo(String prefix) {
+        long id = nextId();
+        long epochMillis = (id >>> (WORKER_BITS + SEQUENCE_BITS)) + EPOCH;
+        int worker = (int) ((id >>> SEQUENCE_BITS) & MAX_WORKER_ID);
+        int sequence = (int) (id & SEQUENCE_MASK);
+
+        int prefixLength = prefix.length();
+        char[] chars = new char[prefixLength + NO_SUFFIX_LENGTH];
+        prefix.getChars(0, prefixLength, chars, 0);
+        System.arraycopy(secondDigits(Math.floorDiv(epochMillis, 1000)), 0, chars, prefixLength, 14);
+        int pos = prefixLength + 14;
+        pos = writeDigits(chars, pos, (int) Math.floorMod(epochMillis, 1000), 3);
+        pos = writeDigits(chars, pos, worker, 4);
+        writeDigits(chars, pos, sequence, 4);
+        return new String(chars);
+    }
+
+    /**
+     * 从ID中取出生成时间（毫秒时间戳）
+     *
+     * @param id ID
+     * @return 毫秒时间戳
+     */
+    public static long extractTimestamp(long id) {
+        return (id >>> (WORKER_BITS + SEQUENCE_BITS)) + EPOCH;
+    }
+
+    private char[] secondDigits(long epochSecond) {
+        SecondStamp stamp = secondStamp;
+        if (stamp.epochSecond != epochSecond) {
+            String formatted = LocalDateTime.ofInstant(Instant.ofEpochSecond(epochSecond), zone).format(SECOND_FORMATTER);
+            stamp = new SecondStamp(epochSecond, formatted.toCharArray());
+            secondStamp = stamp;
+        }
+        return stamp.digits;
+    }
+
+    private static int writeDigits(char[] chars, int pos, int value, int width) {
+        for (int i = pos + width - 1; i >= pos; i--) {
+            chars[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        return pos + width;
+    }
+
+    private void warnDrift(long aheadMillis) {
+        long now = System.currentTimeMillis();
+        if (now - lastDriftWarn > DRIFT_WARN_MILLIS) {
+            lastDriftWarn = now;
+            log.warn("ID生成器逻辑时间领先系统时钟{}ms（时钟回拨或生成速度超过每毫秒{}个）, workerId={}",
+                    aheadMillis, SEQUENCE_MASK + 1, workerId);
+        }
+    }
+
+    private record SecondStamp(long epochSecond, char[] digits) {
+    }
+}
@@ -0,0 +1,180 @@
+package com.ifarm.common.util;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 幂等请求记录
+ * 按幂等键保存请求指纹和响应：首个请求获得执行权，执行中的相同请求等待其结果，
+ * 完成后在有效期内直接重放响应；执行失败时删除记录，等待者重新竞争执行权。
+ * 记录数超过上限时先清理过期记录，仍超出则淘汰最早过期的已完成记录，执行中的记录不淘汰。
+ *
+ * @author ifarm
+ * @since 2025-01-19
+ */
+public class IdempotencyStore {
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final int maxEntries;
+    private final long ttlMillis;
+
+    public IdempotencyStore(int maxEntries, long ttlMillis) {
+        if (maxEntries <= 0 || ttlMillis <= 0) {
+            throw new IllegalArgumentException("maxEntries和ttlMillis必须大于0");
+        }
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * 获取幂等键的执行权或已有记录
+     *
+     * @param key 幂等键
+     * @param fingerprint 请求指纹
+     * @param now 当前时间（毫秒）
+     * @return 获取结果
+     */
+    public Acquisition acquire(String key, String fingerprint, long now) {
+        while (true) {
+            Entry existing = entries.get(key);
+            if (existing == null) {
+                if (entries.size() >= maxEntries) {
+                    evict(now);
+                }
+                Entry created = new Entry(fingerprint);
+                if (entries.putIfAbsent(key, created) == null) {
+                    return new Acquisition(AcquireStatus.OWNER, created);
+                }
+                continue;
+            }
+            if (existing.isExpired(now)) {
+                entries.remove(key, existing);
+                continue;
+            }
+            if (!existing.fingerprint.equals(fingerprint)) {
+                return new Acquisition(AcquireStatus.MISMATCH, existing);
+            }
+            return new Acquisition(AcquireStatus.EXISTING, existing);
+        }
+    }
+
+    /**
+     * 保存执行结果并唤醒等待者
+     *
+     * @param entry 获得执行权时的记录
+     * @param response 响应
+     * @param now 当前时间（毫秒）
+     */
+    public void complete(Entry entry, StoredResponse response, long now) {
+        entry.expiresAt = now + ttlMillis;
+        entry.result.complete(response);
+    }
+
+    /**
+     * 放弃执行结果（执行失败或响应不可重放），删除记录并唤醒等待者重新竞争
+     *
+     * @param key 幂等键
+     * @param entry 获得执行权时的记录
+     */
+    public void abandon(String key, Entry entry) {
+        entries.remove(key, entry);
+        entry.result.complete(null);
+    }
+
+    /**
+     * 当前记录数
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    private void evict(long now) {
+        entries.entrySet().removeIf(e -> e.getValue().isExpired(now));
+        int excess = entries.size() - maxEntries + Math.max(1, maxEntries / 10);
+        if (excess <= 0) {
+            return;
+        }
+
+        List<Map.Entry<String, Entry>> completed = new ArrayList<>();
+        for (Map.Entry<String, Entry> e : entries.entrySet()) {
+            if (e.getValue().result.isDone()) {
+                completed.add(e);
+            }
+        }
+        completed.sort(Comparator.comparingLong(e -> e.getValue().expiresAt));
+        for (int i = 0; i < excess && i < completed.size(); i++) {
+            entries.remove(completed.get(i).getKey(), completed.get(i).getValue());
+        }
+    }
+
+    /**
+     * 获取结果类型
+     */
+    public enum AcquireStatus {
+        /**
+         * 获得执行权，执行后必须调用complete或abandon
+         */
+        OWNER,
+        /**
+         * 相同请求已执行或正在执行，等待记录的结果
+         */
+        EXISTING,
+        /**
+         * 幂等键已用于不同的请求
+         */
+        MISMATCH
+    }
+
+    /**
+     * 获取结果
+     *
+     * @param status 获取结果类型
+     * @param entry 幂等键对应的记录
+     */
+    public record Acquisition(AcquireStatus status, Entry entry) {
+    }
+
+    /**
+     * 保存的响应
+     *
+     * @param status HTTP状态码
+     * @param contentType 响应类型
+     * @param body 响应体
+     */
+    public record StoredResponse(int status, String contentType, byte[] body) {
+    }
+
+    /**
+     * 幂等键记录
+     */
+    public static final class Entry {
+
+        private final String fingerprint;
+
+        /**
+         * 执行结果，放弃执行时为null
+         */
+        private final CompletableFuture<StoredResponse> result = new CompletableFuture<>();
+
+        /**
+         * 过期时间，执行完成前不过期
+         */
+        private volatile long expiresAt = Long.MAX_VALUE;
+
+        private Entry(String fingerprint) {
+            this.fingerprint = fingerprint;
+        }
+
+        public CompletableFuture<StoredResponse> result() {
+            return result;
+        }
+
+        private boolean isExpired(long now) {
+            return expiresAt <= now;
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.ifarm.common.util;
+
+import java.util.Arrays;
+
+/**
+ * long到int的开放寻址哈希表
+ * 键和值均为基本类型，避免大规模离线计算时的装箱开销；不支持删除，键不能为 Long.MIN_VALUE
+ *
+ * @author ifarm
+ * @since 2025-01-19
+ */
+public class LongIntHashMap {
+
+    private static final long EMPTY = Long.MIN_VALUE;
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private long[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+    private int threshold;
+
+    /**
+     * 键值对遍历回调
+     */
+    @FunctionalInterface
+    public interface EntryConsumer {
+        void accept(long key, int value);
+    }
+
+    public LongIntHashMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        allocate(capacity);
+    }
+
+    /**
+     * 获取键对应的值
+     *
+     * @param key 键
+     * @param defaultValue 键不存在时的返回值
+     * @return 值
+     */
+    public int get(long key, int defaultValue) {
+        int slot = slot(key);
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return defaultValue;
+    }
+
+    /**
+     * 写入键值
+     *
+     * @param key 键
+     * @param value 值
+     */
+    public void put(long key, int value) {
+        int slot = findOrInsert(key);
+        values[slot] = value;
+    }
+
+    /**
+     * 在键对应的值上累加，键不存在时从0开始
+     *
+     * @param key 键
+     * @param delta 增量
+     * @return 累加后的值
+     */
+    public int addTo(long key, int delta) {
+        int slot = findOrInsert(key);
+        values[slot] += delta;
+        return values[slot];
+    }
+
+    /**
+     * 获取键对应的值，键不存在时写入新值
+     *
+     * @param key 键
+     * @param value 键不存在时写入的值
+     * @return 已有的值或新写入的值
+     */
+    public int putIfAbsent(long key, int value) {
+        int before = size;
+        int slot = findOrInsert(key);
+        if (size != before) {
+            values[slot] = value;
+        }
+        return values[slot];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 遍历全部键值对（顺序不确定）
+     *
+     * @param consumer 回调
+     */
+    public void forEach(EntryConsumer consumer) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != EMPTY) {
+                consumer.accept(keys[i], values[i]);
+            }
+        }
+    }
+
+    private int findOrInsert(long key) {
+        if (key == EMPTY) {
+            throw new IllegalArgumentException("不支持的键: " + key);
+        }
+
+        int slot = slot(key);
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        if (size >= threshold) {
+            rehash();
+            return findOrInsert(key);
+        }
+        keys[slot] = key;
+        values[slot] = 0;
+        size++;
+        return slot;
+    }
+
+    private int slot(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private void rehash() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(keys.length << 1);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int slot = slot(oldKeys[i]);
+                while (keys[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+        values = new int[capacity];
+        mask = capacity - 1;
+        threshold = (int) (capacity * LOAD_FACTOR);
+    }
+}
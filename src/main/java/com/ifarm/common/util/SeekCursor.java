@@ -0,0 +1,57 @@
+package com.ifarm.common.util;
+
+import com.ifarm.common.exception.BusinessException;
+import org.springframework.util.StringUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * 游标分页位置：按 (create_time DESC, id DESC) 排序时上一页最后一行的创建时间和ID
+ * 对外编码为不透明字符串，客户端只需原样回传
+ *
+ * @param createTime 创建时间
+ * @param id 记录ID
+ * @author ifarm
+ * @since 2025-01-19
+ */
+public record SeekCursor(LocalDateTime createTime, Long id) {
+
+    private static final char SEPARATOR = '|';
+
+    /**
+     * 编码游标
+     *
+     * @return 不透明游标字符串
+     */
+    public String encode() {
+        String raw = createTime.toString() + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 解析游标
+     *
+     * @param cursor 游标字符串（为空表示第一页）
+     * @return 游标位置，第一页返回null
+     */
+    public static SeekCursor decode(String cursor) {
+        if (!StringUtils.hasText(cursor)) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf(SEPARATOR);
+            if (separator <= 0) {
+                throw new BusinessException("无效的分页游标");
+            }
+            LocalDateTime createTime = LocalDateTime.parse(raw.substring(0, separator));
+            Long id = Long.valueOf(raw.substring(separator + 1));
+            return new SeekCursor(createTime, id);
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new BusinessException("无效的分页游标");
+        }
+    }
+}
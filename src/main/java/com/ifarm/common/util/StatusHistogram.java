@@ -0,0 +1,187 @@
+package com.ifarm.common.util;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * 状态分布统计工具类
+ * 通过一次 SELECT col, COUNT(*) ... GROUP BY col 查询得到各状态数量，
+ * 未出现的状态按声明的取值补零，替代按状态逐个COUNT的多次查询
+ *
+ * @author ifarm
+ * @since 2025-01-19
+ */
+@Getter
+public class StatusHistogram<K> {
+
+    private static final String BUCKET_ALIAS = "bucket";
+    private static final String COUNT_ALIAS = "cnt";
+    private static final String SUM_ALIAS = "total";
+
+    /**
+     * 各声明取值的数量（按声明顺序）
+     */
+    private final Map<K, Long> counts = new LinkedHashMap<>();
+
+    /**
+     * 各声明取值的求和（仅在指定求和列时填充）
+     */
+    private final Map<K, BigDecimal> sums = new LinkedHashMap<>();
+
+    /**
+     * 总数量（包含未声明的取值）
+     */
+    private long totalCount;
+
+    /**
+     * 总求和（包含未声明的取值）
+     */
+    private BigDecimal totalSum = BigDecimal.ZERO;
+
+    private StatusHistogram(Collection<K> buckets) {
+        for (K bucket : buckets) {
+            counts.put(bucket, 0L);
+            sums.put(bucket, BigDecimal.ZERO);
+        }
+    }
+
+    /**
+     * 获取指定取值的数量
+     *
+     * @param bucket 取值
+     * @return 数量，未出现时为0
+     */
+    public long get(K bucket) {
+        return counts.getOrDefault(bucket, 0L);
+    }
+
+    /**
+     * 获取指定取值的求和
+     *
+     * @param bucket 取值
+     * @return 求和，未出现时为0
+     */
+    public BigDecimal getSum(K bucket) {
+        return sums.getOrDefault(bucket, BigDecimal.ZERO);
+    }
+
+    /**
+     * 按整型状态列统计数量
+     * TINYINT(1)列会被驱动映射为Boolean，因此统一转换为SIGNED后再分组
+     *
+     * @param mapper Mapper
+     * @param wrapper 过滤条件（会被追加select和group by）
+     * @param column 状态列名
+     * @param statuses 需要补零的状态取值
+     * @param <T> 实体类型
+     * @return 状态分布
+     */
+    public static <T> StatusHistogram<Integer> ofStatus(BaseMapper<T> mapper, QueryWrapper<T> wrapper,
+                                                        String column, Integer... statuses) {
+        return ofStatus(mapper, wrapper, column, null, statuses);
+    }
+
+    /**
+     * 按整型状态列统计数量及指定列的求和
+     *
+     * @param mapper Mapper
+     * @param wrapper 过滤条件（会被追加select和group by）
+     * @param column 状态列名
+     * @param sumColumn 求和列名（可选）
+     * @param statuses 需要补零的状态取值
+     * @param <T> 实体类型
+     * @return 状态分布
+     */
+    public static <T> StatusHistogram<Integer> ofStatus(BaseMapper<T> mapper, QueryWrapper<T> wrapper,
+                                                        String column, String sumColumn, Integer... statuses) {
+        return query(mapper, wrapper, "CAST(" + column + " AS SIGNED)", column, sumColumn,
+                Arrays.asList(statuses), value -> ((Number) value).intValue());
+    }
+
+    /**
+     * 按字符串列统计数量
+     *
+     * @param mapper Mapper
+     * @param wrapper 过滤条件（会被追加select和group by）
+     * @param column 列名
+     * @param values 需要补零的取值
+     * @param <T> 实体类型
+     * @return 取值分布
+     */
+    public static <T> StatusHistogram<String> ofValues(BaseMapper<T> mapper, QueryWrapper<T> wrapper,
+                                                       String column, Collection<String> values) {
+        return ofValues(mapper, wrapper, column, null, values);
+    }
+
+    /**
+     * 按字符串列统计数量及指定列的求和
+     *
+     * @param mapper Mapper
+     * @param wrapper 过滤条件（会被追加select和group by）
+     * @param column 列名
+     * @param sumColumn 求和列名（可选）
+     * @param values 需要补零的取值
+     * @param <T> 实体类型
+     * @return 取值分布
+     */
+    public static <T> StatusHistogram<String> ofValues(BaseMapper<T> mapper, QueryWrapper<T> wrapper,
+                                                       String column, String sumColumn, Collection<String> values) {
+        return query(mapper, wrapper, column, column, sumColumn, values, Object::toString);
+    }
+
+    /**
+     * 执行分组统计并补零
+     */
+    private static <T, K> StatusHistogram<K> query(BaseMapper<T> mapper, QueryWrapper<T> wrapper,
+                                                   String bucketExpression, String groupColumn, String sumColumn,
+                                                   Collection<K> buckets, Function<Object, K> keyMapper) {
+        if (sumColumn != null) {
+            wrapper.select(bucketExpression + " AS " + BUCKET_ALIAS,
+                    "COUNT(*) AS " + COUNT_ALIAS,
+                    "SUM(" + sumColumn + ") AS " + SUM_ALIAS);
+        } else {
+            wrapper.select(bucketExpression + " AS " + BUCKET_ALIAS, "COUNT(*) AS " + COUNT_ALIAS);
+        }
+        wrapper.groupBy(groupColumn);
+
+        StatusHistogram<K> histogram = new StatusHistogram<>(buckets);
+        List<Map<String, Object>> rows = mapper.selectMaps(wrapper);
+        for (Map<String, Object> row : rows) {
+            long count = toLong(row.get(COUNT_ALIAS));
+            BigDecimal sum = toBigDecimal(row.get(SUM_ALIAS));
+            histogram.totalCount += count;
+            histogram.totalSum = histogram.totalSum.add(sum);
+
+            Object value = row.get(BUCKET_ALIAS);
+            if (value == null) {
+                continue;
+            }
+            K key = keyMapper.apply(value);
+            if (histogram.counts.containsKey(key)) {
+                histogram.counts.put(key, count);
+                histogram.sums.put(key, sum);
+            }
+        }
+        return histogram;
+    }
+
+    private static long toLong(Object value) {
+        return value instanceof Number number ? number.longValue() : 0L;
+    }
+
+    private static BigDecimal toBigDecimal(Object value) {
+        if (value == null) {
+            return BigDecimal.ZERO;
+        }
+        return value instanceof BigDecimal decimal ? decimal : new BigDecimal(value.toString());
+    }
+}
@@ -0,0 +1,290 @@
+package com.ifarm.common.util;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * 分层时间轮
+ * 每层有固定数量的槽，槽跨度为下层一圈的时长，超出本层范围的任务放入上一层；
+ * 只有非空的槽进入DelayQueue，工作线程按槽到期时间推进各层时钟，
+ * 到期槽中的任务重新放入时间轮，落到更低层或到期执行。
+ * 添加和取消任务均为O(1)，待执行任务数量不影响推进开销。
+ *
+ * @author ifarm
+ * @since 2025-01-19
+ */
+@Slf4j
+public class TimingWheel {
+
+    private final Executor executor;
+    private final DelayQueue<Bucket> queue = new DelayQueue<>();
+    private final Level root;
+    private final AtomicInteger pending = new AtomicInteger();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Thread ticker;
+
+    private volatile boolean running = true;
+
+    /**
+     * @param name 名称（用于工作线程名）
+     * @param tickMillis 最底层槽跨度（毫秒），即到期精度
+     * @param wheelSize 每层槽数
+     * @param executor 执行到期任务的线程池，任务不在工作线程中执行
+     */
+    public TimingWheel(String name, long tickMillis, int wheelSize, Executor executor) {
+        this.executor = executor;
+        this.root = new Level(tickMillis, wheelSize, System.currentTimeMillis());
+        this.ticker = new Thread(this::run, name + "-ticker");
+        this.ticker.setDaemon(true);
+        this.ticker.start();
+    }
+
+    /**
+     * 添加定时任务，已到期的任务立即提交执行，其余任务在到期后一个槽跨度内执行
+     *
+     * @param deadlineMillis 到期时间（毫秒时间戳）
+     * @param task 任务
+     * @return 任务句柄，可用于取消
+     */
+    public Timeout schedule(long deadlineMillis, Runnable task) {
+        // 向上取整到槽边界，任务不会早于到期时间执行
+        long tick = root.tickMillis;
+        Timeout timeout = new Timeout(Math.floorDiv(deadlineMillis + tick - 1, tick) * tick, task);
+        pending.incrementAndGet();
+        lock.readLock().lock();
+        try {
+            addOrRun(timeout);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return timeout;
+    }
+
+    /**
+     * 等待执行的任务数
+     */
+    public int size() {
+        return pending.get();
+    }
+
+    /**
+     * 停止工作线程，未到期任务不再执行
+     */
+    public void stop() {
+        running = false;
+        ticker.interrupt();
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                Bucket bucket = queue.poll(200, TimeUnit.MILLISECONDS);
+                if (bucket == null) {
+                    continue;
+                }
+                lock.writeLock().lock();
+                try {
+                    while (bucket != null) {
+                        root.advanceClock(bucket.getExpiration());
+                        bucket.flush(this::addOrRun);
+                        bucket = queue.poll();
+                    }
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("时间轮推进失败", e);
+            }
+        }
+    }
+
+    private void addOrRun(Timeout timeout) {
+        if (timeout.isCancelled()) {
+            return;
+        }
+        if (!root.add(timeout)) {
+            // 已到期
+            if (timeout.markFired()) {
+                pending.decrementAndGet();
+                try {
+                    executor.execute(timeout.task);
+                } catch (Exception e) {
+                    log.error("提交到期任务失败", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * 任务句柄
+     */
+    public final class Timeout {
+
+        private static final int WAITING = 0;
+        private static final int CANCELLED = 1;
+        private static final int FIRED = 2;
+
+        private final long deadline;
+        private final Runnable task;
+        private final AtomicInteger state = new AtomicInteger(WAITING);
+
+        private Timeout(long deadline, Runnable task) {
+            this.deadline = deadline;
+            this.task = task;
+        }
+
+        /**
+         * 取消任务（已执行的任务取消无效）
+         *
+         * @return 是否取消成功
+         */
+        public boolean cancel() {
+            if (state.compareAndSet(WAITING, CANCELLED)) {
+                pending.decrementAndGet();
+                return true;
+            }
+            return false;
+        }
+
+        public boolean isCancelled() {
+            return state.get() == CANCELLED;
+        }
+
+        /**
+         * 是否已执行或已取消
+         */
+        public boolean isDone() {
+            return state.get() != WAITING;
+        }
+
+        public long getDeadline() {
+            return deadline;
+        }
+
+        private boolean markFired() {
+            return state.compareAndSet(WAITING, FIRED);
+        }
+    }
+
+    /**
+     * 时间轮的一层
+     */
+    private final class Level {
+
+        private final long tickMillis;
+        private final int wheelSize;
+        private final long interval;
+        private final Bucket[] buckets;
+        private volatile long currentTime;
+        private volatile Level overflow;
+
+        Level(long tickMillis, int wheelSize, long startMillis) {
+            this.tickMillis = tickMillis;
+            this.wheelSize = wheelSize;
+            this.interval = tickMillis * wheelSize;
+            this.buckets = new Bucket[wheelSize];
+            for (int i = 0; i < wheelSize; i++) {
+                buckets[i] = new Bucket();
+            }
+            this.currentTime = startMillis - startMillis % tickMillis;
+        }
+
+        /**
+         * @return 放入成功返回true，已到期返回false
+         */
+        boolean add(Timeout timeout) {
+            long deadline = timeout.deadline;
+            if (deadline < currentTime + tickMillis) {
+                return false;
+            }
+            if (deadline < currentTime + interval) {
+                long virtualId = deadline / tickMillis;
+                Bucket bucket = buckets[(int) (virtualId % wheelSize)];
+                bucket.add(timeout);
+                // 槽到期时间变化说明是新一圈的槽，需重新进入延迟队列
+                if (bucket.setExpiration(virtualId * tickMillis)) {
+                    queue.offer(bucket);
+                }
+                return true;
+            }
+            return overflow().add(timeout);
+        }
+
+        void advanceClock(long timeMillis) {
+            if (timeMillis >= currentTime + tickMillis) {
+                currentTime = timeMillis - timeMillis % tickMillis;
+                Level upper = overflow;
+                if (upper != null) {
+                    upper.advanceClock(currentTime);
+                }
+            }
+        }
+
+        private Level overflow() {
+            Level upper = overflow;
+            if (upper == null) {
+                synchronized (this) {
+                    upper = overflow;
+                    if (upper == null) {
+                        upper = new Level(interval, wheelSize, currentTime);
+                        overflow = upper;
+                    }
+                }
+            }
+            return upper;
+        }
+    }
+
+    /**
+     * 时间槽
+     */
+    private static final class Bucket implements Delayed {
+
+        private final AtomicLong expiration = new AtomicLong(-1L);
+        private List<Timeout> timeouts = new ArrayList<>();
+
+        synchronized void add(Timeout timeout) {
+            timeouts.add(timeout);
+        }
+
+        synchronized void flush(Consumer<Timeout> consumer) {
+            List<Timeout> drained = timeouts;
+            timeouts = new ArrayList<>();
+            expiration.set(-1L);
+            for (Timeout timeout : drained) {
+                consumer.accept(timeout);
+            }
+        }
+
+        boolean setExpiration(long expirationMillis) {
+            return expiration.getAndSet(expirationMillis) != expirationMillis;
+        }
+
+        long getExpiration() {
+            return expiration.get();
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(Math.max(getExpiration() - System.currentTimeMillis(), 0), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(getExpiration(), ((Bucket) other).getExpiration());
+        }
+    }
+}
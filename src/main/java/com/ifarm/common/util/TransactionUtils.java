@@ -0,0 +1,80 @@
+package com.ifarm.common.util;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * 事务工具类
+ * 用于让内存状态跟随数据库事务的提交或回滚
+ *
+ * @author ifarm
+ * @since 2025-01-19
+ */
+public final class TransactionUtils {
+
+    private TransactionUtils() {
+    }
+
+    /**
+     * 在当前事务完成后执行回调，无事务时立即执行提交回调
+     *
+     * @param onCommit 提交后回调（可为null）
+     * @param onRollback 回滚后回调（可为null）
+     */
+    public static void afterCompletion(Runnable onCommit, Runnable onRollback) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            if (onCommit != null) {
+                onCommit.run();
+            }
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                Runnable callback = status == STATUS_COMMITTED ? onCommit : onRollback;
+                if (callback != null) {
+                    callback.run();
+                }
+            }
+        });
+    }
+
+    /**
+     * 当前线程是否处于事务中（可注册事务回调）
+     */
+    public static boolean isActive() {
+        return TransactionSynchronizationManager.isSynchronizationActive();
+    }
+
+    /**
+     * 在当前事务提交前和完成后执行回调，须在事务中调用
+     * 提交前回调在数据库提交之前执行，事务在提交前回滚时不执行
+     *
+     * @param beforeCommit 提交前回调
+     * @param onCommit 提交后回调
+     * @param onRollback 回滚后回调
+     */
+    public static void aroundCommit(Runnable beforeCommit, Runnable onCommit, Runnable onRollback) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                beforeCommit.run();
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                (status == STATUS_COMMITTED ? onCommit : onRollback).run();
+            }
+        });
+    }
+
+    /**
+     * 在当前事务提交后执行回调，无事务时立即执行
+     *
+     * @param onCommit 提交后回调
+     */
+    public static void afterCommit(Runnable onCommit) {
+        afterCompletion(onCommit, null);
+    }
+}
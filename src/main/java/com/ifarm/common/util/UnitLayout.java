@@ -0,0 +1,133 @@
+package com.ifarm.common.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 项目单元布局策略
+ * 根据单元序号（从1开始）计算单元在地块中的行列位置，并写出位置信息JSON
+ *
+ * @author ifarm
+ * @since 2025-01-19
+ */
+public interface UnitLayout {
+
+    /**
+     * 默认每行单元数
+     */
+    int DEFAULT_COLUMNS = 10;
+
+    /**
+     * 计算单元位置
+     *
+     * @param sequence 单元序号（从1开始）
+     * @return 位置，数组为 {行, 列}（均从1开始）
+     */
+    int[] locate(int sequence);
+
+    /**
+     * 布局最多容纳的单元数
+     *
+     * @return 容量，不限时返回 Integer.MAX_VALUE
+     */
+    default int capacity() {
+        return Integer.MAX_VALUE;
+    }
+
+    /**
+     * 将单元位置信息JSON追加到缓冲区
+     * 格式：{"row": 1, "column": 2, "coordinates": "A2"}
+     *
+     * @param sequence 单元序号（从1开始）
+     * @param out 输出缓冲区
+     */
+    default void appendLocation(int sequence, StringBuilder out) {
+        int[] position = locate(sequence);
+        out.append("{\"row\": ").append(position[0])
+                .append(", \"column\": ").append(position[1])
+                .append(", \"coordinates\": \"");
+        appendRowLabel(position[0], out);
+        out.append(position[1]).append("\"}");
+    }
+
+    /**
+     * 行列网格布局，按行优先排列
+     *
+     * @param columns 每行单元数
+     * @return 布局
+     */
+    static UnitLayout grid(int columns) {
+        if (columns <= 0) {
+            throw new IllegalArgumentException("每行单元数必须大于0");
+        }
+        return sequence -> new int[]{(sequence - 1) / columns + 1, (sequence - 1) % columns + 1};
+    }
+
+    /**
+     * 蛇形网格布局，偶数行从右向左排列（便于沿田埂顺序巡视）
+     *
+     * @param columns 每行单元数
+     * @return 布局
+     */
+    static UnitLayout serpentine(int columns) {
+        if (columns <= 0) {
+            throw new IllegalArgumentException("每行单元数必须大于0");
+        }
+        return sequence -> {
+            int row = (sequence - 1) / columns + 1;
+            int offset = (sequence - 1) % columns;
+            int column = row % 2 == 1 ? offset + 1 : columns - offset;
+            return new int[]{row, column};
+        };
+    }
+
+    /**
+     * 自定义图案布局，'#'表示单元位置，其他字符表示空位（如水渠、田埂）
+     * 单元按行优先依次填入'#'位置
+     *
+     * @param rows 图案各行
+     * @return 布局
+     */
+    static UnitLayout pattern(String... rows) {
+        List<int[]> cells = new ArrayList<>();
+        for (int r = 0; r < rows.length; r++) {
+            for (int c = 0; c < rows[r].length(); c++) {
+                if (rows[r].charAt(c) == '#') {
+                    cells.add(new int[]{r + 1, c + 1});
+                }
+            }
+        }
+        if (cells.isEmpty()) {
+            throw new IllegalArgumentException("布局图案中没有单元位置");
+        }
+
+        int[][] positions = cells.toArray(new int[0][]);
+        return new UnitLayout() {
+            @Override
+            public int[] locate(int sequence) {
+                if (sequence > positions.length) {
+                    throw new IllegalArgumentException("单元序号超出布局图案容量: " + sequence);
+                }
+                return positions[sequence - 1];
+            }
+
+            @Override
+            public int capacity() {
+                return positions.length;
+            }
+        };
+    }
+
+    /**
+     * 追加行标签：1-A，26-Z，27-AA ...
+     *
+     * @param row 行号（从1开始）
+     * @param out 输出缓冲区
+     */
+    static void appendRowLabel(int row, StringBuilder out) {
+        int start = out.length();
+        for (int n = row; n > 0; n = (n - 1) / 26) {
+            out.insert(start, (char) ('A' + (n - 1) % 26));
+        }
+    }
+}
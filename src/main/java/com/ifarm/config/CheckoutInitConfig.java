@@ -0,0 +1,58 @@
+package com.ifarm.config;
+
+import com.ifarm.mapper.AdoptionOrderMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.stereotype.Component;
+
+/**
+ * 下单模式初始化配置
+ * 在应用启动时检查数据库对象与下单模式是否匹配：
+ * 已移除的支付触发器仍存在时会与应用的单元分配重复插入认养记录；
+ * procedure 模式需要新版 CreateAdoptionOrder 存储过程
+ *
+ * @author ifarm
+ * @since 2025-01-19
+ */
+@Slf4j
+@Component
+public class CheckoutInitConfig implements CommandLineRunner {
+
+    private static final String PAID_TRIGGER = "tr_adoption_order_paid";
+    private static final String CHECKOUT_PROCEDURE = "CreateAdoptionOrder";
+
+    /**
+     * 新版存储过程的参数数
+     */
+    private static final int CHECKOUT_PROCEDURE_PARAMETERS = 13;
+
+    private final AdoptionOrderMapper adoptionOrderMapper;
+    private final String checkoutMode;
+
+    public CheckoutInitConfig(AdoptionOrderMapper adoptionOrderMapper,
+                              @Value("${ifarm.checkout.mode:java}") String checkoutMode) {
+        this.adoptionOrderMapper = adoptionOrderMapper;
+        this.checkoutMode = checkoutMode;
+    }
+
+    @Override
+    public void run(String... args) throws Exception {
+        log.info("下单模式: {}", checkoutMode);
+
+        try {
+            if (adoptionOrderMapper.countTriggers(PAID_TRIGGER) > 0) {
+                log.error("数据库中仍存在触发器{}，订单支付时会重复分配单元和插入认养记录，请执行 DROP TRIGGER {}",
+                        PAID_TRIGGER, PAID_TRIGGER);
+            }
+            if ("procedure".equalsIgnoreCase(checkoutMode)
+                    && adoptionOrderMapper.countProcedureParameters(CHECKOUT_PROCEDURE) != CHECKOUT_PROCEDURE_PARAMETERS) {
+                log.error("下单模式为procedure，但数据库中的存储过程{}不存在或不是当前版本，请按 ifarm_schema.sql 重新创建",
+                        CHECKOUT_PROCEDURE);
+            }
+        } catch (Exception e) {
+            // 非MySQL数据库（如H2）没有对应的系统表
+            log.warn("检查下单相关数据库对象失败 - {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.ifarm.config;
+
+import com.ifarm.common.util.IdGenerator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.net.InetAddress;
+
+/**
+ * ID生成器配置类
+ * 多节点部署时每个节点需配置不同的 ifarm.id.worker-id，
+ * 未配置时按主机名和进程号推算，不同节点之间可能重复
+ *
+ * @author ifarm
+ * @since 2025-01-19
+ */
+@Slf4j
+@Configuration
+public class IdGeneratorConfig {
+
+    @Bean
+    public IdGenerator idGenerator(@Value("${ifarm.id.worker-id:-1}") int workerId) {
+        if (workerId < 0) {
+            workerId = deriveWorkerId();
+            log.warn("未配置ifarm.id.worker-id，按主机名和进程号推算节点号: {}，多节点部署时请显式配置", workerId);
+        } else {
+            log.info("ID生成器节点号: {}", workerId);
+        }
+        return new IdGenerator(workerId);
+    }
+
+    private int deriveWorkerId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            host = "localhost";
+        }
+        int hash = (host + "#" + ProcessHandle.current().pid()).hashCode();
+        return (hash ^ (hash >>> 16)) & IdGenerator.MAX_WORKER_ID;
+    }
+}
@@ -0,0 +1,335 @@
+package com.ifarm.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ifarm.common.result.Result;
+import com.ifarm.common.util.IdempotencyStore;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.lang.NonNull;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 幂等请求过滤器
+ * 已登录用户的写请求（POST/PUT/PATCH/DELETE）携带Idempotency-Key请求头时，按“用户+幂等键”记录请求指纹和响应：
+ * 重复请求直接重放首次的响应，首次请求仍在执行时等待其结果，同一幂等键用于不同请求时拒绝。
+ * 5xx响应、异常和超过大小上限的响应不保存，重试时会重新执行。
+ * 文件上传（multipart）和未声明长度或超过上限的请求体不做幂等处理：前者的各部分由容器解析，
+ * 无法在不读取全部内容的情况下可靠区分两次上传，后者无法在有限内存中缓存。
+ *
+ * 需要读取和缓存请求体、捕获响应体，因此实现为过滤器而不是HandlerInterceptor；
+ * 作为普通过滤器注册，在Spring Security过滤器链之后执行，此时已能取到当前用户。
+ *
+ * @author ifarm
+ * @since 2025-01-19
+ */
+@Slf4j
+@Component
+public class IdempotencyFilter extends OncePerRequestFilter {
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final Set<String> MUTATING_METHODS = Set.of("POST", "PUT", "PATCH", "DELETE");
+    private static final int MAX_KEY_LENGTH = 128;
+    private static final int MAX_ATTEMPTS = 3;
+
+    /**
+     * 等待首次执行结果超时的标记
+     */
+    private static final IdempotencyStore.StoredResponse WAIT_TIMEOUT =
+            new IdempotencyStore.StoredResponse(0, null, new byte[0]);
+
+    private final ObjectMapper objectMapper;
+    private final IdempotencyStore store;
+    private final int maxBodyBytes;
+    private final int maxResponseBytes;
+    private final long waitTimeoutMillis;
+
+    public IdempotencyFilter(ObjectMapper objectMapper,
+                             @Value("${ifarm.idempotency.ttl-seconds:3600}") long ttlSeconds,
+                             @Value("${ifarm.idempotency.max-entries:10000}") int maxEntries,
+                             @Value("${ifarm.idempotency.max-body-bytes:65536}") int maxBodyBytes,
+                             @Value("${ifarm.idempotency.max-response-bytes:65536}") int maxResponseBytes,
+                             @Value("${ifarm.idempotency.wait-timeout-millis:30000}") long waitTimeoutMillis) {
+        this.objectMapper = objectMapper;
+        this.store = new IdempotencyStore(maxEntries, TimeUnit.SECONDS.toMillis(ttlSeconds));
+        this.maxBodyBytes = maxBodyBytes;
+        this.maxResponseBytes = maxResponseBytes;
+        this.waitTimeoutMillis = waitTimeoutMillis;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        return !MUTATING_METHODS.contains(request.getMethod()) || request.getHeader(HEADER) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request,
+                                    @NonNull HttpServletResponse response,
+                                    @NonNull FilterChain filterChain) throws ServletException, IOException {
+
+        String idempotencyKey = request.getHeader(HEADER).trim();
+        if (!StringUtils.hasText(idempotencyKey) || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            writeError(response, HttpServletResponse.SC_BAD_REQUEST, HEADER + "不能为空且长度不能超过" + MAX_KEY_LENGTH);
+            return;
+        }
+
+        // 未登录请求不做幂等处理，交由安全配置决定是否放行
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !(authentication.getPrincipal() instanceof Long userId)) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        // 文件上传、未声明长度或过大的请求体不缓存，直接执行
+        long contentLength = request.getContentLengthLong();
+        if (isMultipart(request) || contentLength > maxBodyBytes || (contentLength < 0 && hasBody(request))) {
+            log.debug("请求体不支持幂等处理，跳过: {} {}, 长度: {}", request.getMethod(), request.getRequestURI(), contentLength);
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        HttpServletRequest actualRequest = request;
+        byte[] body = null;
+        if (!isForm(request)) {
+            body = request.getInputStream().readNBytes((int) Math.max(0, contentLength));
+            actualRequest = new CachedBodyRequest(request, body);
+        }
+        String key = userId + ":" + idempotencyKey;
+        String fingerprint = fingerprint(request, body);
+
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            IdempotencyStore.Acquisition acquisition = store.acquire(key, fingerprint, System.currentTimeMillis());
+            switch (acquisition.status()) {
+                case OWNER -> {
+                    execute(actualRequest, response, filterChain, key, acquisition.entry());
+                    return;
+                }
+                case MISMATCH -> {
+                    writeError(response, 422, HEADER + "已用于不同的请求");
+                    return;
+                }
+                default -> {
+                    IdempotencyStore.StoredResponse stored = await(acquisition.entry());
+                    if (stored == WAIT_TIMEOUT) {
+                        writeError(response, HttpServletResponse.SC_CONFLICT, "相同请求正在处理中，请稍后重试");
+                        return;
+                    }
+                    if (stored != null) {
+                        replay(response, stored);
+                        return;
+                    }
+                    // 首次执行未保存结果，重新竞争执行权
+                }
+            }
+        }
+        writeError(response, HttpServletResponse.SC_CONFLICT, "相同请求正在处理中，请稍后重试");
+    }
+
+    /**
+     * 获得执行权后执行请求并保存响应
+     */
+    private void execute(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain,
+                         String key, IdempotencyStore.Entry entry) throws ServletException, IOException {
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        boolean completed = false;
+        try {
+            filterChain.doFilter(request, wrapper);
+            int status = wrapper.getStatus();
+            if (status < HttpServletResponse.SC_INTERNAL_SERVER_ERROR && wrapper.getContentSize() <= maxResponseBytes) {
+                store.complete(entry, new IdempotencyStore.StoredResponse(status, wrapper.getContentType(),
+                        wrapper.getContentAsByteArray()), System.currentTimeMillis());
+                completed = true;
+            }
+        } finally {
+            if (!completed) {
+                store.abandon(key, entry);
+            }
+            wrapper.copyBodyToResponse();
+        }
+    }
+
+    /**
+     * 等待首次执行的结果，超时返回WAIT_TIMEOUT，首次执行未保存结果时返回null
+     */
+    private IdempotencyStore.StoredResponse await(IdempotencyStore.Entry entry) throws IOException {
+        try {
+            return entry.result().get(waitTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            return WAIT_TIMEOUT;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("等待幂等请求结果被中断", e);
+        } catch (ExecutionException e) {
+            return null;
+        }
+    }
+
+    private void replay(HttpServletResponse response, IdempotencyStore.StoredResponse stored) throws IOException {
+        response.setStatus(stored.status());
+        if (stored.contentType() != null) {
+            response.setContentType(stored.contentType());
+        }
+        response.setHeader(REPLAYED_HEADER, "true");
+        response.setContentLength(stored.body().length);
+        response.getOutputStream().write(stored.body());
+    }
+
+    private void writeError(HttpServletResponse response, int status, String message) throws IOException {
+        response.setStatus(status);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        objectMapper.writeValue(response.getOutputStream(), Result.error(status, message));
+    }
+
+    /**
+     * 请求指纹：方法、路径、查询串、请求类型和请求体的SHA-256
+     * 表单请求使用解析后的参数
+     */
+    private String fingerprint(HttpServletRequest request, byte[] body) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256不可用", e);
+        }
+        update(digest, request.getMethod());
+        update(digest, request.getRequestURI());
+        update(digest, request.getQueryString());
+        update(digest, request.getContentType());
+        if (body != null) {
+            digest.update(body);
+        } else {
+            for (Map.Entry<String, String[]> param : new TreeMap<>(request.getParameterMap()).entrySet()) {
+                update(digest, param.getKey());
+                for (String value : param.getValue()) {
+                    update(digest, value);
+                }
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        if (value != null) {
+            digest.update(value.getBytes(StandardCharsets.UTF_8));
+        }
+        digest.update((byte) 0);
+    }
+
+    /**
+     * 未声明长度时是否带有请求体（分块传输）
+     */
+    private static boolean hasBody(HttpServletRequest request) {
+        return request.getHeader("Transfer-Encoding") != null;
+    }
+
+    private static boolean isMultipart(HttpServletRequest request) {
+        String contentType = request.getContentType();
+        return contentType != null && contentType.toLowerCase().startsWith("multipart/");
+    }
+
+    private static boolean isForm(HttpServletRequest request) {
+        String contentType = request.getContentType();
+        return contentType != null
+                && contentType.toLowerCase().startsWith(MediaType.APPLICATION_FORM_URLENCODED_VALUE);
+    }
+
+    /**
+     * 请求体已读取到内存的请求，供后续过滤器和控制器重新读取
+     */
+    private static final class CachedBodyRequest extends HttpServletRequestWrapper {
+
+        private final byte[] body;
+
+        private CachedBodyRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream input = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public boolean isFinished() {
+                    return input.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener readListener) {
+                    // 请求体已全部缓存在内存中，立即通知可读和读取完毕
+                    try {
+                        if (!isFinished()) {
+                            readListener.onDataAvailable();
+                        }
+                        readListener.onAllDataRead();
+                    } catch (IOException e) {
+                        readListener.onError(e);
+                    }
+                }
+
+                @Override
+                public int read() {
+                    return input.read();
+                }
+
+                @Override
+                public int read(@NonNull byte[] b, int off, int len) {
+                    return input.read(b, off, len);
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            String encoding = getCharacterEncoding();
+            Charset charset = encoding != null ? Charset.forName(encoding) : StandardCharsets.UTF_8;
+            return new BufferedReader(new InputStreamReader(getInputStream(), charset));
+        }
+
+        @Override
+        public int getContentLength() {
+            return body.length;
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            return body.length;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.ifarm.config;
+
+import com.ifarm.service.IOrderTimeoutService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.stereotype.Component;
+
+/**
+ * 订单支付超时初始化配置
+ * 在应用启动时为全部待支付订单恢复支付超时任务
+ *
+ * @author ifarm
+ * @since 2025-01-19
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class OrderTimeoutInitConfig implements CommandLineRunner {
+
+    private final IOrderTimeoutService orderTimeoutService;
+
+    @Override
+    public void run(String... args) throws Exception {
+        log.info("开始恢复订单支付超时任务...");
+
+        try {
+            orderTimeoutService.recover();
+        } catch (Exception e) {
+            log.error("恢复订单支付超时任务失败 - {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.ifarm.config;
+
+import com.ifarm.common.event.OrderPaidEvent;
+import com.ifarm.service.IOutboxService;
+import com.ifarm.service.IPopularityService;
+import com.ifarm.service.IPromotionService;
+import com.ifarm.service.IUserSummaryService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.stereotype.Component;
+
+/**
+ * 事务发件箱初始化配置
+ * 在应用启动时注册事件处理器并启动投递线程，投递重启前积压的事件
+ *
+ * @author ifarm
+ * @since 2025-01-19
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class OutboxInitConfig implements CommandLineRunner {
+
+    private final IOutboxService outboxService;
+    private final IUserSummaryService userSummaryService;
+    private final IPopularityService popularityService;
+    private final IPromotionService promotionService;
+
+    @Override
+    public void run(String... args) throws Exception {
+        log.info("开始启动事务发件箱投递...");
+
+        try {
+            outboxService.registerHandler(OrderPaidEvent.EVENT_TYPE, OrderPaidEvent.class, event ->
+                    userSummaryService.onOrderPaid(event.getOrderId(), event.getUserId(), event.getAmount(),
+                            event.getUnitCount()));
+            // 热度计数在投递事务提交后生效
+            outboxService.registerHandler(OrderPaidEvent.EVENT_TYPE, OrderPaidEvent.class, event ->
+                    popularityService.recordProjectAdoption(event.getProjectId(), event.getUnitCount()));
+            // 累计支付金额变化后重新计算用户等级
+            outboxService.registerHandler(OrderPaidEvent.EVENT_TYPE, OrderPaidEvent.class, event ->
+                    promotionService.evictUser(event.getUserId()));
+            outboxService.start();
+        } catch (Exception e) {
+            log.error("启动事务发件箱投递失败 - {}", e.getMessage());
+        }
+    }
+}
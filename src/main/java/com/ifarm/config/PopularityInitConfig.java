@@ -0,0 +1,34 @@
+package com.ifarm.config;
+
+import com.ifarm.service.IPopularityService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.stereotype.Component;
+
+/**
+ * 热度统计初始化配置
+ * 在应用启动时从数据库恢复最近7天的热度统计并生成热门榜单
+ *
+ * @author ifarm
+ * @since 2025-01-19
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PopularityInitConfig implements CommandLineRunner {
+
+    private final IPopularityService popularityService;
+
+    @Override
+    public void run(String... args) throws Exception {
+        log.info("开始恢复热度统计...");
+
+        try {
+            popularityService.recover();
+            popularityService.refreshRankings();
+        } catch (Exception e) {
+            log.error("恢复热度统计失败 - {}", e.getMessage());
+        }
+    }
+}
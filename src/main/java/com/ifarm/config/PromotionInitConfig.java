@@ -0,0 +1,33 @@
+package com.ifarm.config;
+
+import com.ifarm.service.IPromotionService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.stereotype.Component;
+
+/**
+ * 促销规则初始化配置
+ * 在应用启动时加载并编译启用的促销规则
+ *
+ * @author ifarm
+ * @since 2025-01-19
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PromotionInitConfig implements CommandLineRunner {
+
+    private final IPromotionService promotionService;
+
+    @Override
+    public void run(String... args) throws Exception {
+        log.info("开始加载促销规则...");
+
+        try {
+            promotionService.reload();
+        } catch (Exception e) {
+            log.error("加载促销规则失败，暂不计算优惠 - {}", e.getMessage());
+        }
+    }
+}
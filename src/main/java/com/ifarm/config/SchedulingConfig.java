@@ -0,0 +1,15 @@
+package com.ifarm.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * 定时任务配置
+ * 
+ * @author ifarm
+ * @since 2025-01-19
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
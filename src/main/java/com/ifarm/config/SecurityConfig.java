@@ -61,6 +61,9 @@ public class SecurityConfig {
                 // 允许访问认证接口
                 .requestMatchers("/auth/login", "/auth/wechat-login", "/auth/refresh").permitAll()
                 
+                // 支付平台回调（以签名校验代替登录认证）
+                .requestMatchers("/api/payment/notify").permitAll()
+                
                 // 允许访问API文档
                 .requestMatchers("/swagger-ui/**", "/v3/api-docs/**", "/doc.html", "/webjars/**", "/favicon.ico").permitAll()
                 
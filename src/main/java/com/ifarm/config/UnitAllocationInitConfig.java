@@ -0,0 +1,43 @@
+package com.ifarm.config;
+
+import com.ifarm.entity.AdoptionProject;
+import com.ifarm.service.IAdoptionProjectService;
+import com.ifarm.service.IUnitAllocationService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * 单元分配位图初始化配置
+ * 在应用启动时从数据库加载认养中项目的空闲单元位图
+ *
+ * @author ifarm
+ * @since 2025-01-19
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class UnitAllocationInitConfig implements CommandLineRunner {
+
+    private final IAdoptionProjectService adoptionProjectService;
+    private final IUnitAllocationService unitAllocationService;
+
+    @Override
+    public void run(String... args) throws Exception {
+        log.info("开始加载单元分配位图...");
+
+        List<AdoptionProject> projects = adoptionProjectService.getProjectsByStatus(2);
+        for (AdoptionProject project : projects) {
+            try {
+                unitAllocationService.reload(project.getId());
+            } catch (Exception e) {
+                log.error("加载单元分配位图失败: projectId={} - {}", project.getId(), e.getMessage());
+            }
+        }
+
+        log.info("单元分配位图加载完成，共加载 {} 个项目", projects.size());
+    }
+}
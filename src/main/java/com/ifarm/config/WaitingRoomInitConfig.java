@@ -0,0 +1,33 @@
+package com.ifarm.config;
+
+import com.ifarm.service.IWaitingRoomService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.stereotype.Component;
+
+/**
+ * 抢购排队初始化配置
+ * 在应用启动时恢复开启了限流抢购的项目
+ *
+ * @author ifarm
+ * @since 2025-01-19
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class WaitingRoomInitConfig implements CommandLineRunner {
+
+    private final IWaitingRoomService waitingRoomService;
+
+    @Override
+    public void run(String... args) throws Exception {
+        log.info("开始恢复限流抢购项目...");
+
+        try {
+            waitingRoomService.reload();
+        } catch (Exception e) {
+            log.error("恢复限流抢购项目失败 - {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.ifarm.config;
+
+import com.ifarm.service.IWaitlistService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.stereotype.Component;
+
+/**
+ * 认养候补队列初始化配置
+ * 在应用启动时从数据库恢复排队中和已分配的候补
+ *
+ * @author ifarm
+ * @since 2025-01-19
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class WaitlistInitConfig implements CommandLineRunner {
+
+    private final IWaitlistService waitlistService;
+
+    @Override
+    public void run(String... args) throws Exception {
+        log.info("开始恢复认养候补队列...");
+
+        try {
+            waitlistService.reload();
+        } catch (Exception e) {
+            log.error("恢复认养候补队列失败 - {}", e.getMessage());
+        }
+    }
+}
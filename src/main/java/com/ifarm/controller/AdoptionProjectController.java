@@ -0,0 +1,112 @@
+package com.ifarm.controller;
+
+import com.ifarm.common.result.CursorPage;
+import com.ifarm.common.result.Result;
+import com.ifarm.dto.adoptionproject.ProjectFacetQueryDTO;
+import com.ifarm.entity.GrowthRecord;
+import com.ifarm.service.IGrowthRecordService;
+import com.ifarm.service.IInventoryReconcileService;
+import com.ifarm.service.IProjectDetailViewService;
+import com.ifarm.service.IProjectFacetService;
+import com.ifarm.service.IProjectRefundService;
+import com.ifarm.vo.adoptionproject.ProjectDetailView;
+import com.ifarm.vo.adoptionproject.ProjectFacetResultVO;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * 认养项目管理Controller
+ *
+ * @author ifarm
+ * @since 2025-01-19
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/adoption-projects")
+@RequiredArgsConstructor
+@Tag(name = "认养项目管理", description = "认养项目相关接口")
+public class AdoptionProjectController {
+
+    private final IProjectDetailViewService projectDetailViewService;
+    private final IProjectFacetService projectFacetService;
+    private final IInventoryReconcileService inventoryReconcileService;
+    private final IGrowthRecordService growthRecordService;
+    private final IProjectRefundService projectRefundService;
+
+    @GetMapping("/filter")
+    @Operation(summary = "筛选项目", description = "按作物、分类、地区、状态、可认养情况及价格、面积区间组合筛选项目，并返回各维度取值计数")
+    public Result<ProjectFacetResultVO> filterProjects(@Valid ProjectFacetQueryDTO query) {
+
+        log.debug("筛选项目: {}", query);
+
+        ProjectFacetResultVO result = projectFacetService.search(query, true);
+        return Result.success(result);
+    }
+
+    @GetMapping("/{id}/detail")
+    @Operation(summary = "获取项目详情", description = "获取项目详情页所需的全部信息（农场、地块、作物、单元状态、最新生长记录及收获汇总）")
+    public Result<ProjectDetailView> getProjectDetail(
+            @Parameter(description = "项目ID") @PathVariable Long id) {
+
+        log.debug("获取项目详情: id={}", id);
+
+        ProjectDetailView detail = projectDetailViewService.getDetailView(id);
+        return Result.success(detail);
+    }
+
+    @GetMapping("/{id}/growth-records")
+    @Operation(summary = "获取项目生长记录流", description = "按时间倒序游标分页加载生长记录，不统计总数；首次请求不传游标，之后传上一页返回的nextCursor")
+    public Result<CursorPage<GrowthRecord>> getGrowthRecordFeed(
+            @Parameter(description = "项目ID") @PathVariable Long id,
+            @Parameter(description = "生长阶段") @RequestParam(required = false) String growthStage,
+            @Parameter(description = "分页游标") @RequestParam(required = false) String cursor,
+            @Parameter(description = "每页大小") @RequestParam(defaultValue = "10") Integer size) {
+
+        CursorPage<GrowthRecord> page = growthRecordService.getProjectGrowthFeed(id, growthStage, cursor, size);
+        return Result.success(page);
+    }
+
+    @PostMapping("/inventory/reconcile")
+    @Operation(summary = "核对项目库存", description = "按项目单元、待支付订单和候补分配重新计算可用单元数并修正偏差")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Result<Integer> reconcileInventory(
+            @Parameter(description = "是否核对全部项目（否则只核对上次核对后有变更的项目）") @RequestParam(defaultValue = "false") Boolean full) {
+
+        log.info("核对项目库存: full={}", full);
+
+        int repaired = inventoryReconcileService.reconcile(Boolean.TRUE.equals(full));
+        return Result.success(repaired);
+    }
+
+    @GetMapping("/inventory/reconcile/statistics")
+    @Operation(summary = "获取库存核对统计", description = "获取库存核对的累计及最近一次偏差统计")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Result<Object> getReconcileStatistics() {
+        return Result.success(inventoryReconcileService.getReconcileStatistics());
+    }
+
+    @GetMapping("/{id}/refund-progress")
+    @Operation(summary = "获取项目退款进度", description = "获取项目取消后批量退款任务的已退款订单数、释放单元数、退款金额、断点和速率")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Result<Object> getRefundProgress(
+            @Parameter(description = "项目ID") @PathVariable Long id) {
+        return Result.success(projectRefundService.getRefundProgress(id));
+    }
+
+    @PostMapping("/refund/resume")
+    @Operation(summary = "继续项目退款任务", description = "从断点继续全部未完成的项目批量退款任务（后台执行）")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Result<Integer> resumeRefunds() {
+
+        log.info("继续项目退款任务");
+
+        int submitted = projectRefundService.resumeUnfinished();
+        return Result.success(submitted);
+    }
+}
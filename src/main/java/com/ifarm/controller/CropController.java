@@ -11,6 +11,7 @@ import com.ifarm.entity.Category;
 import com.ifarm.entity.Crop;
 import com.ifarm.service.ICategoryService;
 import com.ifarm.service.ICropService;
+import com.ifarm.service.IPopularityService;
 import com.ifarm.vo.crop.CropVO;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -40,6 +41,7 @@ public class CropController {
 
     private final ICropService cropService;
     private final ICategoryService categoryService;
+    private final IPopularityService popularityService;
 
     @GetMapping
     @Operation(summary = "获取作物列表", description = "获取作物列表，支持分页和搜索")
@@ -86,6 +88,7 @@ public class CropController {
         if (crop == null) {
             return Result.error("作物不存在");
         }
+        popularityService.recordView(IPopularityService.ItemType.CROP, id);
         
         CropVO vo = convertToVO(crop);
         return Result.success(vo);
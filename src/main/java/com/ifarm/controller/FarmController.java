@@ -10,6 +10,7 @@ import com.ifarm.dto.farm.FarmUpdateDTO;
 import com.ifarm.entity.Farm;
 import com.ifarm.entity.User;
 import com.ifarm.service.IFarmService;
+import com.ifarm.service.IPopularityService;
 import com.ifarm.service.IUserService;
 import com.ifarm.vo.farm.FarmVO;
 import io.swagger.v3.oas.annotations.Operation;
@@ -42,6 +43,7 @@ public class FarmController {
 
     private final IFarmService farmService;
     private final IUserService userService;
+    private final IPopularityService popularityService;
 
     @GetMapping
     @Operation(summary = "获取农场列表", description = "获取农场列表，支持分页和搜索")
@@ -88,11 +90,27 @@ public class FarmController {
         if (farm == null) {
             return Result.error("农场不存在");
         }
+        popularityService.recordView(IPopularityService.ItemType.FARM, id);
         
         FarmVO vo = convertToVO(farm);
         return Result.success(vo);
     }
 
+    @GetMapping("/popular")
+    @Operation(summary = "获取热门农场", description = "获取最近7天浏览和认养热度最高的农场列表")
+    public Result<List<FarmVO>> getPopularFarms(
+            @Parameter(description = "限制数量") @RequestParam(defaultValue = "10") Integer limit) {
+        
+        log.info("获取热门农场: limit={}", limit);
+        
+        List<Farm> farms = farmService.getPopularFarms(limit);
+        List<FarmVO> voList = farms.stream()
+                .map(this::convertToVO)
+                .collect(Collectors.toList());
+        
+        return Result.success(voList);
+    }
+
     @GetMapping("/my")
     @PreAuthorize("hasRole('FARM_OWNER')")
     @Operation(summary = "获取我的农场", description = "获取当前用户的农场列表")
@@ -0,0 +1,34 @@
+package com.ifarm.controller;
+
+import com.ifarm.common.result.Result;
+import com.ifarm.service.IOrderStateService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * 订单状态机Controller
+ *
+ * @author ifarm
+ * @since 2025-01-19
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/order-states")
+@RequiredArgsConstructor
+@Tag(name = "订单状态机", description = "订单状态迁移统计相关接口")
+public class OrderStateController {
+
+    private final IOrderStateService orderStateService;
+
+    @GetMapping("/statistics")
+    @Operation(summary = "获取订单状态迁移统计", description = "获取各迁移的执行次数、成功次数、冲突次数、冲突率和每秒迁移数")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Result<Object> getStatistics() {
+        Object statistics = orderStateService.getStatistics();
+        return Result.success(statistics);
+    }
+}
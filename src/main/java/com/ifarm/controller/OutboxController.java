@@ -0,0 +1,43 @@
+package com.ifarm.controller;
+
+import com.ifarm.common.result.Result;
+import com.ifarm.service.IOutboxService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * 事务发件箱管理Controller
+ *
+ * @author ifarm
+ * @since 2025-01-19
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/outbox")
+@RequiredArgsConstructor
+@Tag(name = "事务发件箱", description = "领域事件投递管理相关接口")
+public class OutboxController {
+
+    private final IOutboxService outboxService;
+
+    @GetMapping("/statistics")
+    @Operation(summary = "获取事件投递统计", description = "获取写入、投递、重试、放弃的事件数和待投递积压")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Result<Object> getStatistics() {
+        Object statistics = outboxService.getStatistics();
+        return Result.success(statistics);
+    }
+
+    @PostMapping("/{id}/retry")
+    @Operation(summary = "重新投递失败事件", description = "将超过重试次数的事件恢复为待投递")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Result<Boolean> retryFailed(@Parameter(description = "事件ID") @PathVariable Long id) {
+        boolean result = outboxService.retryFailed(id);
+        return Result.success(result);
+    }
+}
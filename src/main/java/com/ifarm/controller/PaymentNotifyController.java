@@ -0,0 +1,43 @@
+package com.ifarm.controller;
+
+import com.ifarm.common.result.Result;
+import com.ifarm.dto.payment.PaymentNotifyDTO;
+import com.ifarm.service.IPaymentNotifyService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * 支付通知Controller
+ *
+ * @author ifarm
+ * @since 2025-01-19
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/payment")
+@RequiredArgsConstructor
+@Tag(name = "支付通知", description = "支付平台回调相关接口")
+public class PaymentNotifyController {
+
+    private final IPaymentNotifyService paymentNotifyService;
+
+    @PostMapping("/notify")
+    @Operation(summary = "支付结果通知", description = "支付平台回调，验签并落库后立即应答，订单支付由后台异步处理；重复通知同样应答成功")
+    public Result<Void> receiveNotify(@Valid @RequestBody PaymentNotifyDTO notify) {
+        paymentNotifyService.receive(notify);
+        return Result.success();
+    }
+
+    @GetMapping("/notify/statistics")
+    @Operation(summary = "获取支付通知处理统计", description = "获取受理、重复、处理成功、失败和队列情况")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Result<Object> getStatistics() {
+        Object statistics = paymentNotifyService.getStatistics();
+        return Result.success(statistics);
+    }
+}
@@ -0,0 +1,40 @@
+package com.ifarm.controller;
+
+import com.ifarm.common.result.Result;
+import com.ifarm.service.IUnitGridMapService;
+import com.ifarm.vo.projectunit.UnitGridMapVO;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * 项目单元管理Controller
+ *
+ * @author ifarm
+ * @since 2025-01-19
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/project-units")
+@RequiredArgsConstructor
+@Tag(name = "项目单元管理", description = "项目单元相关接口")
+public class ProjectUnitController {
+
+    private final IUnitGridMapService unitGridMapService;
+
+    @GetMapping("/project/{projectId}/grid-map")
+    @Operation(summary = "获取项目单元网格图",
+            description = "返回网格尺寸和紧凑编码的单元状态；传入已有版本号时，未变化只返回版本号，变化较少时只返回变化的格子")
+    public Result<UnitGridMapVO> getGridMap(
+            @Parameter(description = "项目ID") @PathVariable Long projectId,
+            @Parameter(description = "客户端已有的版本号") @RequestParam(required = false) Long sinceVersion) {
+
+        log.debug("获取项目单元网格图: projectId={}, sinceVersion={}", projectId, sinceVersion);
+
+        UnitGridMapVO gridMap = unitGridMapService.getGridMap(projectId, sinceVersion);
+        return Result.success(gridMap);
+    }
+}
@@ -0,0 +1,82 @@
+package com.ifarm.controller;
+
+import com.ifarm.common.result.Result;
+import com.ifarm.dto.promotion.PromotionRuleCreateDTO;
+import com.ifarm.entity.PromotionRule;
+import com.ifarm.service.IAdoptionOrderService;
+import com.ifarm.service.IPromotionService;
+import com.ifarm.vo.order.OrderQuoteVO;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * 促销Controller
+ *
+ * @author ifarm
+ * @since 2025-01-19
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/promotions")
+@RequiredArgsConstructor
+@Tag(name = "促销管理", description = "订单报价和促销规则管理相关接口")
+public class PromotionController {
+
+    private final IPromotionService promotionService;
+    private final IAdoptionOrderService adoptionOrderService;
+
+    @GetMapping("/quote")
+    @Operation(summary = "订单报价", description = "按当前用户的等级、首单状态和项目适用的促销规则计算订单金额")
+    public Result<OrderQuoteVO> quote(
+            @Parameter(description = "项目ID") @RequestParam Long projectId,
+            @Parameter(description = "单元数量") @RequestParam Integer unitCount,
+            Authentication authentication) {
+        Long userId = (Long) authentication.getPrincipal();
+
+        OrderQuoteVO quote = adoptionOrderService.calculateOrderAmount(userId, projectId, unitCount);
+        return Result.success(quote);
+    }
+
+    @GetMapping("/rules")
+    @Operation(summary = "获取促销规则列表", description = "获取全部促销规则（含已停用）")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Result<List<PromotionRule>> listRules() {
+        List<PromotionRule> rules = promotionService.listRules();
+        return Result.success(rules);
+    }
+
+    @PostMapping("/rules")
+    @Operation(summary = "创建促销规则", description = "创建促销规则，提交后立即重新编译规则集")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Result<PromotionRule> createRule(@Valid @RequestBody PromotionRuleCreateDTO createDTO) {
+        PromotionRule rule = promotionService.createRule(createDTO);
+        return Result.success("促销规则创建成功", rule);
+    }
+
+    @PutMapping("/rules/{id}/status")
+    @Operation(summary = "启用或停用促销规则")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Result<Boolean> updateRuleStatus(
+            @Parameter(description = "规则ID") @PathVariable Long id,
+            @Parameter(description = "是否启用") @RequestParam Boolean enabled) {
+        boolean result = promotionService.updateRuleStatus(id, enabled);
+        return Result.success(result);
+    }
+
+    @DeleteMapping("/rules/{id}")
+    @Operation(summary = "删除促销规则")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Result<Boolean> deleteRule(@Parameter(description = "规则ID") @PathVariable Long id) {
+        boolean result = promotionService.deleteRule(id);
+        return Result.success(result);
+    }
+}
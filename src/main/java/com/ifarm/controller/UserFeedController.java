@@ -0,0 +1,75 @@
+package com.ifarm.controller;
+
+import com.ifarm.common.result.CursorPage;
+import com.ifarm.common.result.Result;
+import com.ifarm.entity.AdoptionOrder;
+import com.ifarm.entity.AdoptionRecord;
+import com.ifarm.entity.DeliveryOrder;
+import com.ifarm.service.IAdoptionOrderService;
+import com.ifarm.service.IAdoptionRecordService;
+import com.ifarm.service.IDeliveryOrderService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * 我的列表Controller
+ * 小程序下拉加载的订单、认养、配送列表，按时间倒序游标分页，不统计总数
+ *
+ * @author ifarm
+ * @since 2025-01-19
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/my")
+@RequiredArgsConstructor
+@Tag(name = "我的列表", description = "当前用户订单、认养记录、配送订单列表相关接口")
+public class UserFeedController {
+
+    private final IAdoptionOrderService adoptionOrderService;
+    private final IAdoptionRecordService adoptionRecordService;
+    private final IDeliveryOrderService deliveryOrderService;
+
+    @GetMapping("/orders")
+    @Operation(summary = "获取我的订单", description = "首次请求不传游标，之后传上一页返回的nextCursor，hasMore为false时到底")
+    public Result<CursorPage<AdoptionOrder>> getMyOrders(
+            @Parameter(description = "订单状态") @RequestParam(required = false) Integer orderStatus,
+            @Parameter(description = "分页游标") @RequestParam(required = false) String cursor,
+            @Parameter(description = "每页大小") @RequestParam(defaultValue = "10") Integer size,
+            Authentication authentication) {
+        Long userId = (Long) authentication.getPrincipal();
+
+        CursorPage<AdoptionOrder> page = adoptionOrderService.getUserOrderFeed(userId, orderStatus, cursor, size);
+        return Result.success(page);
+    }
+
+    @GetMapping("/adoptions")
+    @Operation(summary = "获取我的认养", description = "首次请求不传游标，之后传上一页返回的nextCursor，hasMore为false时到底")
+    public Result<CursorPage<AdoptionRecord>> getMyAdoptions(
+            @Parameter(description = "认养状态") @RequestParam(required = false) Integer adoptionStatus,
+            @Parameter(description = "分页游标") @RequestParam(required = false) String cursor,
+            @Parameter(description = "每页大小") @RequestParam(defaultValue = "10") Integer size,
+            Authentication authentication) {
+        Long userId = (Long) authentication.getPrincipal();
+
+        CursorPage<AdoptionRecord> page = adoptionRecordService.getUserAdoptionFeed(userId, adoptionStatus, cursor, size);
+        return Result.success(page);
+    }
+
+    @GetMapping("/deliveries")
+    @Operation(summary = "获取我的配送", description = "首次请求不传游标，之后传上一页返回的nextCursor，hasMore为false时到底")
+    public Result<CursorPage<DeliveryOrder>> getMyDeliveries(
+            @Parameter(description = "配送状态") @RequestParam(required = false) Integer deliveryStatus,
+            @Parameter(description = "分页游标") @RequestParam(required = false) String cursor,
+            @Parameter(description = "每页大小") @RequestParam(defaultValue = "10") Integer size,
+            Authentication authentication) {
+        Long userId = (Long) authentication.getPrincipal();
+
+        CursorPage<DeliveryOrder> page = deliveryOrderService.getUserDeliveryFeed(userId, deliveryStatus, cursor, size);
+        return Result.success(page);
+    }
+}
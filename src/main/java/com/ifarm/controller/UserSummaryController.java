@@ -0,0 +1,47 @@
+package com.ifarm.controller;
+
+import com.ifarm.common.result.Result;
+import com.ifarm.entity.UserSummary;
+import com.ifarm.service.IUserSummaryService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * 用户概览Controller
+ *
+ * @author ifarm
+ * @since 2025-01-19
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/user-summary")
+@RequiredArgsConstructor
+@Tag(name = "用户概览", description = "\"我的\"页面订单、认养、产量和配送汇总相关接口")
+public class UserSummaryController {
+
+    private final IUserSummaryService userSummaryService;
+
+    @GetMapping
+    @Operation(summary = "获取我的概览", description = "获取当前用户各状态订单数、累计支付金额、进行中的认养数、累计产量和未签收配送数")
+    public Result<UserSummary> getMySummary(Authentication authentication) {
+        Long userId = (Long) authentication.getPrincipal();
+
+        UserSummary summary = userSummaryService.getUserSummary(userId);
+        return Result.success(summary);
+    }
+
+    @PostMapping("/{userId}/rebuild")
+    @Operation(summary = "重建用户概览", description = "按订单、认养记录和配送订单重新计算用户概览")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Result<UserSummary> rebuild(@Parameter(description = "用户ID") @PathVariable Long userId) {
+        log.info("重建用户概览: userId={}", userId);
+        UserSummary summary = userSummaryService.rebuild(userId);
+        return Result.success(summary);
+    }
+}
@@ -0,0 +1,75 @@
+package com.ifarm.controller;
+
+import com.ifarm.common.result.Result;
+import com.ifarm.service.IWaitingRoomService;
+import com.ifarm.vo.waitingroom.WaitingRoomTicketVO;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * 抢购排队Controller
+ *
+ * @author ifarm
+ * @since 2025-01-19
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/waiting-room")
+@RequiredArgsConstructor
+@Tag(name = "抢购排队", description = "热门项目限流抢购排队相关接口")
+public class WaitingRoomController {
+
+    private final IWaitingRoomService waitingRoomService;
+
+    @PostMapping("/project/{projectId}/ticket")
+    @Operation(summary = "领取排队号", description = "项目开启限流抢购时领取排队号，轮到后在有效期内下单")
+    public Result<WaitingRoomTicketVO> takeTicket(
+            @Parameter(description = "项目ID") @PathVariable Long projectId,
+            Authentication authentication) {
+        Long userId = (Long) authentication.getPrincipal();
+
+        WaitingRoomTicketVO ticket = waitingRoomService.takeTicket(userId, projectId);
+        return Result.success(ticket);
+    }
+
+    @GetMapping("/project/{projectId}/ticket")
+    @Operation(summary = "获取排队状态", description = "获取当前用户的排队位置、预计等待时间和入场资格")
+    public Result<WaitingRoomTicketVO> getTicket(
+            @Parameter(description = "项目ID") @PathVariable Long projectId,
+            Authentication authentication) {
+        Long userId = (Long) authentication.getPrincipal();
+
+        WaitingRoomTicketVO ticket = waitingRoomService.getTicket(userId, projectId);
+        return Result.success(ticket);
+    }
+
+    @PutMapping("/project/{projectId}/launch-mode")
+    @Operation(summary = "开启限流抢购", description = "开启或调整项目的限流抢购模式，开启后只有获得入场资格的用户可以下单")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Result<Void> enableLaunchMode(
+            @Parameter(description = "项目ID") @PathVariable Long projectId,
+            @Parameter(description = "每秒放行人数") @RequestParam Integer admitRate,
+            @Parameter(description = "入场资格有效期（秒）") @RequestParam(defaultValue = "300") Integer admissionTtlSeconds) {
+        log.info("开启限流抢购: projectId={}, admitRate={}, admissionTtlSeconds={}", projectId, admitRate, admissionTtlSeconds);
+
+        waitingRoomService.enableLaunchMode(projectId, admitRate, admissionTtlSeconds);
+        return Result.success();
+    }
+
+    @DeleteMapping("/project/{projectId}/launch-mode")
+    @Operation(summary = "关闭限流抢购", description = "关闭项目的限流抢购模式")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Result<Void> disableLaunchMode(
+            @Parameter(description = "项目ID") @PathVariable Long projectId) {
+        log.info("关闭限流抢购: projectId={}", projectId);
+
+        waitingRoomService.disableLaunchMode(projectId);
+        return Result.success();
+    }
+}
@@ -0,0 +1,64 @@
+package com.ifarm.controller;
+
+import com.ifarm.common.result.Result;
+import com.ifarm.service.IWaitlistService;
+import com.ifarm.vo.waitlist.WaitlistEntryVO;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * 认养候补Controller
+ *
+ * @author ifarm
+ * @since 2025-01-19
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/waitlist")
+@RequiredArgsConstructor
+@Tag(name = "认养候补", description = "售罄项目候补排队相关接口")
+public class WaitlistController {
+
+    private final IWaitlistService waitlistService;
+
+    @PostMapping("/project/{projectId}")
+    @Operation(summary = "加入候补队列", description = "项目售罄时加入候补队列，有单元释放时按排队顺序分配并保留一段时间")
+    public Result<WaitlistEntryVO> joinWaitlist(
+            @Parameter(description = "项目ID") @PathVariable Long projectId,
+            @Parameter(description = "候补单元数") @RequestParam(defaultValue = "1") Integer unitCount,
+            Authentication authentication) {
+        Long userId = (Long) authentication.getPrincipal();
+        log.info("加入候补队列: userId={}, projectId={}, unitCount={}", userId, projectId, unitCount);
+
+        WaitlistEntryVO entry = waitlistService.joinWaitlist(userId, projectId, unitCount);
+        return Result.success(entry);
+    }
+
+    @DeleteMapping("/project/{projectId}")
+    @Operation(summary = "退出候补队列", description = "退出候补队列，已分配的单元将转给下一位")
+    public Result<Void> leaveWaitlist(
+            @Parameter(description = "项目ID") @PathVariable Long projectId,
+            Authentication authentication) {
+        Long userId = (Long) authentication.getPrincipal();
+        log.info("退出候补队列: userId={}, projectId={}", userId, projectId);
+
+        waitlistService.leaveWaitlist(userId, projectId);
+        return Result.success();
+    }
+
+    @GetMapping("/project/{projectId}")
+    @Operation(summary = "获取候补状态", description = "获取当前用户在项目候补队列中的位置或分配信息，未候补时返回空")
+    public Result<WaitlistEntryVO> getWaitlistEntry(
+            @Parameter(description = "项目ID") @PathVariable Long projectId,
+            Authentication authentication) {
+        Long userId = (Long) authentication.getPrincipal();
+
+        WaitlistEntryVO entry = waitlistService.getWaitlistEntry(userId, projectId);
+        return Result.success(entry);
+    }
+}
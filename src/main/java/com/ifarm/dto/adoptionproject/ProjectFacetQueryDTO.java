@@ -0,0 +1,58 @@
+package com.ifarm.dto.adoptionproject;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+/**
+ * 项目筛选查询DTO
+ * 
+ * @author ifarm
+ * @since 2025-01-19
+ */
+@Data
+@Schema(description = "项目筛选查询请求")
+public class ProjectFacetQueryDTO {
+
+    @Schema(description = "作物ID", example = "1")
+    private Long cropId;
+
+    @Schema(description = "作物分类ID", example = "1")
+    private Long categoryId;
+
+    @Schema(description = "省份", example = "浙江省")
+    private String province;
+
+    @Schema(description = "城市", example = "杭州市")
+    private String city;
+
+    @Schema(description = "项目状态：1-筹备中，2-认养中，3-种植中，4-收获中，5-已完成，6-已取消", example = "2")
+    private Integer projectStatus;
+
+    @Schema(description = "仅显示有可认养单元的项目", example = "true")
+    private Boolean availableOnly;
+
+    @Schema(description = "最低单元价格", example = "50.00")
+    private BigDecimal minPrice;
+
+    @Schema(description = "最高单元价格", example = "200.00")
+    private BigDecimal maxPrice;
+
+    @Schema(description = "最小单元面积（平方米）", example = "1.00")
+    private BigDecimal minArea;
+
+    @Schema(description = "最大单元面积（平方米）", example = "10.00")
+    private BigDecimal maxArea;
+
+    @Min(value = 1, message = "页码必须大于0")
+    @Schema(description = "页码", example = "1")
+    private Integer current = 1;
+
+    @Min(value = 1, message = "每页数量必须大于0")
+    @Max(value = 100, message = "每页数量不能超过100")
+    @Schema(description = "每页数量", example = "10")
+    private Integer size = 10;
+}
@@ -0,0 +1,80 @@
+package com.ifarm.dto.order;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * 下单存储过程调用参数
+ * 对应 CreateAdoptionOrder 的输入参数和输出参数，调用后由MyBatis回填 orderId 和 resultCode
+ *
+ * @author ifarm
+ * @since 2025-01-19
+ */
+@Data
+public class CreateOrderCall {
+
+    /**
+     * 结果码：成功
+     */
+    public static final int RESULT_SUCCESS = 0;
+
+    /**
+     * 结果码：项目不存在
+     */
+    public static final int RESULT_PROJECT_NOT_FOUND = 1;
+
+    /**
+     * 结果码：项目不可认养
+     */
+    public static final int RESULT_NOT_ADOPTABLE = 2;
+
+    /**
+     * 结果码：可认养单元数不足
+     */
+    public static final int RESULT_INSUFFICIENT_UNITS = 3;
+
+    /**
+     * 结果码：单元价格已变更
+     */
+    public static final int RESULT_PRICE_CHANGED = 4;
+
+    private Long userId;
+
+    private Long projectId;
+
+    private Integer unitCount;
+
+    /**
+     * 单元是否已由候补分配预占（1-是，不再扣减可认养单元数）
+     */
+    private Integer reserved;
+
+    private String orderNo;
+
+    /**
+     * 计算报价时的单元价格，与数据库不一致时拒绝下单
+     */
+    private BigDecimal unitPrice;
+
+    private BigDecimal totalAmount;
+
+    private BigDecimal discountAmount;
+
+    private BigDecimal actualAmount;
+
+    private String remark;
+
+    private LocalDateTime createTime;
+
+    /**
+     * 输出：订单ID
+     */
+    private Long orderId;
+
+    /**
+     * 输出：结果码
+     */
+    private Integer resultCode;
+}
@@ -0,0 +1,72 @@
+package com.ifarm.dto.payment;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.math.BigDecimal;
+
+/**
+ * 支付通知数据传输对象
+ *
+ * @author ifarm
+ * @since 2025-01-19
+ */
+@Data
+@Schema(name = "PaymentNotifyDTO", description = "支付平台回调通知")
+public class PaymentNotifyDTO implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 订单号
+     */
+    @NotBlank(message = "订单号不能为空")
+    @Size(max = 32, message = "订单号长度不能超过32个字符")
+    @Schema(description = "订单号", example = "AD20240601100000000000010001", requiredMode = Schema.RequiredMode.REQUIRED)
+    private String orderNo;
+
+    /**
+     * 支付流水号
+     */
+    @NotBlank(message = "支付流水号不能为空")
+    @Size(max = 64, message = "支付流水号长度不能超过64个字符")
+    @Schema(description = "支付流水号", example = "PAY20240601100000001", requiredMode = Schema.RequiredMode.REQUIRED)
+    private String paymentNo;
+
+    /**
+     * 支付金额
+     */
+    @NotNull(message = "支付金额不能为空")
+    @DecimalMin(value = "0.01", message = "支付金额必须大于0")
+    @Schema(description = "支付金额", example = "299.00", requiredMode = Schema.RequiredMode.REQUIRED)
+    private BigDecimal amount;
+
+    /**
+     * 支付方式
+     */
+    @NotBlank(message = "支付方式不能为空")
+    @Size(max = 20, message = "支付方式长度不能超过20个字符")
+    @Schema(description = "支付方式", example = "wechat", requiredMode = Schema.RequiredMode.REQUIRED)
+    private String paymentMethod;
+
+    /**
+     * 通知时间戳（毫秒）
+     */
+    @NotNull(message = "时间戳不能为空")
+    @Schema(description = "通知时间戳（毫秒）", example = "1717207200000", requiredMode = Schema.RequiredMode.REQUIRED)
+    private Long timestamp;
+
+    /**
+     * 签名：HMAC-SHA256(orderNo|paymentNo|amount|paymentMethod|timestamp) 的十六进制小写
+     */
+    @NotBlank(message = "签名不能为空")
+    @Schema(description = "签名", example = "3f2a...", requiredMode = Schema.RequiredMode.REQUIRED)
+    private String sign;
+}
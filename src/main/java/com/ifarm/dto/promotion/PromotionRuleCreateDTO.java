@@ -0,0 +1,65 @@
+package com.ifarm.dto.promotion;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * 促销规则创建DTO
+ * 
+ * @author ifarm
+ * @since 2025-01-19
+ */
+@Data
+@Schema(description = "促销规则创建请求")
+public class PromotionRuleCreateDTO {
+
+    @NotBlank(message = "规则名称不能为空")
+    @Size(max = 100, message = "规则名称长度不能超过100个字符")
+    @Schema(description = "规则名称", example = "满5单元9折")
+    private String name;
+
+    @NotNull(message = "规则类型不能为空")
+    @Min(value = 1, message = "规则类型无效")
+    @Max(value = 4, message = "规则类型无效")
+    @Schema(description = "规则类型：1-数量阶梯，2-用户等级，3-限时活动，4-首单优惠", example = "1")
+    private Integer ruleType;
+
+    @Schema(description = "适用项目ID（为空时适用全部项目）", example = "1")
+    private Long projectId;
+
+    @Min(value = 1, message = "最少认养单元数不能小于1")
+    @Schema(description = "最少认养单元数", example = "5")
+    private Integer minUnits = 1;
+
+    @Min(value = 0, message = "最低用户等级不能小于0")
+    @Schema(description = "最低用户等级", example = "0")
+    private Integer minUserTier = 0;
+
+    @DecimalMin(value = "0", message = "优惠比例不能小于0")
+    @DecimalMax(value = "1", message = "优惠比例不能大于1")
+    @Schema(description = "按订单总额的优惠比例（0.05表示优惠5%）", example = "0.10")
+    private BigDecimal discountRate = BigDecimal.ZERO;
+
+    @DecimalMin(value = "0", message = "固定优惠金额不能小于0")
+    @Schema(description = "每单固定优惠金额", example = "0.00")
+    private BigDecimal discountAmount = BigDecimal.ZERO;
+
+    @Schema(description = "生效开始时间（为空时立即生效，限时活动必填）", example = "2024-06-01 00:00:00")
+    private LocalDateTime startTime;
+
+    @Schema(description = "生效结束时间（为空时长期有效，限时活动必填）", example = "2024-06-30 23:59:59")
+    private LocalDateTime endTime;
+
+    @Schema(description = "优先级（同类型规则只取优先级最高的一条命中规则）", example = "0")
+    private Integer priority = 0;
+}
@@ -10,6 +10,7 @@ import java.io.Serializable;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.List;
 
 /**
  * 认养项目实体类
@@ -173,4 +174,25 @@ public class AdoptionProject implements Serializable {
     @TableLogic
     @Schema(description = "是否删除", example = "0", allowableValues = {"0", "1"})
     private Integer deleted;
+
+    /**
+     * 单元布局（仅创建项目时使用，不入库）：grid-行列网格，serpentine-蛇形网格，pattern-自定义图案
+     */
+    @TableField(exist = false)
+    @Schema(description = "单元布局，仅创建项目时使用", example = "grid", allowableValues = {"grid", "serpentine", "pattern"})
+    private String unitLayout;
+
+    /**
+     * 每行单元数（grid、serpentine布局，仅创建项目时使用）
+     */
+    @TableField(exist = false)
+    @Schema(description = "每行单元数，仅创建项目时使用", example = "10")
+    private Integer layoutColumns;
+
+    /**
+     * 自定义布局图案（pattern布局，仅创建项目时使用）：每个元素为一行，'#'表示单元位置，其他字符表示空位
+     */
+    @TableField(exist = false)
+    @Schema(description = "自定义布局图案，仅创建项目时使用", example = "[\"##.##\", \"##.##\"]")
+    private List<String> layoutPattern;
 }
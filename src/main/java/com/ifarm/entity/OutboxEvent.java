@@ -0,0 +1,110 @@
+package com.ifarm.entity;
+
+import com.baomidou.mybatisplus.annotation.*;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * 事务发件箱事件实体类
+ *
+ * @author ifarm
+ * @since 2025-01-19
+ */
+@Data
+@EqualsAndHashCode(callSuper = false)
+@TableName("outbox_events")
+@Schema(name = "OutboxEvent", description = "事务发件箱事件")
+public class OutboxEvent implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 事件ID
+     */
+    @TableId(value = "id", type = IdType.AUTO)
+    @Schema(description = "事件ID", example = "1")
+    private Long id;
+
+    /**
+     * 聚合类型
+     */
+    @TableField("aggregate_type")
+    @Schema(description = "聚合类型", example = "ORDER", requiredMode = Schema.RequiredMode.REQUIRED)
+    private String aggregateType;
+
+    /**
+     * 聚合ID
+     */
+    @TableField("aggregate_id")
+    @Schema(description = "聚合ID", example = "1", requiredMode = Schema.RequiredMode.REQUIRED)
+    private Long aggregateId;
+
+    /**
+     * 事件类型
+     */
+    @TableField("event_type")
+    @Schema(description = "事件类型", example = "ORDER_PAID", requiredMode = Schema.RequiredMode.REQUIRED)
+    private String eventType;
+
+    /**
+     * 事件内容（JSON格式）
+     */
+    @TableField("payload")
+    @Schema(description = "事件内容（JSON格式）", example = "{\"orderId\":1}", requiredMode = Schema.RequiredMode.REQUIRED)
+    private String payload;
+
+    /**
+     * 投递状态：1-待投递，2-已投递，3-投递失败
+     */
+    @TableField("event_status")
+    @Schema(description = "投递状态：1-待投递，2-已投递，3-投递失败", example = "1", allowableValues = {"1", "2", "3"})
+    private Integer eventStatus;
+
+    /**
+     * 投递失败次数
+     */
+    @TableField("retry_count")
+    @Schema(description = "投递失败次数", example = "0")
+    private Integer retryCount;
+
+    /**
+     * 下次投递时间
+     */
+    @TableField("next_retry_time")
+    @Schema(description = "下次投递时间", example = "2024-06-01 10:00:00")
+    private LocalDateTime nextRetryTime;
+
+    /**
+     * 最近一次失败原因
+     */
+    @TableField("last_error")
+    @Schema(description = "最近一次失败原因", example = "更新用户概览失败")
+    private String lastError;
+
+    /**
+     * 投递完成时间
+     */
+    @TableField("process_time")
+    @Schema(description = "投递完成时间", example = "2024-06-01 10:00:01")
+    private LocalDateTime processTime;
+
+    /**
+     * 创建时间
+     */
+    @TableField(value = "create_time", fill = FieldFill.INSERT)
+    @Schema(description = "创建时间", example = "2024-06-01 10:00:00")
+    private LocalDateTime createTime;
+
+    /**
+     * 更新时间
+     */
+    @TableField(value = "update_time", fill = FieldFill.INSERT_UPDATE)
+    @Schema(description = "更新时间", example = "2024-06-01 10:00:00")
+    private LocalDateTime updateTime;
+}
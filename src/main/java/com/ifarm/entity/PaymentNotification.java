@@ -0,0 +1,112 @@
+package com.ifarm.entity;
+
+import com.baomidou.mybatisplus.annotation.*;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * 支付通知实体类
+ *
+ * @author ifarm
+ * @since 2025-01-19
+ */
+@Data
+@EqualsAndHashCode(callSuper = false)
+@TableName("payment_notifications")
+@Schema(name = "PaymentNotification", description = "支付通知信息")
+public class PaymentNotification implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 通知ID
+     */
+    @TableId(value = "id", type = IdType.AUTO)
+    @Schema(description = "通知ID", example = "1")
+    private Long id;
+
+    /**
+     * 支付流水号
+     */
+    @TableField("payment_no")
+    @Schema(description = "支付流水号", example = "PAY20240601100000001", requiredMode = Schema.RequiredMode.REQUIRED)
+    private String paymentNo;
+
+    /**
+     * 订单号
+     */
+    @TableField("order_no")
+    @Schema(description = "订单号", example = "AD20240601100000000000010001", requiredMode = Schema.RequiredMode.REQUIRED)
+    private String orderNo;
+
+    /**
+     * 支付金额
+     */
+    @TableField("amount")
+    @Schema(description = "支付金额", example = "299.00", requiredMode = Schema.RequiredMode.REQUIRED)
+    private BigDecimal amount;
+
+    /**
+     * 支付方式
+     */
+    @TableField("payment_method")
+    @Schema(description = "支付方式", example = "wechat", requiredMode = Schema.RequiredMode.REQUIRED)
+    private String paymentMethod;
+
+    /**
+     * 处理状态：1-待处理，2-已处理，3-处理失败
+     */
+    @TableField("notify_status")
+    @Schema(description = "处理状态：1-待处理，2-已处理，3-处理失败", example = "1", allowableValues = {"1", "2", "3"})
+    private Integer notifyStatus;
+
+    /**
+     * 处理失败次数
+     */
+    @TableField("retry_count")
+    @Schema(description = "处理失败次数", example = "0")
+    private Integer retryCount;
+
+    /**
+     * 失败原因
+     */
+    @TableField("fail_reason")
+    @Schema(description = "失败原因", example = "订单已取消")
+    private String failReason;
+
+    /**
+     * 处理完成时间
+     */
+    @TableField("process_time")
+    @Schema(description = "处理完成时间", example = "2024-06-01 10:00:01")
+    private LocalDateTime processTime;
+
+    /**
+     * 创建时间
+     */
+    @TableField(value = "create_time", fill = FieldFill.INSERT)
+    @Schema(description = "创建时间", example = "2024-06-01 10:00:00")
+    private LocalDateTime createTime;
+
+    /**
+     * 更新时间
+     */
+    @TableField(value = "update_time", fill = FieldFill.INSERT_UPDATE)
+    @Schema(description = "更新时间", example = "2024-06-01 10:00:00")
+    private LocalDateTime updateTime;
+
+    /**
+     * 是否删除：0-未删除，1-已删除
+     */
+    @TableField("deleted")
+    @TableLogic
+    @Schema(description = "是否删除", example = "0", allowableValues = {"0", "1"})
+    private Integer deleted;
+}
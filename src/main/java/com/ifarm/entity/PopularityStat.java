@@ -0,0 +1,82 @@
+package com.ifarm.entity;
+
+import com.baomidou.mybatisplus.annotation.*;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * 热度统计实体类
+ * 
+ * @author ifarm
+ * @since 2025-01-19
+ */
+@Data
+@EqualsAndHashCode(callSuper = false)
+@TableName("popularity_stats")
+@Schema(name = "PopularityStat", description = "热度统计信息")
+public class PopularityStat implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 统计ID
+     */
+    @TableId(value = "id", type = IdType.AUTO)
+    @Schema(description = "统计ID", example = "1")
+    private Long id;
+
+    /**
+     * 对象类型：1-项目，2-农场，3-作物
+     */
+    @TableField("item_type")
+    @Schema(description = "对象类型：1-项目，2-农场，3-作物", example = "1", requiredMode = Schema.RequiredMode.REQUIRED)
+    private Integer itemType;
+
+    /**
+     * 对象ID
+     */
+    @TableField("item_id")
+    @Schema(description = "对象ID", example = "1", requiredMode = Schema.RequiredMode.REQUIRED)
+    private Long itemId;
+
+    /**
+     * 统计小时（自1970-01-01 00:00 UTC起的小时数）
+     */
+    @TableField("bucket_hour")
+    @Schema(description = "统计小时（自1970-01-01 00:00 UTC起的小时数）", example = "482136", requiredMode = Schema.RequiredMode.REQUIRED)
+    private Long bucketHour;
+
+    /**
+     * 浏览次数
+     */
+    @TableField("view_count")
+    @Schema(description = "浏览次数", example = "120")
+    private Long viewCount;
+
+    /**
+     * 认养单元数
+     */
+    @TableField("adoption_count")
+    @Schema(description = "认养单元数", example = "3")
+    private Long adoptionCount;
+
+    /**
+     * 创建时间
+     */
+    @TableField(value = "create_time", fill = FieldFill.INSERT)
+    @Schema(description = "创建时间", example = "2024-06-01 10:00:00")
+    private LocalDateTime createTime;
+
+    /**
+     * 更新时间
+     */
+    @TableField(value = "update_time", fill = FieldFill.INSERT_UPDATE)
+    @Schema(description = "更新时间", example = "2024-06-01 10:00:00")
+    private LocalDateTime updateTime;
+}
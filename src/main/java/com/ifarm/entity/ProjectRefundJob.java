@@ -0,0 +1,118 @@
+package com.ifarm.entity;
+
+import com.baomidou.mybatisplus.annotation.*;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * 项目批量退款任务实体类
+ *
+ * @author ifarm
+ * @since 2025-01-19
+ */
+@Data
+@EqualsAndHashCode(callSuper = false)
+@TableName("project_refund_jobs")
+@Schema(name = "ProjectRefundJob", description = "项目批量退款任务")
+public class ProjectRefundJob implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 任务ID
+     */
+    @TableId(value = "id", type = IdType.AUTO)
+    @Schema(description = "任务ID", example = "1")
+    private Long id;
+
+    /**
+     * 项目ID
+     */
+    @TableField("project_id")
+    @Schema(description = "项目ID", example = "1", requiredMode = Schema.RequiredMode.REQUIRED)
+    private Long projectId;
+
+    /**
+     * 任务状态：1-进行中，2-已完成
+     */
+    @TableField("job_status")
+    @Schema(description = "任务状态：1-进行中，2-已完成", example = "1", allowableValues = {"1", "2"})
+    private Integer jobStatus;
+
+    /**
+     * 任务开始时待退款的订单数
+     */
+    @TableField("total_orders")
+    @Schema(description = "任务开始时待退款的订单数", example = "1200")
+    private Integer totalOrders;
+
+    /**
+     * 已退款订单数
+     */
+    @TableField("refunded_orders")
+    @Schema(description = "已退款订单数", example = "500")
+    private Integer refundedOrders;
+
+    /**
+     * 已释放单元数
+     */
+    @TableField("refunded_units")
+    @Schema(description = "已释放单元数", example = "800")
+    private Integer refundedUnits;
+
+    /**
+     * 已退款金额
+     */
+    @TableField("refunded_amount")
+    @Schema(description = "已退款金额", example = "79200.00")
+    private BigDecimal refundedAmount;
+
+    /**
+     * 已处理到的订单ID（断点）
+     */
+    @TableField("last_order_id")
+    @Schema(description = "已处理到的订单ID", example = "10086")
+    private Long lastOrderId;
+
+    /**
+     * 最近一次失败原因
+     */
+    @TableField("last_error")
+    @Schema(description = "最近一次失败原因", example = "释放单元失败")
+    private String lastError;
+
+    /**
+     * 开始时间
+     */
+    @TableField("start_time")
+    @Schema(description = "开始时间", example = "2024-06-01 10:00:00")
+    private LocalDateTime startTime;
+
+    /**
+     * 完成时间
+     */
+    @TableField("finish_time")
+    @Schema(description = "完成时间", example = "2024-06-01 10:05:00")
+    private LocalDateTime finishTime;
+
+    /**
+     * 创建时间
+     */
+    @TableField(value = "create_time", fill = FieldFill.INSERT)
+    @Schema(description = "创建时间", example = "2024-06-01 10:00:00")
+    private LocalDateTime createTime;
+
+    /**
+     * 更新时间
+     */
+    @TableField(value = "update_time", fill = FieldFill.INSERT_UPDATE)
+    @Schema(description = "更新时间", example = "2024-06-01 10:05:00")
+    private LocalDateTime updateTime;
+}
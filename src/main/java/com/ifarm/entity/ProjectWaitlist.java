@@ -0,0 +1,97 @@
+package com.ifarm.entity;
+
+import com.baomidou.mybatisplus.annotation.*;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * 认养候补实体类
+ * 
+ * @author ifarm
+ * @since 2025-01-19
+ */
+@Data
+@EqualsAndHashCode(callSuper = false)
+@TableName("project_waitlist")
+@Schema(name = "ProjectWaitlist", description = "认养候补信息")
+public class ProjectWaitlist implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 候补ID
+     */
+    @TableId(value = "id", type = IdType.AUTO)
+    @Schema(description = "候补ID", example = "1")
+    private Long id;
+
+    /**
+     * 项目ID
+     */
+    @TableField("project_id")
+    @Schema(description = "项目ID", example = "1", requiredMode = Schema.RequiredMode.REQUIRED)
+    private Long projectId;
+
+    /**
+     * 用户ID
+     */
+    @TableField("user_id")
+    @Schema(description = "用户ID", example = "1", requiredMode = Schema.RequiredMode.REQUIRED)
+    private Long userId;
+
+    /**
+     * 候补单元数
+     */
+    @TableField("unit_count")
+    @Schema(description = "候补单元数", example = "2", requiredMode = Schema.RequiredMode.REQUIRED)
+    private Integer unitCount;
+
+    /**
+     * 候补状态：1-排队中，2-已分配，3-已下单，4-已失效，5-已取消
+     */
+    @TableField("waitlist_status")
+    @Schema(description = "候补状态：1-排队中，2-已分配，3-已下单，4-已失效，5-已取消", example = "1", allowableValues = {"1", "2", "3", "4", "5"})
+    private Integer waitlistStatus;
+
+    /**
+     * 分配时间
+     */
+    @TableField("offer_time")
+    @Schema(description = "分配时间", example = "2024-06-01 10:00:00")
+    private LocalDateTime offerTime;
+
+    /**
+     * 分配保留截止时间
+     */
+    @TableField("offer_expire_time")
+    @Schema(description = "分配保留截止时间，超时未下单将分配给下一位", example = "2024-06-01 10:05:00")
+    private LocalDateTime offerExpireTime;
+
+    /**
+     * 创建时间
+     */
+    @TableField(value = "create_time", fill = FieldFill.INSERT)
+    @Schema(description = "创建时间", example = "2024-06-01 10:00:00")
+    private LocalDateTime createTime;
+
+    /**
+     * 更新时间
+     */
+    @TableField(value = "update_time", fill = FieldFill.INSERT_UPDATE)
+    @Schema(description = "更新时间", example = "2024-06-01 10:00:00")
+    private LocalDateTime updateTime;
+
+    /**
+     * 是否删除：0-未删除，1-已删除
+     */
+    @TableField("deleted")
+    @TableLogic
+    @Schema(description = "是否删除", example = "0", allowableValues = {"0", "1"})
+    private Integer deleted;
+}
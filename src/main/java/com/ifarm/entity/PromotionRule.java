@@ -0,0 +1,133 @@
+package com.ifarm.entity;
+
+import com.baomidou.mybatisplus.annotation.*;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * 促销规则实体类
+ *
+ * @author ifarm
+ * @since 2025-01-19
+ */
+@Data
+@EqualsAndHashCode(callSuper = false)
+@TableName("promotion_rules")
+@Schema(name = "PromotionRule", description = "促销规则信息")
+public class PromotionRule implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 规则ID
+     */
+    @TableId(value = "id", type = IdType.AUTO)
+    @Schema(description = "规则ID", example = "1")
+    private Long id;
+
+    /**
+     * 规则名称
+     */
+    @TableField("name")
+    @Schema(description = "规则名称", example = "满5单元9折", requiredMode = Schema.RequiredMode.REQUIRED)
+    private String name;
+
+    /**
+     * 规则类型：1-数量阶梯，2-用户等级，3-限时活动，4-首单优惠
+     */
+    @TableField("rule_type")
+    @Schema(description = "规则类型：1-数量阶梯，2-用户等级，3-限时活动，4-首单优惠", example = "1", requiredMode = Schema.RequiredMode.REQUIRED, allowableValues = {"1", "2", "3", "4"})
+    private Integer ruleType;
+
+    /**
+     * 适用项目ID（为空时适用全部项目）
+     */
+    @TableField("project_id")
+    @Schema(description = "适用项目ID", example = "1")
+    private Long projectId;
+
+    /**
+     * 最少认养单元数
+     */
+    @TableField("min_units")
+    @Schema(description = "最少认养单元数", example = "5")
+    private Integer minUnits;
+
+    /**
+     * 最低用户等级
+     */
+    @TableField("min_user_tier")
+    @Schema(description = "最低用户等级", example = "0")
+    private Integer minUserTier;
+
+    /**
+     * 按订单总额的优惠比例（0.0500表示优惠5%）
+     */
+    @TableField("discount_rate")
+    @Schema(description = "按订单总额的优惠比例", example = "0.1000")
+    private BigDecimal discountRate;
+
+    /**
+     * 每单固定优惠金额
+     */
+    @TableField("discount_amount")
+    @Schema(description = "每单固定优惠金额", example = "0.00")
+    private BigDecimal discountAmount;
+
+    /**
+     * 生效开始时间（为空时立即生效）
+     */
+    @TableField("start_time")
+    @Schema(description = "生效开始时间", example = "2024-06-01 00:00:00")
+    private LocalDateTime startTime;
+
+    /**
+     * 生效结束时间（为空时长期有效）
+     */
+    @TableField("end_time")
+    @Schema(description = "生效结束时间", example = "2024-06-30 23:59:59")
+    private LocalDateTime endTime;
+
+    /**
+     * 优先级（同类型规则只取优先级最高的一条命中规则）
+     */
+    @TableField("priority")
+    @Schema(description = "优先级", example = "0")
+    private Integer priority;
+
+    /**
+     * 状态：0-停用，1-启用
+     */
+    @TableField("rule_status")
+    @Schema(description = "状态：0-停用，1-启用", example = "1", allowableValues = {"0", "1"})
+    private Integer ruleStatus;
+
+    /**
+     * 创建时间
+     */
+    @TableField(value = "create_time", fill = FieldFill.INSERT)
+    @Schema(description = "创建时间", example = "2024-06-01 10:00:00")
+    private LocalDateTime createTime;
+
+    /**
+     * 更新时间
+     */
+    @TableField(value = "update_time", fill = FieldFill.INSERT_UPDATE)
+    @Schema(description = "更新时间", example = "2024-06-01 10:00:00")
+    private LocalDateTime updateTime;
+
+    /**
+     * 是否删除：0-未删除，1-已删除
+     */
+    @TableField("deleted")
+    @TableLogic
+    @Schema(description = "是否删除", example = "0", allowableValues = {"0", "1"})
+    private Integer deleted;
+}
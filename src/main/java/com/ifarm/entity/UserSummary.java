@@ -0,0 +1,111 @@
+package com.ifarm.entity;
+
+import com.baomidou.mybatisplus.annotation.*;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * 用户概览实体类（"我的"页面读模型）
+ *
+ * @author ifarm
+ * @since 2025-01-19
+ */
+@Data
+@EqualsAndHashCode(callSuper = false)
+@TableName("user_summary")
+@Schema(name = "UserSummary", description = "用户概览信息")
+public class UserSummary implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 用户ID
+     */
+    @TableId(value = "user_id", type = IdType.INPUT)
+    @Schema(description = "用户ID", example = "1")
+    private Long userId;
+
+    /**
+     * 待支付订单数
+     */
+    @TableField("pending_order_count")
+    @Schema(description = "待支付订单数", example = "1")
+    private Integer pendingOrderCount;
+
+    /**
+     * 已支付订单数
+     */
+    @TableField("paid_order_count")
+    @Schema(description = "已支付订单数", example = "2")
+    private Integer paidOrderCount;
+
+    /**
+     * 已完成订单数
+     */
+    @TableField("completed_order_count")
+    @Schema(description = "已完成订单数", example = "3")
+    private Integer completedOrderCount;
+
+    /**
+     * 已取消订单数
+     */
+    @TableField("cancelled_order_count")
+    @Schema(description = "已取消订单数", example = "0")
+    private Integer cancelledOrderCount;
+
+    /**
+     * 已退款订单数
+     */
+    @TableField("refunded_order_count")
+    @Schema(description = "已退款订单数", example = "0")
+    private Integer refundedOrderCount;
+
+    /**
+     * 累计支付金额（已支付和已完成订单）
+     */
+    @TableField("paid_amount")
+    @Schema(description = "累计支付金额", example = "1495.00")
+    private BigDecimal paidAmount;
+
+    /**
+     * 进行中的认养数（已认养至已收获）
+     */
+    @TableField("active_adoption_count")
+    @Schema(description = "进行中的认养数", example = "5")
+    private Integer activeAdoptionCount;
+
+    /**
+     * 累计收获产量（kg）
+     */
+    @TableField("total_yield")
+    @Schema(description = "累计收获产量（kg）", example = "25.50")
+    private BigDecimal totalYield;
+
+    /**
+     * 未签收的配送订单数（待发货至派送中）
+     */
+    @TableField("in_flight_delivery_count")
+    @Schema(description = "未签收的配送订单数", example = "1")
+    private Integer inFlightDeliveryCount;
+
+    /**
+     * 创建时间
+     */
+    @TableField(value = "create_time", fill = FieldFill.INSERT)
+    @Schema(description = "创建时间", example = "2024-06-01 10:00:00")
+    private LocalDateTime createTime;
+
+    /**
+     * 更新时间
+     */
+    @TableField(value = "update_time", fill = FieldFill.INSERT_UPDATE)
+    @Schema(description = "更新时间", example = "2024-06-01 10:00:00")
+    private LocalDateTime updateTime;
+}
@@ -3,9 +3,14 @@ package com.ifarm.mapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.ifarm.dto.order.CreateOrderCall;
 import com.ifarm.entity.AdoptionOrder;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Options;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+import org.apache.ibatis.mapping.StatementType;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -69,6 +74,8 @@ public interface AdoptionOrderMapper extends BaseMapper<AdoptionOrder> {
      * @param timeoutTime 超时时间
      * @return 超时订单列表
      */
+    @Select("SELECT * FROM adoption_orders WHERE order_status = 1 AND deleted = 0 AND create_time < #{timeoutTime} " +
+            "ORDER BY create_time")
     List<AdoptionOrder> selectTimeoutOrders(@Param("timeoutTime") LocalDateTime timeoutTime);
 
     /**
@@ -87,4 +94,151 @@ public interface AdoptionOrderMapper extends BaseMapper<AdoptionOrder> {
      * @return 订单详情
      */
     AdoptionOrder selectOrderDetail(@Param("orderId") Long orderId);
+
+    /**
+     * 查询全部待支付订单的ID和创建时间（用于恢复支付超时任务，走 idx_status_create_time 覆盖索引）
+     * 
+     * @return 订单列表（仅包含id和createTime）
+     */
+    @Select("SELECT id, create_time FROM adoption_orders WHERE order_status = 1 AND deleted = 0")
+    List<AdoptionOrder> selectPendingDeadlines();
+
+    /**
+     * 订单状态迁移（仅当订单仍处于起始状态且属于指定用户时生效）
+     * 
+     * @param orderId 订单ID
+     * @param fromStatus 起始状态
+     * @param toStatus 目标状态
+     * @param userId 所属用户ID，为null时不校验
+     * @return 更新行数，0表示订单不存在、不属于该用户或状态已变更
+     */
+    @Update("<script>UPDATE adoption_orders SET order_status = #{toStatus} " +
+            "WHERE id = #{orderId} AND order_status = #{fromStatus} AND deleted = 0" +
+            "<if test='userId != null'> AND user_id = #{userId}</if></script>")
+    int transition(@Param("orderId") Long orderId,
+                   @Param("fromStatus") int fromStatus,
+                   @Param("toStatus") int toStatus,
+                   @Param("userId") Long userId);
+
+    /**
+     * 批量订单状态迁移（仅处于起始状态的订单生效）
+     * 
+     * @param orderIds 订单ID列表
+     * @param fromStatus 起始状态
+     * @param toStatus 目标状态
+     * @return 更新行数
+     */
+    @Update("<script>UPDATE adoption_orders SET order_status = #{toStatus} " +
+            "WHERE order_status = #{fromStatus} AND deleted = 0 AND id IN " +
+            "<foreach collection='orderIds' item='id' open='(' separator=',' close=')'>#{id}</foreach></script>")
+    int transitionByIds(@Param("orderIds") List<Long> orderIds,
+                        @Param("fromStatus") int fromStatus,
+                        @Param("toStatus") int toStatus);
+
+    /**
+     * 标记订单已支付（仅当订单仍为待支付状态时生效）
+     * 
+     * @param orderId 订单ID
+     * @param paymentMethod 支付方式
+     * @param paymentNo 支付流水号
+     * @param paymentTime 支付时间
+     * @return 更新行数，0表示订单已支付或已取消
+     */
+    @Update("UPDATE adoption_orders SET order_status = 2, payment_method = #{paymentMethod}, payment_no = #{paymentNo}, " +
+            "payment_time = #{paymentTime} WHERE id = #{orderId} AND order_status = 1 AND deleted = 0")
+    int markPaid(@Param("orderId") Long orderId,
+                 @Param("paymentMethod") String paymentMethod,
+                 @Param("paymentNo") String paymentNo,
+                 @Param("paymentTime") LocalDateTime paymentTime);
+
+    /**
+     * 锁定项目下全部待支付订单（项目取消时在同一事务中取消，之后不会再被支付）
+     * 
+     * @param projectId 项目ID
+     * @return 待支付订单列表
+     */
+    @Select("SELECT * FROM adoption_orders WHERE project_id = #{projectId} AND order_status = 1 AND deleted = 0 " +
+            "FOR UPDATE")
+    List<AdoptionOrder> selectPendingOrdersForCancel(@Param("projectId") Long projectId);
+
+    /**
+     * 按订单ID顺序锁定项目下一块已支付订单（用于项目取消后的批量退款，断点之后继续）
+     * 
+     * @param projectId 项目ID
+     * @param afterId 断点订单ID（不含）
+     * @param limit 最多返回数量
+     * @return 已支付订单列表（按ID升序）
+     */
+    @Select("SELECT * FROM adoption_orders WHERE project_id = #{projectId} AND order_status = 2 AND deleted = 0 " +
+            "AND id > #{afterId} ORDER BY id LIMIT #{limit} FOR UPDATE")
+    List<AdoptionOrder> selectPaidOrdersForRefund(@Param("projectId") Long projectId,
+                                                  @Param("afterId") Long afterId,
+                                                  @Param("limit") int limit);
+
+    /**
+     * 统计断点之后项目的已支付订单数
+     * 
+     * @param projectId 项目ID
+     * @param afterId 断点订单ID（不含）
+     * @return 订单数
+     */
+    @Select("SELECT COUNT(*) FROM adoption_orders WHERE project_id = #{projectId} AND order_status = 2 " +
+            "AND deleted = 0 AND id > #{afterId}")
+    int countPaidOrdersAfter(@Param("projectId") Long projectId, @Param("afterId") Long afterId);
+
+    /**
+     * 游标分页查询用户订单（按创建时间和ID倒序，不统计总数，走 idx_user_status_create_time 索引）
+     * 
+     * @param userId 用户ID
+     * @param orderStatus 订单状态（可选）
+     * @param cursorTime 上一页最后一行的创建时间（第一页为null）
+     * @param cursorId 上一页最后一行的ID（第一页为null）
+     * @param limit 最多返回数量
+     * @return 用户订单列表
+     */
+    @Select("<script>SELECT * FROM adoption_orders WHERE user_id = #{userId} AND deleted = 0" +
+            "<if test='orderStatus != null'> AND order_status = #{orderStatus}</if> " +
+            "<if test='cursorTime != null'> AND create_time &lt;= #{cursorTime} " +
+            "AND (create_time &lt; #{cursorTime} OR id &lt; #{cursorId})</if> " +
+            "ORDER BY create_time DESC, id DESC LIMIT #{limit}</script>")
+    List<AdoptionOrder> selectUserOrderFeed(@Param("userId") Long userId,
+                                            @Param("orderStatus") Integer orderStatus,
+                                            @Param("cursorTime") LocalDateTime cursorTime,
+                                            @Param("cursorId") Long cursorId,
+                                            @Param("limit") int limit);
+
+    /**
+     * 调用下单存储过程：校验项目、条件扣减可认养单元并插入订单（一次数据库往返，在调用方事务中执行）
+     * 
+     * @param call 调用参数，执行后回填订单ID和结果码
+     */
+    @Update("{CALL CreateAdoptionOrder(#{userId, mode=IN, jdbcType=BIGINT}, #{projectId, mode=IN, jdbcType=BIGINT}, " +
+            "#{unitCount, mode=IN, jdbcType=INTEGER}, #{reserved, mode=IN, jdbcType=TINYINT}, " +
+            "#{orderNo, mode=IN, jdbcType=VARCHAR}, #{unitPrice, mode=IN, jdbcType=DECIMAL}, " +
+            "#{totalAmount, mode=IN, jdbcType=DECIMAL}, #{discountAmount, mode=IN, jdbcType=DECIMAL}, " +
+            "#{actualAmount, mode=IN, jdbcType=DECIMAL}, #{remark, mode=IN, jdbcType=VARCHAR}, " +
+            "#{createTime, mode=IN, jdbcType=TIMESTAMP}, " +
+            "#{orderId, mode=OUT, jdbcType=BIGINT}, #{resultCode, mode=OUT, jdbcType=INTEGER})}")
+    @Options(statementType = StatementType.CALLABLE)
+    void callCreateAdoptionOrder(CreateOrderCall call);
+
+    /**
+     * 统计当前数据库中指定名称的触发器数
+     * 
+     * @param triggerName 触发器名称
+     * @return 触发器数
+     */
+    @Select("SELECT COUNT(*) FROM information_schema.TRIGGERS " +
+            "WHERE TRIGGER_SCHEMA = DATABASE() AND TRIGGER_NAME = #{triggerName}")
+    int countTriggers(@Param("triggerName") String triggerName);
+
+    /**
+     * 统计当前数据库中指定存储过程的参数数（存储过程不存在时为0）
+     * 
+     * @param procedureName 存储过程名称
+     * @return 参数数
+     */
+    @Select("SELECT COUNT(*) FROM information_schema.PARAMETERS " +
+            "WHERE SPECIFIC_SCHEMA = DATABASE() AND SPECIFIC_NAME = #{procedureName} AND ROUTINE_TYPE = 'PROCEDURE'")
+    int countProcedureParameters(@Param("procedureName") String procedureName);
 }
@@ -4,10 +4,16 @@ import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.ifarm.entity.AdoptionProject;
+import com.ifarm.vo.adoptionproject.ProjectDetailView;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 认养项目Mapper接口
@@ -61,6 +67,7 @@ public interface AdoptionProjectMapper extends BaseMapper<AdoptionProject> {
      * @param projectStatus 项目状态
      * @return 项目列表
      */
+    @Select("SELECT * FROM adoption_projects WHERE project_status = #{projectStatus} AND deleted = 0 ORDER BY id")
     List<AdoptionProject> selectByProjectStatus(@Param("projectStatus") Integer projectStatus);
 
     /**
@@ -73,10 +80,212 @@ public interface AdoptionProjectMapper extends BaseMapper<AdoptionProject> {
     int updateAvailableUnits(@Param("projectId") Long projectId, @Param("unitCount") Integer unitCount);
 
     /**
-     * 查询项目详情（包含农场和作物信息）
+     * 条件扣减项目可用单元数（仅认养中且库存充足时生效）
+     * 
+     * @param projectId 项目ID
+     * @param unitCount 扣减数量
+     * @return 更新行数，0表示库存不足或项目不可认养
+     */
+    @Update("UPDATE adoption_projects SET available_units = available_units - #{unitCount} " +
+            "WHERE id = #{projectId} AND project_status = 2 AND available_units >= #{unitCount} AND deleted = 0")
+    int decreaseAvailableUnits(@Param("projectId") Long projectId, @Param("unitCount") Integer unitCount);
+
+    /**
+     * 条件归还项目可用单元数（不超过总单元数）
+     * 
+     * @param projectId 项目ID
+     * @param unitCount 归还数量
+     * @return 更新行数
+     */
+    @Update("UPDATE adoption_projects SET available_units = available_units + #{unitCount} " +
+            "WHERE id = #{projectId} AND available_units + #{unitCount} <= total_units AND deleted = 0")
+    int increaseAvailableUnits(@Param("projectId") Long projectId, @Param("unitCount") Integer unitCount);
+
+    /**
+     * 查询项目当前可认养单元数（非认养中的项目返回0）
+     * 
+     * @param projectId 项目ID
+     * @return 可认养单元数，项目不存在时返回null
+     */
+    @Select("SELECT CASE WHEN project_status = 2 THEN available_units ELSE 0 END " +
+            "FROM adoption_projects WHERE id = #{projectId} AND deleted = 0")
+    Integer selectAdoptableUnits(@Param("projectId") Long projectId);
+
+    /**
+     * 批量查询项目可认养单元数（非认养中的项目为0）
+     *
+     * @param projectIds 项目ID列表
+     * @return 项目ID、可认养单元数，不存在的项目不返回
+     */
+    @Select("<script>SELECT id AS project_id, CASE WHEN project_status = 2 THEN available_units ELSE 0 END AS units " +
+            "FROM adoption_projects WHERE deleted = 0 AND id IN " +
+            "<foreach collection='projectIds' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            "</script>")
+    List<Map<String, Object>> selectAdoptableUnitsByIds(@Param("projectIds") List<Long> projectIds);
+
+    /**
+     * 查询项目详情
      * 
      * @param projectId 项目ID
      * @return 项目详情
      */
+    @Select("SELECT * FROM adoption_projects WHERE id = #{projectId} AND deleted = 0")
     AdoptionProject selectProjectDetail(@Param("projectId") Long projectId);
+
+    /**
+     * 联表查询项目详情读模型（农场、地块、作物、单元状态、最新生长记录及收获汇总）
+     * 
+     * @param projectId 项目ID
+     * @return 项目详情读模型
+     */
+    @Select("SELECT p.id, p.name, p.description, p.total_units, p.available_units, p.unit_area, p.unit_price, " +
+            "p.expected_yield, p.planting_date, p.expected_harvest_date, p.project_status, p.cover_image, p.images, " +
+            "p.planting_plan, p.care_instructions, p.harvest_instructions, " +
+            "f.id AS farm_id, f.name AS farm_name, f.province AS farm_province, f.city AS farm_city, " +
+            "f.district AS farm_district, f.address AS farm_address, f.contact_phone AS farm_contact_phone, " +
+            "fp.id AS plot_id, fp.name AS plot_name, fp.area AS plot_area, fp.soil_type, fp.irrigation_type, " +
+            "c.id AS crop_id, c.name AS crop_name, c.variety AS crop_variety, c.growth_cycle AS crop_growth_cycle, " +
+            "c.cover_image AS crop_cover_image, " +
+            "COALESCE(u.available_count, 0) AS available_unit_count, COALESCE(u.adopted_count, 0) AS adopted_unit_count, " +
+            "COALESCE(u.planting_count, 0) AS planting_unit_count, COALESCE(u.harvesting_count, 0) AS harvesting_unit_count, " +
+            "COALESCE(u.harvested_count, 0) AS harvested_unit_count, " +
+            "g.record_date AS latest_growth_date, g.growth_stage AS latest_growth_stage, " +
+            "g.growth_status AS latest_growth_status, g.height AS latest_growth_height, g.images AS latest_growth_images, " +
+            "COALESCE(h.record_count, 0) AS harvest_record_count, COALESCE(h.total_quantity, 0) AS total_harvest_quantity " +
+            "FROM adoption_projects p " +
+            "LEFT JOIN farm_plots fp ON fp.id = p.plot_id AND fp.deleted = 0 " +
+            "LEFT JOIN farms f ON f.id = fp.farm_id AND f.deleted = 0 " +
+            "LEFT JOIN crops c ON c.id = p.crop_id AND c.deleted = 0 " +
+            "LEFT JOIN (SELECT project_id, SUM(unit_status = 1) AS available_count, SUM(unit_status = 2) AS adopted_count, " +
+            "SUM(unit_status = 3) AS planting_count, SUM(unit_status = 4) AS harvesting_count, " +
+            "SUM(unit_status = 5) AS harvested_count FROM project_units " +
+            "WHERE project_id = #{projectId} AND deleted = 0 GROUP BY project_id) u ON u.project_id = p.id " +
+            "LEFT JOIN (SELECT project_id, record_date, growth_stage, growth_status, height, images FROM growth_records " +
+            "WHERE project_id = #{projectId} AND deleted = 0 ORDER BY record_date DESC, id DESC LIMIT 1) g ON g.project_id = p.id " +
+            "LEFT JOIN (SELECT project_id, COUNT(*) AS record_count, SUM(harvest_quantity) AS total_quantity FROM harvest_records " +
+            "WHERE project_id = #{projectId} AND deleted = 0 GROUP BY project_id) h ON h.project_id = p.id " +
+            "WHERE p.id = #{projectId} AND p.deleted = 0")
+    ProjectDetailView selectProjectDetailView(@Param("projectId") Long projectId);
+
+    /**
+     * 查询全部项目的作物、农场及状态（用于构建推荐索引）
+     * 
+     * @return 项目ID、作物ID、农场ID及项目状态
+     */
+    @Select("SELECT p.id AS project_id, p.crop_id, fp.farm_id, CAST(p.project_status AS SIGNED) AS project_status " +
+            "FROM adoption_projects p LEFT JOIN farm_plots fp ON fp.id = p.plot_id WHERE p.deleted = 0")
+    List<Map<String, Object>> selectRecommendMeta();
+
+    /**
+     * 查询项目所属的作物和农场
+     * 
+     * @param projectId 项目ID
+     * @return 作物ID及农场ID
+     */
+    @Select("SELECT p.crop_id, fp.farm_id FROM adoption_projects p LEFT JOIN farm_plots fp ON fp.id = p.plot_id " +
+            "WHERE p.id = #{projectId} AND p.deleted = 0")
+    Map<String, Object> selectProjectOwner(@Param("projectId") Long projectId);
+
+    /**
+     * 查询到期需要自动流转状态的项目（仅填充id、projectStatus）
+     * 认养中：种植日期已到；种植中：收获开始日期已到；收获中：收获期已结束。
+     * 收获开始日期优先取预期收获日期，否则为种植日期加作物生长周期
+     * 
+     * @param today 当前日期
+     * @param harvestWindowDays 收获期天数
+     * @param limit 最多返回数量
+     * @return 项目列表
+     */
+    @Select("SELECT p.id, p.project_status FROM adoption_projects p LEFT JOIN crops c ON c.id = p.crop_id " +
+            "WHERE p.deleted = 0 AND p.planting_date IS NOT NULL AND (" +
+            "(p.project_status = 2 AND p.planting_date <= #{today}) " +
+            "OR (p.project_status = 3 AND COALESCE(p.expected_harvest_date, " +
+            "DATE_ADD(p.planting_date, INTERVAL c.growth_cycle DAY)) <= #{today}) " +
+            "OR (p.project_status = 4 AND DATE_ADD(COALESCE(p.expected_harvest_date, " +
+            "DATE_ADD(p.planting_date, INTERVAL c.growth_cycle DAY)), INTERVAL #{harvestWindowDays} DAY) <= #{today})) " +
+            "ORDER BY p.id LIMIT #{limit}")
+    List<AdoptionProject> selectLifecycleDueProjects(@Param("today") LocalDate today,
+                                                     @Param("harvestWindowDays") int harvestWindowDays,
+                                                     @Param("limit") int limit);
+
+    /**
+     * 查询项目的筛选维度（用于构建项目筛选索引）
+     * 
+     * @param projectId 项目ID（为null时查询全部项目）
+     * @return 项目ID、作物ID、分类ID、省份、城市、项目状态、可认养单元数、单元价格及单元面积
+     */
+    @Select("<script>SELECT p.id AS project_id, p.crop_id, c.category_id, f.province, f.city, " +
+            "CAST(p.project_status AS SIGNED) AS project_status, p.available_units, p.unit_price, p.unit_area " +
+            "FROM adoption_projects p LEFT JOIN crops c ON c.id = p.crop_id " +
+            "LEFT JOIN farm_plots fp ON fp.id = p.plot_id LEFT JOIN farms f ON f.id = fp.farm_id " +
+            "WHERE p.deleted = 0<if test='projectId != null'> AND p.id = #{projectId}</if> ORDER BY p.id</script>")
+    List<Map<String, Object>> selectFacetRows(@Param("projectId") Long projectId);
+
+    /**
+     * 按主键分页查询需要核对库存的项目（筹备中、认养中）
+     * 
+     * @param afterId 上一页最后一个项目ID
+     * @param limit 每页数量
+     * @return 项目ID列表
+     */
+    @Select("SELECT id FROM adoption_projects WHERE id > #{afterId} AND project_status IN (1, 2) AND deleted = 0 " +
+            "ORDER BY id LIMIT #{limit}")
+    List<Long> selectReconcileProjectIds(@Param("afterId") Long afterId, @Param("limit") int limit);
+
+    /**
+     * 查询指定时间后项目、项目单元或订单有变更的项目（筹备中、认养中）
+     * 
+     * @param since 起始时间
+     * @return 项目ID列表（升序）
+     */
+    @Select("SELECT t.project_id FROM (" +
+            "SELECT id AS project_id FROM adoption_projects WHERE update_time >= #{since} " +
+            "UNION SELECT project_id FROM project_units WHERE update_time >= #{since} " +
+            "UNION SELECT project_id FROM adoption_orders WHERE update_time >= #{since}) t " +
+            "JOIN adoption_projects p ON p.id = t.project_id " +
+            "WHERE p.project_status IN (1, 2) AND p.deleted = 0 ORDER BY t.project_id")
+    List<Long> selectTouchedProjectIds(@Param("since") LocalDateTime since);
+
+    /**
+     * 统计项目的实际库存（一次分组查询，各项在同一快照中读取）
+     * 实际可用单元数 = 可认养单元数 - 待支付订单占用数 - 候补分配保留数
+     * 
+     * @param projectIds 项目ID列表
+     * @return 项目ID、当前可用单元数、总单元数、可认养单元数、待支付订单占用数、候补分配保留数
+     */
+    @Select("<script>SELECT p.id AS project_id, p.available_units, p.total_units, " +
+            "CAST(COALESCE(u.free_units, 0) AS SIGNED) AS free_units, " +
+            "CAST(COALESCE(o.pending_units, 0) AS SIGNED) AS pending_units, " +
+            "CAST(COALESCE(w.offered_units, 0) AS SIGNED) AS offered_units " +
+            "FROM adoption_projects p " +
+            "LEFT JOIN (SELECT project_id, COUNT(*) AS free_units FROM project_units " +
+            "WHERE unit_status = 1 AND deleted = 0 AND project_id IN " +
+            "<foreach collection='projectIds' item='id' open='(' separator=',' close=')'>#{id}</foreach> " +
+            "GROUP BY project_id) u ON u.project_id = p.id " +
+            "LEFT JOIN (SELECT project_id, SUM(unit_count) AS pending_units FROM adoption_orders " +
+            "WHERE order_status = 1 AND deleted = 0 AND project_id IN " +
+            "<foreach collection='projectIds' item='id' open='(' separator=',' close=')'>#{id}</foreach> " +
+            "GROUP BY project_id) o ON o.project_id = p.id " +
+            "LEFT JOIN (SELECT project_id, SUM(unit_count) AS offered_units FROM project_waitlist " +
+            "WHERE waitlist_status = 2 AND deleted = 0 AND project_id IN " +
+            "<foreach collection='projectIds' item='id' open='(' separator=',' close=')'>#{id}</foreach> " +
+            "GROUP BY project_id) w ON w.project_id = p.id " +
+            "WHERE p.id IN " +
+            "<foreach collection='projectIds' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            "</script>")
+    List<Map<String, Object>> selectInventoryCounts(@Param("projectIds") List<Long> projectIds);
+
+    /**
+     * 修正项目可用单元数（仅当可用单元数仍为核对时读取的值时生效）
+     * 
+     * @param projectId 项目ID
+     * @param expectedUnits 核对时读取的可用单元数
+     * @param actualUnits 实际可用单元数
+     * @return 更新行数，0表示核对后库存已变更
+     */
+    @Update("UPDATE adoption_projects SET available_units = #{actualUnits} " +
+            "WHERE id = #{projectId} AND available_units = #{expectedUnits} AND deleted = 0")
+    int repairAvailableUnits(@Param("projectId") Long projectId,
+                             @Param("expectedUnits") Integer expectedUnits,
+                             @Param("actualUnits") Integer actualUnits);
 }
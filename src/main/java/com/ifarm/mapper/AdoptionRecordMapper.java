@@ -5,8 +5,15 @@ import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.ifarm.entity.AdoptionRecord;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Options;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.ResultType;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+import org.apache.ibatis.mapping.ResultSetType;
+import org.apache.ibatis.session.ResultHandler;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 /**
@@ -40,6 +47,7 @@ public interface AdoptionRecordMapper extends BaseMapper<AdoptionRecord> {
      * @param orderId 订单ID
      * @return 认养记录列表
      */
+    @Select("SELECT * FROM adoption_records WHERE order_id = #{orderId} AND deleted = 0 ORDER BY id")
     List<AdoptionRecord> selectByOrderId(@Param("orderId") Long orderId);
 
     /**
@@ -96,4 +104,56 @@ public interface AdoptionRecordMapper extends BaseMapper<AdoptionRecord> {
      */
     int batchUpdateAdoptionStatus(@Param("recordIds") List<Long> recordIds, 
                                   @Param("adoptionStatus") Integer adoptionStatus);
+
+    /**
+     * 按用户ID顺序流式读取全部认养记录的用户与项目（仅填充userId、projectId）
+     * 
+     * @param handler 逐行处理回调
+     */
+    @Select("SELECT user_id, project_id FROM adoption_records WHERE deleted = 0 ORDER BY user_id")
+    @Options(resultSetType = ResultSetType.FORWARD_ONLY, fetchSize = Integer.MIN_VALUE)
+    @ResultType(AdoptionRecord.class)
+    void streamUserProjects(ResultHandler<AdoptionRecord> handler);
+
+    /**
+     * 按项目分块更新认养状态（每次最多更新limit行，返回值小于limit时表示已全部更新）
+     * 进入种植中时补充种植日期，进入已完成时补充收获日期
+     * 
+     * @param projectId 项目ID
+     * @param fromStatuses 允许的原状态
+     * @param toStatus 目标状态
+     * @param limit 本次最多更新的行数
+     * @return 更新行数
+     */
+    @Update("<script>UPDATE adoption_records SET adoption_status = #{toStatus}" +
+            "<if test='toStatus == 2'>, planting_date = COALESCE(planting_date, NOW())</if>" +
+            "<if test='toStatus == 5'>, harvest_date = COALESCE(harvest_date, NOW())</if> " +
+            "WHERE project_id = #{projectId} AND deleted = 0 AND adoption_status IN " +
+            "<foreach collection='fromStatuses' item='s' open='(' separator=',' close=')'>#{s}</foreach> " +
+            "ORDER BY id LIMIT #{limit}</script>")
+    int updateStatusByProjectChunk(@Param("projectId") Long projectId,
+                                   @Param("fromStatuses") List<Integer> fromStatuses,
+                                   @Param("toStatus") Integer toStatus,
+                                   @Param("limit") int limit);
+
+    /**
+     * 游标分页查询用户认养记录（按创建时间和ID倒序，不统计总数，走 idx_user_status_create_time 索引）
+     * 
+     * @param userId 用户ID
+     * @param adoptionStatus 认养状态（可选）
+     * @param cursorTime 上一页最后一行的创建时间（第一页为null）
+     * @param cursorId 上一页最后一行的ID（第一页为null）
+     * @param limit 最多返回数量
+     * @return 用户认养记录列表
+     */
+    @Select("<script>SELECT * FROM adoption_records WHERE user_id = #{userId} AND deleted = 0" +
+            "<if test='adoptionStatus != null'> AND adoption_status = #{adoptionStatus}</if> " +
+            "<if test='cursorTime != null'> AND create_time &lt;= #{cursorTime} " +
+            "AND (create_time &lt; #{cursorTime} OR id &lt; #{cursorId})</if> " +
+            "ORDER BY create_time DESC, id DESC LIMIT #{limit}</script>")
+    List<AdoptionRecord> selectUserAdoptionFeed(@Param("userId") Long userId,
+                                                @Param("adoptionStatus") Integer adoptionStatus,
+                                                @Param("cursorTime") LocalDateTime cursorTime,
+                                                @Param("cursorId") Long cursorId,
+                                                @Param("limit") int limit);
 }
@@ -6,7 +6,9 @@ import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.ifarm.entity.DeliveryOrder;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 /**
@@ -102,4 +104,25 @@ public interface DeliveryOrderMapper extends BaseMapper<DeliveryOrder> {
      * @return 配送订单列表
      */
     List<DeliveryOrder> selectByDeliveryType(@Param("deliveryType") Integer deliveryType);
+
+    /**
+     * 游标分页查询用户配送订单（按创建时间和ID倒序，不统计总数，走 idx_user_status_create_time 索引）
+     * 
+     * @param userId 用户ID
+     * @param deliveryStatus 配送状态（可选）
+     * @param cursorTime 上一页最后一行的创建时间（第一页为null）
+     * @param cursorId 上一页最后一行的ID（第一页为null）
+     * @param limit 最多返回数量
+     * @return 用户配送订单列表
+     */
+    @Select("<script>SELECT * FROM delivery_orders WHERE user_id = #{userId} AND deleted = 0" +
+            "<if test='deliveryStatus != null'> AND delivery_status = #{deliveryStatus}</if> " +
+            "<if test='cursorTime != null'> AND create_time &lt;= #{cursorTime} " +
+            "AND (create_time &lt; #{cursorTime} OR id &lt; #{cursorId})</if> " +
+            "ORDER BY create_time DESC, id DESC LIMIT #{limit}</script>")
+    List<DeliveryOrder> selectUserDeliveryFeed(@Param("userId") Long userId,
+                                               @Param("deliveryStatus") Integer deliveryStatus,
+                                               @Param("cursorTime") LocalDateTime cursorTime,
+                                               @Param("cursorId") Long cursorId,
+                                               @Param("limit") int limit);
 }
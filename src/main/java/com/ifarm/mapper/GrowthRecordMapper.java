@@ -6,8 +6,10 @@ import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.ifarm.entity.GrowthRecord;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 
 /**
@@ -96,4 +98,25 @@ public interface GrowthRecordMapper extends BaseMapper<GrowthRecord> {
      */
     GrowthRecord selectByProjectIdAndDate(@Param("projectId") Long projectId, 
                                           @Param("recordDate") LocalDate recordDate);
+
+    /**
+     * 游标分页查询项目生长记录（按创建时间和ID倒序，不统计总数，走 idx_project_stage_create_time 索引）
+     * 
+     * @param projectId 项目ID
+     * @param growthStage 生长阶段（可选）
+     * @param cursorTime 上一页最后一行的创建时间（第一页为null）
+     * @param cursorId 上一页最后一行的ID（第一页为null）
+     * @param limit 最多返回数量
+     * @return 项目生长记录列表
+     */
+    @Select("<script>SELECT * FROM growth_records WHERE project_id = #{projectId} AND deleted = 0" +
+            "<if test='growthStage != null'> AND growth_stage = #{growthStage}</if> " +
+            "<if test='cursorTime != null'> AND create_time &lt;= #{cursorTime} " +
+            "AND (create_time &lt; #{cursorTime} OR id &lt; #{cursorId})</if> " +
+            "ORDER BY create_time DESC, id DESC LIMIT #{limit}</script>")
+    List<GrowthRecord> selectProjectGrowthFeed(@Param("projectId") Long projectId,
+                                               @Param("growthStage") String growthStage,
+                                               @Param("cursorTime") LocalDateTime cursorTime,
+                                               @Param("cursorId") Long cursorId,
+                                               @Param("limit") int limit);
 }
@@ -0,0 +1,95 @@
+package com.ifarm.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.ifarm.entity.OutboxEvent;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 事务发件箱Mapper接口
+ *
+ * @author ifarm
+ * @since 2025-01-19
+ */
+@Mapper
+public interface OutboxEventMapper extends BaseMapper<OutboxEvent> {
+
+    /**
+     * 查询可投递的事件：已到投递时间，且同一聚合没有更早的待投递事件（保证同一聚合按写入顺序投递）
+     *
+     * @param now 当前时间
+     * @param limit 最多返回数量
+     * @return 事件列表（按ID升序）
+     */
+    @Select("SELECT e.* FROM outbox_events e WHERE e.event_status = 1 AND e.next_retry_time <= #{now} " +
+            "AND NOT EXISTS (SELECT 1 FROM outbox_events p WHERE p.aggregate_type = e.aggregate_type " +
+            "AND p.aggregate_id = e.aggregate_id AND p.event_status = 1 AND p.id < e.id) " +
+            "ORDER BY e.id LIMIT #{limit}")
+    List<OutboxEvent> selectDeliverable(@Param("now") LocalDateTime now,
+                                        @Param("limit") int limit);
+
+    /**
+     * 标记事件已投递（条件更新并锁定事件行，多个投递线程并发时只有一方生效）
+     *
+     * @param id 事件ID
+     * @param processTime 投递完成时间
+     * @return 更新行数
+     */
+    @Update("UPDATE outbox_events SET event_status = 2, process_time = #{processTime} " +
+            "WHERE id = #{id} AND event_status = 1")
+    int markDelivered(@Param("id") Long id,
+                      @Param("processTime") LocalDateTime processTime);
+
+    /**
+     * 记录一次投递失败，超过最大失败次数后标记为投递失败，不再自动重试
+     *
+     * @param id 事件ID
+     * @param lastError 失败原因
+     * @param nextRetryTime 下次投递时间
+     * @param maxRetry 最大失败次数
+     * @return 更新行数
+     */
+    @Update("UPDATE outbox_events SET event_status = CASE WHEN retry_count + 1 >= #{maxRetry} THEN 3 ELSE 1 END, " +
+            "retry_count = retry_count + 1, last_error = #{lastError}, next_retry_time = #{nextRetryTime} " +
+            "WHERE id = #{id} AND event_status = 1")
+    int recordFailure(@Param("id") Long id,
+                      @Param("lastError") String lastError,
+                      @Param("nextRetryTime") LocalDateTime nextRetryTime,
+                      @Param("maxRetry") int maxRetry);
+
+    /**
+     * 重新投递失败的事件
+     *
+     * @param id 事件ID
+     * @return 更新行数
+     */
+    @Update("UPDATE outbox_events SET event_status = 1, retry_count = 0, next_retry_time = NOW() " +
+            "WHERE id = #{id} AND event_status = 3")
+    int resetFailed(@Param("id") Long id);
+
+    /**
+     * 清理已投递的历史事件
+     *
+     * @param before 投递完成时间上限
+     * @param limit 每次最多删除数量
+     * @return 删除行数
+     */
+    @Delete("DELETE FROM outbox_events WHERE event_status = 2 AND process_time < #{before} LIMIT #{limit}")
+    int deleteDelivered(@Param("before") LocalDateTime before,
+                        @Param("limit") int limit);
+
+    /**
+     * 按投递状态统计事件数
+     *
+     * @param eventStatus 投递状态
+     * @return 事件数
+     */
+    @Select("SELECT COUNT(*) FROM outbox_events WHERE event_status = #{eventStatus}")
+    long countByStatus(@Param("eventStatus") Integer eventStatus);
+}
@@ -0,0 +1,76 @@
+package com.ifarm.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.ifarm.entity.PaymentNotification;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Options;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 支付通知Mapper接口
+ *
+ * @author ifarm
+ * @since 2025-01-19
+ */
+@Mapper
+public interface PaymentNotificationMapper extends BaseMapper<PaymentNotification> {
+
+    /**
+     * 保存支付通知，支付流水号已存在时忽略
+     *
+     * @param notification 支付通知
+     * @return 插入行数，0表示重复通知
+     */
+    @Insert("INSERT IGNORE INTO payment_notifications (payment_no, order_no, amount, payment_method, notify_status) " +
+            "VALUES (#{paymentNo}, #{orderNo}, #{amount}, #{paymentMethod}, 1)")
+    @Options(useGeneratedKeys = true, keyProperty = "id")
+    int insertIgnore(PaymentNotification notification);
+
+    /**
+     * 查询待处理的支付通知（用于补处理未进入队列或处理失败的通知）
+     *
+     * @param before 创建时间上限
+     * @param maxRetry 最大失败次数
+     * @param limit 最多返回数量
+     * @return 通知列表
+     */
+    @Select("SELECT * FROM payment_notifications WHERE notify_status = 1 AND create_time < #{before} " +
+            "AND retry_count < #{maxRetry} AND deleted = 0 ORDER BY create_time LIMIT #{limit}")
+    List<PaymentNotification> selectPending(@Param("before") LocalDateTime before,
+                                            @Param("maxRetry") int maxRetry,
+                                            @Param("limit") int limit);
+
+    /**
+     * 标记通知处理完成（已处理或处理失败不再重试）
+     *
+     * @param id 通知ID
+     * @param notifyStatus 处理状态
+     * @param failReason 失败原因
+     * @return 更新行数
+     */
+    @Update("UPDATE payment_notifications SET notify_status = #{notifyStatus}, fail_reason = #{failReason}, " +
+            "process_time = NOW() WHERE id = #{id} AND notify_status = 1")
+    int markDone(@Param("id") Long id,
+                 @Param("notifyStatus") Integer notifyStatus,
+                 @Param("failReason") String failReason);
+
+    /**
+     * 记录一次处理失败，超过最大失败次数后不再自动重试
+     *
+     * @param id 通知ID
+     * @param failReason 失败原因
+     * @param maxRetry 最大失败次数
+     * @return 更新行数
+     */
+    @Update("UPDATE payment_notifications SET notify_status = IF(retry_count + 1 >= #{maxRetry}, 3, 1), " +
+            "retry_count = retry_count + 1, fail_reason = #{failReason} WHERE id = #{id} AND notify_status = 1")
+    int recordFailure(@Param("id") Long id,
+                      @Param("failReason") String failReason,
+                      @Param("maxRetry") int maxRetry);
+}
@@ -0,0 +1,53 @@
+package com.ifarm.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.ifarm.entity.PopularityStat;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.util.List;
+
+/**
+ * 热度统计Mapper接口
+ * 
+ * @author ifarm
+ * @since 2025-01-19
+ */
+@Mapper
+public interface PopularityStatMapper extends BaseMapper<PopularityStat> {
+
+    /**
+     * 批量写入小时统计增量（同一对象同一小时已存在时累加计数，多节点各自写入增量）
+     * 
+     * @param stats 统计增量列表
+     * @return 影响行数
+     */
+    @Insert("<script>INSERT INTO popularity_stats (item_type, item_id, bucket_hour, view_count, adoption_count) VALUES " +
+            "<foreach collection='stats' item='s' separator=','>" +
+            "(#{s.itemType}, #{s.itemId}, #{s.bucketHour}, #{s.viewCount}, #{s.adoptionCount})</foreach> " +
+            "ON DUPLICATE KEY UPDATE view_count = view_count + VALUES(view_count), " +
+            "adoption_count = adoption_count + VALUES(adoption_count)</script>")
+    int upsertBatch(@Param("stats") List<PopularityStat> stats);
+
+    /**
+     * 查询指定小时之后的全部统计（用于重启后恢复热度窗口）
+     * 
+     * @param fromHour 起始小时（包含）
+     * @return 统计列表
+     */
+    @Select("SELECT item_type, item_id, bucket_hour, view_count, adoption_count FROM popularity_stats " +
+            "WHERE bucket_hour >= #{fromHour}")
+    List<PopularityStat> selectSinceHour(@Param("fromHour") Long fromHour);
+
+    /**
+     * 删除指定小时之前的统计
+     * 
+     * @param beforeHour 截止小时（不包含）
+     * @return 删除行数
+     */
+    @Delete("DELETE FROM popularity_stats WHERE bucket_hour < #{beforeHour}")
+    int deleteBeforeHour(@Param("beforeHour") Long beforeHour);
+}
@@ -0,0 +1,99 @@
+package com.ifarm.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.ifarm.entity.ProjectRefundJob;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * 项目批量退款任务Mapper接口
+ *
+ * @author ifarm
+ * @since 2025-01-19
+ */
+@Mapper
+public interface ProjectRefundJobMapper extends BaseMapper<ProjectRefundJob> {
+
+    /**
+     * 创建退款任务，项目已有任务时忽略
+     *
+     * @param projectId 项目ID
+     * @return 插入行数，0表示任务已存在
+     */
+    @Insert("INSERT IGNORE INTO project_refund_jobs (project_id, job_status) VALUES (#{projectId}, 1)")
+    int insertIgnore(@Param("projectId") Long projectId);
+
+    /**
+     * 根据项目ID查询退款任务
+     *
+     * @param projectId 项目ID
+     * @return 退款任务
+     */
+    @Select("SELECT * FROM project_refund_jobs WHERE project_id = #{projectId}")
+    ProjectRefundJob selectByProjectId(@Param("projectId") Long projectId);
+
+    /**
+     * 查询未完成的退款任务的项目ID
+     *
+     * @return 项目ID列表
+     */
+    @Select("SELECT project_id FROM project_refund_jobs WHERE job_status = 1 ORDER BY id")
+    List<Long> selectUnfinishedProjectIds();
+
+    /**
+     * 首次执行时记录开始时间和待退款订单数
+     *
+     * @param id 任务ID
+     * @param totalOrders 待退款订单数
+     * @return 更新行数
+     */
+    @Update("UPDATE project_refund_jobs SET start_time = NOW(), total_orders = #{totalOrders} " +
+            "WHERE id = #{id} AND start_time IS NULL")
+    int markStarted(@Param("id") Long id, @Param("totalOrders") int totalOrders);
+
+    /**
+     * 推进断点并累加进度（与本块退款在同一事务提交）
+     *
+     * @param id 任务ID
+     * @param fromOrderId 本块开始前的断点
+     * @param toOrderId 本块处理到的订单ID
+     * @param orders 本块退款订单数
+     * @param units 本块释放单元数
+     * @param amount 本块退款金额
+     * @return 更新行数，0表示断点已被其他执行推进
+     */
+    @Update("UPDATE project_refund_jobs SET last_order_id = #{toOrderId}, refunded_orders = refunded_orders + #{orders}, " +
+            "refunded_units = refunded_units + #{units}, refunded_amount = refunded_amount + #{amount}, last_error = NULL " +
+            "WHERE id = #{id} AND last_order_id = #{fromOrderId} AND job_status = 1")
+    int advance(@Param("id") Long id,
+                @Param("fromOrderId") Long fromOrderId,
+                @Param("toOrderId") Long toOrderId,
+                @Param("orders") int orders,
+                @Param("units") int units,
+                @Param("amount") BigDecimal amount);
+
+    /**
+     * 标记任务完成
+     *
+     * @param id 任务ID
+     * @return 更新行数
+     */
+    @Update("UPDATE project_refund_jobs SET job_status = 2, finish_time = NOW() WHERE id = #{id} AND job_status = 1")
+    int markFinished(@Param("id") Long id);
+
+    /**
+     * 记录失败原因（任务保持进行中，由定时任务从断点继续）
+     *
+     * @param id 任务ID
+     * @param lastError 失败原因
+     * @return 更新行数
+     */
+    @Update("UPDATE project_refund_jobs SET last_error = #{lastError} WHERE id = #{id}")
+    int recordError(@Param("id") Long id, @Param("lastError") String lastError);
+}
@@ -2,9 +2,13 @@ package com.ifarm.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.ifarm.entity.ProjectUnit;
+import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -79,4 +83,120 @@ public interface ProjectUnitMapper extends BaseMapper<ProjectUnit> {
      */
     ProjectUnit selectByProjectIdAndUnitNumber(@Param("projectId") Long projectId, 
                                                @Param("unitNumber") String unitNumber);
+
+    /**
+     * 查询项目全部单元ID及状态（按ID排序，用于构建空闲单元位图）
+     * 
+     * @param projectId 项目ID
+     * @return 单元ID及状态
+     */
+    @Select("SELECT id, unit_status FROM project_units WHERE project_id = #{projectId} AND deleted = 0 ORDER BY id")
+    List<ProjectUnit> selectUnitStatesByProjectId(@Param("projectId") Long projectId);
+
+    /**
+     * 锁定指定数量的可认养单元，跳过已被其他事务锁定的行
+     * 
+     * @param projectId 项目ID
+     * @param limit 数量
+     * @return 锁定的单元ID列表
+     */
+    @Select("SELECT id FROM project_units WHERE project_id = #{projectId} AND unit_status = 1 AND deleted = 0 " +
+            "ORDER BY id LIMIT #{limit} FOR UPDATE SKIP LOCKED")
+    List<Long> lockFreeUnitIds(@Param("projectId") Long projectId, @Param("limit") Integer limit);
+
+    /**
+     * 锁定指定单元中仍处于指定状态的单元，跳过已被其他事务锁定的行
+     * 
+     * @param unitIds 单元ID列表
+     * @param unitStatus 单元状态
+     * @return 锁定的单元ID列表
+     */
+    @Select("<script>SELECT id FROM project_units WHERE unit_status = #{unitStatus} AND deleted = 0 AND id IN " +
+            "<foreach collection='unitIds' item='id' open='(' separator=',' close=')'>#{id}</foreach> " +
+            "FOR UPDATE SKIP LOCKED</script>")
+    List<Long> lockUnitIdsByStatus(@Param("unitIds") List<Long> unitIds, @Param("unitStatus") Integer unitStatus);
+
+    /**
+     * 条件更新单元状态（仅更新当前状态匹配的单元）
+     * 
+     * @param unitIds 单元ID列表
+     * @param fromStatus 当前状态
+     * @param toStatus 新状态
+     * @return 更新行数
+     */
+    @Update("<script>UPDATE project_units SET unit_status = #{toStatus} " +
+            "WHERE unit_status = #{fromStatus} AND deleted = 0 AND id IN " +
+            "<foreach collection='unitIds' item='id' open='(' separator=',' close=')'>#{id}</foreach></script>")
+    int updateStatusIfMatch(@Param("unitIds") List<Long> unitIds,
+                            @Param("fromStatus") Integer fromStatus,
+                            @Param("toStatus") Integer toStatus);
+
+    /**
+     * 多行批量插入单元（单条INSERT语句）
+     * 
+     * @param units 单元列表
+     * @return 插入行数
+     */
+    @Insert("<script>INSERT INTO project_units (project_id, unit_number, unit_status, location_info) VALUES " +
+            "<foreach collection='units' item='u' separator=','>" +
+            "(#{u.projectId}, #{u.unitNumber}, #{u.unitStatus}, #{u.locationInfo})</foreach></script>")
+    int insertBatch(@Param("units") List<ProjectUnit> units);
+
+    /**
+     * 查询项目全部单元的状态及位置信息（按ID排序，用于构建单元网格图）
+     * 
+     * @param projectId 项目ID
+     * @return 单元ID、状态及位置信息
+     */
+    @Select("SELECT id, unit_status, location_info FROM project_units WHERE project_id = #{projectId} AND deleted = 0 ORDER BY id")
+    List<ProjectUnit> selectUnitGridByProjectId(@Param("projectId") Long projectId);
+
+    /**
+     * 查询单元所属的项目ID
+     * 
+     * @param unitIds 单元ID列表
+     * @return 项目ID列表（去重）
+     */
+    @Select("<script>SELECT DISTINCT project_id FROM project_units WHERE id IN " +
+            "<foreach collection='unitIds' item='id' open='(' separator=',' close=')'>#{id}</foreach></script>")
+    List<Long> selectProjectIdsByUnitIds(@Param("unitIds") Collection<Long> unitIds);
+
+    /**
+     * 按项目分块更新单元状态（每次最多更新limit行，返回值小于limit时表示已全部更新）
+     * 
+     * @param projectId 项目ID
+     * @param fromStatuses 允许的原状态
+     * @param toStatus 目标状态
+     * @param limit 本次最多更新的行数
+     * @return 更新行数
+     */
+    @Update("<script>UPDATE project_units SET unit_status = #{toStatus} " +
+            "WHERE project_id = #{projectId} AND deleted = 0 AND unit_status IN " +
+            "<foreach collection='fromStatuses' item='s' open='(' separator=',' close=')'>#{s}</foreach> " +
+            "ORDER BY id LIMIT #{limit}</script>")
+    int updateStatusByProjectChunk(@Param("projectId") Long projectId,
+                                   @Param("fromStatuses") List<Integer> fromStatuses,
+                                   @Param("toStatus") Integer toStatus,
+                                   @Param("limit") int limit);
+
+    /**
+     * 查询单元状态落后于项目状态的项目ID（项目状态流转后级联未完成）
+     * 
+     * @return 项目ID列表
+     */
+    @Select("SELECT DISTINCT u.project_id FROM project_units u JOIN adoption_projects p ON p.id = u.project_id " +
+            "WHERE p.deleted = 0 AND p.project_status IN (3, 4, 5) AND u.deleted = 0 " +
+            "AND u.unit_status BETWEEN 2 AND 4 AND u.unit_status < p.project_status")
+    List<Long> selectLaggingProjectIds();
+
+    /**
+     * 释放订单认养的单元（认养中、种植中、待收获的单元改回可认养）
+     * 
+     * @param orderIds 订单ID列表
+     * @return 更新行数
+     */
+    @Update("<script>UPDATE project_units SET unit_status = 1 WHERE unit_status IN (2, 3, 4) AND deleted = 0 " +
+            "AND id IN (SELECT unit_id FROM adoption_records WHERE deleted = 0 AND order_id IN " +
+            "<foreach collection='orderIds' item='id' open='(' separator=',' close=')'>#{id}</foreach>)</script>")
+    int releaseByOrderIds(@Param("orderIds") List<Long> orderIds);
 }
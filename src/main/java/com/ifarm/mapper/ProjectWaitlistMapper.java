@@ -0,0 +1,77 @@
+package com.ifarm.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.ifarm.entity.ProjectWaitlist;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 认养候补Mapper接口
+ * 
+ * @author ifarm
+ * @since 2025-01-19
+ */
+@Mapper
+public interface ProjectWaitlistMapper extends BaseMapper<ProjectWaitlist> {
+
+    /**
+     * 查询全部排队中和已分配的候补（按候补ID排序，用于恢复内存队列）
+     * 
+     * @return 候补列表
+     */
+    @Select("SELECT * FROM project_waitlist WHERE waitlist_status IN (1, 2) AND deleted = 0 ORDER BY id")
+    List<ProjectWaitlist> selectActive();
+
+    /**
+     * 将排队中的候补标记为已分配
+     * 
+     * @param id 候补ID
+     * @param offerTime 分配时间
+     * @param expireTime 保留截止时间
+     * @return 更新行数
+     */
+    @Update("UPDATE project_waitlist SET waitlist_status = 2, offer_time = #{offerTime}, offer_expire_time = #{expireTime} " +
+            "WHERE id = #{id} AND waitlist_status = 1 AND deleted = 0")
+    int markOffered(@Param("id") Long id,
+                    @Param("offerTime") LocalDateTime offerTime,
+                    @Param("expireTime") LocalDateTime expireTime);
+
+    /**
+     * 使用已分配的候补下单（仅在保留期内生效）
+     * 
+     * @param id 候补ID
+     * @return 更新行数
+     */
+    @Update("UPDATE project_waitlist SET waitlist_status = 3 WHERE id = #{id} AND waitlist_status = 2 " +
+            "AND offer_expire_time > NOW() AND deleted = 0")
+    int markClaimed(@Param("id") Long id);
+
+    /**
+     * 条件更新候补状态
+     * 
+     * @param id 候补ID
+     * @param fromStatus 原状态
+     * @param toStatus 目标状态
+     * @return 更新行数
+     */
+    @Update("UPDATE project_waitlist SET waitlist_status = #{toStatus} WHERE id = #{id} " +
+            "AND waitlist_status = #{fromStatus} AND deleted = 0")
+    int updateStatusIfMatch(@Param("id") Long id,
+                            @Param("fromStatus") Integer fromStatus,
+                            @Param("toStatus") Integer toStatus);
+
+    /**
+     * 将项目全部排队中的候补标记为已失效（项目结束认养时调用）
+     * 
+     * @param projectId 项目ID
+     * @return 更新行数
+     */
+    @Update("UPDATE project_waitlist SET waitlist_status = 4 WHERE project_id = #{projectId} " +
+            "AND waitlist_status = 1 AND deleted = 0")
+    int expireWaitingByProjectId(@Param("projectId") Long projectId);
+}
@@ -0,0 +1,38 @@
+package com.ifarm.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.ifarm.entity.PromotionRule;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 促销规则Mapper接口
+ *
+ * @author ifarm
+ * @since 2025-01-19
+ */
+@Mapper
+public interface PromotionRuleMapper extends BaseMapper<PromotionRule> {
+
+    /**
+     * 查询启用且未过期的规则（用于编译规则集）
+     *
+     * @param now 当前时间
+     * @return 规则列表
+     */
+    @Select("SELECT * FROM promotion_rules WHERE rule_status = 1 AND deleted = 0 " +
+            "AND (end_time IS NULL OR end_time > #{now})")
+    List<PromotionRule> selectEffective(@Param("now") LocalDateTime now);
+
+    /**
+     * 查询规则的最近更新时间（用于发现其他节点的规则变更，逻辑删除同样会更新该时间）
+     *
+     * @return 最近更新时间，无规则时返回null
+     */
+    @Select("SELECT MAX(update_time) FROM promotion_rules")
+    LocalDateTime selectLatestUpdateTime();
+}
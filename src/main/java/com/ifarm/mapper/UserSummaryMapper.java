@@ -0,0 +1,187 @@
+package com.ifarm.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.ifarm.entity.UserSummary;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * 用户概览Mapper接口
+ * 状态变化按原状态和新状态在一条UPDATE中增减各计数，概览行不存在时返回0，由调用方重建
+ *
+ * @author ifarm
+ * @since 2025-01-19
+ */
+@Mapper
+public interface UserSummaryMapper extends BaseMapper<UserSummary> {
+
+    /**
+     * 按用户重新计算认养数和产量的SET子句
+     */
+    String REFRESH_ADOPTIONS_SET = "UPDATE user_summary s SET " +
+            "s.active_adoption_count = (SELECT COUNT(*) FROM adoption_records r " +
+            "WHERE r.user_id = s.user_id AND r.deleted = 0 AND r.adoption_status BETWEEN 1 AND 4), " +
+            "s.total_yield = (SELECT COALESCE(SUM(r.actual_yield), 0) FROM adoption_records r " +
+            "WHERE r.user_id = s.user_id AND r.deleted = 0) ";
+
+    /**
+     * 按订单状态变化增减订单计数和支付金额
+     *
+     * @param userId 用户ID
+     * @param fromStatus 原状态（新建订单为null）
+     * @param toStatus 新状态
+     * @param amount 订单实付金额
+     * @param adoptedUnits 新增的认养记录数
+     * @return 更新行数，0表示概览行不存在
+     */
+    @Update("UPDATE user_summary SET " +
+            "pending_order_count = pending_order_count + CASE WHEN #{toStatus} = 1 THEN 1 ELSE 0 END " +
+            "- CASE WHEN #{fromStatus,jdbcType=INTEGER} = 1 THEN 1 ELSE 0 END, " +
+            "paid_order_count = paid_order_count + CASE WHEN #{toStatus} = 2 THEN 1 ELSE 0 END " +
+            "- CASE WHEN #{fromStatus,jdbcType=INTEGER} = 2 THEN 1 ELSE 0 END, " +
+            "completed_order_count = completed_order_count + CASE WHEN #{toStatus} = 3 THEN 1 ELSE 0 END " +
+            "- CASE WHEN #{fromStatus,jdbcType=INTEGER} = 3 THEN 1 ELSE 0 END, " +
+            "cancelled_order_count = cancelled_order_count + CASE WHEN #{toStatus} = 4 THEN 1 ELSE 0 END " +
+            "- CASE WHEN #{fromStatus,jdbcType=INTEGER} = 4 THEN 1 ELSE 0 END, " +
+            "refunded_order_count = refunded_order_count + CASE WHEN #{toStatus} = 5 THEN 1 ELSE 0 END " +
+            "- CASE WHEN #{fromStatus,jdbcType=INTEGER} = 5 THEN 1 ELSE 0 END, " +
+            "paid_amount = paid_amount + CASE WHEN #{toStatus} IN (2, 3) THEN #{amount} ELSE 0 END " +
+            "- CASE WHEN #{fromStatus,jdbcType=INTEGER} IN (2, 3) THEN #{amount} ELSE 0 END, " +
+            "active_adoption_count = active_adoption_count + #{adoptedUnits} " +
+            "WHERE user_id = #{userId}")
+    int applyOrderDelta(@Param("userId") Long userId,
+                        @Param("fromStatus") Integer fromStatus,
+                        @Param("toStatus") Integer toStatus,
+                        @Param("amount") BigDecimal amount,
+                        @Param("adoptedUnits") int adoptedUnits);
+
+    /**
+     * 按认养状态变化增减进行中的认养数和累计产量
+     *
+     * @param userId 用户ID
+     * @param fromStatus 原状态
+     * @param toStatus 新状态
+     * @param yieldDelta 产量变化
+     * @return 更新行数，0表示概览行不存在
+     */
+    @Update("UPDATE user_summary SET " +
+            "active_adoption_count = active_adoption_count + CASE WHEN #{toStatus} BETWEEN 1 AND 4 THEN 1 ELSE 0 END " +
+            "- CASE WHEN #{fromStatus,jdbcType=INTEGER} BETWEEN 1 AND 4 THEN 1 ELSE 0 END, " +
+            "total_yield = total_yield + #{yieldDelta} " +
+            "WHERE user_id = #{userId}")
+    int applyAdoptionDelta(@Param("userId") Long userId,
+                           @Param("fromStatus") Integer fromStatus,
+                           @Param("toStatus") Integer toStatus,
+                           @Param("yieldDelta") BigDecimal yieldDelta);
+
+    /**
+     * 按配送状态变化增减未签收的配送订单数
+     *
+     * @param userId 用户ID
+     * @param fromStatus 原状态（新建配送订单为null）
+     * @param toStatus 新状态
+     * @return 更新行数，0表示概览行不存在
+     */
+    @Update("UPDATE user_summary SET " +
+            "in_flight_delivery_count = in_flight_delivery_count + CASE WHEN #{toStatus} BETWEEN 1 AND 4 THEN 1 ELSE 0 END " +
+            "- CASE WHEN #{fromStatus,jdbcType=INTEGER} BETWEEN 1 AND 4 THEN 1 ELSE 0 END " +
+            "WHERE user_id = #{userId}")
+    int applyDeliveryDelta(@Param("userId") Long userId,
+                           @Param("fromStatus") Integer fromStatus,
+                           @Param("toStatus") Integer toStatus);
+
+    /**
+     * 插入空的概览行，已存在时忽略（并发插入时等待对方提交）
+     *
+     * @param userId 用户ID
+     * @return 插入行数，0表示已存在
+     */
+    @Insert("INSERT IGNORE INTO user_summary (user_id) VALUES (#{userId})")
+    int insertIfAbsent(@Param("userId") Long userId);
+
+    /**
+     * 锁定概览行，重建前调用，使重建读取的业务数据不早于并发事务已提交的增减
+     *
+     * @param userId 用户ID
+     * @return 用户ID，行不存在时为null
+     */
+    @Select("SELECT user_id FROM user_summary WHERE user_id = #{userId} FOR UPDATE")
+    Long lockRow(@Param("userId") Long userId);
+
+    /**
+     * 按订单、认养记录和配送订单重新计算用户概览（不存在时插入）
+     *
+     * @param userId 用户ID
+     * @return 影响行数
+     */
+    @Insert("INSERT INTO user_summary (user_id, pending_order_count, paid_order_count, completed_order_count, " +
+            "cancelled_order_count, refunded_order_count, paid_amount, active_adoption_count, total_yield, " +
+            "in_flight_delivery_count) " +
+            "SELECT #{userId}, o.pending, o.paid, o.completed, o.cancelled, o.refunded, o.amount, " +
+            "r.active, r.total_yield, d.in_flight FROM " +
+            "(SELECT COUNT(CASE WHEN order_status = 1 THEN 1 END) AS pending, " +
+            "COUNT(CASE WHEN order_status = 2 THEN 1 END) AS paid, " +
+            "COUNT(CASE WHEN order_status = 3 THEN 1 END) AS completed, " +
+            "COUNT(CASE WHEN order_status = 4 THEN 1 END) AS cancelled, " +
+            "COUNT(CASE WHEN order_status = 5 THEN 1 END) AS refunded, " +
+            "COALESCE(SUM(CASE WHEN order_status IN (2, 3) THEN actual_amount END), 0) AS amount " +
+            "FROM adoption_orders WHERE user_id = #{userId} AND deleted = 0) o, " +
+            "(SELECT COUNT(CASE WHEN adoption_status BETWEEN 1 AND 4 THEN 1 END) AS active, " +
+            "COALESCE(SUM(actual_yield), 0) AS total_yield " +
+            "FROM adoption_records WHERE user_id = #{userId} AND deleted = 0) r, " +
+            "(SELECT COUNT(*) AS in_flight FROM delivery_orders " +
+            "WHERE user_id = #{userId} AND deleted = 0 AND delivery_status BETWEEN 1 AND 4) d " +
+            "ON DUPLICATE KEY UPDATE pending_order_count = VALUES(pending_order_count), " +
+            "paid_order_count = VALUES(paid_order_count), completed_order_count = VALUES(completed_order_count), " +
+            "cancelled_order_count = VALUES(cancelled_order_count), refunded_order_count = VALUES(refunded_order_count), " +
+            "paid_amount = VALUES(paid_amount), active_adoption_count = VALUES(active_adoption_count), " +
+            "total_yield = VALUES(total_yield), in_flight_delivery_count = VALUES(in_flight_delivery_count)")
+    int rebuild(@Param("userId") Long userId);
+
+    /**
+     * 标记订单的支付已计入概览
+     *
+     * @param orderId 订单ID
+     * @return 更新行数，0表示已由概览重建计入
+     */
+    @Update("UPDATE adoption_orders SET summary_applied = 1 WHERE id = #{orderId} AND summary_applied = 0")
+    int markOrderApplied(@Param("orderId") Long orderId);
+
+    /**
+     * 标记用户全部已支付过的订单（已支付、已完成、已退款）已计入概览，在重建后同一事务中执行，
+     * 重建读取的订单行已被锁定，标记的订单与重建计入的订单一致
+     *
+     * @param userId 用户ID
+     * @return 更新行数
+     */
+    @Update("UPDATE adoption_orders SET summary_applied = 1 " +
+            "WHERE user_id = #{userId} AND order_status IN (2, 3, 5) AND summary_applied = 0 AND deleted = 0")
+    int markUserOrdersApplied(@Param("userId") Long userId);
+
+    /**
+     * 重新计算认养记录所属用户的认养数和产量（用于批量或任意字段的认养记录更新）
+     *
+     * @param recordIds 认养记录ID列表
+     * @return 更新行数
+     */
+    @Update("<script>" + REFRESH_ADOPTIONS_SET +
+            "WHERE s.user_id IN (SELECT user_id FROM adoption_records WHERE id IN " +
+            "<foreach collection='recordIds' item='id' open='(' separator=',' close=')'>#{id}</foreach>)</script>")
+    int refreshAdoptionsByRecordIds(@Param("recordIds") List<Long> recordIds);
+
+    /**
+     * 重新计算项目下全部认养用户的认养数和产量（用于项目状态级联）
+     *
+     * @param projectId 项目ID
+     * @return 更新行数
+     */
+    @Update(REFRESH_ADOPTIONS_SET +
+            "WHERE s.user_id IN (SELECT user_id FROM adoption_records WHERE project_id = #{projectId})")
+    int refreshAdoptionsByProject(@Param("projectId") Long projectId);
+}
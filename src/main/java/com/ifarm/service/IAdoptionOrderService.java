@@ -3,7 +3,9 @@ package com.ifarm.service;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.IService;
+import com.ifarm.common.result.CursorPage;
 import com.ifarm.entity.AdoptionOrder;
+import com.ifarm.vo.order.OrderQuoteVO;
 
 import java.math.BigDecimal;
 import java.util.List;
@@ -58,6 +60,17 @@ public interface IAdoptionOrderService extends IService<AdoptionOrder> {
      */
     IPage<AdoptionOrder> getUserOrderPage(Page<AdoptionOrder> page, Long userId, Integer orderStatus);
 
+    /**
+     * 游标分页查询用户订单（按创建时间倒序，不统计总数，用于小程序下拉加载）
+     * 
+     * @param userId 用户ID
+     * @param orderStatus 订单状态（可选）
+     * @param cursor 上一页返回的游标（第一页为空）
+     * @param size 每页大小
+     * @return 游标分页结果
+     */
+    CursorPage<AdoptionOrder> getUserOrderFeed(Long userId, Integer orderStatus, String cursor, Integer size);
+
     /**
      * 创建认养订单
      * 
@@ -88,6 +101,15 @@ public interface IAdoptionOrderService extends IService<AdoptionOrder> {
      */
     boolean payOrder(Long orderId, String paymentMethod, String paymentNo);
 
+    /**
+     * 批量支付同一项目的订单（一次分配单元、一次写入认养记录）
+     * 
+     * @param projectId 项目ID
+     * @param orders 订单列表（需包含ID、项目ID、支付方式和支付流水号；用户、单元数量和金额以数据库为准）
+     * @return 本次支付成功的订单ID（已支付或已取消的订单不在其中）
+     */
+    List<Long> batchPayOrders(Long projectId, List<AdoptionOrder> orders);
+
     /**
      * 完成订单
      * 
@@ -156,6 +178,14 @@ public interface IAdoptionOrderService extends IService<AdoptionOrder> {
      */
     int autoCancelTimeoutOrders(Integer timeoutMinutes);
 
+    /**
+     * 取消支付超时的订单（订单仍为待支付时取消并释放预占的单元）
+     * 
+     * @param orderId 订单ID
+     * @return 是否取消（订单已支付或已取消时返回false）
+     */
+    boolean cancelTimeoutOrder(Long orderId);
+
     /**
      * 统计用户订单数量
      * 
@@ -183,13 +213,14 @@ public interface IAdoptionOrderService extends IService<AdoptionOrder> {
     Object getOrderStatistics(Long userId);
 
     /**
-     * 计算订单金额
+     * 计算订单金额（按用户等级、首单和项目适用的促销规则计算优惠）
      * 
+     * @param userId 用户ID
      * @param projectId 项目ID
      * @param unitCount 单元数量
-     * @return 订单金额信息
+     * @return 订单报价
      */
-    Object calculateOrderAmount(Long projectId, Integer unitCount);
+    OrderQuoteVO calculateOrderAmount(Long userId, Long projectId, Integer unitCount);
 
     /**
      * 验证订单支付回调
@@ -60,6 +60,7 @@ public interface IAdoptionProjectService extends IService<AdoptionProject> {
 
     /**
      * 创建认养项目
+     * 按项目的单元布局字段（unitLayout、layoutColumns、layoutPattern）生成项目单元，未指定时为每行10个单元的行列网格
      * 
      * @param adoptionProject 项目信息
      * @return 创建结果
@@ -192,4 +193,12 @@ public interface IAdoptionProjectService extends IService<AdoptionProject> {
      * @return 操作结果
      */
     boolean completeProject(Long projectId);
+
+    /**
+     * 取消项目（事务提交后在后台分块退款全部已支付订单）
+     * 
+     * @param projectId 项目ID
+     * @return 操作结果
+     */
+    boolean cancelProject(Long projectId);
 }
@@ -3,6 +3,7 @@ package com.ifarm.service;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.IService;
+import com.ifarm.common.result.CursorPage;
 import com.ifarm.entity.AdoptionRecord;
 
 import java.math.BigDecimal;
@@ -58,6 +59,17 @@ public interface IAdoptionRecordService extends IService<AdoptionRecord> {
      */
     IPage<AdoptionRecord> getUserAdoptionPage(Page<AdoptionRecord> page, Long userId, Integer adoptionStatus);
 
+    /**
+     * 游标分页查询用户认养记录（按创建时间倒序，不统计总数，用于小程序下拉加载）
+     * 
+     * @param userId 用户ID
+     * @param adoptionStatus 认养状态（可选）
+     * @param cursor 上一页返回的游标（第一页为空）
+     * @param size 每页大小
+     * @return 游标分页结果
+     */
+    CursorPage<AdoptionRecord> getUserAdoptionFeed(Long userId, Integer adoptionStatus, String cursor, Integer size);
+
     /**
      * 根据认养状态查询记录列表
      * 
@@ -67,7 +79,7 @@ public interface IAdoptionRecordService extends IService<AdoptionRecord> {
     List<AdoptionRecord> getRecordsByStatus(Integer adoptionStatus);
 
     /**
-     * 创建认养记录
+     * 创建认养记录（用户概览的认养数由调用方随订单支付一并计入）
      * 
      * @param orderId 订单ID
      * @param unitIds 单元ID列表
@@ -124,6 +124,15 @@ public interface ICropService extends IService<Crop> {
      */
     List<Crop> getRecommendedCrops(Integer limit);
 
+    /**
+     * 获取用户的推荐作物列表（当前季节的作物中，与用户已认养作物相似的排在前面，其余按认养用户数排序）
+     *
+     * @param userId 用户ID（可为null，此时等同于不指定用户）
+     * @param limit 限制数量
+     * @return 推荐作物列表
+     */
+    List<Crop> getRecommendedCrops(Long userId, Integer limit);
+
     /**
      * 搜索作物（支持名称、品种、描述模糊搜索）
      * 
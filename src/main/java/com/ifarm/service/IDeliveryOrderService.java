@@ -3,6 +3,7 @@ package com.ifarm.service;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.IService;
+import com.ifarm.common.result.CursorPage;
 import com.ifarm.entity.DeliveryOrder;
 
 import java.math.BigDecimal;
@@ -67,6 +68,17 @@ public interface IDeliveryOrderService extends IService<DeliveryOrder> {
      */
     IPage<DeliveryOrder> getUserDeliveryPage(Page<DeliveryOrder> page, Long userId, Integer deliveryStatus);
 
+    /**
+     * 游标分页查询用户配送订单（按创建时间倒序，不统计总数，用于小程序下拉加载）
+     * 
+     * @param userId 用户ID
+     * @param deliveryStatus 配送状态（可选）
+     * @param cursor 上一页返回的游标（第一页为空）
+     * @param size 每页大小
+     * @return 游标分页结果
+     */
+    CursorPage<DeliveryOrder> getUserDeliveryFeed(Long userId, Integer deliveryStatus, String cursor, Integer size);
+
     /**
      * 根据物流公司查询配送订单列表
      * 
@@ -130,6 +130,14 @@ public interface IFarmService extends IService<Farm> {
      */
     List<Farm> getRecommendedFarms(Integer limit);
 
+    /**
+     * 获取热门农场列表（按最近7天浏览和认养热度排序）
+     * 
+     * @param limit 限制数量
+     * @return 热门农场列表
+     */
+    List<Farm> getPopularFarms(Integer limit);
+
     /**
      * 搜索农场（支持名称、地址模糊搜索）
      * 
@@ -3,6 +3,7 @@ package com.ifarm.service;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.IService;
+import com.ifarm.common.result.CursorPage;
 import com.ifarm.entity.GrowthRecord;
 
 import java.time.LocalDate;
@@ -55,6 +56,17 @@ public interface IGrowthRecordService extends IService<GrowthRecord> {
     IPage<GrowthRecord> getGrowthRecordPage(Page<GrowthRecord> page, Long projectId, 
                                            String growthStage, LocalDate startDate, LocalDate endDate);
 
+    /**
+     * 游标分页查询项目生长记录（按创建时间倒序，不统计总数，用于小程序下拉加载）
+     * 
+     * @param projectId 项目ID
+     * @param growthStage 生长阶段（可选）
+     * @param cursor 上一页返回的游标（第一页为空）
+     * @param size 每页大小
+     * @return 游标分页结果
+     */
+    CursorPage<GrowthRecord> getProjectGrowthFeed(Long projectId, String growthStage, String cursor, Integer size);
+
     /**
      * 根据生长阶段查询记录列表
      * 
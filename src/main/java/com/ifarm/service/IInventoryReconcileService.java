@@ -0,0 +1,27 @@
+package com.ifarm.service;
+
+/**
+ * 库存核对服务接口
+ * 项目可用单元数由下单、取消、退款等流程按增量修改，与项目单元状态分别维护，
+ * 异常情况下两者可能不一致，核对任务按项目单元和订单重新计算并修正
+ *
+ * @author ifarm
+ * @since 2025-01-19
+ */
+public interface IInventoryReconcileService {
+
+    /**
+     * 核对项目可用单元数
+     *
+     * @param full 是否核对全部项目（否则只核对上次核对后有变更的项目，首次执行时核对全部）
+     * @return 修正的项目数
+     */
+    int reconcile(boolean full);
+
+    /**
+     * 获取核对统计（累计及最近一次的偏差情况）
+     *
+     * @return 统计信息
+     */
+    Object getReconcileStatistics();
+}
@@ -0,0 +1,63 @@
+package com.ifarm.service;
+
+import com.ifarm.common.enums.OrderTransition;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 订单状态机服务接口
+ * 订单状态只通过声明的迁移修改：每次迁移是一条以当前状态（及所属用户）为条件的UPDATE，
+ * 更新行数为0即迁移冲突，不先查询再判断；各迁移的执行次数和冲突次数统一统计
+ *
+ * @author ifarm
+ * @since 2025-01-19
+ */
+public interface IOrderStateService {
+
+    /**
+     * 执行迁移，冲突时返回false
+     *
+     * @param transition 迁移
+     * @param orderId 订单ID
+     * @param userId 操作用户ID（迁移只允许所属用户执行时必填）
+     * @return 是否迁移成功
+     */
+    boolean tryTransit(OrderTransition transition, Long orderId, Long userId);
+
+    /**
+     * 执行迁移，失败时按订单不存在、无权限、状态不允许抛出业务异常
+     *
+     * @param transition 迁移
+     * @param orderId 订单ID
+     * @param userId 操作用户ID（迁移只允许所属用户执行时必填）
+     */
+    void transit(OrderTransition transition, Long orderId, Long userId);
+
+    /**
+     * 批量执行迁移（只迁移仍处于起始状态的订单）
+     *
+     * @param transition 迁移
+     * @param orderIds 订单ID列表
+     * @return 迁移成功的订单数
+     */
+    int transitAll(OrderTransition transition, List<Long> orderIds);
+
+    /**
+     * 支付迁移，同时写入支付信息，冲突时返回false
+     *
+     * @param orderId 订单ID
+     * @param paymentMethod 支付方式
+     * @param paymentNo 支付流水号
+     * @param paymentTime 支付时间
+     * @return 是否迁移成功
+     */
+    boolean tryPay(Long orderId, String paymentMethod, String paymentNo, LocalDateTime paymentTime);
+
+    /**
+     * 获取各迁移的执行次数、成功次数、冲突次数和速率
+     *
+     * @return 统计信息
+     */
+    Object getStatistics();
+}
@@ -0,0 +1,42 @@
+package com.ifarm.service;
+
+import java.time.LocalDateTime;
+
+/**
+ * 订单支付超时服务接口
+ * 订单创建后在时间轮中登记支付截止时间，到期时取消仍未支付的订单，无需轮询订单表
+ *
+ * @author ifarm
+ * @since 2025-01-19
+ */
+public interface IOrderTimeoutService {
+
+    /**
+     * 登记订单的支付截止时间（当前事务提交后生效）
+     *
+     * @param orderId 订单ID
+     * @param createTime 订单创建时间
+     */
+    void register(Long orderId, LocalDateTime createTime);
+
+    /**
+     * 撤销订单的支付超时任务（订单已支付或已取消，当前事务提交后生效）
+     *
+     * @param orderId 订单ID
+     */
+    void unregister(Long orderId);
+
+    /**
+     * 从数据库恢复全部待支付订单的超时任务，已超时的订单立即取消
+     *
+     * @return 恢复的订单数
+     */
+    int recover();
+
+    /**
+     * 获取等待超时的订单数
+     *
+     * @return 订单数
+     */
+    int getPendingCount();
+}
@@ -0,0 +1,62 @@
+package com.ifarm.service;
+
+import java.util.function.Consumer;
+
+/**
+ * 事务发件箱服务接口
+ * 业务事务内写入事件，提交后由后台投递线程分批投递给已注册的处理器：
+ * 至少投递一次，同一聚合的事件按写入顺序投递，失败的事件阻塞同一聚合的后续事件直到重试成功或放弃
+ *
+ * @author ifarm
+ * @since 2025-01-19
+ */
+public interface IOutboxService {
+
+    /**
+     * 在当前事务中写入事件（必须在事务内调用，事务回滚时事件一同回滚）
+     *
+     * @param aggregateType 聚合类型
+     * @param aggregateId 聚合ID
+     * @param eventType 事件类型
+     * @param payload 事件内容（序列化为JSON）
+     */
+    void publish(String aggregateType, Long aggregateId, String eventType, Object payload);
+
+    /**
+     * 注册事件处理器，同一事件类型可注册多个，按注册顺序在同一事务中执行；
+     * 处理器在标记事件已投递的事务内执行，数据库操作随投递一起提交，其他副作用需自行保证幂等
+     *
+     * @param eventType 事件类型
+     * @param payloadType 事件内容类型
+     * @param handler 处理器
+     * @param <T> 事件内容类型
+     */
+    <T> void registerHandler(String eventType, Class<T> payloadType, Consumer<T> handler);
+
+    /**
+     * 启动投递线程（处理器注册完成后调用，启动时投递积压的事件）
+     */
+    void start();
+
+    /**
+     * 投递当前全部可投递的事件
+     *
+     * @return 投递成功的事件数
+     */
+    int relayPending();
+
+    /**
+     * 重新投递失败的事件
+     *
+     * @param eventId 事件ID
+     * @return 是否成功
+     */
+    boolean retryFailed(Long eventId);
+
+    /**
+     * 获取投递统计
+     *
+     * @return 统计信息
+     */
+    Object getStatistics();
+}
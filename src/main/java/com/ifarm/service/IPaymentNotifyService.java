@@ -0,0 +1,36 @@
+package com.ifarm.service;
+
+import com.ifarm.dto.payment.PaymentNotifyDTO;
+
+/**
+ * 支付通知服务接口
+ * 支付平台回调验签并按支付流水号去重落库后立即应答，
+ * 订单支付由后台队列异步处理，同一项目的并发支付合并分配单元和创建认养记录
+ *
+ * @author ifarm
+ * @since 2025-01-19
+ */
+public interface IPaymentNotifyService {
+
+    /**
+     * 接收支付通知
+     *
+     * @param notify 支付通知
+     * @return 是否为新通知（重复通知返回false，同样应答成功）
+     */
+    boolean receive(PaymentNotifyDTO notify);
+
+    /**
+     * 重新提交待处理的通知（未进入队列或处理失败待重试的通知）
+     *
+     * @return 提交的通知数
+     */
+    int resubmitPending();
+
+    /**
+     * 获取处理统计
+     *
+     * @return 统计信息
+     */
+    Object getStatistics();
+}
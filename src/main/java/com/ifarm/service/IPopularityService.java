@@ -0,0 +1,117 @@
+package com.ifarm.service;
+
+import java.util.List;
+
+/**
+ * 热度服务接口
+ * 按小时分桶在内存中累计项目、农场、作物的浏览和认养次数，维护24小时和7天两个滑动窗口的热门榜单
+ *
+ * @author ifarm
+ * @since 2025-01-19
+ */
+public interface IPopularityService {
+
+    /**
+     * 统计对象类型
+     */
+    enum ItemType {
+        PROJECT(1), FARM(2), CROP(3);
+
+        private final int code;
+
+        ItemType(int code) {
+            this.code = code;
+        }
+
+        public int getCode() {
+            return code;
+        }
+
+        public static ItemType of(int code) {
+            for (ItemType type : values()) {
+                if (type.code == code) {
+                    return type;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * 统计窗口
+     */
+    enum Window {
+        /** 最近24小时 */
+        DAY(24),
+        /** 最近7天 */
+        WEEK(168);
+
+        private final int hours;
+
+        Window(int hours) {
+            this.hours = hours;
+        }
+
+        public int getHours() {
+            return hours;
+        }
+    }
+
+    /**
+     * 记录一次浏览
+     *
+     * @param type 对象类型
+     * @param itemId 对象ID
+     */
+    void recordView(ItemType type, Long itemId);
+
+    /**
+     * 记录一次项目浏览，同时计入项目所属作物和农场
+     *
+     * @param projectId 项目ID
+     */
+    void recordProjectView(Long projectId);
+
+    /**
+     * 记录项目认养，同时计入项目所属作物和农场（当前事务提交后生效）
+     *
+     * @param projectId 项目ID
+     * @param unitCount 认养单元数
+     */
+    void recordProjectAdoption(Long projectId, int unitCount);
+
+    /**
+     * 获取热门对象ID（按热度降序，榜单定时刷新）
+     *
+     * @param type 对象类型
+     * @param window 统计窗口
+     * @param limit 数量
+     * @return 对象ID列表，暂无统计数据时返回空列表
+     */
+    List<Long> getPopularIds(ItemType type, Window window, int limit);
+
+    /**
+     * 获取对象在窗口内的热度分值
+     *
+     * @param type 对象类型
+     * @param itemId 对象ID
+     * @param window 统计窗口
+     * @return 热度分值
+     */
+    long getScore(ItemType type, Long itemId, Window window);
+
+    /**
+     * 重新计算热门榜单
+     */
+    void refreshRankings();
+
+    /**
+     * 将各小时统计自上次写入后的增量累加到数据库
+     */
+    void flush();
+
+    /**
+     * 从数据库恢复最近7天的小时统计
+     */
+    void recover();
+}
@@ -0,0 +1,35 @@
+package com.ifarm.service;
+
+import com.ifarm.vo.adoptionproject.ProjectDetailView;
+
+/**
+ * 项目详情读模型服务接口
+ * 读模型按项目缓存在内存中，由项目变更事件刷新
+ *
+ * @author ifarm
+ * @since 2025-01-19
+ */
+public interface IProjectDetailViewService {
+
+    /**
+     * 获取项目详情读模型
+     *
+     * @param projectId 项目ID
+     * @return 项目详情
+     */
+    ProjectDetailView getDetailView(Long projectId);
+
+    /**
+     * 重新加载项目详情读模型（仅在已缓存时加载）
+     *
+     * @param projectId 项目ID
+     */
+    void refresh(Long projectId);
+
+    /**
+     * 清除项目详情读模型
+     *
+     * @param projectId 项目ID
+     */
+    void evict(Long projectId);
+}
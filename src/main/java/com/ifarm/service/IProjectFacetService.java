@@ -0,0 +1,51 @@
+package com.ifarm.service;
+
+import com.ifarm.dto.adoptionproject.ProjectFacetQueryDTO;
+import com.ifarm.vo.adoptionproject.ProjectFacetResultVO;
+
+/**
+ * 项目筛选索引服务接口
+ * 在内存中按作物、分类、地区、状态、可认养情况及价格、面积区间索引全部项目，
+ * 组合筛选和维度计数不访问数据库
+ *
+ * @author ifarm
+ * @since 2025-01-19
+ */
+public interface IProjectFacetService {
+
+    /**
+     * 组合筛选项目
+     *
+     * @param query 筛选条件
+     * @param withFacets 是否计算各维度取值计数
+     * @return 筛选结果（当前页项目及维度计数）
+     */
+    ProjectFacetResultVO search(ProjectFacetQueryDTO query, boolean withFacets);
+
+    /**
+     * 更新项目的可认养单元数（库存变化提交后调用）
+     *
+     * @param projectId 项目ID
+     * @param availableUnits 可认养单元数
+     */
+    void onAvailabilityChanged(Long projectId, int availableUnits);
+
+    /**
+     * 从数据库重新加载单个项目
+     *
+     * @param projectId 项目ID
+     */
+    void reload(Long projectId);
+
+    /**
+     * 索引是否已构建
+     *
+     * @return 是否可用
+     */
+    boolean isReady();
+
+    /**
+     * 重新构建索引
+     */
+    void rebuild();
+}
@@ -0,0 +1,85 @@
+package com.ifarm.service;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+/**
+ * 项目库存服务接口
+ * 以adoption_projects.available_units的条件扣减为准，
+ * 内存计数器仅用于在售罄时快速拒绝请求
+ *
+ * @author ifarm
+ * @since 2025-01-19
+ */
+public interface IProjectInventoryService {
+
+    /**
+     * 预占项目单元（创建订单时调用）
+     *
+     * @param projectId 项目ID
+     * @param unitCount 单元数量
+     * @return 是否预占成功，库存不足或项目不可认养时返回false
+     */
+    boolean reserve(Long projectId, Integer unitCount);
+
+    /**
+     * 预占项目单元，数据库条件扣减由调用方执行（如由下单存储过程与订单插入一起完成）
+     *
+     * @param projectId 项目ID
+     * @param unitCount 单元数量
+     * @param decrement 数据库条件扣减，返回是否扣减成功；内存计数不足时不会执行
+     * @return 是否预占成功
+     */
+    boolean reserve(Long projectId, Integer unitCount, BooleanSupplier decrement);
+
+    /**
+     * 确认预占（订单支付成功时调用），预占的单元转为已售出
+     *
+     * @param projectId 项目ID
+     * @param unitCount 单元数量
+     */
+    void confirm(Long projectId, Integer unitCount);
+
+    /**
+     * 释放单元（订单取消、超时或退款时调用）
+     *
+     * @param projectId 项目ID
+     * @param unitCount 单元数量
+     * @return 是否释放成功；失败说明可用单元数已偏差（归还后将超过总单元数），未归还任何单元，
+     *         调用方不应再向候补用户分配，偏差由库存核对修正
+     */
+    boolean release(Long projectId, Integer unitCount);
+
+    /**
+     * 查询项目当前可认养单元数（优先读取内存计数器）
+     *
+     * @param projectId 项目ID
+     * @return 可认养单元数
+     */
+    int getAvailableUnits(Long projectId);
+
+    /**
+     * 批量查询项目当前可认养单元数，未加载计数器的项目合并为一次数据库查询并加载计数器
+     *
+     * @param projectIds 项目ID列表
+     * @return 项目ID到可认养单元数的映射，不存在的项目不包含在内
+     */
+    Map<Long, Integer> getAvailableUnits(Collection<Long> projectIds);
+
+    /**
+     * 清除项目的内存计数器，下次访问时从数据库重新加载
+     * 项目状态、总单元数等变更后调用
+     *
+     * @param projectId 项目ID
+     */
+    void evict(Long projectId);
+
+    /**
+     * 获取项目库存统计信息
+     *
+     * @param projectId 项目ID
+     * @return 统计信息
+     */
+    Object getInventoryStatistics(Long projectId);
+}
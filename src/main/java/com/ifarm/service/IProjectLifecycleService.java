@@ -0,0 +1,36 @@
+package com.ifarm.service;
+
+/**
+ * 项目生命周期服务接口
+ * 按种植日期、作物生长周期和收获期自动推进项目状态，并将状态级联到项目单元和认养记录
+ *
+ * @author ifarm
+ * @since 2025-01-19
+ */
+public interface IProjectLifecycleService {
+
+    /**
+     * 推进所有到期项目的状态（认养中→种植中→收获中→已完成），并补做未完成的级联
+     *
+     * @return 推进的项目数
+     */
+    int advanceDueProjects();
+
+    /**
+     * 将项目状态级联到项目单元和认养记录
+     * 按固定行数分块更新，每块在独立的短事务中提交；可重复执行，中断后再次执行会继续未完成的部分
+     *
+     * @param projectId 项目ID
+     * @param projectStatus 项目状态（3-种植中，4-收获中，5-已完成）
+     * @return 更新的单元数
+     */
+    int cascade(Long projectId, Integer projectStatus);
+
+    /**
+     * 在当前事务提交后级联项目状态（无事务时立即执行）
+     *
+     * @param projectId 项目ID
+     * @param projectStatus 项目状态（3-种植中，4-收获中，5-已完成）
+     */
+    void cascadeAfterCommit(Long projectId, Integer projectStatus);
+}
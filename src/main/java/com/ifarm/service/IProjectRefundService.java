@@ -0,0 +1,42 @@
+package com.ifarm.service;
+
+/**
+ * 项目批量退款服务接口
+ * 项目取消后按订单ID顺序分块退款全部已支付订单：每块在一个短事务中批量更新订单状态、批量释放单元、
+ * 一次恢复项目可认养数并推进断点，任务中断后从断点继续
+ *
+ * @author ifarm
+ * @since 2025-01-19
+ */
+public interface IProjectRefundService {
+
+    /**
+     * 在当前事务中取消项目的待支付订单并创建项目退款任务，事务提交后在后台执行（项目已有任务时只重新提交执行）
+     *
+     * @param projectId 项目ID
+     */
+    void startRefund(Long projectId);
+
+    /**
+     * 从断点执行项目退款任务直到完成
+     *
+     * @param projectId 项目ID
+     * @return 本次退款的订单数
+     */
+    int runRefund(Long projectId);
+
+    /**
+     * 重新提交全部未完成的退款任务到后台执行
+     *
+     * @return 提交的任务数
+     */
+    int resumeUnfinished();
+
+    /**
+     * 获取项目退款进度
+     *
+     * @param projectId 项目ID
+     * @return 进度信息
+     */
+    Object getRefundProgress(Long projectId);
+}
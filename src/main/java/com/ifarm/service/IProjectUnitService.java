@@ -1,6 +1,7 @@
 package com.ifarm.service;
 
 import com.baomidou.mybatisplus.extension.service.IService;
+import com.ifarm.common.util.UnitLayout;
 import com.ifarm.entity.ProjectUnit;
 
 import java.util.List;
@@ -55,6 +56,16 @@ public interface IProjectUnitService extends IService<ProjectUnit> {
      */
     boolean batchCreateUnits(Long projectId, Integer unitCount);
 
+    /**
+     * 按指定布局批量创建项目单元（分块多行插入）
+     * 
+     * @param projectId 项目ID
+     * @param unitCount 单元数量
+     * @param layout 单元布局
+     * @return 创建结果
+     */
+    boolean batchCreateUnits(Long projectId, Integer unitCount, UnitLayout layout);
+
     /**
      * 更新单元信息
      * 
@@ -144,11 +155,12 @@ public interface IProjectUnitService extends IService<ProjectUnit> {
 
     /**
      * 释放单元（取消认养时调用）
+     * 只释放已认养状态的单元，已进入种植、收获等后续状态的单元保持不变
      * 
      * @param unitIds 单元ID列表
-     * @return 释放结果
+     * @return 实际释放的单元数
      */
-    boolean releaseUnits(List<Long> unitIds);
+    int releaseUnits(List<Long> unitIds);
 
     /**
      * 获取单元使用情况统计
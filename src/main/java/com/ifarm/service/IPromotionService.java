@@ -0,0 +1,75 @@
+package com.ifarm.service;
+
+import com.ifarm.dto.promotion.PromotionRuleCreateDTO;
+import com.ifarm.entity.AdoptionProject;
+import com.ifarm.entity.PromotionRule;
+import com.ifarm.vo.order.OrderQuoteVO;
+
+import java.util.List;
+
+/**
+ * 促销服务接口
+ * 启用的促销规则（数量阶梯、用户等级、限时活动、首单优惠）编译为不可变的规则集，规则变更后整体替换；
+ * 报价只使用内存中的规则集和缓存的用户等级，不访问数据库
+ *
+ * @author ifarm
+ * @since 2025-01-19
+ */
+public interface IPromotionService {
+
+    /**
+     * 计算订单报价
+     *
+     * @param userId 用户ID
+     * @param project 项目（调用方已加载）
+     * @param unitCount 单元数量
+     * @return 报价（含命中的规则明细）
+     */
+    OrderQuoteVO quote(Long userId, AdoptionProject project, Integer unitCount);
+
+    /**
+     * 从数据库重新加载并编译启用的规则
+     *
+     * @return 规则数
+     */
+    int reload();
+
+    /**
+     * 清除用户等级缓存（用户下单或支付后调用）
+     *
+     * @param userId 用户ID
+     */
+    void evictUser(Long userId);
+
+    /**
+     * 获取全部规则
+     *
+     * @return 规则列表
+     */
+    List<PromotionRule> listRules();
+
+    /**
+     * 创建规则
+     *
+     * @param createDTO 规则信息
+     * @return 创建的规则
+     */
+    PromotionRule createRule(PromotionRuleCreateDTO createDTO);
+
+    /**
+     * 启用或停用规则
+     *
+     * @param ruleId 规则ID
+     * @param enabled 是否启用
+     * @return 操作结果
+     */
+    boolean updateRuleStatus(Long ruleId, Boolean enabled);
+
+    /**
+     * 删除规则
+     *
+     * @param ruleId 规则ID
+     * @return 操作结果
+     */
+    boolean deleteRule(Long ruleId);
+}
@@ -0,0 +1,52 @@
+package com.ifarm.service;
+
+import java.util.List;
+
+/**
+ * 推荐服务接口
+ * 离线任务根据认养记录构建项目、作物、农场三个维度的物品相似度及每个用户的候选项目，
+ * 在线请求只做内存查询
+ *
+ * @author ifarm
+ * @since 2025-01-19
+ */
+public interface IRecommendationService {
+
+    /**
+     * 获取用户的推荐项目ID（已过滤售罄项目），无个性化结果时返回热门项目
+     *
+     * @param userId 用户ID（可为null）
+     * @param limit 数量
+     * @return 推荐项目ID列表，推荐索引尚未构建时返回空列表
+     */
+    List<Long> recommendProjectIds(Long userId, int limit);
+
+    /**
+     * 获取用户的推荐作物ID：已认养作物及按共同认养相似的作物，按相似度降序
+     *
+     * @param userId 用户ID
+     * @param limit 数量
+     * @return 推荐作物ID列表，无认养记录或推荐索引尚未构建时返回空列表
+     */
+    List<Long> recommendCropIds(Long userId, int limit);
+
+    /**
+     * 获取作物的认养用户数（用于作物推荐排序）
+     *
+     * @param cropId 作物ID
+     * @return 认养用户数
+     */
+    int getCropAdopterCount(Long cropId);
+
+    /**
+     * 推荐索引是否已构建
+     *
+     * @return 是否可用
+     */
+    boolean isReady();
+
+    /**
+     * 重新构建推荐索引
+     */
+    void rebuild();
+}
@@ -0,0 +1,53 @@
+package com.ifarm.service;
+
+import java.util.List;
+
+/**
+ * 单元分配服务接口
+ * 内存位图记录各项目的空闲单元，分配时先以CAS认领位图中的单元，
+ * 再以数据库条件更新落库；位图不可用或不足时走 FOR UPDATE SKIP LOCKED 路径
+ *
+ * @author ifarm
+ * @since 2025-01-19
+ */
+public interface IUnitAllocationService {
+
+    /**
+     * 分配可认养单元并将其状态更新为已认养（需在事务中调用）
+     *
+     * @param projectId 项目ID
+     * @param unitCount 单元数量
+     * @return 分配的单元ID列表
+     */
+    List<Long> allocate(Long projectId, Integer unitCount);
+
+    /**
+     * 释放已认养单元，将其状态改回可认养
+     *
+     * @param unitIds 单元ID列表
+     * @return 实际释放的单元数
+     */
+    int release(List<Long> unitIds);
+
+    /**
+     * 从数据库重新加载项目的空闲单元位图
+     *
+     * @param projectId 项目ID
+     */
+    void reload(Long projectId);
+
+    /**
+     * 清除项目的空闲单元位图，下次分配时重新加载
+     *
+     * @param projectId 项目ID
+     */
+    void evict(Long projectId);
+
+    /**
+     * 查询项目位图中的空闲单元数
+     *
+     * @param projectId 项目ID
+     * @return 空闲单元数
+     */
+    int getFreeUnitCount(Long projectId);
+}
@@ -0,0 +1,46 @@
+package com.ifarm.service;
+
+import com.ifarm.vo.projectunit.UnitGridMapVO;
+
+import java.util.Collection;
+
+/**
+ * 项目单元网格图服务接口
+ * 以紧凑编码返回项目全部单元的状态，随单元状态变化增量维护
+ *
+ * @author ifarm
+ * @since 2025-01-19
+ */
+public interface IUnitGridMapService {
+
+    /**
+     * 获取项目单元网格图
+     *
+     * @param projectId 项目ID
+     * @param sinceVersion 客户端已有的版本号（可为null），未变化时只返回版本号，可增量时只返回变化的格子
+     * @return 网格图
+     */
+    UnitGridMapVO getGridMap(Long projectId, Long sinceVersion);
+
+    /**
+     * 单元状态变化后更新网格图（在事务提交后生效）
+     *
+     * @param unitIds 单元ID列表
+     * @param unitStatus 新状态
+     */
+    void onUnitStatusChanged(Collection<Long> unitIds, Integer unitStatus);
+
+    /**
+     * 清除单元所在项目的网格图（无法确定变化结果时调用）
+     *
+     * @param unitIds 单元ID列表
+     */
+    void evictByUnitIds(Collection<Long> unitIds);
+
+    /**
+     * 清除项目的网格图，下次访问时重新构建
+     *
+     * @param projectId 项目ID
+     */
+    void evict(Long projectId);
+}
@@ -0,0 +1,88 @@
+package com.ifarm.service;
+
+import com.ifarm.entity.UserSummary;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * 用户概览服务接口
+ * "我的"页面的订单数、支付金额、认养数、产量和配送数由一次主键查询返回，
+ * 各业务在状态变化的同一事务内调用本服务增量维护，订单支付由事务发件箱投递时在投递事务内调用
+ *
+ * @author ifarm
+ * @since 2025-01-19
+ */
+public interface IUserSummaryService {
+
+    /**
+     * 获取用户概览（概览行不存在时先按业务数据重建）
+     *
+     * @param userId 用户ID
+     * @return 用户概览
+     */
+    UserSummary getUserSummary(Long userId);
+
+    /**
+     * 订单状态变化
+     *
+     * @param userId 用户ID
+     * @param fromStatus 原状态（新建订单为null）
+     * @param toStatus 新状态
+     * @param amount 订单实付金额
+     * @param adoptedUnits 本次新增的认养记录数
+     */
+    void onOrderStatusChanged(Long userId, Integer fromStatus, Integer toStatus, BigDecimal amount, int adoptedUnits);
+
+    /**
+     * 订单支付（支付事件投递时调用），每个订单只计入一次：
+     * 事件投递前概览已被重建（重建已按订单数据计入本次支付）时跳过
+     *
+     * @param orderId 订单ID
+     * @param userId 用户ID
+     * @param amount 订单实付金额
+     * @param adoptedUnits 新增的认养记录数
+     */
+    void onOrderPaid(Long orderId, Long userId, BigDecimal amount, int adoptedUnits);
+
+    /**
+     * 认养状态或产量变化
+     *
+     * @param userId 用户ID
+     * @param fromStatus 原状态
+     * @param toStatus 新状态
+     * @param yieldDelta 产量变化（无变化传null）
+     */
+    void onAdoptionStatusChanged(Long userId, Integer fromStatus, Integer toStatus, BigDecimal yieldDelta);
+
+    /**
+     * 配送状态变化
+     *
+     * @param userId 用户ID
+     * @param fromStatus 原状态（新建配送订单为null）
+     * @param toStatus 新状态
+     */
+    void onDeliveryStatusChanged(Long userId, Integer fromStatus, Integer toStatus);
+
+    /**
+     * 重新计算认养记录所属用户的认养数和产量
+     *
+     * @param recordIds 认养记录ID列表
+     */
+    void refreshAdoptions(List<Long> recordIds);
+
+    /**
+     * 重新计算项目下全部认养用户的认养数和产量
+     *
+     * @param projectId 项目ID
+     */
+    void refreshProjectAdoptions(Long projectId);
+
+    /**
+     * 按业务数据重建用户概览
+     *
+     * @param userId 用户ID
+     * @return 重建后的用户概览
+     */
+    UserSummary rebuild(Long userId);
+}
@@ -0,0 +1,79 @@
+package com.ifarm.service;
+
+import com.ifarm.vo.waitingroom.WaitingRoomTicketVO;
+
+/**
+ * 抢购排队服务接口
+ * 热门项目开售时可开启限流抢购模式：用户先领取排队号，系统按配置的速率依次放行，
+ * 只有获得入场资格的用户才能下单，下单请求对数据库的压力不随瞬时人数增长
+ *
+ * @author ifarm
+ * @since 2025-01-19
+ */
+public interface IWaitingRoomService {
+
+    /**
+     * 开启或调整项目的限流抢购模式（已领取的排队号保持不变）
+     *
+     * @param projectId 项目ID
+     * @param admitRate 每秒放行人数
+     * @param admissionTtlSeconds 入场资格有效期（秒）
+     * @return 是否成功
+     */
+    boolean enableLaunchMode(Long projectId, Integer admitRate, Integer admissionTtlSeconds);
+
+    /**
+     * 关闭项目的限流抢购模式，之后所有用户可直接下单
+     *
+     * @param projectId 项目ID
+     * @return 是否成功
+     */
+    boolean disableLaunchMode(Long projectId);
+
+    /**
+     * 项目是否处于限流抢购模式
+     *
+     * @param projectId 项目ID
+     * @return 是否开启
+     */
+    boolean isLaunchMode(Long projectId);
+
+    /**
+     * 领取排队号（已持有有效排队号时返回原排队号）
+     *
+     * @param userId 用户ID
+     * @param projectId 项目ID
+     * @return 排队号信息
+     */
+    WaitingRoomTicketVO takeTicket(Long userId, Long projectId);
+
+    /**
+     * 获取用户的排队号状态
+     *
+     * @param userId 用户ID
+     * @param projectId 项目ID
+     * @return 排队号信息，未开启限流抢购时只包含launchMode=false，未领取时排队号为空
+     */
+    WaitingRoomTicketVO getTicket(Long userId, Long projectId);
+
+    /**
+     * 使用入场资格（需在下单事务中调用，事务回滚时入场资格恢复可用）
+     *
+     * @param userId 用户ID
+     * @param projectId 项目ID
+     * @return 项目未开启限流抢购，或用户持有有效且未使用的入场资格时返回true
+     */
+    boolean consumeAdmission(Long userId, Long projectId);
+
+    /**
+     * 按速率放行排队用户，并清理过期的排队号
+     *
+     * @param elapsedMillis 距上次放行的毫秒数
+     */
+    void admit(long elapsedMillis);
+
+    /**
+     * 从系统配置恢复开启限流抢购的项目
+     */
+    void reload();
+}
@@ -0,0 +1,79 @@
+package com.ifarm.service;
+
+import com.ifarm.vo.waitlist.WaitlistEntryVO;
+
+/**
+ * 认养候补服务接口
+ * 项目售罄后用户加入按项目划分的先进先出候补队列，释放的单元优先分配给队首用户并保留一段时间，
+ * 保留期内用户下单直接使用已分配的单元，超时后转给下一位
+ *
+ * @author ifarm
+ * @since 2025-01-19
+ */
+public interface IWaitlistService {
+
+    /**
+     * 加入候补队列
+     *
+     * @param userId 用户ID
+     * @param projectId 项目ID
+     * @param unitCount 候补单元数
+     * @return 候补信息
+     */
+    WaitlistEntryVO joinWaitlist(Long userId, Long projectId, Integer unitCount);
+
+    /**
+     * 退出候补队列（已分配的单元立即转给下一位）
+     *
+     * @param userId 用户ID
+     * @param projectId 项目ID
+     * @return 是否成功
+     */
+    boolean leaveWaitlist(Long userId, Long projectId);
+
+    /**
+     * 获取用户在项目候补队列中的信息
+     *
+     * @param userId 用户ID
+     * @param projectId 项目ID
+     * @return 候补信息，未候补时返回null
+     */
+    WaitlistEntryVO getWaitlistEntry(Long userId, Long projectId);
+
+    /**
+     * 项目是否有排队中的用户（有排队时新订单需先加入候补）
+     *
+     * @param projectId 项目ID
+     * @return 是否有排队
+     */
+    boolean hasWaiting(Long projectId);
+
+    /**
+     * 使用已分配给用户的单元下单（需在下单事务中调用，事务回滚时分配保持不变）
+     *
+     * @param userId 用户ID
+     * @param projectId 项目ID
+     * @param unitCount 下单单元数
+     * @return 用户有匹配的分配且在保留期内时返回true，此时单元已预占，无需再扣减库存
+     */
+    boolean claimOffer(Long userId, Long projectId, Integer unitCount);
+
+    /**
+     * 项目有单元被释放（当前事务提交后向队首分配）
+     *
+     * @param projectId 项目ID
+     */
+    void onUnitsReleased(Long projectId);
+
+    /**
+     * 处理超过保留期的分配：释放单元并分配给下一位；有排队的项目同时重试分配，无法满足的队首置为失效
+     *
+     * @return 失效的分配数
+     */
+    int expireOffers();
+
+    /**
+     * 从数据库恢复候补队列
+     */
+    void reload();
+}
@@ -1,10 +1,19 @@
 package com.ifarm.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.ifarm.common.enums.OrderTransition;
+import com.ifarm.common.event.OrderPaidEvent;
 import com.ifarm.common.exception.BusinessException;
+import com.ifarm.common.result.CursorPage;
+import com.ifarm.common.util.IdGenerator;
+import com.ifarm.common.util.SeekCursor;
+import com.ifarm.common.util.StatusHistogram;
+import com.ifarm.common.util.TransactionUtils;
+import com.ifarm.dto.order.CreateOrderCall;
 import com.ifarm.entity.AdoptionOrder;
 import com.ifarm.entity.AdoptionProject;
 import com.ifarm.entity.AdoptionRecord;
@@ -12,8 +21,18 @@ import com.ifarm.mapper.AdoptionOrderMapper;
 import com.ifarm.service.IAdoptionOrderService;
 import com.ifarm.service.IAdoptionProjectService;
 import com.ifarm.service.IAdoptionRecordService;
+import com.ifarm.service.IOrderStateService;
+import com.ifarm.service.IOrderTimeoutService;
+import com.ifarm.service.IOutboxService;
+import com.ifarm.service.IProjectInventoryService;
 import com.ifarm.service.IProjectUnitService;
+import com.ifarm.service.IPromotionService;
+import com.ifarm.service.IUserSummaryService;
+import com.ifarm.service.IWaitingRoomService;
+import com.ifarm.service.IWaitlistService;
+import com.ifarm.vo.order.OrderQuoteVO;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -21,16 +40,20 @@ import org.springframework.util.StringUtils;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * 认养订单服务实现类
  * 
+ * 下单有两种模式（ifarm.checkout.mode）：java 模式由应用依次条件扣减库存、读取项目、插入订单；
+ * procedure 模式在加锁之前读取项目并报价，由 CreateAdoptionOrder 存储过程在一次调用中完成
+ * 项目校验、条件扣减和订单插入，项目行锁只持有这一次往返。两种模式的库存、候补和限流语义一致。
+ * 
  * @author ifarm
  * @since 2025-01-19
  */
@@ -42,15 +65,45 @@ public class AdoptionOrderServiceImpl extends ServiceImpl<AdoptionOrderMapper, A
     private final IAdoptionProjectService adoptionProjectService;
     private final IProjectUnitService projectUnitService;
     private final IAdoptionRecordService adoptionRecordService;
+    private final IProjectInventoryService projectInventoryService;
+    private final IOutboxService outboxService;
+    private final IWaitlistService waitlistService;
+    private final IWaitingRoomService waitingRoomService;
+    private final IdGenerator idGenerator;
+    private final IOrderTimeoutService orderTimeoutService;
+    private final IUserSummaryService userSummaryService;
+    private final IPromotionService promotionService;
+    private final IOrderStateService orderStateService;
+    private final boolean procedureCheckout;
 
     public AdoptionOrderServiceImpl(AdoptionOrderMapper adoptionOrderMapper,
                                    IAdoptionProjectService adoptionProjectService,
                                    IProjectUnitService projectUnitService,
-                                   @Lazy IAdoptionRecordService adoptionRecordService) {
+                                   @Lazy IAdoptionRecordService adoptionRecordService,
+                                   IProjectInventoryService projectInventoryService,
+                                   IOutboxService outboxService,
+                                   IWaitlistService waitlistService,
+                                   IWaitingRoomService waitingRoomService,
+                                   IdGenerator idGenerator,
+                                   IOrderTimeoutService orderTimeoutService,
+                                   IUserSummaryService userSummaryService,
+                                   IPromotionService promotionService,
+                                   IOrderStateService orderStateService,
+                                   @Value("${ifarm.checkout.mode:java}") String checkoutMode) {
         this.adoptionOrderMapper = adoptionOrderMapper;
         this.adoptionProjectService = adoptionProjectService;
         this.projectUnitService = projectUnitService;
         this.adoptionRecordService = adoptionRecordService;
+        this.projectInventoryService = projectInventoryService;
+        this.outboxService = outboxService;
+        this.waitlistService = waitlistService;
+        this.waitingRoomService = waitingRoomService;
+        this.idGenerator = idGenerator;
+        this.orderTimeoutService = orderTimeoutService;
+        this.userSummaryService = userSummaryService;
+        this.promotionService = promotionService;
+        this.orderStateService = orderStateService;
+        this.procedureCheckout = "procedure".equalsIgnoreCase(checkoutMode);
     }
 
     @Override
@@ -140,6 +193,25 @@ public class AdoptionOrderServiceImpl extends ServiceImpl<AdoptionOrderMapper, A
         }
     }
 
+    @Override
+    public CursorPage<AdoptionOrder> getUserOrderFeed(Long userId, Integer orderStatus, String cursor, Integer size) {
+        if (userId == null) {
+            throw new BusinessException("用户ID不能为空");
+        }
+        
+        log.debug("游标分页查询用户订单: userId={}, orderStatus={}, cursor={}", userId, orderStatus, cursor);
+        SeekCursor seek = SeekCursor.decode(cursor);
+        int pageSize = CursorPage.normalizeSize(size);
+        try {
+            List<AdoptionOrder> rows = adoptionOrderMapper.selectUserOrderFeed(userId, orderStatus,
+                    seek != null ? seek.createTime() : null, seek != null ? seek.id() : null, pageSize + 1);
+            return CursorPage.of(rows, pageSize, AdoptionOrder::getCreateTime, AdoptionOrder::getId);
+        } catch (Exception e) {
+            log.error("游标分页查询用户订单失败", e);
+            throw new BusinessException("查询订单列表失败");
+        }
+    }
+
     @Override
     @Transactional(rollbackFor = Exception.class)
     public AdoptionOrder createOrder(Long userId, Long projectId, Integer unitCount, String remark) {
@@ -149,9 +221,18 @@ public class AdoptionOrderServiceImpl extends ServiceImpl<AdoptionOrderMapper, A
         
         log.info("创建认养订单: 用户ID={}, 项目ID={}, 单元数量={}", userId, projectId, unitCount);
         try {
-            // 验证项目是否可以认养
-            if (!adoptionProjectService.canAdopt(projectId, unitCount)) {
-                throw new BusinessException("项目不可认养或单元数量不足");
+            // 限流抢购中的项目只接受已获得入场资格的用户，在访问数据库之前拒绝
+            if (!waitingRoomService.consumeAdmission(userId, projectId)) {
+                throw new BusinessException("项目正在限流抢购，请先领取排队号并等待入场");
+            }
+            
+            if (procedureCheckout) {
+                return createOrderByProcedure(userId, projectId, unitCount, remark);
+            }
+            
+            // 原子预占项目单元：售罄时由内存计数器直接拒绝，否则以数据库条件扣减为准
+            if (!claimWaitlistOffer(userId, projectId, unitCount) && !projectInventoryService.reserve(projectId, unitCount)) {
+                throw new BusinessException("项目不可认养或单元数量不足，可加入候补队列");
             }
             
             // 获取项目信息
@@ -160,12 +241,11 @@ public class AdoptionOrderServiceImpl extends ServiceImpl<AdoptionOrderMapper, A
                 throw new BusinessException("项目不存在");
             }
             
-            // 计算订单金额
-            Object amountInfo = calculateOrderAmount(projectId, unitCount);
-            Map<String, Object> amountMap = (Map<String, Object>) amountInfo;
-            BigDecimal totalAmount = (BigDecimal) amountMap.get("totalAmount");
-            BigDecimal discountAmount = (BigDecimal) amountMap.get("discountAmount");
-            BigDecimal actualAmount = (BigDecimal) amountMap.get("actualAmount");
+            // 按预编译的促销规则计算订单金额，复用已加载的项目
+            OrderQuoteVO quote = promotionService.quote(userId, project, unitCount);
+            BigDecimal totalAmount = quote.getTotalAmount();
+            BigDecimal discountAmount = quote.getDiscountAmount();
+            BigDecimal actualAmount = quote.getActualAmount();
             
             // 创建订单
             AdoptionOrder order = new AdoptionOrder();
@@ -182,9 +262,12 @@ public class AdoptionOrderServiceImpl extends ServiceImpl<AdoptionOrderMapper, A
             
             boolean result = save(order);
             if (result) {
-                // 预占用项目单元
-                adoptionProjectService.updateAvailableUnits(projectId, -unitCount);
+                userSummaryService.onOrderStatusChanged(userId, null, 1, actualAmount, 0);
+                // 用户已不再是首单
+                TransactionUtils.afterCommit(() -> promotionService.evictUser(userId));
                 
+                // 登记支付截止时间，到期未支付自动取消
+                orderTimeoutService.register(order.getId(), order.getCreateTime());
                 log.info("认养订单创建成功，订单号: {}", order.getOrderNo());
                 return order;
             } else {
@@ -199,6 +282,108 @@ public class AdoptionOrderServiceImpl extends ServiceImpl<AdoptionOrderMapper, A
         }
     }
 
+    /**
+     * 存储过程下单（在createOrder事务中调用）
+     */
+    private AdoptionOrder createOrderByProcedure(Long userId, Long projectId, Integer unitCount, String remark) {
+        // 候补分配给该用户的单元已预占，存储过程不再扣减；否则售罄时由内存计数器直接拒绝，不访问数据库
+        boolean claimed = claimWaitlistOffer(userId, projectId, unitCount);
+        if (!claimed && projectInventoryService.getAvailableUnits(projectId) < unitCount) {
+            throw new BusinessException("项目不可认养或单元数量不足，可加入候补队列");
+        }
+        
+        // 不加锁读取项目并报价，单元价格由存储过程在行锁下复核
+        AdoptionProject project = adoptionProjectService.getById(projectId);
+        if (project == null) {
+            throw new BusinessException("项目不存在");
+        }
+        OrderQuoteVO quote = promotionService.quote(userId, project, unitCount);
+        
+        CreateOrderCall call = new CreateOrderCall();
+        call.setUserId(userId);
+        call.setProjectId(projectId);
+        call.setUnitCount(unitCount);
+        call.setReserved(claimed ? 1 : 0);
+        call.setOrderNo(generateOrderNo());
+        call.setUnitPrice(project.getUnitPrice());
+        call.setTotalAmount(quote.getTotalAmount());
+        call.setDiscountAmount(quote.getDiscountAmount());
+        call.setActualAmount(quote.getActualAmount());
+        call.setRemark(remark);
+        call.setCreateTime(LocalDateTime.now());
+        
+        boolean created;
+        if (claimed) {
+            adoptionOrderMapper.callCreateAdoptionOrder(call);
+            created = Objects.equals(call.getResultCode(), CreateOrderCall.RESULT_SUCCESS);
+        } else {
+            // 存储过程中的条件扣减即数据库预占，失败时同步丢弃内存计数器
+            created = projectInventoryService.reserve(projectId, unitCount, () -> {
+                adoptionOrderMapper.callCreateAdoptionOrder(call);
+                return Objects.equals(call.getResultCode(), CreateOrderCall.RESULT_SUCCESS);
+            });
+        }
+        if (!created) {
+            throw new BusinessException(checkoutFailureMessage(call.getResultCode()));
+        }
+        
+        // 用户概览在存储过程锁定项目行之后更新，与java模式及取消、退款的加锁顺序（先项目后用户概览）一致
+        userSummaryService.onOrderStatusChanged(userId, null, 1, call.getActualAmount(), 0);
+        
+        AdoptionOrder order = new AdoptionOrder();
+        order.setId(call.getOrderId());
+        order.setOrderNo(call.getOrderNo());
+        order.setUserId(userId);
+        order.setProjectId(projectId);
+        order.setUnitCount(unitCount);
+        order.setUnitPrice(call.getUnitPrice());
+        order.setTotalAmount(call.getTotalAmount());
+        order.setDiscountAmount(call.getDiscountAmount());
+        order.setActualAmount(call.getActualAmount());
+        order.setOrderStatus(1); // 待支付状态
+        order.setRemark(remark);
+        order.setCreateTime(call.getCreateTime());
+        order.setUpdateTime(call.getCreateTime());
+        
+        // 用户已不再是首单
+        TransactionUtils.afterCommit(() -> promotionService.evictUser(userId));
+        
+        // 登记支付截止时间，到期未支付自动取消
+        orderTimeoutService.register(order.getId(), order.getCreateTime());
+        log.info("认养订单创建成功（存储过程），订单号: {}", order.getOrderNo());
+        return order;
+    }
+
+    /**
+     * 下单前的候补检查（两种下单模式共用）：领取候补分配给该用户的已预占单元；
+     * 未领取且项目有用户排队时拒绝，释放的单元只分配给队列，新订单需先加入候补
+     *
+     * @return 是否领取了候补已预占的单元（领取后不再扣减项目库存）
+     */
+    private boolean claimWaitlistOffer(Long userId, Long projectId, Integer unitCount) {
+        if (waitlistService.claimOffer(userId, projectId, unitCount)) {
+            return true;
+        }
+        if (waitlistService.hasWaiting(projectId)) {
+            throw new BusinessException("该项目已有用户排队候补，请加入候补队列");
+        }
+        return false;
+    }
+
+    /**
+     * 存储过程结果码对应的下单失败原因（与java模式的提示一致）
+     */
+    private static String checkoutFailureMessage(Integer resultCode) {
+        if (resultCode == null) {
+            return "项目不可认养或单元数量不足，可加入候补队列";
+        }
+        return switch (resultCode) {
+            case CreateOrderCall.RESULT_PROJECT_NOT_FOUND -> "项目不存在";
+            case CreateOrderCall.RESULT_PRICE_CHANGED -> "项目价格已变更，请重新下单";
+            default -> "项目不可认养或单元数量不足，可加入候补队列";
+        };
+    }
+
     @Override
     @Transactional(rollbackFor = Exception.class)
     public boolean cancelOrder(Long orderId, Long userId) {
@@ -208,37 +393,17 @@ public class AdoptionOrderServiceImpl extends ServiceImpl<AdoptionOrderMapper, A
         
         log.info("取消订单: 订单ID={}, 用户ID={}", orderId, userId);
         try {
-            // 验证订单是否存在且属于该用户
+            // 条件更新：仅待支付且属于该用户的订单可取消，与支付、超时取消并发时只有一方生效
+            orderStateService.transit(OrderTransition.CANCEL, orderId, userId);
             AdoptionOrder order = getById(orderId);
-            if (order == null) {
-                throw new BusinessException("订单不存在");
-            }
             
-            if (!order.getUserId().equals(userId)) {
-                throw new BusinessException("无权限操作该订单");
-            }
+            // 释放预占用的项目单元；先项目后用户概览，与下单的加锁顺序一致，避免死锁
+            releaseUnits(order);
+            userSummaryService.onOrderStatusChanged(userId, 1, 4, order.getActualAmount(), 0);
+            orderTimeoutService.unregister(orderId);
             
-            // 只有待支付状态的订单才能取消
-            if (order.getOrderStatus() != 1) {
-                throw new BusinessException("订单状态不允许取消");
-            }
-            
-            // 更新订单状态为已取消
-            AdoptionOrder updateOrder = new AdoptionOrder();
-            updateOrder.setId(orderId);
-            updateOrder.setOrderStatus(4); // 已取消状态
-            
-            boolean result = updateById(updateOrder);
-            if (result) {
-                // 释放预占用的项目单元
-                adoptionProjectService.updateAvailableUnits(order.getProjectId(), order.getUnitCount());
-                
-                log.info("订单取消成功");
-            } else {
-                log.error("订单取消失败");
-                throw new BusinessException("订单取消失败");
-            }
-            return result;
+            log.info("订单取消成功");
+            return true;
         } catch (BusinessException e) {
             throw e;
         } catch (Exception e) {
@@ -256,37 +421,35 @@ public class AdoptionOrderServiceImpl extends ServiceImpl<AdoptionOrderMapper, A
         
         log.info("支付订单: 订单ID={}, 支付方式={}, 支付流水号={}", orderId, paymentMethod, paymentNo);
         try {
-            // 验证订单是否存在
-            AdoptionOrder order = getById(orderId);
-            if (order == null) {
-                throw new BusinessException("订单不存在");
-            }
-            
-            // 只有待支付状态的订单才能支付
-            if (order.getOrderStatus() != 1) {
-                throw new BusinessException("订单状态不允许支付");
-            }
-            
-            // 更新订单支付信息
-            AdoptionOrder updateOrder = new AdoptionOrder();
-            updateOrder.setId(orderId);
-            updateOrder.setOrderStatus(2); // 已支付状态
-            updateOrder.setPaymentMethod(paymentMethod);
-            updateOrder.setPaymentNo(paymentNo);
-            updateOrder.setPaymentTime(LocalDateTime.now());
-            
-            boolean result = updateById(updateOrder);
+            // 更新订单支付信息（条件更新：重复回调或与超时取消并发时只有一方生效）
+            boolean result = orderStateService.tryPay(orderId, paymentMethod, paymentNo, LocalDateTime.now());
             if (result) {
+                AdoptionOrder order = getById(orderId);
+                
                 // 分配项目单元
                 List<Long> allocatedUnitIds = projectUnitService.allocateUnits(order.getProjectId(), order.getUnitCount());
                 
                 // 创建认养记录
                 adoptionRecordService.createRecords(orderId, allocatedUnitIds);
                 
+                // 确认预占的项目单元
+                projectInventoryService.confirm(order.getProjectId(), order.getUnitCount());
+                
+                // 用户概览、项目热度等派生数据经发件箱在事务提交后更新
+                outboxService.publish(OrderPaidEvent.AGGREGATE_TYPE, orderId, OrderPaidEvent.EVENT_TYPE,
+                        new OrderPaidEvent(orderId, order.getUserId(), order.getProjectId(),
+                                allocatedUnitIds.size(), order.getActualAmount()));
+                
+                // 已支付，撤销支付超时任务
+                orderTimeoutService.unregister(orderId);
+                
                 log.info("订单支付成功，分配{}个单元", allocatedUnitIds.size());
             } else {
-                log.error("订单支付失败");
-                throw new BusinessException("订单支付失败");
+                if (getById(orderId) == null) {
+                    throw new BusinessException("订单不存在");
+                }
+                log.error("订单支付失败，订单已支付或已取消: {}", orderId);
+                throw new BusinessException("订单状态不允许支付");
             }
             return result;
         } catch (BusinessException e) {
@@ -299,37 +462,101 @@ public class AdoptionOrderServiceImpl extends ServiceImpl<AdoptionOrderMapper, A
 
     @Override
     @Transactional(rollbackFor = Exception.class)
-    public boolean completeOrder(Long orderId) {
-        if (orderId == null) {
-            throw new BusinessException("订单ID不能为空");
+    public List<Long> batchPayOrders(Long projectId, List<AdoptionOrder> orders) {
+        if (projectId == null || orders == null || orders.isEmpty()) {
+            throw new BusinessException("参数不能为空");
         }
         
-        log.info("完成订单: 订单ID={}", orderId);
+        log.info("批量支付订单: 项目ID={}, 订单数={}", projectId, orders.size());
         try {
-            // 验证订单是否存在
-            AdoptionOrder order = getById(orderId);
-            if (order == null) {
-                throw new BusinessException("订单不存在");
+            // 逐个条件更新订单状态，已支付或已取消的订单跳过
+            LocalDateTime paymentTime = LocalDateTime.now();
+            List<Long> payingIds = new ArrayList<>();
+            for (AdoptionOrder order : orders) {
+                if (!Objects.equals(order.getProjectId(), projectId)) {
+                    throw new BusinessException("订单不属于该项目");
+                }
+                if (orderStateService.tryPay(order.getId(), order.getPaymentMethod(), order.getPaymentNo(), paymentTime)) {
+                    payingIds.add(order.getId());
+                }
+            }
+            if (payingIds.isEmpty()) {
+                return List.of();
             }
             
-            // 只有已支付状态的订单才能完成
-            if (order.getOrderStatus() != 2) {
-                throw new BusinessException("订单状态不允许完成");
+            // 用户、单元数量和金额以数据库为准（订单行已被本事务锁定），不依赖调用方传入的字段
+            List<AdoptionOrder> paidOrders = listByIds(payingIds);
+            paidOrders.sort(Comparator.comparing(AdoptionOrder::getId));
+            int unitCount = 0;
+            for (AdoptionOrder order : paidOrders) {
+                if (!Objects.equals(order.getProjectId(), projectId)) {
+                    throw new BusinessException("订单不属于该项目");
+                }
+                unitCount += order.getUnitCount();
             }
             
-            // 更新订单状态为已完成
-            AdoptionOrder updateOrder = new AdoptionOrder();
-            updateOrder.setId(orderId);
-            updateOrder.setOrderStatus(3); // 已完成状态
+            // 一次分配全部单元，按订单顺序拆分
+            List<Long> allocatedUnitIds = projectUnitService.allocateUnits(projectId, unitCount);
+            if (allocatedUnitIds.size() < unitCount) {
+                throw new BusinessException("项目可分配单元不足");
+            }
             
-            boolean result = updateById(updateOrder);
-            if (result) {
-                log.info("订单完成成功");
-            } else {
-                log.error("订单完成失败");
-                throw new BusinessException("订单完成失败");
+            // 一次写入全部认养记录
+            List<AdoptionRecord> records = new ArrayList<>(unitCount);
+            List<Long> paidOrderIds = new ArrayList<>(paidOrders.size());
+            int offset = 0;
+            for (AdoptionOrder order : paidOrders) {
+                for (Long unitId : allocatedUnitIds.subList(offset, offset + order.getUnitCount())) {
+                    AdoptionRecord record = new AdoptionRecord();
+                    record.setOrderId(order.getId());
+                    record.setUserId(order.getUserId());
+                    record.setProjectId(projectId);
+                    record.setUnitId(unitId);
+                    record.setAdoptionStatus(1); // 已认养状态
+                    record.setAdoptionDate(paymentTime);
+                    records.add(record);
+                }
+                offset += order.getUnitCount();
+                paidOrderIds.add(order.getId());
+                
+                projectInventoryService.confirm(projectId, order.getUnitCount());
+                orderTimeoutService.unregister(order.getId());
             }
-            return result;
+            if (!adoptionRecordService.saveBatch(records)) {
+                throw new BusinessException("认养记录创建失败");
+            }
+            for (AdoptionOrder order : paidOrders) {
+                outboxService.publish(OrderPaidEvent.AGGREGATE_TYPE, order.getId(), OrderPaidEvent.EVENT_TYPE,
+                        new OrderPaidEvent(order.getId(), order.getUserId(), projectId,
+                                order.getUnitCount(), order.getActualAmount()));
+            }
+            
+            log.info("批量支付订单成功: 项目ID={}, 支付{}个订单, 分配{}个单元", projectId, paidOrderIds.size(), unitCount);
+            return paidOrderIds;
+        } catch (BusinessException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("批量支付订单失败", e);
+            throw new BusinessException("批量支付订单失败");
+        }
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public boolean completeOrder(Long orderId) {
+        if (orderId == null) {
+            throw new BusinessException("订单ID不能为空");
+        }
+        
+        log.info("完成订单: 订单ID={}", orderId);
+        try {
+            // 条件更新：仅已支付的订单可完成
+            orderStateService.transit(OrderTransition.COMPLETE, orderId, null);
+            AdoptionOrder order = getById(orderId);
+            
+            userSummaryService.onOrderStatusChanged(order.getUserId(), 2, 3, order.getActualAmount(), 0);
+            log.info("订单完成成功");
+            return true;
         } catch (BusinessException e) {
             throw e;
         } catch (Exception e) {
@@ -347,47 +574,14 @@ public class AdoptionOrderServiceImpl extends ServiceImpl<AdoptionOrderMapper, A
         
         log.info("申请退款: 订单ID={}, 用户ID={}, 原因={}", orderId, userId, reason);
         try {
-            // 验证订单是否存在且属于该用户
-            AdoptionOrder order = getById(orderId);
-            if (order == null) {
-                throw new BusinessException("订单不存在");
-            }
-            
-            if (!order.getUserId().equals(userId)) {
-                throw new BusinessException("无权限操作该订单");
-            }
-            
-            // 只有已支付状态的订单才能申请退款
-            if (order.getOrderStatus() != 2) {
-                throw new BusinessException("订单状态不允许申请退款");
-            }
-            
             // TODO: 检查退款条件，如项目是否已开始种植等
             
-            // 更新订单状态为申请退款（这里简化处理，直接退款）
-            AdoptionOrder updateOrder = new AdoptionOrder();
-            updateOrder.setId(orderId);
-            updateOrder.setOrderStatus(5); // 已退款状态
+            // 条件更新：仅已支付且属于该用户的订单可退款（这里简化处理，直接退款）
+            orderStateService.transit(OrderTransition.REFUND, orderId, userId);
+            releaseRefundedOrder(getById(orderId));
             
-            boolean result = updateById(updateOrder);
-            if (result) {
-                // 释放已分配的单元
-                List<AdoptionRecord> records = adoptionRecordService.getRecordsByOrderId(orderId);
-                List<Long> unitIds = records.stream().map(AdoptionRecord::getUnitId).toList();
-                
-                if (!unitIds.isEmpty()) {
-                    projectUnitService.releaseUnits(unitIds);
-                }
-                
-                // 恢复项目可用单元数
-                adoptionProjectService.updateAvailableUnits(order.getProjectId(), order.getUnitCount());
-                
-                log.info("退款申请成功");
-            } else {
-                log.error("退款申请失败");
-                throw new BusinessException("退款申请失败");
-            }
-            return result;
+            log.info("退款申请成功");
+            return true;
         } catch (BusinessException e) {
             throw e;
         } catch (Exception e) {
@@ -405,35 +599,22 @@ public class AdoptionOrderServiceImpl extends ServiceImpl<AdoptionOrderMapper, A
         
         log.info("处理退款: 订单ID={}, 是否同意={}, 备注={}", orderId, approved, remark);
         try {
-            // 验证订单是否存在
-            AdoptionOrder order = getById(orderId);
-            if (order == null) {
-                throw new BusinessException("订单不存在");
-            }
-            
-            // TODO: 验证订单状态是否为申请退款中
-            
-            Integer newStatus = approved ? 5 : 2; // 5-已退款，2-已支付（拒绝退款）
-            
-            // 更新订单状态
-            AdoptionOrder updateOrder = new AdoptionOrder();
-            updateOrder.setId(orderId);
-            updateOrder.setOrderStatus(newStatus);
-            
-            boolean result = updateById(updateOrder);
-            if (result) {
-                if (approved) {
-                    // 同意退款的后续处理
-                    log.info("退款处理成功，已同意退款");
-                } else {
-                    // 拒绝退款的后续处理
-                    log.info("退款处理成功，已拒绝退款");
-                }
+            // 订单状态中没有“退款申请中”，同意退款即已支付订单退款，拒绝退款时订单保持已支付
+            if (approved) {
+                orderStateService.transit(OrderTransition.APPROVE_REFUND, orderId, null);
+                releaseRefundedOrder(getById(orderId));
+                log.info("退款处理成功，已同意退款");
             } else {
-                log.error("退款处理失败");
-                throw new BusinessException("退款处理失败");
+                AdoptionOrder order = getById(orderId);
+                if (order == null) {
+                    throw new BusinessException("订单不存在");
+                }
+                if (order.getOrderStatus() != 2) {
+                    throw new BusinessException("订单状态不允许处理退款");
+                }
+                log.info("退款处理成功，已拒绝退款");
             }
-            return result;
+            return true;
         } catch (BusinessException e) {
             throw e;
         } catch (Exception e) {
@@ -442,6 +623,48 @@ public class AdoptionOrderServiceImpl extends ServiceImpl<AdoptionOrderMapper, A
         }
     }
 
+    /**
+     * 已退款订单的后续处理：释放已分配的单元、恢复项目可用单元数并更新用户概览
+     * 只归还实际释放的单元数：项目进入种植、收获后单元不再回到可认养状态，可用单元数保持不变
+     * 用户概览最后更新，与下单（先项目后用户概览）的加锁顺序一致，避免死锁
+     */
+    private void releaseRefundedOrder(AdoptionOrder order) {
+        // 释放已分配的单元
+        List<AdoptionRecord> records = adoptionRecordService.getRecordsByOrderId(order.getId());
+        List<Long> unitIds = records.stream().map(AdoptionRecord::getUnitId).toList();
+        
+        int released = unitIds.isEmpty() ? order.getUnitCount() : projectUnitService.releaseUnits(unitIds);
+        if (released < order.getUnitCount()) {
+            log.info("退款订单部分单元已进入后续状态，不归还可用单元数: orderNo={}, 单元数: {}, 释放: {}",
+                    order.getOrderNo(), order.getUnitCount(), released);
+        }
+        
+        // 恢复项目可用单元数
+        if (released > 0) {
+            releaseUnits(order, released);
+        }
+        userSummaryService.onOrderStatusChanged(order.getUserId(), 2, 5, order.getActualAmount(), 0);
+    }
+
+    /**
+     * 归还订单占用的项目可用单元数，归还成功后分配给候补用户
+     */
+    private void releaseUnits(AdoptionOrder order) {
+        releaseUnits(order, order.getUnitCount());
+    }
+
+    /**
+     * 归还订单的部分项目可用单元数，归还成功后分配给候补用户
+     */
+    private void releaseUnits(AdoptionOrder order, int unitCount) {
+        if (projectInventoryService.release(order.getProjectId(), unitCount)) {
+            waitlistService.onUnitsReleased(order.getProjectId());
+        } else {
+            log.warn("订单单元归还失败，等待库存核对修正: orderNo={}, projectId={}, 数量: {}",
+                    order.getOrderNo(), order.getProjectId(), unitCount);
+        }
+    }
+
     @Override
     public AdoptionOrder getOrderDetail(Long orderId) {
         if (orderId == null) {
@@ -486,10 +709,8 @@ public class AdoptionOrderServiceImpl extends ServiceImpl<AdoptionOrderMapper, A
 
     @Override
     public String generateOrderNo() {
-        // 生成格式：AD + yyyyMMddHHmmss + 4位随机数
-        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss"));
-        int random = ThreadLocalRandom.current().nextInt(1000, 9999);
-        return "AD" + timestamp + random;
+        // 生成格式：AD + yyyyMMddHHmmss + 3位毫秒 + 4位节点号 + 4位序列号
+        return idGenerator.nextNo("AD");
     }
 
     @Override
@@ -520,14 +741,11 @@ public class AdoptionOrderServiceImpl extends ServiceImpl<AdoptionOrderMapper, A
             
             for (AdoptionOrder order : timeoutOrders) {
                 try {
-                    // 更新订单状态为已取消
-                    AdoptionOrder updateOrder = new AdoptionOrder();
-                    updateOrder.setId(order.getId());
-                    updateOrder.setOrderStatus(4); // 已取消状态
-                    
-                    if (updateById(updateOrder)) {
+                    // 仅取消仍为待支付的订单，查询后已支付的订单不受影响
+                    if (orderStateService.tryTransit(OrderTransition.TIMEOUT_CANCEL, order.getId(), null)) {
                         // 释放预占用的项目单元
-                        adoptionProjectService.updateAvailableUnits(order.getProjectId(), order.getUnitCount());
+                        releaseUnits(order);
+                        userSummaryService.onOrderStatusChanged(order.getUserId(), 1, 4, order.getActualAmount(), 0);
                         cancelledCount++;
                         
                         log.info("自动取消超时订单成功: {}", order.getOrderNo());
@@ -545,6 +763,34 @@ public class AdoptionOrderServiceImpl extends ServiceImpl<AdoptionOrderMapper, A
         }
     }
 
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public boolean cancelTimeoutOrder(Long orderId) {
+        if (orderId == null) {
+            throw new BusinessException("订单ID不能为空");
+        }
+        
+        try {
+            // 条件更新：与支付并发时只有一方生效
+            if (!orderStateService.tryTransit(OrderTransition.TIMEOUT_CANCEL, orderId, null)) {
+                return false;
+            }
+            AdoptionOrder order = getById(orderId);
+            
+            // 释放预占用的项目单元
+            releaseUnits(order);
+            userSummaryService.onOrderStatusChanged(order.getUserId(), 1, 4, order.getActualAmount(), 0);
+            
+            log.info("自动取消超时订单成功: {}", order.getOrderNo());
+            return true;
+        } catch (BusinessException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("取消超时订单失败: orderId={}", orderId, e);
+            throw new BusinessException("取消超时订单失败");
+        }
+    }
+
     @Override
     public int countUserOrders(Long userId, Integer orderStatus) {
         if (userId == null) {
@@ -589,25 +835,25 @@ public class AdoptionOrderServiceImpl extends ServiceImpl<AdoptionOrderMapper, A
         try {
             Map<String, Object> statistics = new HashMap<>();
             
+            // 一次分组查询得到各状态数量
+            QueryWrapper<AdoptionOrder> wrapper = new QueryWrapper<>();
             if (userId != null) {
-                // 特定用户的统计
-                statistics.put("totalCount", countUserOrders(userId, null));
-                statistics.put("pendingCount", countUserOrders(userId, 1));
-                statistics.put("paidCount", countUserOrders(userId, 2));
-                statistics.put("completedCount", countUserOrders(userId, 3));
-                statistics.put("cancelledCount", countUserOrders(userId, 4));
-                statistics.put("refundedCount", countUserOrders(userId, 5));
-                
-                statistics.put("totalAmount", sumUserOrderAmount(userId, null));
-                statistics.put("paidAmount", sumUserOrderAmount(userId, 2));
-            } else {
-                // 全局统计
-                statistics.put("totalCount", count());
-                statistics.put("pendingCount", count(new LambdaQueryWrapper<AdoptionOrder>().eq(AdoptionOrder::getOrderStatus, 1)));
-                statistics.put("paidCount", count(new LambdaQueryWrapper<AdoptionOrder>().eq(AdoptionOrder::getOrderStatus, 2)));
-                statistics.put("completedCount", count(new LambdaQueryWrapper<AdoptionOrder>().eq(AdoptionOrder::getOrderStatus, 3)));
-                statistics.put("cancelledCount", count(new LambdaQueryWrapper<AdoptionOrder>().eq(AdoptionOrder::getOrderStatus, 4)));
-                statistics.put("refundedCount", count(new LambdaQueryWrapper<AdoptionOrder>().eq(AdoptionOrder::getOrderStatus, 5)));
+                wrapper.eq("user_id", userId);
+            }
+            StatusHistogram<Integer> histogram = StatusHistogram.ofStatus(
+                    baseMapper, wrapper, "order_status", "actual_amount", 1, 2, 3, 4, 5);
+            
+            statistics.put("totalCount", histogram.getTotalCount());
+            statistics.put("pendingCount", histogram.get(1));
+            statistics.put("paidCount", histogram.get(2));
+            statistics.put("completedCount", histogram.get(3));
+            statistics.put("cancelledCount", histogram.get(4));
+            statistics.put("refundedCount", histogram.get(5));
+            
+            if (userId != null) {
+                // 特定用户的金额统计
+                statistics.put("totalAmount", histogram.getTotalSum());
+                statistics.put("paidAmount", histogram.getSum(2));
             }
             
             return statistics;
@@ -618,12 +864,12 @@ public class AdoptionOrderServiceImpl extends ServiceImpl<AdoptionOrderMapper, A
     }
 
     @Override
-    public Object calculateOrderAmount(Long projectId, Integer unitCount) {
-        if (projectId == null || unitCount == null || unitCount <= 0) {
+    public OrderQuoteVO calculateOrderAmount(Long userId, Long projectId, Integer unitCount) {
+        if (userId == null || projectId == null || unitCount == null || unitCount <= 0) {
             throw new BusinessException("参数无效");
         }
         
-        log.debug("计算订单金额: projectId={}, unitCount={}", projectId, unitCount);
+        log.debug("计算订单金额: userId={}, projectId={}, unitCount={}", userId, projectId, unitCount);
         try {
             // 获取项目信息
             AdoptionProject project = adoptionProjectService.getById(projectId);
@@ -631,24 +877,7 @@ public class AdoptionOrderServiceImpl extends ServiceImpl<AdoptionOrderMapper, A
                 throw new BusinessException("项目不存在");
             }
             
-            BigDecimal unitPrice = project.getUnitPrice();
-            BigDecimal totalAmount = unitPrice.multiply(new BigDecimal(unitCount));
-            
-            // 计算优惠金额（这里可以根据业务规则计算）
-            BigDecimal discountAmount = BigDecimal.ZERO;
-            
-            // TODO: 根据用户等级、活动等计算优惠
-            
-            BigDecimal actualAmount = totalAmount.subtract(discountAmount);
-            
-            Map<String, Object> result = new HashMap<>();
-            result.put("unitPrice", unitPrice);
-            result.put("unitCount", unitCount);
-            result.put("totalAmount", totalAmount);
-            result.put("discountAmount", discountAmount);
-            result.put("actualAmount", actualAmount);
-            
-            return result;
+            return promotionService.quote(userId, project, unitCount);
         } catch (BusinessException e) {
             throw e;
         } catch (Exception e) {
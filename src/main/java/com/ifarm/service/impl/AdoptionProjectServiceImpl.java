@@ -1,28 +1,44 @@
 package com.ifarm.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.ifarm.common.event.ProjectChangedEvent;
 import com.ifarm.common.exception.BusinessException;
+import com.ifarm.common.util.StatusHistogram;
+import com.ifarm.common.util.UnitLayout;
+import com.ifarm.dto.adoptionproject.ProjectFacetQueryDTO;
 import com.ifarm.entity.AdoptionProject;
-import com.ifarm.entity.ProjectUnit;
 import com.ifarm.mapper.AdoptionProjectMapper;
 import com.ifarm.service.IAdoptionProjectService;
 import com.ifarm.service.ICropService;
 import com.ifarm.service.IFarmPlotService;
+import com.ifarm.service.IPopularityService;
+import com.ifarm.service.IProjectFacetService;
+import com.ifarm.service.IProjectLifecycleService;
+import com.ifarm.service.IProjectInventoryService;
+import com.ifarm.service.IProjectRefundService;
+import com.ifarm.service.IRecommendationService;
 import com.ifarm.service.IProjectUnitService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import com.ifarm.vo.adoptionproject.ProjectFacetResultVO;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * 认养项目服务实现类
@@ -35,10 +51,22 @@ import java.util.Map;
 @RequiredArgsConstructor
 public class AdoptionProjectServiceImpl extends ServiceImpl<AdoptionProjectMapper, AdoptionProject> implements IAdoptionProjectService {
 
+    /**
+     * 单元布局每行单元数、自定义图案行数和每行长度的上限
+     */
+    private static final int MAX_LAYOUT_COLUMNS = 1000;
+
     private final AdoptionProjectMapper adoptionProjectMapper;
     private final IFarmPlotService farmPlotService;
     private final ICropService cropService;
     private final IProjectUnitService projectUnitService;
+    private final IProjectInventoryService projectInventoryService;
+    private final IRecommendationService recommendationService;
+    private final IPopularityService popularityService;
+    private final IProjectLifecycleService projectLifecycleService;
+    private final IProjectFacetService projectFacetService;
+    private final IProjectRefundService projectRefundService;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Override
     public List<AdoptionProject> getProjectsByPlotId(Long plotId) {
@@ -92,6 +120,19 @@ public class AdoptionProjectServiceImpl extends ServiceImpl<AdoptionProjectMappe
                                                 Integer projectStatus, String name) {
         log.debug("分页查询认养项目列表: cropId={}, projectStatus={}, name={}", cropId, projectStatus, name);
         try {
+            // 不按名称搜索时走内存筛选索引，只按ID加载当前页
+            if (!StringUtils.hasText(name) && projectFacetService.isReady()) {
+                ProjectFacetQueryDTO query = new ProjectFacetQueryDTO();
+                query.setCropId(cropId);
+                query.setProjectStatus(projectStatus);
+                query.setCurrent((int) page.getCurrent());
+                query.setSize((int) page.getSize());
+                ProjectFacetResultVO facetResult = projectFacetService.search(query, false);
+                page.setRecords(facetResult.getRecords());
+                page.setTotal(facetResult.getTotal());
+                return page;
+            }
+            
             IPage<AdoptionProject> result = adoptionProjectMapper.selectProjectPage(page, cropId, projectStatus, name);
             log.debug("查询到{}条项目记录", result.getRecords().size());
             return result;
@@ -127,6 +168,7 @@ public class AdoptionProjectServiceImpl extends ServiceImpl<AdoptionProjectMappe
         
         // 验证必填字段
         validateProjectFields(adoptionProject);
+        UnitLayout layout = resolveUnitLayout(adoptionProject);
         
         log.info("创建认养项目: {}", adoptionProject.getName());
         try {
@@ -145,12 +187,13 @@ public class AdoptionProjectServiceImpl extends ServiceImpl<AdoptionProjectMappe
             if (result) {
                 // 创建项目单元
                 boolean unitsCreated = projectUnitService.batchCreateUnits(
-                    adoptionProject.getId(), adoptionProject.getTotalUnits());
+                    adoptionProject.getId(), adoptionProject.getTotalUnits(), layout);
                 
                 if (!unitsCreated) {
                     log.error("创建项目单元失败");
                     throw new BusinessException("创建项目单元失败");
                 }
+                eventPublisher.publishEvent(ProjectChangedEvent.of(adoptionProject.getId(), ProjectChangedEvent.ChangeType.PROJECT_UPDATED));
                 
                 log.info("认养项目创建成功，ID: {}", adoptionProject.getId());
             } else {
@@ -192,6 +235,8 @@ public class AdoptionProjectServiceImpl extends ServiceImpl<AdoptionProjectMappe
             
             boolean result = updateById(adoptionProject);
             if (result) {
+                projectInventoryService.evict(adoptionProject.getId());
+                eventPublisher.publishEvent(ProjectChangedEvent.of(adoptionProject.getId(), ProjectChangedEvent.ChangeType.PROJECT_UPDATED));
                 log.info("认养项目更新成功");
             } else {
                 log.error("认养项目更新失败");
@@ -234,6 +279,8 @@ public class AdoptionProjectServiceImpl extends ServiceImpl<AdoptionProjectMappe
             
             boolean result = removeById(projectId);
             if (result) {
+                projectInventoryService.evict(projectId);
+                eventPublisher.publishEvent(ProjectChangedEvent.of(projectId, ProjectChangedEvent.ChangeType.PROJECT_DELETED));
                 log.info("认养项目删除成功");
             } else {
                 log.error("认养项目删除失败");
@@ -275,6 +322,8 @@ public class AdoptionProjectServiceImpl extends ServiceImpl<AdoptionProjectMappe
             
             boolean result = updateById(project);
             if (result) {
+                projectInventoryService.evict(projectId);
+                eventPublisher.publishEvent(ProjectChangedEvent.of(projectId, ProjectChangedEvent.ChangeType.PROJECT_UPDATED));
                 log.info("项目状态更新成功");
                 
                 // 根据状态变更执行相应的业务逻辑
@@ -303,6 +352,8 @@ public class AdoptionProjectServiceImpl extends ServiceImpl<AdoptionProjectMappe
         try {
             int result = adoptionProjectMapper.updateAvailableUnits(projectId, unitCount);
             if (result > 0) {
+                projectInventoryService.evict(projectId);
+                eventPublisher.publishEvent(ProjectChangedEvent.of(projectId, ProjectChangedEvent.ChangeType.PROJECT_UPDATED));
                 log.info("项目可用单元数更新成功");
                 return true;
             } else {
@@ -414,6 +465,42 @@ public class AdoptionProjectServiceImpl extends ServiceImpl<AdoptionProjectMappe
         }
     }
 
+    /**
+     * 解析并验证创建项目时指定的单元布局，未指定时为每行10个单元的行列网格
+     */
+    private UnitLayout resolveUnitLayout(AdoptionProject project) {
+        String type = StringUtils.hasText(project.getUnitLayout()) ? project.getUnitLayout() : "grid";
+        Integer columns = project.getLayoutColumns() != null ? project.getLayoutColumns() : UnitLayout.DEFAULT_COLUMNS;
+        UnitLayout layout;
+        switch (type) {
+            case "grid", "serpentine" -> {
+                if (columns <= 0 || columns > MAX_LAYOUT_COLUMNS) {
+                    throw new BusinessException("每行单元数必须在1到" + MAX_LAYOUT_COLUMNS + "之间");
+                }
+                layout = "grid".equals(type) ? UnitLayout.grid(columns) : UnitLayout.serpentine(columns);
+            }
+            case "pattern" -> {
+                List<String> rows = project.getLayoutPattern();
+                if (rows == null || rows.isEmpty() || rows.contains(null)) {
+                    throw new BusinessException("自定义布局图案不能为空");
+                }
+                if (rows.size() > MAX_LAYOUT_COLUMNS || rows.stream().anyMatch(row -> row.length() > MAX_LAYOUT_COLUMNS)) {
+                    throw new BusinessException("自定义布局图案的行数和每行长度不能超过" + MAX_LAYOUT_COLUMNS);
+                }
+                if (rows.stream().noneMatch(row -> row.indexOf('#') >= 0)) {
+                    throw new BusinessException("自定义布局图案中没有单元位置");
+                }
+                layout = UnitLayout.pattern(rows.toArray(new String[0]));
+            }
+            default -> throw new BusinessException("不支持的单元布局: " + type);
+        }
+
+        if (project.getTotalUnits() > layout.capacity()) {
+            throw new BusinessException("总单元数超出布局容量: " + layout.capacity());
+        }
+        return layout;
+    }
+
     /**
      * 验证关联数据是否存在
      */
@@ -512,6 +599,9 @@ public class AdoptionProjectServiceImpl extends ServiceImpl<AdoptionProjectMappe
             case 5: // 已完成
                 completeProject(projectId);
                 break;
+            case 6: // 已取消
+                cancelProject(projectId);
+                break;
         }
     }
 
@@ -519,17 +609,8 @@ public class AdoptionProjectServiceImpl extends ServiceImpl<AdoptionProjectMappe
     public boolean startPlanting(Long projectId) {
         log.info("开始项目种植: projectId={}", projectId);
         try {
-            // 更新认养记录状态为种植中
-            // TODO: 调用AdoptionRecordService更新状态
-            
-            // 更新项目单元状态为种植中
-            List<Long> unitIds = projectUnitService.getUnitsByProjectIdAndStatus(projectId, 2)
-                    .stream().map(ProjectUnit::getId).toList();
-            
-            if (!unitIds.isEmpty()) {
-                projectUnitService.startPlanting(unitIds);
-            }
-            
+            // 认养记录和已认养单元更新为种植中（事务提交后分块级联）
+            projectLifecycleService.cascadeAfterCommit(projectId, 3);
             return true;
         } catch (Exception e) {
             log.error("开始项目种植失败", e);
@@ -541,9 +622,8 @@ public class AdoptionProjectServiceImpl extends ServiceImpl<AdoptionProjectMappe
     public boolean startHarvesting(Long projectId) {
         log.info("开始项目收获: projectId={}", projectId);
         try {
-            // 更新认养记录状态为待收获
-            // TODO: 调用AdoptionRecordService更新状态
-            
+            // 认养记录更新为待收获，单元更新为待收获（事务提交后分块级联）
+            projectLifecycleService.cascadeAfterCommit(projectId, 4);
             return true;
         } catch (Exception e) {
             log.error("开始项目收获失败", e);
@@ -555,17 +635,8 @@ public class AdoptionProjectServiceImpl extends ServiceImpl<AdoptionProjectMappe
     public boolean completeProject(Long projectId) {
         log.info("完成项目: projectId={}", projectId);
         try {
-            // 更新认养记录状态为已完成
-            // TODO: 调用AdoptionRecordService更新状态
-            
-            // 更新项目单元状态为已收获
-            List<Long> unitIds = projectUnitService.getUnitsByProjectIdAndStatus(projectId, 4)
-                    .stream().map(ProjectUnit::getId).toList();
-            
-            if (!unitIds.isEmpty()) {
-                projectUnitService.completeHarvest(unitIds);
-            }
-            
+            // 认养记录更新为已完成，单元更新为已收获（事务提交后分块级联）
+            projectLifecycleService.cascadeAfterCommit(projectId, 5);
             return true;
         } catch (Exception e) {
             log.error("完成项目失败", e);
@@ -573,6 +644,14 @@ public class AdoptionProjectServiceImpl extends ServiceImpl<AdoptionProjectMappe
         }
     }
 
+    @Override
+    public boolean cancelProject(Long projectId) {
+        log.info("取消项目: projectId={}", projectId);
+        // 退款任务与项目状态同一事务创建（事务提交后分块退款），创建失败时项目状态一同回滚
+        projectRefundService.startRefund(projectId);
+        return true;
+    }
+
     @Override
     public List<AdoptionProject> getPopularProjects(Integer limit) {
         if (limit == null || limit <= 0) {
@@ -581,13 +660,32 @@ public class AdoptionProjectServiceImpl extends ServiceImpl<AdoptionProjectMappe
 
         log.debug("获取热门项目列表，限制数量: {}", limit);
         try {
-            // TODO: 根据认养数量、评分等因素排序
-            LambdaQueryWrapper<AdoptionProject> wrapper = new LambdaQueryWrapper<>();
-            wrapper.eq(AdoptionProject::getProjectStatus, 2); // 认养中的项目
-            wrapper.orderByDesc(AdoptionProject::getCreateTime);
-            wrapper.last("LIMIT " + limit);
+            // 按最近7天浏览和认养热度排序（内存榜单），榜单中可能有已结束认养的项目，多取一些再过滤
+            List<Long> popularIds = popularityService.getPopularIds(
+                    IPopularityService.ItemType.PROJECT, IPopularityService.Window.WEEK, limit * 2);
+            List<AdoptionProject> projects = new ArrayList<>(limit);
+            if (!popularIds.isEmpty()) {
+                Map<Long, AdoptionProject> projectMap = listByIds(popularIds).stream()
+                        .collect(Collectors.toMap(AdoptionProject::getId, Function.identity()));
+                for (Long id : popularIds) {
+                    AdoptionProject project = projectMap.get(id);
+                    if (project != null && Objects.equals(project.getProjectStatus(), 2) && projects.size() < limit) {
+                        projects.add(project);
+                    }
+                }
+            }
 
-            List<AdoptionProject> projects = list(wrapper);
+            // 热度数据不足时用最新的认养中项目补齐
+            if (projects.size() < limit) {
+                LambdaQueryWrapper<AdoptionProject> wrapper = new LambdaQueryWrapper<>();
+                wrapper.eq(AdoptionProject::getProjectStatus, 2); // 认养中的项目
+                if (!projects.isEmpty()) {
+                    wrapper.notIn(AdoptionProject::getId, projects.stream().map(AdoptionProject::getId).toList());
+                }
+                wrapper.orderByDesc(AdoptionProject::getCreateTime);
+                wrapper.last("LIMIT " + (limit - projects.size()));
+                projects.addAll(list(wrapper));
+            }
             log.debug("获取到{}个热门项目", projects.size());
             return projects;
         } catch (Exception e) {
@@ -604,7 +702,20 @@ public class AdoptionProjectServiceImpl extends ServiceImpl<AdoptionProjectMappe
 
         log.debug("获取推荐项目列表，用户ID: {}, 限制数量: {}", userId, limit);
         try {
-            // TODO: 根据用户偏好、历史认养记录等推荐
+            // 基于共同认养的离线推荐结果（内存查询，已过滤售罄项目）
+            List<Long> recommendedIds = recommendationService.recommendProjectIds(userId, limit);
+            if (!recommendedIds.isEmpty()) {
+                Map<Long, AdoptionProject> projectMap = listByIds(recommendedIds).stream()
+                        .collect(Collectors.toMap(AdoptionProject::getId, Function.identity()));
+                List<AdoptionProject> projects = recommendedIds.stream()
+                        .map(projectMap::get)
+                        .filter(Objects::nonNull)
+                        .toList();
+                log.debug("获取到{}个推荐项目", projects.size());
+                return projects;
+            }
+            
+            // 推荐索引尚未构建时按最新项目返回
             LambdaQueryWrapper<AdoptionProject> wrapper = new LambdaQueryWrapper<>();
             wrapper.eq(AdoptionProject::getProjectStatus, 2); // 认养中的项目
             wrapper.gt(AdoptionProject::getAvailableUnits, 0); // 有可用单元
@@ -649,21 +760,22 @@ public class AdoptionProjectServiceImpl extends ServiceImpl<AdoptionProjectMappe
         try {
             Map<String, Object> statistics = new HashMap<>();
 
-            LambdaQueryWrapper<AdoptionProject> baseWrapper = new LambdaQueryWrapper<>();
+            QueryWrapper<AdoptionProject> wrapper = new QueryWrapper<>();
             if (farmId != null) {
-                // 通过地块关联查询特定农场的项目
-                // TODO: 需要join查询farm_plots表
-                // 这里简化处理
+                // 通过地块关联过滤特定农场的项目
+                wrapper.apply("plot_id IN (SELECT id FROM farm_plots WHERE deleted = 0 AND farm_id = {0})", farmId);
             }
 
-            // 状态统计
-            statistics.put("totalCount", count(baseWrapper));
-            statistics.put("preparingCount", count(baseWrapper.clone().eq(AdoptionProject::getProjectStatus, 1)));
-            statistics.put("adoptingCount", count(baseWrapper.clone().eq(AdoptionProject::getProjectStatus, 2)));
-            statistics.put("plantingCount", count(baseWrapper.clone().eq(AdoptionProject::getProjectStatus, 3)));
-            statistics.put("harvestingCount", count(baseWrapper.clone().eq(AdoptionProject::getProjectStatus, 4)));
-            statistics.put("completedCount", count(baseWrapper.clone().eq(AdoptionProject::getProjectStatus, 5)));
-            statistics.put("cancelledCount", count(baseWrapper.clone().eq(AdoptionProject::getProjectStatus, 6)));
+            // 状态统计（一次分组查询）
+            StatusHistogram<Integer> histogram = StatusHistogram.ofStatus(
+                    baseMapper, wrapper, "project_status", 1, 2, 3, 4, 5, 6);
+            statistics.put("totalCount", histogram.getTotalCount());
+            statistics.put("preparingCount", histogram.get(1));
+            statistics.put("adoptingCount", histogram.get(2));
+            statistics.put("plantingCount", histogram.get(3));
+            statistics.put("harvestingCount", histogram.get(4));
+            statistics.put("completedCount", histogram.get(5));
+            statistics.put("cancelledCount", histogram.get(6));
 
             return statistics;
         } catch (Exception e) {
@@ -1,15 +1,20 @@
 package com.ifarm.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.ifarm.common.exception.BusinessException;
+import com.ifarm.common.result.CursorPage;
+import com.ifarm.common.util.SeekCursor;
+import com.ifarm.common.util.StatusHistogram;
 import com.ifarm.entity.AdoptionOrder;
 import com.ifarm.entity.AdoptionRecord;
 import com.ifarm.mapper.AdoptionRecordMapper;
 import com.ifarm.service.IAdoptionOrderService;
 import com.ifarm.service.IAdoptionRecordService;
+import com.ifarm.service.IUserSummaryService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
@@ -31,11 +36,14 @@ public class AdoptionRecordServiceImpl extends ServiceImpl<AdoptionRecordMapper,
 
     private final AdoptionRecordMapper adoptionRecordMapper;
     private final IAdoptionOrderService adoptionOrderService;
+    private final IUserSummaryService userSummaryService;
 
     public AdoptionRecordServiceImpl(AdoptionRecordMapper adoptionRecordMapper,
-                                   @Lazy IAdoptionOrderService adoptionOrderService) {
+                                   @Lazy IAdoptionOrderService adoptionOrderService,
+                                   IUserSummaryService userSummaryService) {
         this.adoptionRecordMapper = adoptionRecordMapper;
         this.adoptionOrderService = adoptionOrderService;
+        this.userSummaryService = userSummaryService;
     }
 
     @Override
@@ -121,6 +129,25 @@ public class AdoptionRecordServiceImpl extends ServiceImpl<AdoptionRecordMapper,
         }
     }
 
+    @Override
+    public CursorPage<AdoptionRecord> getUserAdoptionFeed(Long userId, Integer adoptionStatus, String cursor, Integer size) {
+        if (userId == null) {
+            throw new BusinessException("用户ID不能为空");
+        }
+        
+        log.debug("游标分页查询用户认养记录: userId={}, adoptionStatus={}, cursor={}", userId, adoptionStatus, cursor);
+        SeekCursor seek = SeekCursor.decode(cursor);
+        int pageSize = CursorPage.normalizeSize(size);
+        try {
+            List<AdoptionRecord> rows = adoptionRecordMapper.selectUserAdoptionFeed(userId, adoptionStatus,
+                    seek != null ? seek.createTime() : null, seek != null ? seek.id() : null, pageSize + 1);
+            return CursorPage.of(rows, pageSize, AdoptionRecord::getCreateTime, AdoptionRecord::getId);
+        } catch (Exception e) {
+            log.error("游标分页查询用户认养记录失败", e);
+            throw new BusinessException("查询认养记录失败");
+        }
+    }
+
     @Override
     public List<AdoptionRecord> getRecordsByStatus(Integer adoptionStatus) {
         if (adoptionStatus == null) {
@@ -202,6 +229,7 @@ public class AdoptionRecordServiceImpl extends ServiceImpl<AdoptionRecordMapper,
             
             boolean result = updateById(adoptionRecord);
             if (result) {
+                userSummaryService.refreshAdoptions(List.of(adoptionRecord.getId()));
                 log.info("认养记录更新成功");
             } else {
                 log.error("认养记录更新失败");
@@ -262,6 +290,8 @@ public class AdoptionRecordServiceImpl extends ServiceImpl<AdoptionRecordMapper,
             
             boolean result = updateById(record);
             if (result) {
+                userSummaryService.onAdoptionStatusChanged(existingRecord.getUserId(),
+                        existingRecord.getAdoptionStatus(), adoptionStatus, null);
                 log.info("认养状态更新成功");
             } else {
                 log.error("认养状态更新失败");
@@ -291,6 +321,7 @@ public class AdoptionRecordServiceImpl extends ServiceImpl<AdoptionRecordMapper,
         try {
             int result = adoptionRecordMapper.batchUpdateAdoptionStatus(recordIds, adoptionStatus);
             if (result > 0) {
+                userSummaryService.refreshAdoptions(recordIds);
                 log.info("批量更新认养状态成功，影响{}条记录", result);
                 return true;
             } else {
@@ -380,6 +411,10 @@ public class AdoptionRecordServiceImpl extends ServiceImpl<AdoptionRecordMapper,
             
             boolean result = updateById(record);
             if (result) {
+                BigDecimal yieldDelta = actualYield == null ? null : actualYield.subtract(
+                        Objects.requireNonNullElse(existingRecord.getActualYield(), BigDecimal.ZERO));
+                userSummaryService.onAdoptionStatusChanged(existingRecord.getUserId(),
+                        existingRecord.getAdoptionStatus(), 4, yieldDelta);
                 log.info("完成收获成功");
             } else {
                 log.error("完成收获失败");
@@ -569,16 +604,18 @@ public class AdoptionRecordServiceImpl extends ServiceImpl<AdoptionRecordMapper,
         try {
             Map<String, Object> statistics = new HashMap<>();
             
-            LambdaQueryWrapper<AdoptionRecord> baseWrapper = new LambdaQueryWrapper<>();
-            baseWrapper.eq(AdoptionRecord::getProjectId, projectId);
+            // 状态统计（一次分组查询）
+            QueryWrapper<AdoptionRecord> wrapper = new QueryWrapper<>();
+            wrapper.eq("project_id", projectId);
+            StatusHistogram<Integer> histogram = StatusHistogram.ofStatus(
+                    baseMapper, wrapper, "adoption_status", 1, 2, 3, 4, 5);
             
-            // 状态统计
-            statistics.put("totalCount", count(baseWrapper));
-            statistics.put("adoptedCount", count(baseWrapper.clone().eq(AdoptionRecord::getAdoptionStatus, 1)));
-            statistics.put("plantingCount", count(baseWrapper.clone().eq(AdoptionRecord::getAdoptionStatus, 2)));
-            statistics.put("harvestingCount", count(baseWrapper.clone().eq(AdoptionRecord::getAdoptionStatus, 3)));
-            statistics.put("harvestedCount", count(baseWrapper.clone().eq(AdoptionRecord::getAdoptionStatus, 4)));
-            statistics.put("completedCount", count(baseWrapper.clone().eq(AdoptionRecord::getAdoptionStatus, 5)));
+            statistics.put("totalCount", histogram.getTotalCount());
+            statistics.put("adoptedCount", histogram.get(1));
+            statistics.put("plantingCount", histogram.get(2));
+            statistics.put("harvestingCount", histogram.get(3));
+            statistics.put("harvestedCount", histogram.get(4));
+            statistics.put("completedCount", histogram.get(5));
             
             return statistics;
         } catch (Exception e) {
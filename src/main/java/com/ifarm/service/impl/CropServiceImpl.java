@@ -8,6 +8,8 @@ import com.ifarm.common.exception.BusinessException;
 import com.ifarm.entity.Crop;
 import com.ifarm.mapper.CropMapper;
 import com.ifarm.service.ICropService;
+import com.ifarm.service.IPopularityService;
+import com.ifarm.service.IRecommendationService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -16,9 +18,12 @@ import org.springframework.util.StringUtils;
 
 import java.time.LocalDate;
 import java.time.Month;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 
 /**
  * 作物品种服务实现类
@@ -32,6 +37,8 @@ import java.util.Map;
 public class CropServiceImpl extends ServiceImpl<CropMapper, Crop> implements ICropService {
 
     private final CropMapper cropMapper;
+    private final IRecommendationService recommendationService;
+    private final IPopularityService popularityService;
 
     @Override
     public List<Crop> getCropsByCategoryId(Long categoryId) {
@@ -313,13 +320,32 @@ public class CropServiceImpl extends ServiceImpl<CropMapper, Crop> implements IC
         
         log.debug("获取热门作物列表，限制数量: {}", limit);
         try {
-            // TODO: 根据认养数量、评分等因素排序
-            LambdaQueryWrapper<Crop> wrapper = new LambdaQueryWrapper<>();
-            wrapper.eq(Crop::getStatus, 1);
-            wrapper.orderByDesc(Crop::getCreateTime);
-            wrapper.last("LIMIT " + limit);
-            
-            List<Crop> crops = list(wrapper);
+            // 按最近7天浏览和认养热度排序（内存榜单，含作物下全部项目的热度）
+            List<Long> popularIds = popularityService.getPopularIds(
+                    IPopularityService.ItemType.CROP, IPopularityService.Window.WEEK, limit * 2);
+            List<Crop> crops = new ArrayList<>(limit);
+            if (!popularIds.isEmpty()) {
+                Map<Long, Crop> cropMap = new HashMap<>();
+                listByIds(popularIds).forEach(crop -> cropMap.put(crop.getId(), crop));
+                for (Long id : popularIds) {
+                    Crop crop = cropMap.get(id);
+                    if (crop != null && Objects.equals(crop.getStatus(), 1) && crops.size() < limit) {
+                        crops.add(crop);
+                    }
+                }
+            }
+
+            // 热度数据不足时用最新的启用作物补齐
+            if (crops.size() < limit) {
+                LambdaQueryWrapper<Crop> wrapper = new LambdaQueryWrapper<>();
+                wrapper.eq(Crop::getStatus, 1);
+                if (!crops.isEmpty()) {
+                    wrapper.notIn(Crop::getId, crops.stream().map(Crop::getId).toList());
+                }
+                wrapper.orderByDesc(Crop::getCreateTime);
+                wrapper.last("LIMIT " + (limit - crops.size()));
+                crops.addAll(list(wrapper));
+            }
             log.debug("获取到{}个热门作物", crops.size());
             return crops;
         } catch (Exception e) {
@@ -330,15 +356,33 @@ public class CropServiceImpl extends ServiceImpl<CropMapper, Crop> implements IC
 
     @Override
     public List<Crop> getRecommendedCrops(Integer limit) {
+        return getRecommendedCrops(null, limit);
+    }
+
+    @Override
+    public List<Crop> getRecommendedCrops(Long userId, Integer limit) {
         if (limit == null || limit <= 0) {
             limit = 10;
         }
         
-        log.debug("获取推荐作物列表，限制数量: {}", limit);
+        log.debug("获取推荐作物列表，用户ID: {}, 限制数量: {}", userId, limit);
         try {
             // 根据当前季节推荐作物
             String currentSeason = getCurrentSeason();
-            List<Crop> seasonCrops = getCropsByPlantingSeason(currentSeason);
+            List<Crop> seasonCrops = new ArrayList<>(getCropsByPlantingSeason(currentSeason));
+            
+            // 与用户已认养作物相似的在前，其余按认养用户数排序（离线推荐索引，内存查询）
+            if (recommendationService.isReady()) {
+                Map<Long, Integer> similarRank = new HashMap<>();
+                List<Long> similarCropIds = recommendationService.recommendCropIds(userId, Integer.MAX_VALUE);
+                for (int i = 0; i < similarCropIds.size(); i++) {
+                    similarRank.put(similarCropIds.get(i), i);
+                }
+                seasonCrops.sort(Comparator
+                        .comparingInt((Crop crop) -> similarRank.getOrDefault(crop.getId(), Integer.MAX_VALUE))
+                        .thenComparing(Comparator.comparingInt(
+                                (Crop crop) -> recommendationService.getCropAdopterCount(crop.getId())).reversed()));
+            }
             
             if (seasonCrops.size() > limit) {
                 return seasonCrops.subList(0, limit);
@@ -1,10 +1,15 @@
 package com.ifarm.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.ifarm.common.exception.BusinessException;
+import com.ifarm.common.result.CursorPage;
+import com.ifarm.common.util.IdGenerator;
+import com.ifarm.common.util.SeekCursor;
+import com.ifarm.common.util.StatusHistogram;
 import com.ifarm.entity.AdoptionRecord;
 import com.ifarm.entity.DeliveryOrder;
 import com.ifarm.mapper.DeliveryOrderMapper;
@@ -12,6 +17,7 @@ import com.ifarm.service.IAdoptionRecordService;
 import com.ifarm.service.IDeliveryOrderService;
 import com.ifarm.service.IDeliveryTrackingService;
 import com.ifarm.service.ISystemConfigService;
+import com.ifarm.service.IUserSummaryService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -20,9 +26,7 @@ import org.springframework.util.StringUtils;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.*;
-import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * 配送订单服务实现类
@@ -39,6 +43,8 @@ public class DeliveryOrderServiceImpl extends ServiceImpl<DeliveryOrderMapper, D
     private final IDeliveryTrackingService deliveryTrackingService;
     private final IAdoptionRecordService adoptionRecordService;
     private final ISystemConfigService systemConfigService;
+    private final IdGenerator idGenerator;
+    private final IUserSummaryService userSummaryService;
 
     @Override
     public List<DeliveryOrder> getOrdersByUserId(Long userId) {
@@ -145,6 +151,25 @@ public class DeliveryOrderServiceImpl extends ServiceImpl<DeliveryOrderMapper, D
         }
     }
 
+    @Override
+    public CursorPage<DeliveryOrder> getUserDeliveryFeed(Long userId, Integer deliveryStatus, String cursor, Integer size) {
+        if (userId == null) {
+            throw new BusinessException("用户ID不能为空");
+        }
+        
+        log.debug("游标分页查询用户配送订单: userId={}, deliveryStatus={}, cursor={}", userId, deliveryStatus, cursor);
+        SeekCursor seek = SeekCursor.decode(cursor);
+        int pageSize = CursorPage.normalizeSize(size);
+        try {
+            List<DeliveryOrder> rows = deliveryOrderMapper.selectUserDeliveryFeed(userId, deliveryStatus,
+                    seek != null ? seek.createTime() : null, seek != null ? seek.id() : null, pageSize + 1);
+            return CursorPage.of(rows, pageSize, DeliveryOrder::getCreateTime, DeliveryOrder::getId);
+        } catch (Exception e) {
+            log.error("游标分页查询用户配送订单失败", e);
+            throw new BusinessException("查询配送订单列表失败");
+        }
+    }
+
     @Override
     public List<DeliveryOrder> getOrdersByLogisticsCompany(String logisticsCompany) {
         if (!StringUtils.hasText(logisticsCompany)) {
@@ -205,6 +230,8 @@ public class DeliveryOrderServiceImpl extends ServiceImpl<DeliveryOrderMapper, D
             
             boolean result = save(order);
             if (result) {
+                userSummaryService.onDeliveryStatusChanged(order.getUserId(), null, 1);
+                
                 // 创建初始跟踪记录
                 deliveryTrackingService.createTracking(order.getId(), "订单已创建", 
                     "配送订单已创建，等待发货", null, "系统", LocalDateTime.now());
@@ -246,6 +273,10 @@ public class DeliveryOrderServiceImpl extends ServiceImpl<DeliveryOrderMapper, D
             
             boolean result = updateById(deliveryOrder);
             if (result) {
+                if (deliveryOrder.getDeliveryStatus() != null) {
+                    userSummaryService.onDeliveryStatusChanged(existingOrder.getUserId(),
+                            existingOrder.getDeliveryStatus(), deliveryOrder.getDeliveryStatus());
+                }
                 log.info("配送订单更新成功");
             } else {
                 log.error("配送订单更新失败");
@@ -282,6 +313,8 @@ public class DeliveryOrderServiceImpl extends ServiceImpl<DeliveryOrderMapper, D
             
             boolean result = removeById(orderId);
             if (result) {
+                // 删除后不再计入未签收配送数
+                userSummaryService.onDeliveryStatusChanged(order.getUserId(), 1, 0);
                 log.info("配送订单删除成功");
             } else {
                 log.error("配送订单删除失败");
@@ -328,6 +361,8 @@ public class DeliveryOrderServiceImpl extends ServiceImpl<DeliveryOrderMapper, D
             
             boolean result = updateById(updateOrder);
             if (result) {
+                userSummaryService.onDeliveryStatusChanged(order.getUserId(), 1, 2);
+                
                 // 添加发货跟踪记录
                 deliveryTrackingService.addShipmentTracking(orderId, "发货仓库", "仓库管理员");
                 
@@ -411,10 +446,8 @@ public class DeliveryOrderServiceImpl extends ServiceImpl<DeliveryOrderMapper, D
 
     @Override
     public String generateOrderNo() {
-        // 生成格式：DL + yyyyMMddHHmmss + 4位随机数
-        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss"));
-        int random = ThreadLocalRandom.current().nextInt(1000, 9999);
-        return "DL" + timestamp + random;
+        // 生成格式：DL + yyyyMMddHHmmss + 3位毫秒 + 4位节点号 + 4位序列号
+        return idGenerator.nextNo("DL");
     }
 
     @Override
@@ -473,25 +506,21 @@ public class DeliveryOrderServiceImpl extends ServiceImpl<DeliveryOrderMapper, D
         try {
             Map<String, Object> statistics = new HashMap<>();
             
+            // 一次分组查询得到各状态数量
+            QueryWrapper<DeliveryOrder> wrapper = new QueryWrapper<>();
             if (userId != null) {
-                // 特定用户的统计
-                statistics.put("totalCount", countUserDeliveries(userId, null));
-                statistics.put("pendingCount", countUserDeliveries(userId, 1));
-                statistics.put("shippedCount", countUserDeliveries(userId, 2));
-                statistics.put("inTransitCount", countUserDeliveries(userId, 3));
-                statistics.put("outForDeliveryCount", countUserDeliveries(userId, 4));
-                statistics.put("deliveredCount", countUserDeliveries(userId, 5));
-                statistics.put("exceptionCount", countUserDeliveries(userId, 6));
-            } else {
-                // 全局统计
-                statistics.put("totalCount", count());
-                statistics.put("pendingCount", count(new LambdaQueryWrapper<DeliveryOrder>().eq(DeliveryOrder::getDeliveryStatus, 1)));
-                statistics.put("shippedCount", count(new LambdaQueryWrapper<DeliveryOrder>().eq(DeliveryOrder::getDeliveryStatus, 2)));
-                statistics.put("inTransitCount", count(new LambdaQueryWrapper<DeliveryOrder>().eq(DeliveryOrder::getDeliveryStatus, 3)));
-                statistics.put("outForDeliveryCount", count(new LambdaQueryWrapper<DeliveryOrder>().eq(DeliveryOrder::getDeliveryStatus, 4)));
-                statistics.put("deliveredCount", count(new LambdaQueryWrapper<DeliveryOrder>().eq(DeliveryOrder::getDeliveryStatus, 5)));
-                statistics.put("exceptionCount", count(new LambdaQueryWrapper<DeliveryOrder>().eq(DeliveryOrder::getDeliveryStatus, 6)));
+                wrapper.eq("user_id", userId);
             }
+            StatusHistogram<Integer> histogram = StatusHistogram.ofStatus(
+                    baseMapper, wrapper, "delivery_status", 1, 2, 3, 4, 5, 6);
+            
+            statistics.put("totalCount", histogram.getTotalCount());
+            statistics.put("pendingCount", histogram.get(1));
+            statistics.put("shippedCount", histogram.get(2));
+            statistics.put("inTransitCount", histogram.get(3));
+            statistics.put("outForDeliveryCount", histogram.get(4));
+            statistics.put("deliveredCount", histogram.get(5));
+            statistics.put("exceptionCount", histogram.get(6));
             
             return statistics;
         } catch (Exception e) {
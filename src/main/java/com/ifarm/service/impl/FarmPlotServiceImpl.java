@@ -1,8 +1,10 @@
 package com.ifarm.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.ifarm.common.exception.BusinessException;
+import com.ifarm.common.util.StatusHistogram;
 import com.ifarm.entity.FarmPlot;
 import com.ifarm.mapper.FarmPlotMapper;
 import com.ifarm.service.IFarmPlotService;
@@ -405,18 +407,18 @@ public class FarmPlotServiceImpl extends ServiceImpl<FarmPlotMapper, FarmPlot> i
         try {
             Map<String, Object> statistics = new HashMap<>();
             
-            // 总数统计
-            LambdaQueryWrapper<FarmPlot> baseWrapper = new LambdaQueryWrapper<>();
-            baseWrapper.eq(FarmPlot::getFarmId, farmId);
+            // 数量与面积统计（一次分组查询）
+            QueryWrapper<FarmPlot> wrapper = new QueryWrapper<>();
+            wrapper.eq("farm_id", farmId);
+            StatusHistogram<Integer> histogram = StatusHistogram.ofStatus(baseMapper, wrapper, "status", "area", 1, 2, 0);
             
-            statistics.put("totalCount", count(baseWrapper));
-            statistics.put("availableCount", count(baseWrapper.clone().eq(FarmPlot::getStatus, 1)));
-            statistics.put("inUseCount", count(baseWrapper.clone().eq(FarmPlot::getStatus, 2)));
-            statistics.put("disabledCount", count(baseWrapper.clone().eq(FarmPlot::getStatus, 0)));
+            statistics.put("totalCount", histogram.getTotalCount());
+            statistics.put("availableCount", histogram.get(1));
+            statistics.put("inUseCount", histogram.get(2));
+            statistics.put("disabledCount", histogram.get(0));
             
-            // 面积统计
-            statistics.put("totalArea", getTotalAreaByFarmId(farmId));
-            statistics.put("availableArea", getAvailableAreaByFarmId(farmId));
+            statistics.put("totalArea", histogram.getTotalSum());
+            statistics.put("availableArea", histogram.getSum(1));
             
             return statistics;
         } catch (Exception e) {
@@ -1,22 +1,27 @@
 package com.ifarm.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.ifarm.common.exception.BusinessException;
+import com.ifarm.common.util.StatusHistogram;
 import com.ifarm.entity.Farm;
 import com.ifarm.mapper.FarmMapper;
 import com.ifarm.service.IFarmService;
+import com.ifarm.service.IPopularityService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 
 /**
  * 农场服务实现类
@@ -30,6 +35,7 @@ import java.util.Map;
 public class FarmServiceImpl extends ServiceImpl<FarmMapper, Farm> implements IFarmService {
 
     private final FarmMapper farmMapper;
+    private final IPopularityService popularityService;
 
     @Override
     public List<Farm> getFarmsByOwnerId(Long ownerId) {
@@ -335,6 +341,48 @@ public class FarmServiceImpl extends ServiceImpl<FarmMapper, Farm> implements IF
         }
     }
 
+    @Override
+    public List<Farm> getPopularFarms(Integer limit) {
+        if (limit == null || limit <= 0) {
+            limit = 10;
+        }
+        
+        log.debug("获取热门农场列表，限制数量: {}", limit);
+        try {
+            // 按最近7天浏览和认养热度排序（内存榜单，含农场下全部项目的热度）
+            List<Long> popularIds = popularityService.getPopularIds(
+                    IPopularityService.ItemType.FARM, IPopularityService.Window.WEEK, limit * 2);
+            List<Farm> farms = new ArrayList<>(limit);
+            if (!popularIds.isEmpty()) {
+                Map<Long, Farm> farmMap = new HashMap<>();
+                listByIds(popularIds).forEach(farm -> farmMap.put(farm.getId(), farm));
+                for (Long id : popularIds) {
+                    Farm farm = farmMap.get(id);
+                    if (farm != null && Objects.equals(farm.getStatus(), 1) && farms.size() < limit) {
+                        farms.add(farm);
+                    }
+                }
+            }
+
+            // 热度数据不足时用最新的正常营业农场补齐
+            if (farms.size() < limit) {
+                LambdaQueryWrapper<Farm> wrapper = new LambdaQueryWrapper<>();
+                wrapper.eq(Farm::getStatus, 1);
+                if (!farms.isEmpty()) {
+                    wrapper.notIn(Farm::getId, farms.stream().map(Farm::getId).toList());
+                }
+                wrapper.orderByDesc(Farm::getCreateTime);
+                wrapper.last("LIMIT " + (limit - farms.size()));
+                farms.addAll(list(wrapper));
+            }
+            log.debug("获取到{}个热门农场", farms.size());
+            return farms;
+        } catch (Exception e) {
+            log.error("获取热门农场列表失败", e);
+            throw new BusinessException("获取热门农场列表失败");
+        }
+    }
+
     @Override
     public IPage<Farm> searchFarms(String keyword, Page<Farm> page) {
         if (!StringUtils.hasText(keyword)) {
@@ -365,22 +413,17 @@ public class FarmServiceImpl extends ServiceImpl<FarmMapper, Farm> implements IF
         try {
             Map<String, Object> statistics = new HashMap<>();
             
+            // 一次分组查询得到各状态数量
+            QueryWrapper<Farm> wrapper = new QueryWrapper<>();
             if (ownerId != null) {
-                // 特定农场主的统计
-                LambdaQueryWrapper<Farm> wrapper = new LambdaQueryWrapper<>();
-                wrapper.eq(Farm::getOwnerId, ownerId);
-                
-                statistics.put("totalCount", count(wrapper));
-                statistics.put("activeCount", count(wrapper.clone().eq(Farm::getStatus, 1)));
-                statistics.put("pendingCount", count(wrapper.clone().eq(Farm::getStatus, 2)));
-                statistics.put("disabledCount", count(wrapper.clone().eq(Farm::getStatus, 0)));
-            } else {
-                // 全局统计
-                statistics.put("totalCount", count());
-                statistics.put("activeCount", count(new LambdaQueryWrapper<Farm>().eq(Farm::getStatus, 1)));
-                statistics.put("pendingCount", count(new LambdaQueryWrapper<Farm>().eq(Farm::getStatus, 2)));
-                statistics.put("disabledCount", count(new LambdaQueryWrapper<Farm>().eq(Farm::getStatus, 0)));
+                wrapper.eq("owner_id", ownerId);
             }
+            StatusHistogram<Integer> histogram = StatusHistogram.ofStatus(baseMapper, wrapper, "status", 1, 2, 0);
+            
+            statistics.put("totalCount", histogram.getTotalCount());
+            statistics.put("activeCount", histogram.get(1));
+            statistics.put("pendingCount", histogram.get(2));
+            statistics.put("disabledCount", histogram.get(0));
             
             return statistics;
         } catch (Exception e) {
@@ -1,16 +1,22 @@
 package com.ifarm.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.ifarm.common.event.ProjectChangedEvent;
 import com.ifarm.common.exception.BusinessException;
+import com.ifarm.common.result.CursorPage;
+import com.ifarm.common.util.SeekCursor;
+import com.ifarm.common.util.StatusHistogram;
 import com.ifarm.entity.GrowthRecord;
 import com.ifarm.mapper.GrowthRecordMapper;
 import com.ifarm.service.IGrowthRecordService;
 import com.ifarm.service.IAdoptionProjectService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
@@ -32,6 +38,7 @@ public class GrowthRecordServiceImpl extends ServiceImpl<GrowthRecordMapper, Gro
 
     private final GrowthRecordMapper growthRecordMapper;
     private final IAdoptionProjectService adoptionProjectService;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Override
     public List<GrowthRecord> getRecordsByProjectId(Long projectId) {
@@ -99,6 +106,25 @@ public class GrowthRecordServiceImpl extends ServiceImpl<GrowthRecordMapper, Gro
         }
     }
 
+    @Override
+    public CursorPage<GrowthRecord> getProjectGrowthFeed(Long projectId, String growthStage, String cursor, Integer size) {
+        if (projectId == null) {
+            throw new BusinessException("项目ID不能为空");
+        }
+        
+        log.debug("游标分页查询项目生长记录: projectId={}, growthStage={}, cursor={}", projectId, growthStage, cursor);
+        SeekCursor seek = SeekCursor.decode(cursor);
+        int pageSize = CursorPage.normalizeSize(size);
+        try {
+            List<GrowthRecord> rows = growthRecordMapper.selectProjectGrowthFeed(projectId, growthStage,
+                    seek != null ? seek.createTime() : null, seek != null ? seek.id() : null, pageSize + 1);
+            return CursorPage.of(rows, pageSize, GrowthRecord::getCreateTime, GrowthRecord::getId);
+        } catch (Exception e) {
+            log.error("游标分页查询项目生长记录失败", e);
+            throw new BusinessException("查询生长记录失败");
+        }
+    }
+
     @Override
     public List<GrowthRecord> getRecordsByGrowthStage(String growthStage) {
         if (!StringUtils.hasText(growthStage)) {
@@ -140,6 +166,7 @@ public class GrowthRecordServiceImpl extends ServiceImpl<GrowthRecordMapper, Gro
             
             boolean result = save(growthRecord);
             if (result) {
+                eventPublisher.publishEvent(ProjectChangedEvent.of(growthRecord.getProjectId(), ProjectChangedEvent.ChangeType.GROWTH_RECORD_CHANGED));
                 log.info("生长记录创建成功，ID: {}", growthRecord.getId());
             } else {
                 log.error("生长记录创建失败");
@@ -171,6 +198,7 @@ public class GrowthRecordServiceImpl extends ServiceImpl<GrowthRecordMapper, Gro
             
             boolean result = updateById(growthRecord);
             if (result) {
+                eventPublisher.publishEvent(ProjectChangedEvent.of(existingRecord.getProjectId(), ProjectChangedEvent.ChangeType.GROWTH_RECORD_CHANGED));
                 log.info("生长记录更新成功");
             } else {
                 log.error("生长记录更新失败");
@@ -202,6 +230,7 @@ public class GrowthRecordServiceImpl extends ServiceImpl<GrowthRecordMapper, Gro
             
             boolean result = removeById(recordId);
             if (result) {
+                eventPublisher.publishEvent(ProjectChangedEvent.of(record.getProjectId(), ProjectChangedEvent.ChangeType.GROWTH_RECORD_CHANGED));
                 log.info("生长记录删除成功");
             } else {
                 log.error("生长记录删除失败");
@@ -339,16 +368,13 @@ public class GrowthRecordServiceImpl extends ServiceImpl<GrowthRecordMapper, Gro
         try {
             Map<String, Object> statistics = new HashMap<>();
             
-            // 总记录数
-            statistics.put("totalRecords", countRecordsByProjectId(projectId));
-            
-            // 按生长阶段统计
-            Map<String, Integer> stageStats = new HashMap<>();
-            List<String> stages = getGrowthStages();
-            for (String stage : stages) {
-                stageStats.put(stage, countRecordsByStage(projectId, stage));
-            }
-            statistics.put("stageStatistics", stageStats);
+            // 总记录数及按生长阶段统计（一次分组查询）
+            QueryWrapper<GrowthRecord> wrapper = new QueryWrapper<>();
+            wrapper.eq("project_id", projectId);
+            StatusHistogram<String> histogram = StatusHistogram.ofValues(
+                    baseMapper, wrapper, "growth_stage", getGrowthStages());
+            statistics.put("totalRecords", histogram.getTotalCount());
+            statistics.put("stageStatistics", histogram.getCounts());
             
             // 最近记录时间
             GrowthRecord latestRecord = getLatestRecordByProjectId(projectId);
@@ -418,6 +444,7 @@ public class GrowthRecordServiceImpl extends ServiceImpl<GrowthRecordMapper, Gro
             
             boolean result = saveBatch(templates);
             if (result) {
+                eventPublisher.publishEvent(ProjectChangedEvent.of(projectId, ProjectChangedEvent.ChangeType.GROWTH_RECORD_CHANGED));
                 log.info("批量创建生长记录模板成功，创建{}条记录", templates.size());
             } else {
                 log.error("批量创建生长记录模板失败");
@@ -515,14 +542,4 @@ public class GrowthRecordServiceImpl extends ServiceImpl<GrowthRecordMapper, Gro
             throw new BusinessException("导出生长记录失败");
         }
     }
-
-    /**
-     * 统计指定阶段的记录数量
-     */
-    private int countRecordsByStage(Long projectId, String growthStage) {
-        LambdaQueryWrapper<GrowthRecord> wrapper = new LambdaQueryWrapper<>();
-        wrapper.eq(GrowthRecord::getProjectId, projectId);
-        wrapper.eq(GrowthRecord::getGrowthStage, growthStage);
-        return Math.toIntExact(count(wrapper));
-    }
 }
@@ -1,16 +1,20 @@
 package com.ifarm.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.ifarm.common.event.ProjectChangedEvent;
 import com.ifarm.common.exception.BusinessException;
+import com.ifarm.common.util.StatusHistogram;
 import com.ifarm.entity.HarvestRecord;
 import com.ifarm.mapper.HarvestRecordMapper;
 import com.ifarm.service.IHarvestRecordService;
 import com.ifarm.service.IAdoptionProjectService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
@@ -32,6 +36,7 @@ public class HarvestRecordServiceImpl extends ServiceImpl<HarvestRecordMapper, H
 
     private final HarvestRecordMapper harvestRecordMapper;
     private final IAdoptionProjectService adoptionProjectService;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Override
     public List<HarvestRecord> getRecordsByProjectId(Long projectId) {
@@ -156,6 +161,7 @@ public class HarvestRecordServiceImpl extends ServiceImpl<HarvestRecordMapper, H
             
             boolean result = save(harvestRecord);
             if (result) {
+                eventPublisher.publishEvent(ProjectChangedEvent.of(harvestRecord.getProjectId(), ProjectChangedEvent.ChangeType.HARVEST_RECORD_CHANGED));
                 log.info("收获记录创建成功，ID: {}", harvestRecord.getId());
             } else {
                 log.error("收获记录创建失败");
@@ -187,6 +193,7 @@ public class HarvestRecordServiceImpl extends ServiceImpl<HarvestRecordMapper, H
             
             boolean result = updateById(harvestRecord);
             if (result) {
+                eventPublisher.publishEvent(ProjectChangedEvent.of(existingRecord.getProjectId(), ProjectChangedEvent.ChangeType.HARVEST_RECORD_CHANGED));
                 log.info("收获记录更新成功");
             } else {
                 log.error("收获记录更新失败");
@@ -218,6 +225,7 @@ public class HarvestRecordServiceImpl extends ServiceImpl<HarvestRecordMapper, H
             
             boolean result = removeById(recordId);
             if (result) {
+                eventPublisher.publishEvent(ProjectChangedEvent.of(record.getProjectId(), ProjectChangedEvent.ChangeType.HARVEST_RECORD_CHANGED));
                 log.info("收获记录删除成功");
             } else {
                 log.error("收获记录删除失败");
@@ -273,6 +281,7 @@ public class HarvestRecordServiceImpl extends ServiceImpl<HarvestRecordMapper, H
             
             boolean result = saveBatch(records);
             if (result) {
+                eventPublisher.publishEvent(ProjectChangedEvent.of(projectId, ProjectChangedEvent.ChangeType.HARVEST_RECORD_CHANGED));
                 log.info("批量创建收获记录成功，创建{}条记录", records.size());
             } else {
                 log.error("批量创建收获记录失败");
@@ -428,18 +437,12 @@ public class HarvestRecordServiceImpl extends ServiceImpl<HarvestRecordMapper, H
         try {
             Map<String, Object> statistics = new HashMap<>();
 
-            // 基础统计
-            statistics.put("totalRecords", countRecordsByProjectId(projectId));
-            statistics.put("totalQuantity", getTotalHarvestQuantityByProjectId(projectId));
+            // 基础统计及质量等级统计（一次分组查询）
+            StatusHistogram<String> histogram = qualityHistogram(projectId);
+            statistics.put("totalRecords", histogram.getTotalCount());
+            statistics.put("totalQuantity", histogram.getTotalSum());
             statistics.put("averageQualityScore", getAverageQualityScoreByProjectId(projectId));
-
-            // 质量等级统计
-            Map<String, Integer> qualityStats = new HashMap<>();
-            List<String> grades = getQualityGrades();
-            for (String grade : grades) {
-                qualityStats.put(grade, countRecordsByQuality(projectId, grade));
-            }
-            statistics.put("qualityStatistics", qualityStats);
+            statistics.put("qualityStatistics", histogram.getCounts());
 
             // 最近收获时间
             HarvestRecord latestRecord = getLatestRecordByProjectId(projectId);
@@ -534,6 +537,7 @@ public class HarvestRecordServiceImpl extends ServiceImpl<HarvestRecordMapper, H
 
             boolean result = save(projectRecord);
             if (result) {
+                eventPublisher.publishEvent(ProjectChangedEvent.of(projectId, ProjectChangedEvent.ChangeType.HARVEST_RECORD_CHANGED));
                 log.info("项目收获完成记录创建成功，ID: {}", projectRecord.getId());
             } else {
                 log.error("项目收获完成记录创建失败");
@@ -625,17 +629,13 @@ public class HarvestRecordServiceImpl extends ServiceImpl<HarvestRecordMapper, H
 
             // 基础统计
             report.put("projectId", projectId);
-            report.put("totalRecords", countRecordsByProjectId(projectId));
-            report.put("totalQuantity", getTotalHarvestQuantityByProjectId(projectId));
+            StatusHistogram<String> histogram = qualityHistogram(projectId);
+            report.put("totalRecords", histogram.getTotalCount());
+            report.put("totalQuantity", histogram.getTotalSum());
             report.put("averageQualityScore", getAverageQualityScoreByProjectId(projectId));
 
             // 质量等级分布
-            Map<String, Integer> qualityDistribution = new HashMap<>();
-            List<String> grades = getQualityGrades();
-            for (String grade : grades) {
-                qualityDistribution.put(grade, countRecordsByQuality(projectId, grade));
-            }
-            report.put("qualityDistribution", qualityDistribution);
+            report.put("qualityDistribution", histogram.getCounts());
 
             // 最新收获记录
             HarvestRecord latestRecord = getLatestRecordByProjectId(projectId);
@@ -652,12 +652,11 @@ public class HarvestRecordServiceImpl extends ServiceImpl<HarvestRecordMapper, H
     }
 
     /**
-     * 统计指定质量等级的记录数量
+     * 按质量等级统计记录数量及收获量
      */
-    private int countRecordsByQuality(Long projectId, String qualityGrade) {
-        LambdaQueryWrapper<HarvestRecord> wrapper = new LambdaQueryWrapper<>();
-        wrapper.eq(HarvestRecord::getProjectId, projectId);
-        wrapper.eq(HarvestRecord::getQualityGrade, qualityGrade);
-        return Math.toIntExact(count(wrapper));
+    private StatusHistogram<String> qualityHistogram(Long projectId) {
+        QueryWrapper<HarvestRecord> wrapper = new QueryWrapper<>();
+        wrapper.eq("project_id", projectId);
+        return StatusHistogram.ofValues(baseMapper, wrapper, "quality_grade", "harvest_quantity", getQualityGrades());
     }
 }
@@ -0,0 +1,220 @@
+package com.ifarm.service.impl;
+
+import com.ifarm.common.exception.BusinessException;
+import com.ifarm.mapper.AdoptionProjectMapper;
+import com.ifarm.service.IInventoryReconcileService;
+import com.ifarm.service.IProjectFacetService;
+import com.ifarm.service.IProjectInventoryService;
+import com.ifarm.service.IWaitlistService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 库存核对服务实现类
+ *
+ * 实际可用单元数 = 可认养单元数 - 待支付订单占用数 - 候补分配保留数，
+ * 与当前可用单元数在同一条分组查询中读出，修正时以读出的可用单元数为条件，
+ * 核对期间有下单或取消提交的项目不会被覆盖，留待下次核对。
+ * 全量核对按项目ID分页；增量核对只处理上次核对开始后项目、单元或订单有变更的项目。
+ *
+ * @author ifarm
+ * @since 2025-01-19
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class InventoryReconcileServiceImpl implements IInventoryReconcileService {
+
+    /**
+     * 增量核对起始时间的回退量（秒），覆盖应用与数据库的时钟偏差及核对期间提交的事务
+     */
+    private static final long SINCE_MARGIN_SECONDS = 60;
+
+    private final AdoptionProjectMapper adoptionProjectMapper;
+    private final IProjectInventoryService projectInventoryService;
+    private final IProjectFacetService projectFacetService;
+    private final IWaitlistService waitlistService;
+
+    @Value("${ifarm.reconcile.chunk-size:500}")
+    private int chunkSize;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    /**
+     * 上次核对的开始时间，为null时下次执行全量核对
+     */
+    private volatile LocalDateTime lastRunStart;
+
+    private final LongAdder totalRuns = new LongAdder();
+    private final LongAdder totalChecked = new LongAdder();
+    private final LongAdder totalDrifted = new LongAdder();
+    private final LongAdder totalRepaired = new LongAdder();
+    private final LongAdder totalConflicts = new LongAdder();
+    private final LongAdder totalDriftUnits = new LongAdder();
+    private final LongAdder totalOversold = new LongAdder();
+
+    private volatile Map<String, Object> lastRun = Map.of();
+
+    /**
+     * 定时增量核对
+     */
+    @Scheduled(initialDelayString = "${ifarm.reconcile.initial-delay:300000}",
+            fixedDelayString = "${ifarm.reconcile.check-interval:600000}")
+    public void scheduledReconcile() {
+        try {
+            reconcile(false);
+        } catch (Exception e) {
+            log.error("核对项目库存失败", e);
+        }
+    }
+
+    @Override
+    public int reconcile(boolean full) {
+        if (!running.compareAndSet(false, true)) {
+            throw new BusinessException("库存核对正在进行中");
+        }
+
+        try {
+            LocalDateTime runStart = LocalDateTime.now();
+            LocalDateTime since = lastRunStart;
+            boolean fullRun = full || since == null;
+            RunStats stats = new RunStats();
+            long start = System.currentTimeMillis();
+
+            if (fullRun) {
+                Long afterId = 0L;
+                List<Long> projectIds;
+                do {
+                    projectIds = adoptionProjectMapper.selectReconcileProjectIds(afterId, chunkSize);
+                    if (!projectIds.isEmpty()) {
+                        reconcileChunk(projectIds, stats);
+                        afterId = projectIds.get(projectIds.size() - 1);
+                    }
+                } while (projectIds.size() >= chunkSize);
+            } else {
+                List<Long> projectIds = adoptionProjectMapper.selectTouchedProjectIds(
+                        since.minusSeconds(SINCE_MARGIN_SECONDS));
+                for (int from = 0; from < projectIds.size(); from += chunkSize) {
+                    reconcileChunk(projectIds.subList(from, Math.min(from + chunkSize, projectIds.size())), stats);
+                }
+            }
+            lastRunStart = runStart;
+
+            long cost = System.currentTimeMillis() - start;
+            totalRuns.increment();
+            totalChecked.add(stats.checked);
+            totalDrifted.add(stats.drifted);
+            totalRepaired.add(stats.repaired);
+            totalConflicts.add(stats.conflicts);
+            totalDriftUnits.add(stats.driftUnits);
+            totalOversold.add(stats.oversold);
+
+            Map<String, Object> run = new HashMap<>();
+            run.put("startTime", runStart);
+            run.put("full", fullRun);
+            run.put("checkedProjects", stats.checked);
+            run.put("driftedProjects", stats.drifted);
+            run.put("repairedProjects", stats.repaired);
+            run.put("conflictProjects", stats.conflicts);
+            run.put("driftUnits", stats.driftUnits);
+            run.put("oversoldProjects", stats.oversold);
+            run.put("costMillis", cost);
+            lastRun = run;
+
+            if (stats.drifted > 0) {
+                log.warn("项目库存核对完成: 全量={}, 核对{}个项目, 偏差{}个项目（共{}个单元）, 修正{}个, 冲突跳过{}个, 超卖{}个, 耗时{}ms",
+                        fullRun, stats.checked, stats.drifted, stats.driftUnits, stats.repaired,
+                        stats.conflicts, stats.oversold, cost);
+            } else {
+                log.info("项目库存核对完成: 全量={}, 核对{}个项目, 无偏差, 耗时{}ms", fullRun, stats.checked, cost);
+            }
+            return stats.repaired;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    @Override
+    public Object getReconcileStatistics() {
+        Map<String, Object> statistics = new HashMap<>();
+        statistics.put("totalRuns", totalRuns.sum());
+        statistics.put("totalCheckedProjects", totalChecked.sum());
+        statistics.put("totalDriftedProjects", totalDrifted.sum());
+        statistics.put("totalRepairedProjects", totalRepaired.sum());
+        statistics.put("totalConflictProjects", totalConflicts.sum());
+        statistics.put("totalDriftUnits", totalDriftUnits.sum());
+        statistics.put("totalOversoldProjects", totalOversold.sum());
+        statistics.put("lastRun", lastRun);
+        return statistics;
+    }
+
+    /**
+     * 核对一批项目
+     */
+    private void reconcileChunk(List<Long> projectIds, RunStats stats) {
+        List<Map<String, Object>> rows = adoptionProjectMapper.selectInventoryCounts(projectIds);
+        for (Map<String, Object> row : rows) {
+            stats.checked++;
+            Long projectId = ((Number) row.get("project_id")).longValue();
+            int recorded = ((Number) row.get("available_units")).intValue();
+            int totalUnits = ((Number) row.get("total_units")).intValue();
+            int freeUnits = ((Number) row.get("free_units")).intValue();
+            int pendingUnits = ((Number) row.get("pending_units")).intValue();
+            int offeredUnits = ((Number) row.get("offered_units")).intValue();
+
+            int actual = freeUnits - pendingUnits - offeredUnits;
+            if (actual < 0) {
+                // 占用数超过可认养单元数，已经超卖，只能归零并人工处理
+                stats.oversold++;
+                log.error("项目超卖: projectId={}, 可认养单元{}个, 待支付占用{}个, 候补保留{}个",
+                        projectId, freeUnits, pendingUnits, offeredUnits);
+                actual = 0;
+            }
+            actual = Math.min(actual, totalUnits);
+            if (actual == recorded) {
+                continue;
+            }
+
+            stats.drifted++;
+            stats.driftUnits += Math.abs(actual - recorded);
+            int updated = adoptionProjectMapper.repairAvailableUnits(projectId, recorded, actual);
+            if (updated == 0) {
+                stats.conflicts++;
+                log.info("项目库存核对期间已变更，留待下次核对: projectId={}", projectId);
+                continue;
+            }
+
+            stats.repaired++;
+            log.warn("修正项目可用单元数: projectId={}, {} -> {}（可认养{}, 待支付{}, 候补保留{}）",
+                    projectId, recorded, actual, freeUnits, pendingUnits, offeredUnits);
+            // 丢弃内存计数器并同步筛选索引；可用单元增加时先分配给候补用户
+            projectInventoryService.evict(projectId);
+            projectFacetService.onAvailabilityChanged(projectId, projectInventoryService.getAvailableUnits(projectId));
+            if (actual > recorded) {
+                waitlistService.onUnitsReleased(projectId);
+            }
+        }
+    }
+
+    /**
+     * 单次核对的统计
+     */
+    private static final class RunStats {
+        private int checked;
+        private int drifted;
+        private int repaired;
+        private int conflicts;
+        private long driftUnits;
+        private int oversold;
+    }
+}
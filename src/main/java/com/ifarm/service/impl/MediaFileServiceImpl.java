@@ -1,10 +1,12 @@
 package com.ifarm.service.impl;
 
-import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.ifarm.common.exception.BusinessException;
+import com.ifarm.common.util.IdGenerator;
+import com.ifarm.common.util.StatusHistogram;
 import com.ifarm.entity.MediaFile;
 import com.ifarm.mapper.MediaFileMapper;
 import com.ifarm.service.IMediaFileService;
@@ -23,7 +25,6 @@ import java.nio.file.Paths;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
-import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * 媒体文件服务实现类
@@ -36,8 +37,11 @@ import java.util.concurrent.ThreadLocalRandom;
 @RequiredArgsConstructor
 public class MediaFileServiceImpl extends ServiceImpl<MediaFileMapper, MediaFile> implements IMediaFileService {
 
+    private static final DateTimeFormatter DATE_PATH_FORMATTER = DateTimeFormatter.ofPattern("yyyy/MM/dd");
+
     private final MediaFileMapper mediaFileMapper;
     private final ISystemConfigService systemConfigService;
+    private final IdGenerator idGenerator;
 
     @Override
     public List<MediaFile> getFilesByRelated(String relatedType, Long relatedId) {
@@ -444,9 +448,7 @@ public class MediaFileServiceImpl extends ServiceImpl<MediaFileMapper, MediaFile
      * 生成文件名
      */
     private String generateFileName(String extension) {
-        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss"));
-        int random = ThreadLocalRandom.current().nextInt(1000, 9999);
-        return timestamp + "_" + random + (StringUtils.hasText(extension) ? "." + extension : "");
+        return idGenerator.nextNo("") + (StringUtils.hasText(extension) ? "." + extension : "");
     }
 
     /**
@@ -454,7 +456,7 @@ public class MediaFileServiceImpl extends ServiceImpl<MediaFileMapper, MediaFile
      */
     private String generateFilePath(String relatedType, String fileName) {
         String uploadPath = systemConfigService.getConfigValue("upload_path", "/uploads");
-        String datePath = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy/MM/dd"));
+        String datePath = LocalDateTime.now().format(DATE_PATH_FORMATTER);
         return uploadPath + "/" + relatedType + "/" + datePath + "/" + fileName;
     }
 
@@ -503,29 +505,21 @@ public class MediaFileServiceImpl extends ServiceImpl<MediaFileMapper, MediaFile
         try {
             Map<String, Object> statistics = new HashMap<>();
 
+            // 一次分组查询得到各类型文件数量及总存储大小
+            QueryWrapper<MediaFile> wrapper = new QueryWrapper<>();
             if (uploaderId != null) {
-                // 特定用户的统计
-                statistics.put("totalFiles", countFilesByUploader(uploaderId, null));
-                statistics.put("imageFiles", countFilesByUploader(uploaderId, "image"));
-                statistics.put("videoFiles", countFilesByUploader(uploaderId, "video"));
-                statistics.put("audioFiles", countFilesByUploader(uploaderId, "audio"));
-                statistics.put("documentFiles", countFilesByUploader(uploaderId, "document"));
-                statistics.put("otherFiles", countFilesByUploader(uploaderId, "other"));
-
-                // 计算总存储大小
-                statistics.put("totalSize", calculateTotalSize(uploaderId));
-            } else {
-                // 全局统计
-                statistics.put("totalFiles", count());
-                statistics.put("imageFiles", count(new LambdaQueryWrapper<MediaFile>().eq(MediaFile::getFileType, "image")));
-                statistics.put("videoFiles", count(new LambdaQueryWrapper<MediaFile>().eq(MediaFile::getFileType, "video")));
-                statistics.put("audioFiles", count(new LambdaQueryWrapper<MediaFile>().eq(MediaFile::getFileType, "audio")));
-                statistics.put("documentFiles", count(new LambdaQueryWrapper<MediaFile>().eq(MediaFile::getFileType, "document")));
-                statistics.put("otherFiles", count(new LambdaQueryWrapper<MediaFile>().eq(MediaFile::getFileType, "other")));
-
-                // 计算总存储大小
-                statistics.put("totalSize", calculateTotalSize(null));
+                wrapper.eq("uploader_id", uploaderId);
             }
+            StatusHistogram<String> histogram = StatusHistogram.ofValues(baseMapper, wrapper, "file_type", "file_size",
+                    Arrays.asList("image", "video", "audio", "document", "other"));
+
+            statistics.put("totalFiles", histogram.getTotalCount());
+            statistics.put("imageFiles", histogram.get("image"));
+            statistics.put("videoFiles", histogram.get("video"));
+            statistics.put("audioFiles", histogram.get("audio"));
+            statistics.put("documentFiles", histogram.get("document"));
+            statistics.put("otherFiles", histogram.get("other"));
+            statistics.put("totalSize", histogram.getTotalSum().longValue());
 
             return statistics;
         } catch (Exception e) {
@@ -810,26 +804,4 @@ public class MediaFileServiceImpl extends ServiceImpl<MediaFileMapper, MediaFile
             throw new BusinessException("转换文件格式失败");
         }
     }
-
-    /**
-     * 计算总存储大小
-     */
-    private Long calculateTotalSize(Long uploaderId) {
-        try {
-            LambdaQueryWrapper<MediaFile> wrapper = new LambdaQueryWrapper<>();
-            if (uploaderId != null) {
-                wrapper.eq(MediaFile::getUploaderId, uploaderId);
-            }
-            wrapper.select(MediaFile::getFileSize);
-
-            List<MediaFile> files = list(wrapper);
-            return files.stream()
-                    .map(MediaFile::getFileSize)
-                    .filter(Objects::nonNull)
-                    .reduce(0L, Long::sum);
-        } catch (Exception e) {
-            log.error("计算总存储大小失败", e);
-            return 0L;
-        }
-    }
 }
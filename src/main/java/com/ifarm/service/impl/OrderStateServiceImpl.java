@@ -0,0 +1,156 @@
+package com.ifarm.service.impl;
+
+import com.ifarm.common.enums.OrderTransition;
+import com.ifarm.common.exception.BusinessException;
+import com.ifarm.entity.AdoptionOrder;
+import com.ifarm.mapper.AdoptionOrderMapper;
+import com.ifarm.service.IOrderStateService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 订单状态机服务实现类
+ *
+ * 迁移条件（当前状态、所属用户）全部放在UPDATE的WHERE中，检查与写入之间没有竞争窗口；
+ * 迁移成功后订单行已被本事务锁定，调用方随后读取的订单数据不会再被并发修改。
+ * 只有迁移失败时才查询订单，用于区分订单不存在、无权限和状态不允许。
+ *
+ * @author ifarm
+ * @since 2025-01-19
+ */
+@Slf4j
+@Service
+public class OrderStateServiceImpl implements IOrderStateService {
+
+    private final AdoptionOrderMapper adoptionOrderMapper;
+
+    private final Map<OrderTransition, TransitionCounter> counters = new EnumMap<>(OrderTransition.class);
+    private final long startTime = System.currentTimeMillis();
+
+    public OrderStateServiceImpl(AdoptionOrderMapper adoptionOrderMapper) {
+        this.adoptionOrderMapper = adoptionOrderMapper;
+        for (OrderTransition transition : OrderTransition.values()) {
+            counters.put(transition, new TransitionCounter());
+        }
+    }
+
+    @Override
+    public boolean tryTransit(OrderTransition transition, Long orderId, Long userId) {
+        if (transition == null || orderId == null) {
+            throw new BusinessException("参数不能为空");
+        }
+        if (transition.isOwnerOnly() && userId == null) {
+            throw new BusinessException("用户ID不能为空");
+        }
+
+        int updated = adoptionOrderMapper.transition(orderId, transition.getFromStatus(), transition.getToStatus(),
+                transition.isOwnerOnly() ? userId : null);
+        return record(transition, 1, updated);
+    }
+
+    @Override
+    public void transit(OrderTransition transition, Long orderId, Long userId) {
+        if (!tryTransit(transition, orderId, userId)) {
+            throw conflict(transition, orderId, userId);
+        }
+    }
+
+    @Override
+    public int transitAll(OrderTransition transition, List<Long> orderIds) {
+        if (transition == null || transition.isOwnerOnly()) {
+            throw new BusinessException("迁移不支持批量执行");
+        }
+        if (orderIds == null || orderIds.isEmpty()) {
+            return 0;
+        }
+
+        int updated = adoptionOrderMapper.transitionByIds(orderIds, transition.getFromStatus(), transition.getToStatus());
+        record(transition, orderIds.size(), updated);
+        return updated;
+    }
+
+    @Override
+    public boolean tryPay(Long orderId, String paymentMethod, String paymentNo, LocalDateTime paymentTime) {
+        if (orderId == null) {
+            throw new BusinessException("订单ID不能为空");
+        }
+
+        int updated = adoptionOrderMapper.markPaid(orderId, paymentMethod, paymentNo, paymentTime);
+        return record(OrderTransition.PAY, 1, updated);
+    }
+
+    @Override
+    public Object getStatistics() {
+        double seconds = Math.max(1, (System.currentTimeMillis() - startTime) / 1000.0);
+        Map<String, Object> transitions = new LinkedHashMap<>();
+        long totalAttempts = 0;
+        long totalConflicts = 0;
+        for (Map.Entry<OrderTransition, TransitionCounter> entry : counters.entrySet()) {
+            long attempts = entry.getValue().attempts.sum();
+            long succeeded = entry.getValue().succeeded.sum();
+            long conflicts = attempts - succeeded;
+            totalAttempts += attempts;
+            totalConflicts += conflicts;
+
+            Map<String, Object> item = new HashMap<>();
+            item.put("description", entry.getKey().getDescription());
+            item.put("fromStatus", entry.getKey().getFromStatus());
+            item.put("toStatus", entry.getKey().getToStatus());
+            item.put("attempts", attempts);
+            item.put("succeeded", succeeded);
+            item.put("conflicts", conflicts);
+            item.put("conflictRate", attempts == 0 ? 0.0 : conflicts / (double) attempts);
+            item.put("perSecond", succeeded / seconds);
+            transitions.put(entry.getKey().name(), item);
+        }
+
+        Map<String, Object> statistics = new HashMap<>();
+        statistics.put("uptimeSeconds", (long) seconds);
+        statistics.put("attempts", totalAttempts);
+        statistics.put("conflicts", totalConflicts);
+        statistics.put("transitions", transitions);
+        return statistics;
+    }
+
+    private boolean record(OrderTransition transition, int attempts, int updated) {
+        TransitionCounter counter = counters.get(transition);
+        counter.attempts.add(attempts);
+        counter.succeeded.add(updated);
+        if (updated < attempts) {
+            log.debug("订单状态迁移冲突: {}, 尝试{}个, 成功{}个", transition, attempts, updated);
+        }
+        return updated > 0;
+    }
+
+    /**
+     * 迁移失败后查询订单，给出失败原因
+     */
+    private BusinessException conflict(OrderTransition transition, Long orderId, Long userId) {
+        AdoptionOrder order = adoptionOrderMapper.selectById(orderId);
+        if (order == null) {
+            return new BusinessException("订单不存在");
+        }
+        if (transition.isOwnerOnly() && !Objects.equals(order.getUserId(), userId)) {
+            return new BusinessException("无权限操作该订单");
+        }
+        log.info("订单状态不允许{}: orderId={}, 当前状态={}", transition.getDescription(), orderId, order.getOrderStatus());
+        return new BusinessException("订单状态不允许" + transition.getDescription());
+    }
+
+    /**
+     * 单个迁移的计数
+     */
+    private static final class TransitionCounter {
+        private final LongAdder attempts = new LongAdder();
+        private final LongAdder succeeded = new LongAdder();
+    }
+}
@@ -0,0 +1,157 @@
+package com.ifarm.service.impl;
+
+import com.ifarm.common.util.TimingWheel;
+import com.ifarm.common.util.TransactionUtils;
+import com.ifarm.entity.AdoptionOrder;
+import com.ifarm.mapper.AdoptionOrderMapper;
+import com.ifarm.service.IAdoptionOrderService;
+import com.ifarm.service.IOrderTimeoutService;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 订单支付超时服务实现类
+ *
+ * 时间轮最底层每槽1秒、每层60槽（1分钟、1小时、60小时逐层覆盖），
+ * 到期任务在独立线程池中以条件更新（待支付 → 已取消）取消订单，订单已支付时更新不生效。
+ * 多节点各自恢复并登记全部待支付订单，同一订单只会被其中一个节点取消。
+ * 取消失败（如数据库瞬时故障、锁等待超时）时按指数退避重新登记，超过重试次数后记录错误日志等待人工处理。
+ *
+ * @author ifarm
+ * @since 2025-01-19
+ */
+@Slf4j
+@Service
+public class OrderTimeoutServiceImpl implements IOrderTimeoutService {
+
+    private static final long TICK_MILLIS = 1000;
+    private static final int WHEEL_SIZE = 60;
+    private static final int CANCEL_THREADS = 2;
+    private static final int MAX_RETRIES = 8;
+    private static final long RETRY_BASE_MILLIS = 5000;
+    private static final long RETRY_MAX_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+    private final AdoptionOrderMapper adoptionOrderMapper;
+    private final IAdoptionOrderService adoptionOrderService;
+    private final ExecutorService cancelExecutor;
+    private final TimingWheel timingWheel;
+
+    private final Map<Long, TimingWheel.Timeout> timeouts = new ConcurrentHashMap<>();
+
+    @Value("${ifarm.order.payment-timeout-minutes:30}")
+    private int paymentTimeoutMinutes;
+
+    public OrderTimeoutServiceImpl(AdoptionOrderMapper adoptionOrderMapper,
+                                   @Lazy IAdoptionOrderService adoptionOrderService) {
+        this.adoptionOrderMapper = adoptionOrderMapper;
+        this.adoptionOrderService = adoptionOrderService;
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.cancelExecutor = new ThreadPoolExecutor(CANCEL_THREADS, CANCEL_THREADS, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "order-timeout-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.timingWheel = new TimingWheel("order-timeout", TICK_MILLIS, WHEEL_SIZE, cancelExecutor);
+    }
+
+    @Override
+    public void register(Long orderId, LocalDateTime createTime) {
+        if (orderId == null) {
+            return;
+        }
+
+        LocalDateTime created = createTime != null ? createTime : LocalDateTime.now();
+        long deadline = created.plusMinutes(paymentTimeoutMinutes).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        TransactionUtils.afterCommit(() -> schedule(orderId, deadline));
+    }
+
+    @Override
+    public void unregister(Long orderId) {
+        if (orderId == null) {
+            return;
+        }
+
+        TransactionUtils.afterCommit(() -> {
+            TimingWheel.Timeout timeout = timeouts.remove(orderId);
+            if (timeout != null) {
+                timeout.cancel();
+            }
+        });
+    }
+
+    @Override
+    public int recover() {
+        long start = System.currentTimeMillis();
+        List<AdoptionOrder> pendingOrders = adoptionOrderMapper.selectPendingDeadlines();
+        ZoneId zone = ZoneId.systemDefault();
+        for (AdoptionOrder order : pendingOrders) {
+            LocalDateTime created = order.getCreateTime() != null ? order.getCreateTime() : LocalDateTime.now();
+            schedule(order.getId(), created.plusMinutes(paymentTimeoutMinutes).atZone(zone).toInstant().toEpochMilli());
+        }
+
+        log.info("订单支付超时任务恢复完成: {}个待支付订单, 耗时{}ms", pendingOrders.size(), System.currentTimeMillis() - start);
+        return pendingOrders.size();
+    }
+
+    @Override
+    public int getPendingCount() {
+        return timingWheel.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        timingWheel.stop();
+        cancelExecutor.shutdown();
+    }
+
+    private void schedule(Long orderId, long deadline) {
+        schedule(orderId, deadline, 0);
+    }
+
+    private void schedule(Long orderId, long deadline, int attempt) {
+        TimingWheel.Timeout timeout = timingWheel.schedule(deadline, () -> fire(orderId, attempt));
+        TimingWheel.Timeout previous = timeouts.put(orderId, timeout);
+        if (previous != null && previous != timeout) {
+            previous.cancel();
+        }
+        // 已到期的任务可能在登记前就已执行
+        if (timeout.isDone()) {
+            timeouts.remove(orderId, timeout);
+        }
+    }
+
+    private void fire(Long orderId, int attempt) {
+        TimingWheel.Timeout timeout = timeouts.get(orderId);
+        if (timeout != null && timeout.isDone()) {
+            timeouts.remove(orderId, timeout);
+        }
+        try {
+            if (adoptionOrderService.cancelTimeoutOrder(orderId)) {
+                log.info("订单支付超时已取消: orderId={}", orderId);
+            }
+        } catch (Exception e) {
+            if (attempt >= MAX_RETRIES) {
+                log.error("取消支付超时订单失败且已重试{}次，订单仍占用库存，需人工处理: orderId={}", MAX_RETRIES, orderId, e);
+                return;
+            }
+            long backoff = Math.min(RETRY_BASE_MILLIS << attempt, RETRY_MAX_MILLIS);
+            log.warn("取消支付超时订单失败，{}ms后第{}次重试: orderId={}", backoff, attempt + 1, orderId, e);
+            schedule(orderId, System.currentTimeMillis() + backoff, attempt + 1);
+        }
+    }
+}
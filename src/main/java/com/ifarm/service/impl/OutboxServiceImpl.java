@@ -0,0 +1,341 @@
+package com.ifarm.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ifarm.common.exception.BusinessException;
+import com.ifarm.common.util.TransactionUtils;
+import com.ifarm.entity.OutboxEvent;
+import com.ifarm.mapper.OutboxEventMapper;
+import com.ifarm.service.IOutboxService;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * 事务发件箱服务实现类
+ *
+ * 写入：事件与业务数据在同一事务插入 outbox_events，事务提交后唤醒投递线程。
+ * 投递：投递线程被唤醒或每隔一段时间查询一批可投递事件（同一聚合只取最早的待投递事件），
+ * 每个事件在独立事务中先条件更新为已投递再执行处理器，处理器失败时整体回滚并按指数退避安排重试，
+ * 因此处理器的数据库操作随投递恰好提交一次，多实例并发投递时由条件更新的行锁保证只有一方生效。
+ *
+ * @author ifarm
+ * @since 2025-01-19
+ */
+@Slf4j
+@Service
+public class OutboxServiceImpl implements IOutboxService {
+
+    private static final int STATUS_PENDING = 1;
+    private static final int STATUS_FAILED = 3;
+
+    /**
+     * 重试间隔上限（毫秒）
+     */
+    private static final long MAX_RETRY_DELAY_MILLIS = 10 * 60 * 1000L;
+
+    private static final int PURGE_BATCH_SIZE = 1000;
+
+    private final OutboxEventMapper outboxEventMapper;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate deliveryTransaction;
+
+    private final int batchSize;
+    private final int maxRetry;
+    private final long retryIntervalMillis;
+    private final long pollIntervalMillis;
+    private final int retentionDays;
+
+    /**
+     * 事件类型 -> 处理器（按注册顺序执行）
+     */
+    private final Map<String, List<HandlerRegistration<?>>> handlers = new ConcurrentHashMap<>();
+
+    /**
+     * 投递线程唤醒信号，最多保留一个许可
+     */
+    private final Semaphore wakeUp = new Semaphore(0);
+    private Thread relayThread;
+    private volatile boolean running = true;
+
+    private final LongAdder published = new LongAdder();
+    private final LongAdder delivered = new LongAdder();
+    private final LongAdder retried = new LongAdder();
+    private final LongAdder abandoned = new LongAdder();
+
+    public OutboxServiceImpl(OutboxEventMapper outboxEventMapper,
+                             ObjectMapper objectMapper,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${ifarm.outbox.batch-size:100}") int batchSize,
+                             @Value("${ifarm.outbox.max-retry:10}") int maxRetry,
+                             @Value("${ifarm.outbox.retry-interval:5000}") long retryIntervalMillis,
+                             @Value("${ifarm.outbox.poll-interval:1000}") long pollIntervalMillis,
+                             @Value("${ifarm.outbox.retention-days:7}") int retentionDays) {
+        this.outboxEventMapper = outboxEventMapper;
+        this.objectMapper = objectMapper;
+        // 每个事件独立提交，不加入调用方事务
+        this.deliveryTransaction = new TransactionTemplate(transactionManager);
+        this.deliveryTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.batchSize = batchSize;
+        this.maxRetry = maxRetry;
+        this.retryIntervalMillis = retryIntervalMillis;
+        this.pollIntervalMillis = pollIntervalMillis;
+        this.retentionDays = retentionDays;
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY, rollbackFor = Exception.class)
+    public void publish(String aggregateType, Long aggregateId, String eventType, Object payload) {
+        if (!StringUtils.hasText(aggregateType) || aggregateId == null || !StringUtils.hasText(eventType) || payload == null) {
+            throw new BusinessException("参数不能为空");
+        }
+
+        try {
+            OutboxEvent event = new OutboxEvent();
+            event.setAggregateType(aggregateType);
+            event.setAggregateId(aggregateId);
+            event.setEventType(eventType);
+            event.setPayload(objectMapper.writeValueAsString(payload));
+            event.setEventStatus(STATUS_PENDING);
+            event.setRetryCount(0);
+            event.setNextRetryTime(LocalDateTime.now());
+            if (outboxEventMapper.insert(event) <= 0) {
+                throw new BusinessException("保存发件箱事件失败");
+            }
+            published.increment();
+            TransactionUtils.afterCommit(this::signal);
+        } catch (BusinessException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("保存发件箱事件失败: aggregate={}:{}, eventType={}", aggregateType, aggregateId, eventType, e);
+            throw new BusinessException("保存发件箱事件失败");
+        }
+    }
+
+    @Override
+    public <T> void registerHandler(String eventType, Class<T> payloadType, Consumer<T> handler) {
+        if (!StringUtils.hasText(eventType) || payloadType == null || handler == null) {
+            throw new BusinessException("参数不能为空");
+        }
+        handlers.computeIfAbsent(eventType, type -> new CopyOnWriteArrayList<>())
+                .add(new HandlerRegistration<>(payloadType, handler));
+        log.info("注册发件箱事件处理器: eventType={}, payloadType={}", eventType, payloadType.getSimpleName());
+    }
+
+    @Override
+    public synchronized void start() {
+        if (relayThread != null) {
+            return;
+        }
+        relayThread = new Thread(this::relay, "outbox-relay");
+        relayThread.setDaemon(true);
+        relayThread.start();
+        log.info("发件箱投递线程已启动，已注册事件类型: {}", handlers.keySet());
+    }
+
+    @Override
+    public synchronized int relayPending() {
+        int count = 0;
+        while (true) {
+            List<OutboxEvent> events = outboxEventMapper.selectDeliverable(LocalDateTime.now(), batchSize);
+            int round = 0;
+            for (OutboxEvent event : events) {
+                if (deliver(event)) {
+                    round++;
+                }
+            }
+            count += round;
+            // 不满一批说明已投递完；整批都未投递成功时等下一轮，避免数据库异常时空转
+            if (events.size() < batchSize || round == 0) {
+                return count;
+            }
+        }
+    }
+
+    @Override
+    public boolean retryFailed(Long eventId) {
+        if (eventId == null) {
+            throw new BusinessException("事件ID不能为空");
+        }
+
+        log.info("重新投递发件箱事件: {}", eventId);
+        try {
+            boolean result = outboxEventMapper.resetFailed(eventId) > 0;
+            if (!result) {
+                throw new BusinessException("事件不存在或不是投递失败状态");
+            }
+            signal();
+            return true;
+        } catch (BusinessException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("重新投递发件箱事件失败", e);
+            throw new BusinessException("重新投递发件箱事件失败");
+        }
+    }
+
+    @Override
+    public Object getStatistics() {
+        Map<String, Object> statistics = new HashMap<>();
+        statistics.put("published", published.sum());
+        statistics.put("delivered", delivered.sum());
+        statistics.put("retried", retried.sum());
+        statistics.put("abandoned", abandoned.sum());
+        statistics.put("pending", outboxEventMapper.countByStatus(STATUS_PENDING));
+        statistics.put("failed", outboxEventMapper.countByStatus(STATUS_FAILED));
+        statistics.put("eventTypes", handlers.keySet());
+        return statistics;
+    }
+
+    /**
+     * 定时清理已投递的历史事件
+     */
+    @Scheduled(fixedDelayString = "${ifarm.outbox.purge-interval:3600000}")
+    public void scheduledPurge() {
+        try {
+            LocalDateTime before = LocalDateTime.now().minusDays(retentionDays);
+            int total = 0;
+            int deleted;
+            do {
+                deleted = outboxEventMapper.deleteDelivered(before, PURGE_BATCH_SIZE);
+                total += deleted;
+            } while (deleted == PURGE_BATCH_SIZE);
+            if (total > 0) {
+                log.info("清理已投递的发件箱事件{}条", total);
+            }
+        } catch (Exception e) {
+            log.error("清理发件箱事件失败", e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // 未投递的事件已落库，重启后继续投递
+        running = false;
+        if (relayThread != null) {
+            relayThread.interrupt();
+        }
+    }
+
+    private void signal() {
+        if (wakeUp.availablePermits() == 0) {
+            wakeUp.release();
+        }
+    }
+
+    private void relay() {
+        while (running) {
+            try {
+                relayPending();
+                if (wakeUp.tryAcquire(pollIntervalMillis, TimeUnit.MILLISECONDS)) {
+                    wakeUp.drainPermits();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("投递发件箱事件失败", e);
+                sleepQuietly();
+            }
+        }
+    }
+
+    /**
+     * 在独立事务中标记事件已投递并执行处理器
+     *
+     * @return 是否由本次投递完成
+     */
+    private boolean deliver(OutboxEvent event) {
+        List<HandlerRegistration<?>> registrations = handlers.get(event.getEventType());
+        if (registrations == null || registrations.isEmpty()) {
+            recordFailure(event, "未注册事件处理器");
+            return false;
+        }
+
+        try {
+            Boolean result = deliveryTransaction.execute(status -> {
+                if (outboxEventMapper.markDelivered(event.getId(), LocalDateTime.now()) == 0) {
+                    // 已由其他投递线程完成
+                    return false;
+                }
+                for (HandlerRegistration<?> registration : registrations) {
+                    registration.handle(objectMapper, event.getPayload());
+                }
+                return true;
+            });
+            if (Boolean.TRUE.equals(result)) {
+                delivered.increment();
+                return true;
+            }
+            return false;
+        } catch (Exception e) {
+            recordFailure(event, e.getMessage());
+            return false;
+        }
+    }
+
+    private void recordFailure(OutboxEvent event, String reason) {
+        String lastError = reason == null ? "投递失败" : reason.length() > 200 ? reason.substring(0, 200) : reason;
+        int retryCount = event.getRetryCount() == null ? 0 : event.getRetryCount();
+        long delay = Math.min(retryIntervalMillis << Math.min(retryCount, 16), MAX_RETRY_DELAY_MILLIS);
+        try {
+            outboxEventMapper.recordFailure(event.getId(), lastError,
+                    LocalDateTime.now().plusNanos(TimeUnit.MILLISECONDS.toNanos(delay)), maxRetry);
+        } catch (Exception e) {
+            // 记录失败本身出错时事件保持待投递，下一轮重新投递
+            log.error("记录发件箱事件投递失败出错: id={}", event.getId(), e);
+            return;
+        }
+        if (retryCount + 1 >= maxRetry) {
+            abandoned.increment();
+            log.error("发件箱事件投递失败次数超过上限，需人工处理: id={}, aggregate={}:{}, eventType={} - {}",
+                    event.getId(), event.getAggregateType(), event.getAggregateId(), event.getEventType(), lastError);
+        } else {
+            retried.increment();
+            log.warn("发件箱事件投递失败，{}毫秒后重试: id={}, eventType={} - {}",
+                    delay, event.getId(), event.getEventType(), lastError);
+        }
+    }
+
+    private void sleepQuietly() {
+        try {
+            Thread.sleep(pollIntervalMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 事件处理器注册信息
+     */
+    private record HandlerRegistration<T>(Class<T> payloadType, Consumer<T> handler) {
+
+        void handle(ObjectMapper objectMapper, String payload) {
+            T value;
+            try {
+                value = objectMapper.readValue(payload, payloadType);
+            } catch (Exception e) {
+                throw new IllegalStateException("事件内容解析失败: " + e.getMessage(), e);
+            }
+            handler.accept(value);
+        }
+    }
+}
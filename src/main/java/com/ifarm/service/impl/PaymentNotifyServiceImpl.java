@@ -0,0 +1,374 @@
+package com.ifarm.service.impl;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.ifarm.common.exception.BusinessException;
+import com.ifarm.dto.payment.PaymentNotifyDTO;
+import com.ifarm.entity.AdoptionOrder;
+import com.ifarm.entity.PaymentNotification;
+import com.ifarm.mapper.AdoptionOrderMapper;
+import com.ifarm.mapper.PaymentNotificationMapper;
+import com.ifarm.service.IAdoptionOrderService;
+import com.ifarm.service.IPaymentNotifyService;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * 支付通知服务实现类
+ *
+ * 接收：验签 → 内存去重（近期支付流水号）→ 以支付流水号唯一键落库（INSERT IGNORE）→ 放入有界队列后立即应答。
+ * 落库后即视为已受理，队列已满的通知留在库中由定时任务补提交。
+ * 处理：工作线程每次取出一批通知，一次查询订单，校验后按项目分组，
+ * 每个项目在一个事务中条件更新订单状态、一次分配单元、一次写入认养记录；
+ * 整组失败时逐个订单重试，单个失败的通知记录失败次数后由定时任务重试。
+ *
+ * @author ifarm
+ * @since 2025-01-19
+ */
+@Slf4j
+@Service
+public class PaymentNotifyServiceImpl implements IPaymentNotifyService {
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+
+    /**
+     * 内存去重保留时长（毫秒），更早的重复通知由数据库唯一键拦截
+     */
+    private static final long DEDUPE_WINDOW_MILLIS = 10 * 60 * 1000L;
+
+    /**
+     * 落库后超过该时长仍未处理的通知由定时任务补提交（秒）
+     */
+    private static final long RESUBMIT_AFTER_SECONDS = 30;
+
+    private static final int RESUBMIT_BATCH_SIZE = 500;
+
+    private final PaymentNotificationMapper paymentNotificationMapper;
+    private final AdoptionOrderMapper adoptionOrderMapper;
+    private final IAdoptionOrderService adoptionOrderService;
+
+    private final String notifySecret;
+    private final long signatureWindowMillis;
+    private final int batchSize;
+    private final int maxRetry;
+
+    private final BlockingQueue<PaymentNotification> queue;
+    private final List<Thread> workers = new ArrayList<>();
+    private volatile boolean running = true;
+
+    /**
+     * 近期受理的支付流水号 -> 受理时间
+     */
+    private final Map<String, Long> recentPaymentNos = new ConcurrentHashMap<>();
+
+    /**
+     * 已在队列中或正在处理的通知ID，补提交时跳过
+     */
+    private final Set<Long> inflight = ConcurrentHashMap.newKeySet();
+
+    private final LongAdder received = new LongAdder();
+    private final LongAdder duplicates = new LongAdder();
+    private final LongAdder processed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder overflow = new LongAdder();
+
+    public PaymentNotifyServiceImpl(PaymentNotificationMapper paymentNotificationMapper,
+                                    AdoptionOrderMapper adoptionOrderMapper,
+                                    IAdoptionOrderService adoptionOrderService,
+                                    @Value("${ifarm.payment.notify-secret:}") String notifySecret,
+                                    @Value("${ifarm.payment.signature-window-seconds:300}") long signatureWindowSeconds,
+                                    @Value("${ifarm.payment.queue-capacity:10000}") int queueCapacity,
+                                    @Value("${ifarm.payment.worker-threads:4}") int workerThreads,
+                                    @Value("${ifarm.payment.batch-size:50}") int batchSize,
+                                    @Value("${ifarm.payment.max-retry:5}") int maxRetry) {
+        this.paymentNotificationMapper = paymentNotificationMapper;
+        this.adoptionOrderMapper = adoptionOrderMapper;
+        this.adoptionOrderService = adoptionOrderService;
+        this.notifySecret = notifySecret;
+        this.signatureWindowMillis = signatureWindowSeconds * 1000;
+        this.batchSize = batchSize;
+        this.maxRetry = maxRetry;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+
+        if (!StringUtils.hasText(notifySecret)) {
+            log.warn("未配置ifarm.payment.notify-secret，所有支付通知将被拒绝");
+        }
+        for (int i = 0; i < workerThreads; i++) {
+            Thread worker = new Thread(this::work, "payment-notify-" + (i + 1));
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+    }
+
+    @Override
+    public boolean receive(PaymentNotifyDTO notify) {
+        if (notify == null) {
+            throw new BusinessException("参数不能为空");
+        }
+        verifySignature(notify);
+
+        String paymentNo = notify.getPaymentNo();
+        if (recentPaymentNos.putIfAbsent(paymentNo, System.currentTimeMillis()) != null) {
+            duplicates.increment();
+            log.debug("重复的支付通知（内存去重）: paymentNo={}", paymentNo);
+            return false;
+        }
+
+        try {
+            PaymentNotification notification = new PaymentNotification();
+            notification.setPaymentNo(paymentNo);
+            notification.setOrderNo(notify.getOrderNo());
+            notification.setAmount(notify.getAmount());
+            notification.setPaymentMethod(notify.getPaymentMethod());
+            if (paymentNotificationMapper.insertIgnore(notification) == 0) {
+                duplicates.increment();
+                log.debug("重复的支付通知（数据库去重）: paymentNo={}", paymentNo);
+                return false;
+            }
+
+            received.increment();
+            log.info("受理支付通知: orderNo={}, paymentNo={}, amount={}", notify.getOrderNo(), paymentNo, notify.getAmount());
+            enqueue(notification);
+            return true;
+        } catch (Exception e) {
+            // 未落库，允许支付平台重试
+            recentPaymentNos.remove(paymentNo);
+            log.error("保存支付通知失败: paymentNo={}", paymentNo, e);
+            throw new BusinessException("保存支付通知失败");
+        }
+    }
+
+    /**
+     * 定时补提交待处理的通知
+     */
+    @Scheduled(initialDelayString = "${ifarm.payment.retry-interval:30000}",
+            fixedDelayString = "${ifarm.payment.retry-interval:30000}")
+    public void scheduledResubmit() {
+        try {
+            resubmitPending();
+        } catch (Exception e) {
+            log.error("补提交支付通知失败", e);
+        }
+    }
+
+    @Override
+    public int resubmitPending() {
+        long expireBefore = System.currentTimeMillis() - DEDUPE_WINDOW_MILLIS;
+        recentPaymentNos.values().removeIf(time -> time < expireBefore);
+
+        List<PaymentNotification> pending = paymentNotificationMapper.selectPending(
+                LocalDateTime.now().minusSeconds(RESUBMIT_AFTER_SECONDS), maxRetry, RESUBMIT_BATCH_SIZE);
+        int submitted = 0;
+        for (PaymentNotification notification : pending) {
+            if (inflight.contains(notification.getId())) {
+                continue;
+            }
+            if (!enqueue(notification)) {
+                break;
+            }
+            submitted++;
+        }
+        if (submitted > 0) {
+            log.info("补提交支付通知{}条", submitted);
+        }
+        return submitted;
+    }
+
+    @Override
+    public Object getStatistics() {
+        Map<String, Object> statistics = new HashMap<>();
+        statistics.put("received", received.sum());
+        statistics.put("duplicates", duplicates.sum());
+        statistics.put("processed", processed.sum());
+        statistics.put("failed", failed.sum());
+        statistics.put("overflow", overflow.sum());
+        statistics.put("queueSize", queue.size());
+        return statistics;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // 队列中未处理的通知已落库，重启后由定时任务补提交
+        running = false;
+        workers.forEach(Thread::interrupt);
+    }
+
+    private void verifySignature(PaymentNotifyDTO notify) {
+        if (!StringUtils.hasText(notifySecret)) {
+            throw new BusinessException("支付通知签名验证失败");
+        }
+        if (notify.getTimestamp() == null
+                || Math.abs(System.currentTimeMillis() - notify.getTimestamp()) > signatureWindowMillis) {
+            throw new BusinessException("支付通知已过期");
+        }
+
+        String content = notify.getOrderNo() + "|" + notify.getPaymentNo() + "|"
+                + notify.getAmount().setScale(2, RoundingMode.HALF_UP).toPlainString() + "|"
+                + notify.getPaymentMethod() + "|" + notify.getTimestamp();
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(new SecretKeySpec(notifySecret.getBytes(StandardCharsets.UTF_8), HMAC_ALGORITHM));
+            byte[] expected = HexFormat.of().formatHex(mac.doFinal(content.getBytes(StandardCharsets.UTF_8)))
+                    .getBytes(StandardCharsets.US_ASCII);
+            byte[] actual = notify.getSign().toLowerCase().getBytes(StandardCharsets.US_ASCII);
+            if (MessageDigest.isEqual(expected, actual)) {
+                return;
+            }
+        } catch (Exception e) {
+            log.error("支付通知验签失败", e);
+        }
+        log.warn("支付通知签名错误: orderNo={}, paymentNo={}", notify.getOrderNo(), notify.getPaymentNo());
+        throw new BusinessException("支付通知签名验证失败");
+    }
+
+    private boolean enqueue(PaymentNotification notification) {
+        inflight.add(notification.getId());
+        if (!queue.offer(notification)) {
+            inflight.remove(notification.getId());
+            overflow.increment();
+            log.warn("支付通知队列已满，等待补提交: paymentNo={}", notification.getPaymentNo());
+            return false;
+        }
+        return true;
+    }
+
+    private void work() {
+        List<PaymentNotification> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                PaymentNotification first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                process(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("处理支付通知失败", e);
+            } finally {
+                batch.forEach(notification -> inflight.remove(notification.getId()));
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * 处理一批通知：一次查询订单，按项目分组批量支付
+     */
+    private void process(List<PaymentNotification> batch) {
+        Set<String> orderNos = batch.stream().map(PaymentNotification::getOrderNo).collect(Collectors.toSet());
+        Map<String, AdoptionOrder> ordersByNo = adoptionOrderMapper.selectList(
+                        new LambdaQueryWrapper<AdoptionOrder>().in(AdoptionOrder::getOrderNo, orderNos))
+                .stream().collect(Collectors.toMap(AdoptionOrder::getOrderNo, order -> order, (a, b) -> a));
+
+        Map<Long, Map<PaymentNotification, AdoptionOrder>> byProject = new LinkedHashMap<>();
+        Set<String> claimedOrderNos = new HashSet<>();
+        for (PaymentNotification notification : batch) {
+            AdoptionOrder order = ordersByNo.get(notification.getOrderNo());
+            if (order == null) {
+                finish(notification, 3, "订单不存在");
+                continue;
+            }
+            if (Objects.equals(order.getOrderStatus(), 2) && notification.getPaymentNo().equals(order.getPaymentNo())) {
+                // 已由本流水支付
+                finish(notification, 2, null);
+                continue;
+            }
+            if (!Objects.equals(order.getOrderStatus(), 1)) {
+                log.error("支付通知对应的订单不是待支付状态，需人工退款: orderNo={}, paymentNo={}, orderStatus={}",
+                        order.getOrderNo(), notification.getPaymentNo(), order.getOrderStatus());
+                finish(notification, 3, "订单状态不允许支付: " + order.getOrderStatus());
+                continue;
+            }
+            if (order.getActualAmount().compareTo(notification.getAmount()) != 0) {
+                log.error("支付金额不匹配: orderNo={}, 订单金额: {}, 支付金额: {}",
+                        order.getOrderNo(), order.getActualAmount(), notification.getAmount());
+                finish(notification, 3, "支付金额不匹配");
+                continue;
+            }
+            if (!claimedOrderNos.add(order.getOrderNo())) {
+                // 同一订单在本批中有另一笔支付流水，下次重试时按订单状态处理
+                retryLater(notification, "同一订单存在多笔支付通知");
+                continue;
+            }
+
+            AdoptionOrder paying = new AdoptionOrder();
+            paying.setId(order.getId());
+            paying.setUserId(order.getUserId());
+            paying.setProjectId(order.getProjectId());
+            paying.setUnitCount(order.getUnitCount());
+            paying.setActualAmount(order.getActualAmount());
+            paying.setPaymentMethod(notification.getPaymentMethod());
+            paying.setPaymentNo(notification.getPaymentNo());
+            byProject.computeIfAbsent(order.getProjectId(), id -> new LinkedHashMap<>()).put(notification, paying);
+        }
+
+        byProject.forEach(this::payProject);
+    }
+
+    private void payProject(Long projectId, Map<PaymentNotification, AdoptionOrder> group) {
+        try {
+            List<Long> paidIds = adoptionOrderService.batchPayOrders(projectId, new ArrayList<>(group.values()));
+            group.forEach((notification, order) -> {
+                if (paidIds.contains(order.getId())) {
+                    finish(notification, 2, null);
+                } else {
+                    // 读取订单后状态已变化，下次重试时按最新状态处理
+                    retryLater(notification, "订单状态已变更");
+                }
+            });
+        } catch (Exception e) {
+            if (group.size() == 1) {
+                group.keySet().forEach(notification -> retryLater(notification, e.getMessage()));
+                return;
+            }
+            // 整组失败时逐个订单处理，隔离出错的订单
+            log.warn("项目批量支付失败，逐个订单重试: projectId={}, 订单数={} - {}", projectId, group.size(), e.getMessage());
+            group.forEach((notification, order) -> payProject(projectId, Map.of(notification, order)));
+        }
+    }
+
+    private void finish(PaymentNotification notification, int status, String reason) {
+        paymentNotificationMapper.markDone(notification.getId(), status, reason);
+        if (status == 2) {
+            processed.increment();
+        } else {
+            failed.increment();
+        }
+    }
+
+    private void retryLater(PaymentNotification notification, String reason) {
+        String failReason = reason == null ? "处理失败" : reason.length() > 200 ? reason.substring(0, 200) : reason;
+        paymentNotificationMapper.recordFailure(notification.getId(), failReason, maxRetry);
+        log.warn("支付通知处理失败，稍后重试: paymentNo={} - {}", notification.getPaymentNo(), failReason);
+    }
+}
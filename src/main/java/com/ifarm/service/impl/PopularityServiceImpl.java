@@ -0,0 +1,484 @@
+package com.ifarm.service.impl;
+
+import com.ifarm.common.util.TransactionUtils;
+import com.ifarm.entity.PopularityStat;
+import com.ifarm.mapper.AdoptionProjectMapper;
+import com.ifarm.mapper.PopularityStatMapper;
+import com.ifarm.service.IPopularityService;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 热度服务实现类
+ *
+ * 每个对象持有一个按小时分桶的环形计数器（168个桶覆盖7天），计数单元为LongAdder，
+ * 浏览和认养请求只做一次无锁累加；窗口热度为窗口内各小时的浏览数加认养单元数乘以权重。
+ * 热门榜单由定时任务重新计算后整体替换，读取时不做任何计算；各小时统计自上次写入后的增量定时累加到数据库，
+ * 多个节点的计数在数据库中合并，应用重启后从数据库恢复最近7天的统计（恢复的计数视为已写入）。
+ *
+ * @author ifarm
+ * @since 2025-01-19
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PopularityServiceImpl implements IPopularityService {
+
+    /**
+     * 环形计数器的桶数（7天 × 24小时）
+     */
+    private static final int SLOTS = Window.WEEK.getHours();
+
+    /**
+     * 一个认养单元折算的浏览次数
+     */
+    private static final long ADOPTION_WEIGHT = 10;
+
+    private static final long MILLIS_PER_HOUR = 3_600_000L;
+
+    /**
+     * 每条INSERT写入的统计行数
+     */
+    private static final int FLUSH_CHUNK_SIZE = 500;
+
+    private final PopularityStatMapper popularityStatMapper;
+    private final AdoptionProjectMapper adoptionProjectMapper;
+
+    @Value("${ifarm.popularity.ranking-size:100}")
+    private int rankingSize;
+
+    private final Map<ItemType, Map<Long, ItemCounter>> counters = byType(ConcurrentHashMap::new);
+
+    /**
+     * 上次写库后有变化的对象
+     */
+    private final Map<ItemType, Set<Long>> dirtyItems = byType(ConcurrentHashMap::newKeySet);
+
+    /**
+     * 项目所属的作物和农场：[cropId, farmId]
+     */
+    private final Map<Long, Long[]> projectOwners = new ConcurrentHashMap<>();
+
+    private volatile Map<ItemType, Map<Window, List<Long>>> rankings = Collections.emptyMap();
+
+    @Override
+    public void recordView(ItemType type, Long itemId) {
+        if (type == null || itemId == null) {
+            return;
+        }
+        increment(type, itemId, currentHour(), false, 1);
+    }
+
+    @Override
+    public void recordProjectView(Long projectId) {
+        if (projectId == null) {
+            return;
+        }
+
+        try {
+            long hour = currentHour();
+            increment(ItemType.PROJECT, projectId, hour, false, 1);
+            Long[] owner = resolveOwner(projectId);
+            if (owner != null) {
+                increment(ItemType.CROP, owner[0], hour, false, 1);
+                increment(ItemType.FARM, owner[1], hour, false, 1);
+            }
+        } catch (Exception e) {
+            // 热度统计失败不影响业务请求
+            log.warn("记录项目浏览失败: projectId={} - {}", projectId, e.getMessage());
+        }
+    }
+
+    @Override
+    public void recordProjectAdoption(Long projectId, int unitCount) {
+        if (projectId == null || unitCount <= 0) {
+            return;
+        }
+
+        TransactionUtils.afterCommit(() -> {
+            try {
+                long hour = currentHour();
+                increment(ItemType.PROJECT, projectId, hour, true, unitCount);
+                Long[] owner = resolveOwner(projectId);
+                if (owner != null) {
+                    increment(ItemType.CROP, owner[0], hour, true, unitCount);
+                    increment(ItemType.FARM, owner[1], hour, true, unitCount);
+                }
+            } catch (Exception e) {
+                log.warn("记录项目认养失败: projectId={} - {}", projectId, e.getMessage());
+            }
+        });
+    }
+
+    @Override
+    public List<Long> getPopularIds(ItemType type, Window window, int limit) {
+        if (type == null || window == null || limit <= 0) {
+            return Collections.emptyList();
+        }
+
+        Map<Window, List<Long>> byWindow = rankings.get(type);
+        List<Long> ranking = byWindow == null ? null : byWindow.get(window);
+        if (ranking == null || ranking.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return ranking.size() <= limit ? ranking : ranking.subList(0, limit);
+    }
+
+    @Override
+    public long getScore(ItemType type, Long itemId, Window window) {
+        if (type == null || itemId == null || window == null) {
+            return 0;
+        }
+
+        ItemCounter counter = counters.get(type).get(itemId);
+        return counter == null ? 0 : counter.score(window, currentHour());
+    }
+
+    /**
+     * 定时刷新热门榜单
+     */
+    @Scheduled(initialDelayString = "${ifarm.popularity.ranking-interval:30000}",
+            fixedDelayString = "${ifarm.popularity.ranking-interval:30000}")
+    public void scheduledRefresh() {
+        try {
+            refreshRankings();
+        } catch (Exception e) {
+            log.error("刷新热门榜单失败", e);
+        }
+    }
+
+    /**
+     * 定时写入小时统计
+     */
+    @Scheduled(initialDelayString = "${ifarm.popularity.flush-interval:300000}",
+            fixedDelayString = "${ifarm.popularity.flush-interval:300000}")
+    public void scheduledFlush() {
+        try {
+            flush();
+        } catch (Exception e) {
+            log.error("写入热度统计失败", e);
+        }
+    }
+
+    @Override
+    public void refreshRankings() {
+        long hour = currentHour();
+        Map<ItemType, Map<Window, List<Long>>> next = new EnumMap<>(ItemType.class);
+
+        for (ItemType type : ItemType.values()) {
+            Map<Long, ItemCounter> items = counters.get(type);
+            Set<Long> dirty = dirtyItems.get(type);
+            Map<Window, TopN> tops = new EnumMap<>(Window.class);
+            for (Window window : Window.values()) {
+                tops.put(window, new TopN(rankingSize));
+            }
+
+            Iterator<Map.Entry<Long, ItemCounter>> iterator = items.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<Long, ItemCounter> entry = iterator.next();
+                long weekScore = entry.getValue().score(Window.WEEK, hour);
+                if (weekScore == 0) {
+                    // 7天内无任何访问的对象不再占用内存
+                    if (!dirty.contains(entry.getKey())) {
+                        iterator.remove();
+                    }
+                    continue;
+                }
+                tops.get(Window.WEEK).offer(entry.getKey(), weekScore);
+                tops.get(Window.DAY).offer(entry.getKey(), entry.getValue().score(Window.DAY, hour));
+            }
+
+            Map<Window, List<Long>> byWindow = new EnumMap<>(Window.class);
+            tops.forEach((window, top) -> byWindow.put(window, top.toList()));
+            next.put(type, byWindow);
+        }
+
+        rankings = next;
+        log.debug("热门榜单已刷新: 项目{}个, 农场{}个, 作物{}个", counters.get(ItemType.PROJECT).size(),
+                counters.get(ItemType.FARM).size(), counters.get(ItemType.CROP).size());
+    }
+
+    @Override
+    public synchronized void flush() {
+        long hour = currentHour();
+        List<PopularityStat> stats = new ArrayList<>();
+        List<Runnable> marks = new ArrayList<>();
+        Map<ItemType, List<Long>> flushed = new EnumMap<>(ItemType.class);
+
+        for (ItemType type : ItemType.values()) {
+            Set<Long> dirty = dirtyItems.get(type);
+            List<Long> ids = new ArrayList<>(dirty);
+            if (ids.isEmpty()) {
+                continue;
+            }
+            ids.forEach(dirty::remove);
+            flushed.put(type, ids);
+
+            Map<Long, ItemCounter> items = counters.get(type);
+            for (Long itemId : ids) {
+                ItemCounter counter = items.get(itemId);
+                if (counter == null) {
+                    continue;
+                }
+                // 写库间隔远小于1小时，有变化的只可能是当前小时和上一小时
+                addStat(stats, marks, type, itemId, counter, hour - 1);
+                addStat(stats, marks, type, itemId, counter, hour);
+            }
+        }
+
+        if (stats.isEmpty()) {
+            return;
+        }
+
+        try {
+            for (int from = 0; from < stats.size(); from += FLUSH_CHUNK_SIZE) {
+                int to = Math.min(from + FLUSH_CHUNK_SIZE, stats.size());
+                popularityStatMapper.upsertBatch(stats.subList(from, to));
+                // 写入成功的增量记为已写入，失败的部分下次重新计算增量
+                marks.subList(from, to).forEach(Runnable::run);
+            }
+            int deleted = popularityStatMapper.deleteBeforeHour(hour - SLOTS + 1);
+            log.debug("热度统计已写入: {}行, 清理过期统计{}行", stats.size(), deleted);
+        } catch (Exception e) {
+            // 写库失败时保留变化标记，下次重试
+            flushed.forEach((type, ids) -> dirtyItems.get(type).addAll(ids));
+            throw e;
+        }
+    }
+
+    @Override
+    public synchronized void recover() {
+        long hour = currentHour();
+        List<PopularityStat> stats = popularityStatMapper.selectSinceHour(hour - SLOTS + 1);
+        for (PopularityStat stat : stats) {
+            ItemType type = ItemType.of(stat.getItemType());
+            if (type == null || stat.getItemId() == null || stat.getBucketHour() == null) {
+                continue;
+            }
+
+            // 累加而不是覆盖，保留恢复前已产生的计数
+            ItemCounter counter = counters.get(type).computeIfAbsent(stat.getItemId(), id -> new ItemCounter());
+            long views = stat.getViewCount() == null ? 0 : stat.getViewCount();
+            long adoptions = stat.getAdoptionCount() == null ? 0 : stat.getAdoptionCount();
+            counter.add(stat.getBucketHour(), false, views);
+            counter.add(stat.getBucketHour(), true, adoptions);
+            counter.addPersisted(stat.getBucketHour(), views, adoptions);
+        }
+        log.info("热度统计恢复完成，共{}行", stats.size());
+    }
+
+    /**
+     * 应用关闭前写入尚未保存的统计
+     */
+    @PreDestroy
+    public void flushOnShutdown() {
+        try {
+            flush();
+        } catch (Exception e) {
+            log.error("关闭前写入热度统计失败", e);
+        }
+    }
+
+    private void increment(ItemType type, Long itemId, long hour, boolean adoption, long delta) {
+        if (itemId == null) {
+            return;
+        }
+        counters.get(type).computeIfAbsent(itemId, id -> new ItemCounter()).add(hour, adoption, delta);
+        dirtyItems.get(type).add(itemId);
+    }
+
+    private Long[] resolveOwner(Long projectId) {
+        return projectOwners.computeIfAbsent(projectId, id -> {
+            Map<String, Object> row = adoptionProjectMapper.selectProjectOwner(id);
+            if (row == null) {
+                return null;
+            }
+            return new Long[]{toLong(row.get("crop_id")), toLong(row.get("farm_id"))};
+        });
+    }
+
+    private static void addStat(List<PopularityStat> stats, List<Runnable> marks, ItemType type, Long itemId,
+                                ItemCounter counter, long hour) {
+        long[] counts = counter.snapshot(hour);
+        if (counts == null) {
+            return;
+        }
+        long[] persisted = counter.persisted(hour);
+        long views = Math.max(0, counts[0] - persisted[0]);
+        long adoptions = Math.max(0, counts[1] - persisted[1]);
+        if (views == 0 && adoptions == 0) {
+            return;
+        }
+
+        PopularityStat stat = new PopularityStat();
+        stat.setItemType(type.getCode());
+        stat.setItemId(itemId);
+        stat.setBucketHour(hour);
+        stat.setViewCount(views);
+        stat.setAdoptionCount(adoptions);
+        stats.add(stat);
+        marks.add(() -> counter.addPersisted(hour, views, adoptions));
+    }
+
+    private static Long toLong(Object value) {
+        return value instanceof Number number ? number.longValue() : null;
+    }
+
+    private static long currentHour() {
+        return System.currentTimeMillis() / MILLIS_PER_HOUR;
+    }
+
+    private static <V> Map<ItemType, V> byType(Supplier<V> factory) {
+        Map<ItemType, V> map = new EnumMap<>(ItemType.class);
+        for (ItemType type : ItemType.values()) {
+            map.put(type, factory.get());
+        }
+        return map;
+    }
+
+    /**
+     * 单个对象的小时环形计数器
+     */
+    private static final class ItemCounter {
+
+        /**
+         * 每个桶当前对应的小时
+         */
+        private final AtomicLongArray hours = new AtomicLongArray(SLOTS);
+        private final LongAdder[] views = newAdders();
+        private final LongAdder[] adoptions = newAdders();
+
+        /**
+         * 每个桶已写入数据库的小时和计数（只在写库和恢复时访问，两者互斥）
+         */
+        private final long[] persistedHours = new long[SLOTS];
+        private final long[] persistedViews = new long[SLOTS];
+        private final long[] persistedAdoptions = new long[SLOTS];
+
+        void add(long hour, boolean adoption, long delta) {
+            int slot = (int) (hour % SLOTS);
+            long current = hours.get(slot);
+            if (current != hour) {
+                if (current > hour) {
+                    // 桶已被更新的小时占用，过期计数直接丢弃
+                    return;
+                }
+                // 跨小时时由一个线程清空旧桶；与清空并发的极少量累加可能丢失，对热度排序没有影响
+                if (hours.compareAndSet(slot, current, hour)) {
+                    views[slot].reset();
+                    adoptions[slot].reset();
+                }
+            }
+            (adoption ? adoptions : views)[slot].add(delta);
+        }
+
+        long score(Window window, long currentHour) {
+            long score = 0;
+            for (long hour = currentHour - window.getHours() + 1; hour <= currentHour; hour++) {
+                int slot = (int) (hour % SLOTS);
+                if (hours.get(slot) == hour) {
+                    score += views[slot].sum() + adoptions[slot].sum() * ADOPTION_WEIGHT;
+                }
+            }
+            return score;
+        }
+
+        /**
+         * @return [浏览数, 认养单元数]，该小时无计数时返回null
+         */
+        long[] snapshot(long hour) {
+            int slot = (int) (hour % SLOTS);
+            if (hours.get(slot) != hour) {
+                return null;
+            }
+            return new long[]{views[slot].sum(), adoptions[slot].sum()};
+        }
+
+        /**
+         * @return [已写入的浏览数, 已写入的认养单元数]
+         */
+        long[] persisted(long hour) {
+            int slot = (int) (hour % SLOTS);
+            if (persistedHours[slot] != hour) {
+                return new long[]{0, 0};
+            }
+            return new long[]{persistedViews[slot], persistedAdoptions[slot]};
+        }
+
+        void addPersisted(long hour, long views, long adoptions) {
+            int slot = (int) (hour % SLOTS);
+            if (persistedHours[slot] != hour) {
+                if (persistedHours[slot] > hour) {
+                    return;
+                }
+                persistedHours[slot] = hour;
+                persistedViews[slot] = 0;
+                persistedAdoptions[slot] = 0;
+            }
+            persistedViews[slot] += views;
+            persistedAdoptions[slot] += adoptions;
+        }
+
+        private static LongAdder[] newAdders() {
+            LongAdder[] adders = new LongAdder[SLOTS];
+            for (int i = 0; i < SLOTS; i++) {
+                adders[i] = new LongAdder();
+            }
+            return adders;
+        }
+    }
+
+    /**
+     * 有界小顶堆，保留分值最高的N个对象
+     */
+    private static final class TopN {
+
+        private record Entry(long id, long score) {
+        }
+
+        private final int capacity;
+        private final PriorityQueue<Entry> heap;
+
+        TopN(int capacity) {
+            this.capacity = Math.max(1, capacity);
+            this.heap = new PriorityQueue<>(this.capacity + 1, (a, b) -> Long.compare(a.score, b.score));
+        }
+
+        void offer(long id, long score) {
+            if (score <= 0) {
+                return;
+            }
+            if (heap.size() < capacity) {
+                heap.offer(new Entry(id, score));
+            } else if (heap.peek().score < score) {
+                heap.poll();
+                heap.offer(new Entry(id, score));
+            }
+        }
+
+        List<Long> toList() {
+            List<Entry> entries = new ArrayList<>(heap);
+            entries.sort((a, b) -> Long.compare(b.score, a.score));
+            List<Long> ids = new ArrayList<>(entries.size());
+            entries.forEach(entry -> ids.add(entry.id));
+            return Collections.unmodifiableList(ids);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.ifarm.service.impl;
+
+import com.ifarm.common.event.ProjectChangedEvent;
+import com.ifarm.common.exception.BusinessException;
+import com.ifarm.common.util.BeanUtils;
+import com.ifarm.mapper.AdoptionProjectMapper;
+import com.ifarm.mapper.ProjectUnitMapper;
+import com.ifarm.service.IProjectDetailViewService;
+import com.ifarm.service.IPopularityService;
+import com.ifarm.service.IProjectInventoryService;
+import com.ifarm.vo.adoptionproject.ProjectDetailView;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 项目详情读模型服务实现类
+ *
+ * 读模型首次访问时由一次联表查询组装并缓存，之后只在收到项目变更事件（事务提交后）时重新加载，
+ * 刷新期间读请求继续使用旧的读模型；认养中项目的可认养单元数取自库存计数器，不随下单刷新。
+ *
+ * @author ifarm
+ * @since 2025-01-19
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ProjectDetailViewServiceImpl implements IProjectDetailViewService {
+
+    private final AdoptionProjectMapper adoptionProjectMapper;
+    private final ProjectUnitMapper projectUnitMapper;
+    private final IProjectInventoryService projectInventoryService;
+    private final IPopularityService popularityService;
+
+    private final Map<Long, ProjectDetailView> views = new ConcurrentHashMap<>();
+
+    @Override
+    public ProjectDetailView getDetailView(Long projectId) {
+        if (projectId == null) {
+            throw new BusinessException("项目ID不能为空");
+        }
+
+        try {
+            ProjectDetailView cached = views.computeIfAbsent(projectId, this::loadView);
+            if (cached == null) {
+                throw new BusinessException("项目不存在");
+            }
+            popularityService.recordProjectView(projectId);
+
+            ProjectDetailView view = BeanUtils.copyProperties(cached, ProjectDetailView.class);
+            if (view.getProjectStatus() != null && view.getProjectStatus() == 2) {
+                view.setAvailableUnits(projectInventoryService.getAvailableUnits(projectId));
+            }
+            return view;
+        } catch (BusinessException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("获取项目详情读模型失败: projectId={}", projectId, e);
+            throw new BusinessException("获取项目详情失败");
+        }
+    }
+
+    @Override
+    public void refresh(Long projectId) {
+        if (projectId == null) {
+            return;
+        }
+
+        // 仅刷新已缓存的读模型；在映射外查询，刷新期间读请求仍可读到旧值
+        ProjectDetailView old = views.get(projectId);
+        if (old == null) {
+            return;
+        }
+        ProjectDetailView fresh = loadView(projectId);
+        if (fresh == null) {
+            views.remove(projectId, old);
+        } else if (!views.replace(projectId, old, fresh)) {
+            // 期间已被并发刷新或清除，无法判断哪次查询更新，清除后由下次读取重新加载
+            views.remove(projectId);
+        }
+    }
+
+    @Override
+    public void evict(Long projectId) {
+        if (projectId != null) {
+            views.remove(projectId);
+        }
+    }
+
+    /**
+     * 项目变更事件处理（事务提交后执行，无事务时立即执行）
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProjectChanged(ProjectChangedEvent event) {
+        if (views.isEmpty()) {
+            return;
+        }
+
+        try {
+            if (event.getChangeType() == ProjectChangedEvent.ChangeType.PROJECT_DELETED) {
+                evict(event.getProjectId());
+                return;
+            }
+
+            if (event.getProjectId() != null) {
+                refresh(event.getProjectId());
+                return;
+            }
+
+            if (!event.getUnitIds().isEmpty()) {
+                List<Long> projectIds = projectUnitMapper.selectProjectIdsByUnitIds(event.getUnitIds());
+                projectIds.forEach(this::refresh);
+            }
+        } catch (Exception e) {
+            // 刷新失败时丢弃读模型，下次访问重新加载
+            log.error("刷新项目详情读模型失败: event={}", event.getChangeType(), e);
+            if (event.getProjectId() != null) {
+                evict(event.getProjectId());
+            } else {
+                views.clear();
+            }
+        }
+    }
+
+    private ProjectDetailView loadView(Long projectId) {
+        ProjectDetailView view = adoptionProjectMapper.selectProjectDetailView(projectId);
+        if (view != null) {
+            view.setRefreshTime(LocalDateTime.now());
+            log.debug("加载项目详情读模型: projectId={}", projectId);
+        }
+        return view;
+    }
+}
@@ -0,0 +1,571 @@
+package com.ifarm.service.impl;
+
+import com.ifarm.common.event.ProjectChangedEvent;
+import com.ifarm.common.exception.BusinessException;
+import com.ifarm.dto.adoptionproject.ProjectFacetQueryDTO;
+import com.ifarm.entity.AdoptionProject;
+import com.ifarm.mapper.AdoptionProjectMapper;
+import com.ifarm.service.IProjectFacetService;
+import com.ifarm.vo.adoptionproject.ProjectFacetResultVO;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.util.StringUtils;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 项目筛选索引服务实现类
+ *
+ * 每个项目在索引中有一个按项目ID递增分配的文档号，每个维度取值对应一个文档号位图，
+ * 价格和面积按值排序存放在基本类型数组中，区间查询用二分查找定位后转为位图；
+ * 组合筛选即位图求交，维度计数为“除该维度外的筛选结果”与各取值位图的交集基数。
+ * 项目变更和库存变化时增量更新单个文档；农场地区、作物分类的变化由定时全量重建修正。
+ *
+ * @author ifarm
+ * @since 2025-01-19
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ProjectFacetServiceImpl implements IProjectFacetService {
+
+    private final AdoptionProjectMapper adoptionProjectMapper;
+
+    private final AtomicBoolean building = new AtomicBoolean();
+
+    /**
+     * 全量重建期间发生变化的项目，重建完成后重新加载
+     */
+    private final Set<Long> touchedDuringRebuild = ConcurrentHashMap.newKeySet();
+
+    private volatile boolean rebuilding;
+
+    private volatile FacetIndex index;
+
+    @Override
+    public ProjectFacetResultVO search(ProjectFacetQueryDTO query, boolean withFacets) {
+        if (query == null) {
+            throw new BusinessException("筛选条件不能为空");
+        }
+
+        try {
+            FacetIndex current = index;
+            if (current == null) {
+                rebuild();
+                current = index;
+                if (current == null) {
+                    throw new BusinessException("项目筛选索引构建中，请稍后重试");
+                }
+            }
+
+            long pageNo = query.getCurrent() == null || query.getCurrent() < 1 ? 1 : query.getCurrent();
+            long size = query.getSize() == null || query.getSize() < 1 ? 10 : query.getSize();
+
+            ProjectFacetResultVO result = new ProjectFacetResultVO();
+            List<Long> pageIds = new ArrayList<>((int) size);
+            current.search(query, (pageNo - 1) * size, (int) size, pageIds, result, withFacets);
+            result.setCurrent(pageNo);
+            result.setSize(size);
+            result.setRecords(loadInOrder(pageIds));
+            return result;
+        } catch (BusinessException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("筛选项目失败", e);
+            throw new BusinessException("筛选项目失败");
+        }
+    }
+
+    @Override
+    public void onAvailabilityChanged(Long projectId, int availableUnits) {
+        FacetIndex current = index;
+        if (projectId == null || current == null) {
+            return;
+        }
+
+        current.setAvailableUnits(projectId, availableUnits);
+        if (rebuilding) {
+            touchedDuringRebuild.add(projectId);
+        }
+    }
+
+    @Override
+    public void reload(Long projectId) {
+        FacetIndex current = index;
+        if (projectId == null || current == null) {
+            return;
+        }
+
+        if (rebuilding) {
+            touchedDuringRebuild.add(projectId);
+        }
+        List<Map<String, Object>> rows = adoptionProjectMapper.selectFacetRows(projectId);
+        if (rows.isEmpty()) {
+            current.remove(projectId);
+        } else {
+            current.upsert(toDoc(rows.get(0)));
+        }
+    }
+
+    /**
+     * 项目变更事件处理（事务提交后执行，无事务时立即执行）
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProjectChanged(ProjectChangedEvent event) {
+        ProjectChangedEvent.ChangeType type = event.getChangeType();
+        if (event.getProjectId() == null || (type != ProjectChangedEvent.ChangeType.PROJECT_UPDATED
+                && type != ProjectChangedEvent.ChangeType.PROJECT_DELETED)) {
+            return;
+        }
+
+        try {
+            reload(event.getProjectId());
+        } catch (Exception e) {
+            log.error("更新项目筛选索引失败: projectId={}", event.getProjectId(), e);
+        }
+    }
+
+    @Override
+    public boolean isReady() {
+        return index != null;
+    }
+
+    /**
+     * 定时全量重建索引
+     */
+    @Scheduled(initialDelayString = "${ifarm.facet.rebuild-interval:1800000}",
+            fixedDelayString = "${ifarm.facet.rebuild-interval:1800000}")
+    public void scheduledRebuild() {
+        try {
+            rebuild();
+        } catch (Exception e) {
+            log.error("重建项目筛选索引失败", e);
+        }
+    }
+
+    @Override
+    public void rebuild() {
+        if (!building.compareAndSet(false, true)) {
+            log.info("项目筛选索引正在构建中，跳过本次构建");
+            return;
+        }
+
+        long start = System.currentTimeMillis();
+        touchedDuringRebuild.clear();
+        rebuilding = true;
+        try {
+            List<Map<String, Object>> rows = adoptionProjectMapper.selectFacetRows(null);
+            FacetIndex next = new FacetIndex(rows.size());
+            for (Map<String, Object> row : rows) {
+                next.upsert(toDoc(row));
+            }
+            index = next;
+            rebuilding = false;
+
+            // 构建期间的变化可能未包含在查询结果中，重新加载一次
+            List<Long> touched = new ArrayList<>(touchedDuringRebuild);
+            touchedDuringRebuild.removeAll(touched);
+            touched.forEach(this::reload);
+
+            log.info("项目筛选索引构建完成: 项目{}个, 补充更新{}个, 耗时{}ms",
+                    rows.size(), touched.size(), System.currentTimeMillis() - start);
+        } finally {
+            rebuilding = false;
+            building.set(false);
+        }
+    }
+
+    private List<AdoptionProject> loadInOrder(List<Long> projectIds) {
+        if (projectIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        Map<Long, AdoptionProject> projectMap = adoptionProjectMapper.selectBatchIds(projectIds).stream()
+                .collect(Collectors.toMap(AdoptionProject::getId, Function.identity()));
+        List<AdoptionProject> projects = new ArrayList<>(projectIds.size());
+        for (Long id : projectIds) {
+            AdoptionProject project = projectMap.get(id);
+            if (project != null) {
+                projects.add(project);
+            }
+        }
+        return projects;
+    }
+
+    private static FacetDoc toDoc(Map<String, Object> row) {
+        return new FacetDoc(
+                toLong(row.get("project_id")),
+                toLong(row.get("crop_id")),
+                toLong(row.get("category_id")),
+                (String) row.get("province"),
+                (String) row.get("city"),
+                row.get("project_status") instanceof Number n ? n.intValue() : null,
+                row.get("available_units") instanceof Number n ? n.intValue() : 0,
+                toCents(row.get("unit_price")),
+                toCents(row.get("unit_area")));
+    }
+
+    private static Long toLong(Object value) {
+        return value instanceof Number number ? number.longValue() : null;
+    }
+
+    /**
+     * 金额、面积统一放大100倍存为整数（两位小数）
+     */
+    private static long toCents(Object value) {
+        if (value instanceof BigDecimal decimal) {
+            return decimal.movePointRight(2).longValue();
+        }
+        return value instanceof Number number ? Math.round(number.doubleValue() * 100) : 0;
+    }
+
+    /**
+     * 离散筛选维度
+     */
+    private enum Facet {
+        CROP("cropId", FacetDoc::cropId, ProjectFacetQueryDTO::getCropId),
+        CATEGORY("categoryId", FacetDoc::categoryId, ProjectFacetQueryDTO::getCategoryId),
+        PROVINCE("province", FacetDoc::province, q -> StringUtils.hasText(q.getProvince()) ? q.getProvince() : null),
+        CITY("city", FacetDoc::city, q -> StringUtils.hasText(q.getCity()) ? q.getCity() : null),
+        STATUS("projectStatus", FacetDoc::projectStatus, ProjectFacetQueryDTO::getProjectStatus);
+
+        private final String key;
+        private final Function<FacetDoc, Object> docValue;
+        private final Function<ProjectFacetQueryDTO, Object> queryValue;
+
+        Facet(String key, Function<FacetDoc, Object> docValue, Function<ProjectFacetQueryDTO, Object> queryValue) {
+            this.key = key;
+            this.docValue = docValue;
+            this.queryValue = queryValue;
+        }
+    }
+
+    /**
+     * 索引中的项目
+     */
+    private record FacetDoc(Long projectId, Long cropId, Long categoryId, String province, String city,
+                            Integer projectStatus, int availableUnits, long priceCents, long areaCents) {
+
+        FacetDoc withAvailableUnits(int units) {
+            return new FacetDoc(projectId, cropId, categoryId, province, city, projectStatus, units, priceCents, areaCents);
+        }
+    }
+
+    /**
+     * 筛选索引
+     * 查询持有读锁，增量更新持有写锁；文档号只增不减，删除的项目仅清除其位
+     */
+    private static final class FacetIndex {
+
+        private static final BitSet EMPTY = new BitSet();
+
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        private final Map<Long, Integer> docOf;
+        private FacetDoc[] docs;
+        private int docCount;
+
+        private final BitSet live = new BitSet();
+        private final BitSet available = new BitSet();
+        private final Map<Facet, Map<Object, BitSet>> postings = new EnumMap<>(Facet.class);
+
+        private RangeColumn priceColumn = RangeColumn.EMPTY;
+        private RangeColumn areaColumn = RangeColumn.EMPTY;
+        private volatile boolean rangesDirty = true;
+
+        FacetIndex(int expectedSize) {
+            docOf = new HashMap<>(Math.max(16, expectedSize * 2));
+            docs = new FacetDoc[Math.max(16, expectedSize)];
+            for (Facet facet : Facet.values()) {
+                postings.put(facet, new HashMap<>());
+            }
+        }
+
+        void upsert(FacetDoc doc) {
+            lock.writeLock().lock();
+            try {
+                Integer existing = docOf.get(doc.projectId());
+                int docId;
+                if (existing != null) {
+                    docId = existing;
+                    if (live.get(docId)) {
+                        removePostings(docId, docs[docId]);
+                    }
+                } else {
+                    docId = docCount++;
+                    if (docId == docs.length) {
+                        docs = Arrays.copyOf(docs, docs.length << 1);
+                    }
+                    docOf.put(doc.projectId(), docId);
+                }
+
+                docs[docId] = doc;
+                live.set(docId);
+                available.set(docId, doc.availableUnits() > 0);
+                for (Facet facet : Facet.values()) {
+                    Object value = facet.docValue.apply(doc);
+                    if (value != null) {
+                        postings.get(facet).computeIfAbsent(value, v -> new BitSet()).set(docId);
+                    }
+                }
+                rangesDirty = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void remove(Long projectId) {
+            lock.writeLock().lock();
+            try {
+                Integer docId = docOf.get(projectId);
+                if (docId != null && live.get(docId)) {
+                    removePostings(docId, docs[docId]);
+                    live.clear(docId);
+                    available.clear(docId);
+                    rangesDirty = true;
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void setAvailableUnits(Long projectId, int units) {
+            lock.writeLock().lock();
+            try {
+                Integer docId = docOf.get(projectId);
+                if (docId != null && live.get(docId)) {
+                    docs[docId] = docs[docId].withAvailableUnits(units);
+                    available.set(docId, units > 0);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void search(ProjectFacetQueryDTO query, long offset, int limit, List<Long> pageIds,
+                    ProjectFacetResultVO result, boolean withFacets) {
+            boolean hasRange = query.getMinPrice() != null || query.getMaxPrice() != null
+                    || query.getMinArea() != null || query.getMaxArea() != null;
+            if (hasRange) {
+                ensureRanges();
+            }
+
+            lock.readLock().lock();
+            try {
+                // 不含离散维度条件的基础结果：有效项目、可认养、价格与面积区间
+                BitSet base = (BitSet) live.clone();
+                if (Boolean.TRUE.equals(query.getAvailableOnly())) {
+                    base.and(available);
+                }
+                if (query.getMinPrice() != null || query.getMaxPrice() != null) {
+                    base.and(priceColumn.range(query.getMinPrice(), query.getMaxPrice()));
+                }
+                if (query.getMinArea() != null || query.getMaxArea() != null) {
+                    base.and(areaColumn.range(query.getMinArea(), query.getMaxArea()));
+                }
+
+                Map<Facet, BitSet> filters = new EnumMap<>(Facet.class);
+                for (Facet facet : Facet.values()) {
+                    Object value = facet.queryValue.apply(query);
+                    if (value != null) {
+                        filters.put(facet, postings.get(facet).getOrDefault(value, EMPTY));
+                    }
+                }
+
+                BitSet matched = (BitSet) base.clone();
+                filters.values().forEach(matched::and);
+                result.setTotal((long) matched.cardinality());
+
+                // 新项目文档号更大，从高位向低位取即为按项目ID倒序
+                long skipped = 0;
+                for (int docId = matched.length() - 1; docId >= 0 && pageIds.size() < limit;
+                     docId = matched.previousSetBit(docId - 1)) {
+                    if (skipped++ >= offset) {
+                        pageIds.add(docs[docId].projectId());
+                    }
+                }
+
+                if (withFacets) {
+                    result.setFacets(countFacets(query, base, filters));
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        /**
+         * 计算维度计数，每个维度只应用其他维度的条件
+         */
+        private Map<String, Map<String, Integer>> countFacets(ProjectFacetQueryDTO query, BitSet base,
+                                                             Map<Facet, BitSet> filters) {
+            Map<String, Map<String, Integer>> facets = new LinkedHashMap<>();
+            BitSet scope = new BitSet();
+            BitSet scratch = new BitSet();
+
+            for (Facet facet : Facet.values()) {
+                scope.clear();
+                scope.or(base);
+                filters.forEach((other, bits) -> {
+                    if (other != facet) {
+                        scope.and(bits);
+                    }
+                });
+
+                Map<String, Integer> counts = new LinkedHashMap<>();
+                for (Map.Entry<Object, BitSet> entry : postings.get(facet).entrySet()) {
+                    scratch.clear();
+                    scratch.or(scope);
+                    scratch.and(entry.getValue());
+                    int count = scratch.cardinality();
+                    if (count > 0) {
+                        counts.put(String.valueOf(entry.getKey()), count);
+                    }
+                }
+                facets.put(facet.key, counts);
+            }
+
+            // 可认养维度：不应用“仅可认养”条件
+            scope.clear();
+            scope.or(live);
+            if (query.getMinPrice() != null || query.getMaxPrice() != null) {
+                scope.and(priceColumn.range(query.getMinPrice(), query.getMaxPrice()));
+            }
+            if (query.getMinArea() != null || query.getMaxArea() != null) {
+                scope.and(areaColumn.range(query.getMinArea(), query.getMaxArea()));
+            }
+            filters.values().forEach(scope::and);
+            int total = scope.cardinality();
+            scope.and(available);
+            Map<String, Integer> availability = new LinkedHashMap<>();
+            availability.put("true", scope.cardinality());
+            availability.put("false", total - availability.get("true"));
+            facets.put("available", availability);
+            return facets;
+        }
+
+        private void removePostings(int docId, FacetDoc doc) {
+            for (Facet facet : Facet.values()) {
+                Object value = facet.docValue.apply(doc);
+                if (value == null) {
+                    continue;
+                }
+                Map<Object, BitSet> values = postings.get(facet);
+                BitSet bits = values.get(value);
+                if (bits != null) {
+                    bits.clear(docId);
+                    if (bits.isEmpty()) {
+                        values.remove(value);
+                    }
+                }
+            }
+        }
+
+        /**
+         * 价格或面积有变化时重建排序数组
+         */
+        private void ensureRanges() {
+            if (!rangesDirty) {
+                return;
+            }
+            lock.writeLock().lock();
+            try {
+                if (!rangesDirty) {
+                    return;
+                }
+                long[] prices = new long[docCount];
+                long[] areas = new long[docCount];
+                for (int docId = 0; docId < docCount; docId++) {
+                    if (docs[docId] != null) {
+                        prices[docId] = docs[docId].priceCents();
+                        areas[docId] = docs[docId].areaCents();
+                    }
+                }
+                priceColumn = RangeColumn.build(prices, live);
+                areaColumn = RangeColumn.build(areas, live);
+                rangesDirty = false;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * 区间列：按值升序排列的值数组及对应文档号
+     */
+    private static final class RangeColumn {
+
+        static final RangeColumn EMPTY = new RangeColumn(new long[0], new int[0]);
+
+        private final long[] values;
+        private final int[] docIds;
+
+        private RangeColumn(long[] values, int[] docIds) {
+            this.values = values;
+            this.docIds = docIds;
+        }
+
+        static RangeColumn build(long[] valueByDoc, BitSet live) {
+            int count = live.cardinality();
+            // 值和文档号打包为一个long排序：值在高位，文档号在低24位
+            long[] packed = new long[count];
+            int i = 0;
+            for (int docId = live.nextSetBit(0); docId >= 0; docId = live.nextSetBit(docId + 1)) {
+                packed[i++] = (valueByDoc[docId] << 24) | docId;
+            }
+            Arrays.sort(packed);
+
+            long[] values = new long[count];
+            int[] docIds = new int[count];
+            for (i = 0; i < count; i++) {
+                values[i] = packed[i] >> 24;
+                docIds[i] = (int) (packed[i] & 0xFFFFFF);
+            }
+            return new RangeColumn(values, docIds);
+        }
+
+        /**
+         * @return 值在[min, max]区间内的文档位图（边界为null时不限）
+         */
+        BitSet range(BigDecimal min, BigDecimal max) {
+            int from = min == null ? 0 : lowerBound(min.movePointRight(2).setScale(0, RoundingMode.CEILING).longValue());
+            int to = max == null ? values.length : lowerBound(max.movePointRight(2).setScale(0, RoundingMode.FLOOR).longValue() + 1);
+            BitSet bits = new BitSet();
+            for (int i = from; i < to; i++) {
+                bits.set(docIds[i]);
+            }
+            return bits;
+        }
+
+        private int lowerBound(long value) {
+            int low = 0;
+            int high = values.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (values[mid] < value) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+}
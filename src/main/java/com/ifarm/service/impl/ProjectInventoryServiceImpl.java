@@ -0,0 +1,449 @@
+package com.ifarm.service.impl;
+
+import com.ifarm.common.exception.BusinessException;
+import com.ifarm.common.util.TransactionUtils;
+import com.ifarm.mapper.AdoptionProjectMapper;
+import com.ifarm.service.IProjectFacetService;
+import com.ifarm.service.IProjectInventoryService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+
+/**
+ * 项目库存服务实现类
+ *
+ * 数据库中的条件扣减（available_units >= n）是唯一的库存依据，
+ * 内存中的分段计数器只做前置拦截：计数不足时直接拒绝，不访问数据库；
+ * 计数与数据库不一致时丢弃计数器，下次访问重新加载。
+ * 其他节点的下单和释放不会通知本节点，计数器加载超过有效期后在下次访问时从数据库重新加载，
+ * 因此内存拦截造成的误拒最多持续一个有效期。
+ * 本节点的预占和归还提交后，若计数器在此期间已重新加载，新计数器读不到未提交的变更，需要补记；
+ * 加载查询与某个变更的提交重叠时无法确定是否读到了该变更，这样的计数器标记为不精确，不补记，
+ * 下次访问时若没有正在提交的变更则重新加载。
+ *
+ * @author ifarm
+ * @since 2025-01-19
+ */
+@Slf4j
+@Service
+public class ProjectInventoryServiceImpl implements IProjectInventoryService {
+
+    /**
+     * 每个项目计数器的分段数，分散热门项目上的CAS竞争
+     */
+    private static final int STRIPES = Math.min(8, Integer.highestOneBit(Runtime.getRuntime().availableProcessors()));
+
+    private final AdoptionProjectMapper adoptionProjectMapper;
+    private final IProjectFacetService projectFacetService;
+
+    private final Map<Long, UnitCounter> counters = new ConcurrentHashMap<>();
+    private final Map<Long, CommitWindow> windows = new ConcurrentHashMap<>();
+
+    /**
+     * 计数器有效期（毫秒）
+     */
+    private final long counterTtlMillis;
+
+    private final LongAdder releaseFailures = new LongAdder();
+
+    public ProjectInventoryServiceImpl(AdoptionProjectMapper adoptionProjectMapper,
+                                       IProjectFacetService projectFacetService,
+                                       @Value("${ifarm.inventory.counter-ttl-millis:10000}") long counterTtlMillis) {
+        this.adoptionProjectMapper = adoptionProjectMapper;
+        this.projectFacetService = projectFacetService;
+        this.counterTtlMillis = counterTtlMillis;
+    }
+
+    @Override
+    public boolean reserve(Long projectId, Integer unitCount) {
+        return reserve(projectId, unitCount, () -> adoptionProjectMapper.decreaseAvailableUnits(projectId, unitCount) > 0);
+    }
+
+    @Override
+    public boolean reserve(Long projectId, Integer unitCount, BooleanSupplier decrement) {
+        if (projectId == null || unitCount == null || unitCount <= 0 || decrement == null) {
+            throw new BusinessException("参数无效");
+        }
+
+        UnitCounter counter = counterOf(projectId);
+        if (counter == null) {
+            return false;
+        }
+
+        // 内存计数不足，直接拒绝
+        if (!counter.tryAcquire(unitCount)) {
+            counter.rejected.increment();
+            log.debug("项目库存不足（内存拦截）: projectId={}, 需要: {}, 剩余: {}", projectId, unitCount, counter.sum());
+            return false;
+        }
+
+        boolean decreased;
+        try {
+            // 提交后同步筛选索引的可认养状态；事务回滚时数据库扣减被撤销，同步归还内存计数
+            decreased = change(projectId, decrement, () -> {
+                UnitCounter current = counters.getOrDefault(projectId, counter);
+                if (current != counter && current.exact) {
+                    // 预占期间计数器已重新加载，补记新计数器读不到的扣减
+                    current.take(unitCount);
+                }
+                projectFacetService.onAvailabilityChanged(projectId, current.sum());
+            }, () -> {
+                counter.release(unitCount);
+                counter.reserved.add(-unitCount);
+            });
+        } catch (RuntimeException e) {
+            counter.release(unitCount);
+            throw e;
+        }
+
+        if (!decreased) {
+            // 数据库库存不足或项目状态已变更，丢弃内存计数器
+            counters.remove(projectId, counter);
+            counter.rejected.increment();
+            log.info("项目库存不足（数据库校验）: projectId={}, 需要: {}", projectId, unitCount);
+            return false;
+        }
+
+        counter.reserved.add(unitCount);
+        log.debug("项目单元预占成功: projectId={}, 数量: {}", projectId, unitCount);
+        return true;
+    }
+
+    @Override
+    public void confirm(Long projectId, Integer unitCount) {
+        if (projectId == null || unitCount == null || unitCount <= 0) {
+            return;
+        }
+
+        UnitCounter counter = counters.get(projectId);
+        if (counter != null) {
+            TransactionUtils.afterCommit(() -> counter.confirmed.add(unitCount));
+        }
+        log.debug("项目单元预占已确认: projectId={}, 数量: {}", projectId, unitCount);
+    }
+
+    @Override
+    public boolean release(Long projectId, Integer unitCount) {
+        if (projectId == null || unitCount == null || unitCount <= 0) {
+            throw new BusinessException("参数无效");
+        }
+
+        // 提交后才对外可见，避免放行尚未归还的库存
+        boolean increased = change(projectId, () -> adoptionProjectMapper.increaseAvailableUnits(projectId, unitCount) > 0, () -> {
+            UnitCounter counter = counters.get(projectId);
+            if (counter != null && counter.exact) {
+                counter.release(unitCount);
+                counter.released.add(unitCount);
+                projectFacetService.onAvailabilityChanged(projectId, counter.sum());
+            }
+        }, null);
+        if (!increased) {
+            // 可用单元数已偏差，由库存核对按单元和订单重新计算
+            releaseFailures.increment();
+            log.warn("项目单元释放失败，可用单元数将超过总单元数: projectId={}, 数量: {}", projectId, unitCount);
+            evict(projectId);
+            return false;
+        }
+
+        log.debug("项目单元释放成功: projectId={}, 数量: {}", projectId, unitCount);
+        return true;
+    }
+
+    @Override
+    public int getAvailableUnits(Long projectId) {
+        if (projectId == null) {
+            return 0;
+        }
+
+        UnitCounter counter = counterOf(projectId);
+        return counter == null ? 0 : counter.sum();
+    }
+
+    @Override
+    public Map<Long, Integer> getAvailableUnits(Collection<Long> projectIds) {
+        Map<Long, Integer> result = new HashMap<>();
+        if (projectIds == null || projectIds.isEmpty()) {
+            return result;
+        }
+
+        long now = System.currentTimeMillis();
+        List<Long> missing = new ArrayList<>();
+        for (Long projectId : projectIds) {
+            UnitCounter counter = counters.get(projectId);
+            if (counter != null && isUsable(projectId, counter, now)) {
+                result.put(projectId, counter.sum());
+            } else if (projectId != null) {
+                missing.add(projectId);
+            }
+        }
+        if (missing.isEmpty()) {
+            return result;
+        }
+
+        Map<Long, Long> versions = new HashMap<>();
+        for (Long projectId : missing) {
+            versions.put(projectId, windowOf(projectId).snapshot());
+        }
+        for (Map<String, Object> row : adoptionProjectMapper.selectAdoptableUnitsByIds(missing)) {
+            Long projectId = ((Number) row.get("project_id")).longValue();
+            int units = ((Number) row.get("units")).intValue();
+            UnitCounter old = counters.get(projectId);
+            UnitCounter fresh = new UnitCounter(units, windowOf(projectId).unchanged(versions.get(projectId)), old);
+            boolean installed = old == null
+                    ? counters.putIfAbsent(projectId, fresh) == null
+                    : counters.replace(projectId, old, fresh);
+            UnitCounter current = installed ? fresh : counters.get(projectId);
+            result.put(projectId, current == null ? units : current.sum());
+        }
+        log.debug("批量加载项目库存计数器: 请求{}个, 加载{}个", projectIds.size(), missing.size());
+        return result;
+    }
+
+    @Override
+    public void evict(Long projectId) {
+        if (projectId == null) {
+            return;
+        }
+
+        if (counters.remove(projectId) != null) {
+            log.debug("清除项目库存计数器: projectId={}", projectId);
+        }
+    }
+
+    @Override
+    public Object getInventoryStatistics(Long projectId) {
+        if (projectId == null) {
+            throw new BusinessException("项目ID不能为空");
+        }
+
+        Map<String, Object> statistics = new HashMap<>();
+        UnitCounter counter = counterOf(projectId);
+        statistics.put("projectId", projectId);
+        statistics.put("availableUnits", counter == null ? 0 : counter.sum());
+        statistics.put("releaseFailures", releaseFailures.sum());
+        if (counter != null) {
+            statistics.put("reservedUnits", counter.reserved.sum());
+            statistics.put("confirmedUnits", counter.confirmed.sum());
+            statistics.put("releasedUnits", counter.released.sum());
+            statistics.put("rejectedRequests", counter.rejected.sum());
+        }
+        return statistics;
+    }
+
+    /**
+     * 获取项目计数器，不存在时从数据库加载，超过有效期或不精确时重新加载
+     * 重新加载在映射外查询，期间其他线程继续使用旧计数器
+     */
+    private UnitCounter counterOf(Long projectId) {
+        UnitCounter counter = counters.computeIfAbsent(projectId, id -> load(id, null));
+        if (counter == null || isUsable(projectId, counter, System.currentTimeMillis())) {
+            return counter;
+        }
+
+        UnitCounter fresh = load(projectId, counter);
+        if (fresh == null) {
+            counters.remove(projectId, counter);
+            return null;
+        }
+        return counters.replace(projectId, counter, fresh) ? fresh : counters.getOrDefault(projectId, fresh);
+    }
+
+    /**
+     * 计数器在有效期内，且精确或当前有变更正在提交（此时重新加载仍不精确）
+     */
+    private boolean isUsable(Long projectId, UnitCounter counter, long now) {
+        return now - counter.loadedAt < counterTtlMillis && (counter.exact || windowOf(projectId).isOpen());
+    }
+
+    private UnitCounter load(Long projectId, UnitCounter previous) {
+        CommitWindow window = windowOf(projectId);
+        long version = window.snapshot();
+        Integer units = adoptionProjectMapper.selectAdoptableUnits(projectId);
+        if (units == null) {
+            return null;
+        }
+        log.debug("加载项目库存计数器: projectId={}, 可认养单元数: {}", projectId, units);
+        return new UnitCounter(units, window.unchanged(version), previous);
+    }
+
+    private CommitWindow windowOf(Long projectId) {
+        return windows.computeIfAbsent(projectId, id -> new CommitWindow());
+    }
+
+    /**
+     * 执行数据库库存变更并跟踪其提交窗口，提交后执行onCommit（在窗口关闭前），回滚后执行onRollback（可为null）
+     * 事务中窗口为提交前到事务完成，无事务时（自动提交）为变更语句执行前后
+     *
+     * @return 变更是否生效
+     */
+    private boolean change(Long projectId, BooleanSupplier update, Runnable onCommit, Runnable onRollback) {
+        CommitWindow window = windowOf(projectId);
+        if (!TransactionUtils.isActive()) {
+            window.enter();
+            try {
+                boolean changed = update.getAsBoolean();
+                if (changed) {
+                    onCommit.run();
+                }
+                return changed;
+            } finally {
+                window.exit();
+            }
+        }
+
+        boolean changed = update.getAsBoolean();
+        if (changed) {
+            AtomicBoolean committing = new AtomicBoolean();
+            TransactionUtils.aroundCommit(() -> {
+                committing.set(true);
+                window.enter();
+            }, () -> {
+                try {
+                    onCommit.run();
+                } finally {
+                    window.exit();
+                }
+            }, () -> {
+                try {
+                    if (onRollback != null) {
+                        onRollback.run();
+                    }
+                } finally {
+                    if (committing.get()) {
+                        window.exit();
+                    }
+                }
+            });
+        }
+        return changed;
+    }
+
+    /**
+     * 项目库存变更的提交窗口
+     * 加载计数器前后窗口均未打开过，说明查询期间没有变更提交，读到的是所有已完成提交的结果
+     */
+    private static final class CommitWindow {
+
+        private final AtomicInteger open = new AtomicInteger();
+        private final AtomicLong version = new AtomicLong();
+
+        void enter() {
+            open.incrementAndGet();
+            version.incrementAndGet();
+        }
+
+        void exit() {
+            version.incrementAndGet();
+            open.decrementAndGet();
+        }
+
+        boolean isOpen() {
+            return open.get() > 0;
+        }
+
+        /**
+         * 加载前调用，窗口打开时返回-1
+         */
+        long snapshot() {
+            long current = version.get();
+            return open.get() > 0 ? -1 : current;
+        }
+
+        /**
+         * 加载后调用，判断加载期间是否没有变更提交
+         */
+        boolean unchanged(long snapshot) {
+            return snapshot >= 0 && version.get() == snapshot;
+        }
+    }
+
+    /**
+     * 分段单元计数器
+     * 单元可互换，预占时从随机分段开始依次扣减，不足时归还已扣部分；重新加载时沿用原计数器的统计
+     */
+    private static final class UnitCounter {
+
+        private final AtomicIntegerArray stripes = new AtomicIntegerArray(STRIPES);
+        private final long loadedAt = System.currentTimeMillis();
+
+        /**
+         * 加载期间没有变更提交，之后提交的变更都需要补记
+         */
+        private final boolean exact;
+        private final LongAdder reserved;
+        private final LongAdder confirmed;
+        private final LongAdder released;
+        private final LongAdder rejected;
+
+        UnitCounter(int units, boolean exact, UnitCounter previous) {
+            this.exact = exact;
+            this.reserved = previous == null ? new LongAdder() : previous.reserved;
+            this.confirmed = previous == null ? new LongAdder() : previous.confirmed;
+            this.released = previous == null ? new LongAdder() : previous.released;
+            this.rejected = previous == null ? new LongAdder() : previous.rejected;
+            for (int i = 0; i < STRIPES; i++) {
+                stripes.set(i, units / STRIPES + (i < units % STRIPES ? 1 : 0));
+            }
+        }
+
+        boolean tryAcquire(int units) {
+            int start = ThreadLocalRandom.current().nextInt(STRIPES);
+            int taken = 0;
+            for (int i = 0; i < STRIPES && taken < units; i++) {
+                int index = (start + i) % STRIPES;
+                while (true) {
+                    int current = stripes.get(index);
+                    if (current <= 0) {
+                        break;
+                    }
+                    int take = Math.min(current, units - taken);
+                    if (stripes.compareAndSet(index, current, current - take)) {
+                        taken += take;
+                        break;
+                    }
+                }
+            }
+
+            if (taken < units) {
+                if (taken > 0) {
+                    stripes.addAndGet(start, taken);
+                }
+                return false;
+            }
+            return true;
+        }
+
+        /**
+         * 补记已在数据库提交的扣减，单个分段可为负，总数仍准确
+         */
+        void take(int units) {
+            stripes.addAndGet(ThreadLocalRandom.current().nextInt(STRIPES), -units);
+        }
+
+        void release(int units) {
+            stripes.addAndGet(ThreadLocalRandom.current().nextInt(STRIPES), units);
+        }
+
+        int sum() {
+            int sum = 0;
+            for (int i = 0; i < STRIPES; i++) {
+                sum += stripes.get(i);
+            }
+            return sum;
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package com.ifarm.service.impl;
+
+import com.ifarm.common.event.ProjectChangedEvent;
+import com.ifarm.common.exception.BusinessException;
+import com.ifarm.common.util.TransactionUtils;
+import com.ifarm.entity.AdoptionProject;
+import com.ifarm.mapper.AdoptionProjectMapper;
+import com.ifarm.mapper.AdoptionRecordMapper;
+import com.ifarm.mapper.ProjectUnitMapper;
+import com.ifarm.service.IAdoptionProjectService;
+import com.ifarm.service.IProjectLifecycleService;
+import com.ifarm.service.IUnitGridMapService;
+import com.ifarm.service.IUserSummaryService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntSupplier;
+
+/**
+ * 项目生命周期服务实现类
+ *
+ * 项目状态本身仍由 {@link IAdoptionProjectService#updateProjectStatus} 在一个短事务中修改，
+ * 级联在该事务提交后执行：先认养记录、后项目单元，每块以 UPDATE ... ORDER BY id LIMIT n 更新固定行数，
+ * 每块使用独立事务，行锁只在单块内持有。级联按原状态集合匹配，可重复执行；
+ * 中断后单元状态会落后于项目状态，定时任务发现后重新级联。
+ *
+ * @author ifarm
+ * @since 2025-01-19
+ */
+@Slf4j
+@Service
+public class ProjectLifecycleServiceImpl implements IProjectLifecycleService {
+
+    /**
+     * 每次定时任务最多推进的项目数，其余项目下次执行时处理
+     */
+    private static final int DUE_BATCH_SIZE = 200;
+
+    /**
+     * 各项目状态对应的级联规则（原状态包含更早的状态，以便补齐此前未完成的级联）
+     */
+    private static final Map<Integer, CascadeStep> CASCADE_STEPS = Map.of(
+            3, new CascadeStep(List.of(1), 2, List.of(2), 3),
+            4, new CascadeStep(List.of(1, 2), 3, List.of(2, 3), 4),
+            5, new CascadeStep(List.of(1, 2, 3, 4), 5, List.of(2, 3, 4), 5));
+
+    private final AdoptionProjectMapper adoptionProjectMapper;
+    private final ProjectUnitMapper projectUnitMapper;
+    private final AdoptionRecordMapper adoptionRecordMapper;
+    private final IAdoptionProjectService adoptionProjectService;
+    private final IUnitGridMapService unitGridMapService;
+    private final IUserSummaryService userSummaryService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate chunkTransaction;
+
+    @Value("${ifarm.lifecycle.cascade-chunk-size:1000}")
+    private int cascadeChunkSize;
+
+    @Value("${ifarm.lifecycle.harvest-window-days:14}")
+    private int harvestWindowDays;
+
+    public ProjectLifecycleServiceImpl(AdoptionProjectMapper adoptionProjectMapper,
+                                       ProjectUnitMapper projectUnitMapper,
+                                       AdoptionRecordMapper adoptionRecordMapper,
+                                       @Lazy IAdoptionProjectService adoptionProjectService,
+                                       IUnitGridMapService unitGridMapService,
+                                       IUserSummaryService userSummaryService,
+                                       ApplicationEventPublisher eventPublisher,
+                                       PlatformTransactionManager transactionManager) {
+        this.adoptionProjectMapper = adoptionProjectMapper;
+        this.projectUnitMapper = projectUnitMapper;
+        this.adoptionRecordMapper = adoptionRecordMapper;
+        this.adoptionProjectService = adoptionProjectService;
+        this.unitGridMapService = unitGridMapService;
+        this.userSummaryService = userSummaryService;
+        this.eventPublisher = eventPublisher;
+        // 级联可能在外层事务的提交回调中执行，必须使用新事务
+        this.chunkTransaction = new TransactionTemplate(transactionManager);
+        this.chunkTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * 定时推进到期项目
+     */
+    @Scheduled(initialDelayString = "${ifarm.lifecycle.initial-delay:120000}",
+            fixedDelayString = "${ifarm.lifecycle.check-interval:3600000}")
+    public void scheduledAdvance() {
+        try {
+            advanceDueProjects();
+        } catch (Exception e) {
+            log.error("自动推进项目状态失败", e);
+        }
+    }
+
+    @Override
+    public int advanceDueProjects() {
+        List<AdoptionProject> dueProjects = adoptionProjectMapper.selectLifecycleDueProjects(
+                LocalDate.now(), harvestWindowDays, DUE_BATCH_SIZE);
+
+        int advanced = 0;
+        for (AdoptionProject project : dueProjects) {
+            Integer nextStatus = project.getProjectStatus() + 1;
+            try {
+                // 状态修改及级联由项目服务完成，与手动变更走同一路径
+                adoptionProjectService.updateProjectStatus(project.getId(), nextStatus);
+                advanced++;
+            } catch (Exception e) {
+                log.error("自动推进项目状态失败: projectId={}, status={} - {}",
+                        project.getId(), nextStatus, e.getMessage());
+            }
+        }
+
+        // 补做中断的级联
+        List<Long> laggingProjectIds = projectUnitMapper.selectLaggingProjectIds();
+        for (Long projectId : laggingProjectIds) {
+            try {
+                AdoptionProject project = adoptionProjectMapper.selectById(projectId);
+                if (project != null) {
+                    cascade(projectId, project.getProjectStatus());
+                }
+            } catch (Exception e) {
+                log.error("补做项目状态级联失败: projectId={} - {}", projectId, e.getMessage());
+            }
+        }
+
+        if (advanced > 0 || !laggingProjectIds.isEmpty()) {
+            log.info("项目状态自动推进完成: 推进{}个项目, 补做级联{}个项目", advanced, laggingProjectIds.size());
+        }
+        return advanced;
+    }
+
+    @Override
+    public int cascade(Long projectId, Integer projectStatus) {
+        if (projectId == null || projectStatus == null) {
+            throw new BusinessException("参数不能为空");
+        }
+
+        CascadeStep step = CASCADE_STEPS.get(projectStatus);
+        if (step == null) {
+            throw new BusinessException("该项目状态无需级联");
+        }
+
+        long start = System.currentTimeMillis();
+        int records = updateInChunks(() -> adoptionRecordMapper.updateStatusByProjectChunk(
+                projectId, step.recordFrom(), step.recordTo(), cascadeChunkSize));
+        int units = updateInChunks(() -> projectUnitMapper.updateStatusByProjectChunk(
+                projectId, step.unitFrom(), step.unitTo(), cascadeChunkSize));
+
+        // 只有进入已完成会使认养记录离开进行中状态，按项目一次重算相关用户的概览
+        if (records > 0 && step.recordTo() == 5) {
+            chunkTransaction.executeWithoutResult(status -> userSummaryService.refreshProjectAdoptions(projectId));
+        }
+
+        if (records > 0 || units > 0) {
+            unitGridMapService.evict(projectId);
+            // 在独立事务中发布，监听器在其提交后执行（在外层事务提交回调中直接发布的事件不会被处理）
+            chunkTransaction.executeWithoutResult(status -> eventPublisher.publishEvent(
+                    ProjectChangedEvent.of(projectId, ProjectChangedEvent.ChangeType.UNIT_STATUS_CHANGED)));
+        }
+
+        log.info("项目状态级联完成: projectId={}, status={}, 认养记录{}条, 单元{}个, 耗时{}ms",
+                projectId, projectStatus, records, units, System.currentTimeMillis() - start);
+        return units;
+    }
+
+    @Override
+    public void cascadeAfterCommit(Long projectId, Integer projectStatus) {
+        TransactionUtils.afterCommit(() -> {
+            try {
+                cascade(projectId, projectStatus);
+            } catch (Exception e) {
+                // 项目状态已提交，级联由定时任务补做
+                log.error("项目状态级联失败，等待定时任务补做: projectId={}, status={}", projectId, projectStatus, e);
+            }
+        });
+    }
+
+    /**
+     * 重复执行分块更新直到不足一块，每块一个事务
+     *
+     * @return 更新总行数
+     */
+    private int updateInChunks(IntSupplier chunk) {
+        int total = 0;
+        int updated;
+        do {
+            Integer result = chunkTransaction.execute(status -> chunk.getAsInt());
+            updated = result == null ? 0 : result;
+            total += updated;
+        } while (updated >= cascadeChunkSize);
+        return total;
+    }
+
+    /**
+     * 级联规则
+     *
+     * @param recordFrom 认养记录原状态
+     * @param recordTo 认养记录目标状态
+     * @param unitFrom 项目单元原状态
+     * @param unitTo 项目单元目标状态
+     */
+    private record CascadeStep(List<Integer> recordFrom, int recordTo, List<Integer> unitFrom, int unitTo) {
+    }
+}
@@ -0,0 +1,328 @@
+package com.ifarm.service.impl;
+
+import com.ifarm.common.enums.OrderTransition;
+import com.ifarm.common.event.ProjectChangedEvent;
+import com.ifarm.common.exception.BusinessException;
+import com.ifarm.common.util.TransactionUtils;
+import com.ifarm.entity.AdoptionOrder;
+import com.ifarm.entity.ProjectRefundJob;
+import com.ifarm.mapper.AdoptionOrderMapper;
+import com.ifarm.mapper.ProjectRefundJobMapper;
+import com.ifarm.mapper.ProjectUnitMapper;
+import com.ifarm.service.IOrderStateService;
+import com.ifarm.service.IProjectInventoryService;
+import com.ifarm.service.IProjectRefundService;
+import com.ifarm.service.IUnitAllocationService;
+import com.ifarm.service.IUnitGridMapService;
+import com.ifarm.service.IUserSummaryService;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 项目批量退款服务实现类
+ *
+ * 退款任务由单个后台线程执行，项目状态变更请求只负责创建任务，不等待退款完成。
+ * 每块：按订单ID顺序锁定断点之后的一批已支付订单（SELECT ... FOR UPDATE），
+ * 一条UPDATE改为已退款，一条UPDATE释放这些订单的单元，一次恢复项目可认养数，
+ * 逐个订单更新用户概览，最后条件推进断点（断点已被其他执行推进时整块回滚）。
+ * 断点与退款在同一事务提交，中断后重新执行不会重复退款。
+ * 待支付订单在项目取消的事务中直接取消，避免断点越过后才被支付的订单漏退。
+ *
+ * @author ifarm
+ * @since 2025-01-19
+ */
+@Slf4j
+@Service
+public class ProjectRefundServiceImpl implements IProjectRefundService {
+
+    private static final int JOB_RUNNING = 1;
+
+    private final ProjectRefundJobMapper projectRefundJobMapper;
+    private final AdoptionOrderMapper adoptionOrderMapper;
+    private final ProjectUnitMapper projectUnitMapper;
+    private final IOrderStateService orderStateService;
+    private final IProjectInventoryService projectInventoryService;
+    private final IUnitAllocationService unitAllocationService;
+    private final IUnitGridMapService unitGridMapService;
+    private final IUserSummaryService userSummaryService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate chunkTransaction;
+    private final int chunkSize;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "project-refund");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * 已提交或正在执行的项目，避免重复提交
+     */
+    private final Set<Long> submitted = ConcurrentHashMap.newKeySet();
+
+    public ProjectRefundServiceImpl(ProjectRefundJobMapper projectRefundJobMapper,
+                                    AdoptionOrderMapper adoptionOrderMapper,
+                                    ProjectUnitMapper projectUnitMapper,
+                                    IOrderStateService orderStateService,
+                                    IProjectInventoryService projectInventoryService,
+                                    IUnitAllocationService unitAllocationService,
+                                    IUnitGridMapService unitGridMapService,
+                                    IUserSummaryService userSummaryService,
+                                    ApplicationEventPublisher eventPublisher,
+                                    PlatformTransactionManager transactionManager,
+                                    @Value("${ifarm.refund.chunk-size:200}") int chunkSize) {
+        this.projectRefundJobMapper = projectRefundJobMapper;
+        this.adoptionOrderMapper = adoptionOrderMapper;
+        this.projectUnitMapper = projectUnitMapper;
+        this.orderStateService = orderStateService;
+        this.projectInventoryService = projectInventoryService;
+        this.unitAllocationService = unitAllocationService;
+        this.unitGridMapService = unitGridMapService;
+        this.userSummaryService = userSummaryService;
+        this.eventPublisher = eventPublisher;
+        // 每块独立提交，行锁只在单块内持有
+        this.chunkTransaction = new TransactionTemplate(transactionManager);
+        this.chunkTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY, rollbackFor = Exception.class)
+    public void startRefund(Long projectId) {
+        if (projectId == null) {
+            throw new BusinessException("项目ID不能为空");
+        }
+
+        cancelPendingOrders(projectId);
+        if (projectRefundJobMapper.insertIgnore(projectId) > 0) {
+            log.info("创建项目退款任务: projectId={}", projectId);
+        }
+        TransactionUtils.afterCommit(() -> submit(projectId));
+    }
+
+    /**
+     * 锁定并取消项目的待支付订单，之后的支付通知不会再使其变为已支付
+     */
+    private void cancelPendingOrders(Long projectId) {
+        List<AdoptionOrder> orders = adoptionOrderMapper.selectPendingOrdersForCancel(projectId);
+        if (orders.isEmpty()) {
+            return;
+        }
+
+        List<Long> orderIds = orders.stream().map(AdoptionOrder::getId).toList();
+        int cancelled = orderStateService.transitAll(OrderTransition.PROJECT_CANCEL, orderIds);
+        for (AdoptionOrder order : orders) {
+            userSummaryService.onOrderStatusChanged(order.getUserId(), 1, 4, order.getActualAmount(), 0);
+        }
+        log.info("项目取消，取消待支付订单: projectId={}, 订单{}个", projectId, cancelled);
+    }
+
+    @Override
+    public int runRefund(Long projectId) {
+        if (projectId == null) {
+            throw new BusinessException("项目ID不能为空");
+        }
+
+        ProjectRefundJob job = projectRefundJobMapper.selectByProjectId(projectId);
+        if (job == null) {
+            throw new BusinessException("项目退款任务不存在");
+        }
+        if (job.getJobStatus() != JOB_RUNNING) {
+            return 0;
+        }
+
+        long start = System.currentTimeMillis();
+        if (job.getStartTime() == null) {
+            projectRefundJobMapper.markStarted(job.getId(),
+                    adoptionOrderMapper.countPaidOrdersAfter(projectId, job.getLastOrderId()));
+        }
+        // 项目已取消，释放的单元不再参与分配，直接丢弃内存位图
+        unitAllocationService.evict(projectId);
+
+        int refunded = 0;
+        int units = 0;
+        try {
+            while (true) {
+                ChunkResult chunk = chunkTransaction.execute(status -> refundChunk(job));
+                if (chunk == null || chunk.orders() == 0) {
+                    break;
+                }
+                refunded += chunk.orders();
+                units += chunk.units();
+                job.setLastOrderId(chunk.lastOrderId());
+            }
+            projectRefundJobMapper.markFinished(job.getId());
+        } catch (Exception e) {
+            String reason = e.getMessage() == null ? "退款失败" : e.getMessage();
+            projectRefundJobMapper.recordError(job.getId(), reason.length() > 200 ? reason.substring(0, 200) : reason);
+            log.error("项目退款中断，等待从断点继续: projectId={}, 断点订单ID={}", projectId, job.getLastOrderId(), e);
+            throw new BusinessException("项目退款失败");
+        } finally {
+            if (units > 0) {
+                unitGridMapService.evict(projectId);
+                // 在独立事务中发布，监听器在其提交后执行
+                chunkTransaction.executeWithoutResult(status -> eventPublisher.publishEvent(
+                        ProjectChangedEvent.of(projectId, ProjectChangedEvent.ChangeType.UNIT_STATUS_CHANGED)));
+            }
+        }
+
+        log.info("项目退款完成: projectId={}, 退款订单{}个, 释放单元{}个, 耗时{}ms",
+                projectId, refunded, units, System.currentTimeMillis() - start);
+        return refunded;
+    }
+
+    /**
+     * 定时从断点继续未完成的退款任务
+     */
+    @Scheduled(initialDelayString = "${ifarm.refund.resume-interval:60000}",
+            fixedDelayString = "${ifarm.refund.resume-interval:60000}")
+    public void scheduledResume() {
+        try {
+            resumeUnfinished();
+        } catch (Exception e) {
+            log.error("继续项目退款任务失败", e);
+        }
+    }
+
+    @Override
+    public int resumeUnfinished() {
+        int count = 0;
+        for (Long projectId : projectRefundJobMapper.selectUnfinishedProjectIds()) {
+            if (submit(projectId)) {
+                count++;
+            }
+        }
+        if (count > 0) {
+            log.info("提交未完成的项目退款任务{}个", count);
+        }
+        return count;
+    }
+
+    @Override
+    public Object getRefundProgress(Long projectId) {
+        if (projectId == null) {
+            throw new BusinessException("项目ID不能为空");
+        }
+
+        ProjectRefundJob job = projectRefundJobMapper.selectByProjectId(projectId);
+        if (job == null) {
+            throw new BusinessException("项目退款任务不存在");
+        }
+
+        Map<String, Object> progress = new HashMap<>();
+        progress.put("projectId", projectId);
+        progress.put("jobStatus", job.getJobStatus());
+        progress.put("running", submitted.contains(projectId));
+        progress.put("totalOrders", job.getTotalOrders());
+        progress.put("refundedOrders", job.getRefundedOrders());
+        progress.put("refundedUnits", job.getRefundedUnits());
+        progress.put("refundedAmount", job.getRefundedAmount());
+        progress.put("lastOrderId", job.getLastOrderId());
+        progress.put("lastError", job.getLastError());
+        progress.put("startTime", job.getStartTime());
+        progress.put("finishTime", job.getFinishTime());
+        if (job.getJobStatus() == JOB_RUNNING) {
+            progress.put("remainingOrders", adoptionOrderMapper.countPaidOrdersAfter(projectId, job.getLastOrderId()));
+        }
+        if (job.getStartTime() != null) {
+            LocalDateTime end = job.getFinishTime() == null ? LocalDateTime.now() : job.getFinishTime();
+            long seconds = Math.max(1, Duration.between(job.getStartTime(), end).getSeconds());
+            progress.put("ordersPerSecond", job.getRefundedOrders() / (double) seconds);
+        }
+        return progress;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // 未完成的任务已记录断点，重启后由定时任务继续
+        executor.shutdownNow();
+    }
+
+    private boolean submit(Long projectId) {
+        if (!submitted.add(projectId)) {
+            return false;
+        }
+        executor.execute(() -> {
+            try {
+                runRefund(projectId);
+            } catch (Exception e) {
+                log.error("执行项目退款任务失败: projectId={} - {}", projectId, e.getMessage());
+            } finally {
+                submitted.remove(projectId);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * 退款断点之后的一块已支付订单
+     */
+    private ChunkResult refundChunk(ProjectRefundJob job) {
+        Long projectId = job.getProjectId();
+        List<AdoptionOrder> orders = adoptionOrderMapper.selectPaidOrdersForRefund(
+                projectId, job.getLastOrderId(), chunkSize);
+        if (orders.isEmpty()) {
+            return new ChunkResult(0, 0, job.getLastOrderId());
+        }
+
+        List<Long> orderIds = orders.stream().map(AdoptionOrder::getId).toList();
+        // 订单已加锁，更新行数等于本块订单数
+        if (orderStateService.transitAll(OrderTransition.PROJECT_REFUND, orderIds) != orderIds.size()) {
+            throw new BusinessException("订单状态已变更");
+        }
+
+        int unitCount = 0;
+        BigDecimal amount = BigDecimal.ZERO;
+        for (AdoptionOrder order : orders) {
+            unitCount += order.getUnitCount();
+            amount = amount.add(order.getActualAmount());
+            userSummaryService.onOrderStatusChanged(order.getUserId(), 2, 5, order.getActualAmount(), 0);
+        }
+
+        int released = projectUnitMapper.releaseByOrderIds(orderIds);
+        if (released != unitCount) {
+            log.warn("项目退款释放单元数与订单单元数不一致: projectId={}, 订单单元{}个, 释放{}个",
+                    projectId, unitCount, released);
+        }
+        if (unitCount > 0 && !projectInventoryService.release(projectId, unitCount)) {
+            log.warn("项目退款单元归还失败，等待库存核对修正: projectId={}, 数量: {}", projectId, unitCount);
+        }
+
+        Long lastOrderId = orderIds.get(orderIds.size() - 1);
+        if (projectRefundJobMapper.advance(job.getId(), job.getLastOrderId(), lastOrderId,
+                orderIds.size(), released, amount) == 0) {
+            throw new BusinessException("退款断点已被其他执行推进");
+        }
+        return new ChunkResult(orderIds.size(), released, lastOrderId);
+    }
+
+    /**
+     * 单块退款结果
+     *
+     * @param orders 退款订单数
+     * @param units 释放单元数
+     * @param lastOrderId 本块处理到的订单ID
+     */
+    private record ChunkResult(int orders, int units, Long lastOrderId) {
+    }
+}
@@ -1,14 +1,22 @@
 package com.ifarm.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.ifarm.common.event.ProjectChangedEvent;
 import com.ifarm.common.exception.BusinessException;
+import com.ifarm.common.util.StatusHistogram;
+import com.ifarm.common.util.UnitLayout;
 import com.ifarm.entity.ProjectUnit;
 import com.ifarm.mapper.ProjectUnitMapper;
 import com.ifarm.service.IProjectUnitService;
 import com.ifarm.service.IAdoptionProjectService;
+import com.ifarm.service.IUnitAllocationService;
+import com.ifarm.service.IUnitGridMapService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
@@ -30,6 +38,12 @@ import java.util.Map;
 public class ProjectUnitServiceImpl extends ServiceImpl<ProjectUnitMapper, ProjectUnit> implements IProjectUnitService {
 
     private final ProjectUnitMapper projectUnitMapper;
+    private final IUnitAllocationService unitAllocationService;
+    private final IUnitGridMapService unitGridMapService;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${ifarm.unit.insert-chunk-size:500}")
+    private int insertChunkSize;
 
     @Override
     public List<ProjectUnit> getUnitsByProjectId(Long projectId) {
@@ -112,6 +126,9 @@ public class ProjectUnitServiceImpl extends ServiceImpl<ProjectUnitMapper, Proje
             
             boolean result = save(projectUnit);
             if (result) {
+                unitAllocationService.evict(projectUnit.getProjectId());
+                unitGridMapService.evict(projectUnit.getProjectId());
+                eventPublisher.publishEvent(ProjectChangedEvent.of(projectUnit.getProjectId(), ProjectChangedEvent.ChangeType.UNIT_STATUS_CHANGED));
                 log.info("项目单元创建成功，ID: {}", projectUnit.getId());
             } else {
                 log.error("项目单元创建失败");
@@ -129,13 +146,30 @@ public class ProjectUnitServiceImpl extends ServiceImpl<ProjectUnitMapper, Proje
     @Override
     @Transactional(rollbackFor = Exception.class)
     public boolean batchCreateUnits(Long projectId, Integer unitCount) {
-        if (projectId == null || unitCount == null || unitCount <= 0) {
+        return batchCreateUnits(projectId, unitCount, UnitLayout.grid(UnitLayout.DEFAULT_COLUMNS));
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public boolean batchCreateUnits(Long projectId, Integer unitCount, UnitLayout layout) {
+        if (projectId == null || unitCount == null || unitCount <= 0 || layout == null) {
             throw new BusinessException("参数无效");
         }
         
+        if (unitCount > layout.capacity()) {
+            throw new BusinessException("单元数量超出布局容量");
+        }
+        
         log.info("批量创建项目单元: 项目ID={}, 数量={}", projectId, unitCount);
         try {
-            List<ProjectUnit> units = new ArrayList<>();
+            // 分块生成并以多行INSERT写入，内存占用只与分块大小有关
+            int chunkSize = Math.max(1, insertChunkSize);
+            int progressStep = Math.max(chunkSize, unitCount / 10);
+            List<ProjectUnit> chunk = new ArrayList<>(Math.min(chunkSize, unitCount));
+            StringBuilder location = new StringBuilder(64);
+            long startTime = System.currentTimeMillis();
+            int inserted = 0;
+            int nextReport = progressStep;
             
             for (int i = 1; i <= unitCount; i++) {
                 ProjectUnit unit = new ProjectUnit();
@@ -143,24 +177,33 @@ public class ProjectUnitServiceImpl extends ServiceImpl<ProjectUnitMapper, Proje
                 unit.setUnitNumber(generateUnitNumber(projectId, i));
                 unit.setUnitStatus(1); // 可认养状态
                 
-                // 设置位置信息（简单的行列布局）
-                int row = (i - 1) / 10 + 1; // 每行10个单元
-                int col = (i - 1) % 10 + 1;
-                String locationInfo = String.format("{\"row\": %d, \"column\": %d, \"coordinates\": \"%c%d\"}", 
-                    row, col, (char)('A' + row - 1), col);
-                unit.setLocationInfo(locationInfo);
+                location.setLength(0);
+                layout.appendLocation(i, location);
+                unit.setLocationInfo(location.toString());
+                chunk.add(unit);
                 
-                units.add(unit);
+                if (chunk.size() == chunkSize || i == unitCount) {
+                    inserted += projectUnitMapper.insertBatch(chunk);
+                    chunk.clear();
+                    
+                    if (inserted >= nextReport && inserted < unitCount) {
+                        log.info("批量创建项目单元进度: 项目ID={}, {}/{} ({}%)", 
+                            projectId, inserted, unitCount, inserted * 100L / unitCount);
+                        nextReport += progressStep;
+                    }
+                }
             }
             
-            boolean result = saveBatch(units);
-            if (result) {
-                log.info("批量创建项目单元成功，创建{}个单元", unitCount);
-            } else {
-                log.error("批量创建项目单元失败");
+            if (inserted != unitCount) {
+                log.error("批量创建项目单元失败，期望{}个，实际{}个", unitCount, inserted);
                 throw new BusinessException("批量创建项目单元失败");
             }
-            return result;
+            
+            unitAllocationService.evict(projectId);
+            unitGridMapService.evict(projectId);
+            eventPublisher.publishEvent(ProjectChangedEvent.of(projectId, ProjectChangedEvent.ChangeType.UNIT_STATUS_CHANGED));
+            log.info("批量创建项目单元成功，创建{}个单元，耗时{}ms", unitCount, System.currentTimeMillis() - startTime);
+            return true;
         } catch (BusinessException e) {
             throw e;
         } catch (Exception e) {
@@ -192,6 +235,10 @@ public class ProjectUnitServiceImpl extends ServiceImpl<ProjectUnitMapper, Proje
             
             boolean result = updateById(projectUnit);
             if (result) {
+                if (projectUnit.getUnitStatus() != null) {
+                    unitGridMapService.onUnitStatusChanged(List.of(projectUnit.getId()), projectUnit.getUnitStatus());
+                    eventPublisher.publishEvent(ProjectChangedEvent.ofUnits(List.of(projectUnit.getId())));
+                }
                 log.info("项目单元更新成功");
             } else {
                 log.error("项目单元更新失败");
@@ -228,6 +275,9 @@ public class ProjectUnitServiceImpl extends ServiceImpl<ProjectUnitMapper, Proje
             
             boolean result = removeById(unitId);
             if (result) {
+                unitAllocationService.evict(unit.getProjectId());
+                unitGridMapService.evict(unit.getProjectId());
+                eventPublisher.publishEvent(ProjectChangedEvent.of(unit.getProjectId(), ProjectChangedEvent.ChangeType.UNIT_STATUS_CHANGED));
                 log.info("项目单元删除成功");
             } else {
                 log.error("项目单元删除失败");
@@ -261,6 +311,8 @@ public class ProjectUnitServiceImpl extends ServiceImpl<ProjectUnitMapper, Proje
             
             boolean result = updateById(unit);
             if (result) {
+                unitGridMapService.onUnitStatusChanged(List.of(unitId), unitStatus);
+                eventPublisher.publishEvent(ProjectChangedEvent.ofUnits(List.of(unitId)));
                 log.info("单元状态更新成功");
             } else {
                 log.error("单元状态更新失败");
@@ -290,6 +342,8 @@ public class ProjectUnitServiceImpl extends ServiceImpl<ProjectUnitMapper, Proje
         try {
             int result = projectUnitMapper.batchUpdateStatus(unitIds, unitStatus);
             if (result > 0) {
+                unitGridMapService.onUnitStatusChanged(unitIds, unitStatus);
+                eventPublisher.publishEvent(ProjectChangedEvent.ofUnits(unitIds));
                 log.info("批量更新单元状态成功，影响{}条记录", result);
                 return true;
             } else {
@@ -384,28 +438,12 @@ public class ProjectUnitServiceImpl extends ServiceImpl<ProjectUnitMapper, Proje
         
         log.info("分配单元给用户: 项目ID={}, 需要数量={}", projectId, unitCount);
         try {
-            // 查询可用单元
-            List<ProjectUnit> availableUnits = getAvailableUnitsByProjectId(projectId);
-            
-            if (availableUnits.size() < unitCount) {
-                throw new BusinessException("可用单元数量不足");
-            }
-            
-            // 取前N个单元进行分配
-            List<Long> allocatedUnitIds = availableUnits.stream()
-                    .limit(unitCount)
-                    .map(ProjectUnit::getId)
-                    .toList();
-            
-            // 更新单元状态为已认养
-            boolean result = batchUpdateUnitStatus(allocatedUnitIds, 2);
-            
-            if (result) {
-                log.info("单元分配成功，分配{}个单元", allocatedUnitIds.size());
-                return allocatedUnitIds;
-            } else {
-                throw new BusinessException("单元分配失败");
-            }
+            // 位图认领 + SKIP LOCKED锁定 + 条件更新，并发支付不会分到同一单元
+            List<Long> allocatedUnitIds = unitAllocationService.allocate(projectId, unitCount);
+            unitGridMapService.onUnitStatusChanged(allocatedUnitIds, 2);
+            eventPublisher.publishEvent(ProjectChangedEvent.of(projectId, ProjectChangedEvent.ChangeType.UNIT_STATUS_CHANGED));
+            log.info("单元分配成功，分配{}个单元", allocatedUnitIds.size());
+            return allocatedUnitIds;
         } catch (BusinessException e) {
             throw e;
         } catch (Exception e) {
@@ -416,20 +454,25 @@ public class ProjectUnitServiceImpl extends ServiceImpl<ProjectUnitMapper, Proje
 
     @Override
     @Transactional(rollbackFor = Exception.class)
-    public boolean releaseUnits(List<Long> unitIds) {
+    public int releaseUnits(List<Long> unitIds) {
         if (unitIds == null || unitIds.isEmpty()) {
             throw new BusinessException("单元ID列表不能为空");
         }
         
         log.info("释放单元: IDs={}", unitIds);
         try {
-            // 将单元状态改回可认养
-            boolean result = batchUpdateUnitStatus(unitIds, 1);
-            
-            if (result) {
-                log.info("单元释放成功，释放{}个单元", unitIds.size());
+            // 将已认养的单元状态改回可认养
+            int released = unitAllocationService.release(unitIds);
+            if (released < unitIds.size()) {
+                log.warn("部分单元不是已认养状态，未释放: 请求{}个，释放{}个", unitIds.size(), released);
+                unitGridMapService.evictByUnitIds(unitIds);
+            } else {
+                unitGridMapService.onUnitStatusChanged(unitIds, 1);
             }
-            return result;
+            eventPublisher.publishEvent(ProjectChangedEvent.ofUnits(unitIds));
+            
+            log.info("单元释放成功，释放{}个单元", released);
+            return released;
         } catch (Exception e) {
             log.error("释放单元失败", e);
             throw new BusinessException("释放单元失败");
@@ -446,13 +489,18 @@ public class ProjectUnitServiceImpl extends ServiceImpl<ProjectUnitMapper, Proje
         try {
             Map<String, Object> statistics = new HashMap<>();
             
-            // 总数统计
-            statistics.put("totalCount", countUnitsByProjectId(projectId));
-            statistics.put("availableCount", countUnitsByProjectIdAndStatus(projectId, 1));
-            statistics.put("adoptedCount", countUnitsByProjectIdAndStatus(projectId, 2));
-            statistics.put("plantingCount", countUnitsByProjectIdAndStatus(projectId, 3));
-            statistics.put("harvestingCount", countUnitsByProjectIdAndStatus(projectId, 4));
-            statistics.put("harvestedCount", countUnitsByProjectIdAndStatus(projectId, 5));
+            // 状态统计（一次分组查询）
+            QueryWrapper<ProjectUnit> wrapper = new QueryWrapper<>();
+            wrapper.eq("project_id", projectId);
+            StatusHistogram<Integer> histogram = StatusHistogram.ofStatus(
+                    baseMapper, wrapper, "unit_status", 1, 2, 3, 4, 5);
+            
+            statistics.put("totalCount", histogram.getTotalCount());
+            statistics.put("availableCount", histogram.get(1));
+            statistics.put("adoptedCount", histogram.get(2));
+            statistics.put("plantingCount", histogram.get(3));
+            statistics.put("harvestingCount", histogram.get(4));
+            statistics.put("harvestedCount", histogram.get(5));
             
             return statistics;
         } catch (Exception e) {
@@ -468,7 +516,12 @@ public class ProjectUnitServiceImpl extends ServiceImpl<ProjectUnitMapper, Proje
         }
         
         // 生成格式：P{projectId}-{sequence:03d}，例如：P1-001
-        return String.format("P%d-%03d", projectId, sequence);
+        String number = Integer.toString(sequence);
+        StringBuilder unitNumber = new StringBuilder(number.length() + 24).append('P').append(projectId).append('-');
+        for (int i = number.length(); i < 3; i++) {
+            unitNumber.append('0');
+        }
+        return unitNumber.append(number).toString();
     }
 
     @Override
@@ -0,0 +1,205 @@
+package com.ifarm.service.impl;
+
+import com.ifarm.entity.PromotionRule;
+import com.ifarm.vo.order.AppliedPromotionVO;
+import com.ifarm.vo.order.OrderQuoteVO;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 预编译的促销规则集（不可变，规则变更时整体替换）
+ *
+ * 编译时为每个有专属规则的项目合并通用规则和专属规则并排好序，比例、金额和生效时间预先换算；
+ * 报价时按项目取出一个规则数组顺序匹配，不访问数据库。
+ * 规则按类型分组，同类型内按优先级、单元门槛、等级门槛从高到低排列，只取第一条命中的规则（数量阶梯即取满足的最高档）；
+ * 不同类型的优惠叠加，总优惠不超过订单总额乘以上限比例。
+ *
+ * @author ifarm
+ * @since 2025-01-19
+ */
+final class PromotionRuleSet {
+
+    static final int TYPE_QUANTITY = 1;
+    static final int TYPE_USER_TIER = 2;
+    static final int TYPE_CAMPAIGN = 3;
+    static final int TYPE_FIRST_ORDER = 4;
+
+    private static final CompiledRule[] NO_RULES = new CompiledRule[0];
+
+    private static final Comparator<CompiledRule> RULE_ORDER = Comparator.comparingInt(CompiledRule::type)
+            .thenComparing(Comparator.comparingInt(CompiledRule::priority).reversed())
+            .thenComparing(Comparator.comparingInt(CompiledRule::minUnits).reversed())
+            .thenComparing(Comparator.comparingInt(CompiledRule::minUserTier).reversed())
+            .thenComparingLong(CompiledRule::id);
+
+    /**
+     * 适用全部项目的规则
+     */
+    private final CompiledRule[] commonRules;
+
+    /**
+     * 项目ID -> 通用规则与该项目专属规则合并后的规则
+     */
+    private final Map<Long, CompiledRule[]> projectRules;
+
+    private final BigDecimal maxDiscountRate;
+    private final int size;
+
+    private PromotionRuleSet(CompiledRule[] commonRules, Map<Long, CompiledRule[]> projectRules,
+                             BigDecimal maxDiscountRate, int size) {
+        this.commonRules = commonRules;
+        this.projectRules = projectRules;
+        this.maxDiscountRate = maxDiscountRate;
+        this.size = size;
+    }
+
+    static PromotionRuleSet empty(BigDecimal maxDiscountRate) {
+        return new PromotionRuleSet(NO_RULES, Map.of(), maxDiscountRate, 0);
+    }
+
+    /**
+     * 编译规则（调用方负责只传入启用的规则）
+     *
+     * @param rules 规则
+     * @param maxDiscountRate 总优惠占订单总额的上限比例
+     * @return 规则集
+     */
+    static PromotionRuleSet compile(Collection<PromotionRule> rules, BigDecimal maxDiscountRate) {
+        List<CompiledRule> common = new ArrayList<>();
+        Map<Long, List<CompiledRule>> byProject = new HashMap<>();
+        for (PromotionRule rule : rules) {
+            CompiledRule compiled = CompiledRule.of(rule);
+            if (rule.getProjectId() == null) {
+                common.add(compiled);
+            } else {
+                byProject.computeIfAbsent(rule.getProjectId(), id -> new ArrayList<>()).add(compiled);
+            }
+        }
+
+        CompiledRule[] commonRules = sorted(common);
+        Map<Long, CompiledRule[]> projectRules = new HashMap<>(byProject.size() * 2);
+        byProject.forEach((projectId, own) -> {
+            List<CompiledRule> merged = new ArrayList<>(common.size() + own.size());
+            merged.addAll(common);
+            merged.addAll(own);
+            projectRules.put(projectId, sorted(merged));
+        });
+        return new PromotionRuleSet(commonRules, Map.copyOf(projectRules), maxDiscountRate, rules.size());
+    }
+
+    /**
+     * 规则数
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * 计算订单报价
+     *
+     * @param projectId 项目ID
+     * @param unitPrice 单元价格
+     * @param unitCount 单元数量
+     * @param userTier 用户等级
+     * @param firstOrder 是否首单
+     * @param nowMillis 当前时间（毫秒）
+     * @return 报价
+     */
+    OrderQuoteVO quote(Long projectId, BigDecimal unitPrice, int unitCount, int userTier, boolean firstOrder,
+                       long nowMillis) {
+        BigDecimal totalAmount = unitPrice.multiply(BigDecimal.valueOf(unitCount));
+        CompiledRule[] rules = projectRules.getOrDefault(projectId, commonRules);
+
+        List<AppliedPromotionVO> promotions = new ArrayList<>(4);
+        BigDecimal discountAmount = BigDecimal.ZERO;
+        int appliedType = 0;
+        for (CompiledRule rule : rules) {
+            // 同类型规则相邻，已命中的类型跳过
+            if (rule.type() == appliedType || !rule.matches(unitCount, userTier, firstOrder, nowMillis)) {
+                continue;
+            }
+            BigDecimal discount = rule.discountOf(totalAmount);
+            if (discount.signum() > 0) {
+                promotions.add(new AppliedPromotionVO(rule.id(), rule.name(), rule.type(), discount));
+                discountAmount = discountAmount.add(discount);
+                appliedType = rule.type();
+            }
+        }
+
+        BigDecimal maxDiscount = totalAmount.multiply(maxDiscountRate).setScale(2, RoundingMode.DOWN);
+        boolean capped = discountAmount.compareTo(maxDiscount) > 0;
+        if (capped) {
+            discountAmount = maxDiscount;
+        }
+
+        OrderQuoteVO quote = new OrderQuoteVO();
+        quote.setProjectId(projectId);
+        quote.setUnitPrice(unitPrice);
+        quote.setUnitCount(unitCount);
+        quote.setTotalAmount(totalAmount);
+        quote.setDiscountAmount(discountAmount);
+        quote.setActualAmount(totalAmount.subtract(discountAmount));
+        quote.setDiscountCapped(capped);
+        quote.setPromotions(promotions);
+        return quote;
+    }
+
+    private static CompiledRule[] sorted(List<CompiledRule> rules) {
+        CompiledRule[] array = rules.toArray(NO_RULES);
+        Arrays.sort(array, RULE_ORDER);
+        return array;
+    }
+
+    /**
+     * 编译后的规则
+     *
+     * @param startMillis 生效开始时间（含），不限时为 Long.MIN_VALUE
+     * @param endMillis 生效结束时间（不含），不限时为 Long.MAX_VALUE
+     */
+    private record CompiledRule(long id, String name, int type, int priority, int minUnits, int minUserTier,
+                                BigDecimal discountRate, BigDecimal discountAmount, long startMillis, long endMillis) {
+
+        static CompiledRule of(PromotionRule rule) {
+            return new CompiledRule(
+                    rule.getId() == null ? 0 : rule.getId(),
+                    rule.getName(),
+                    rule.getRuleType(),
+                    rule.getPriority() == null ? 0 : rule.getPriority(),
+                    rule.getMinUnits() == null ? 1 : rule.getMinUnits(),
+                    rule.getMinUserTier() == null ? 0 : rule.getMinUserTier(),
+                    rule.getDiscountRate() == null ? BigDecimal.ZERO : rule.getDiscountRate(),
+                    rule.getDiscountAmount() == null ? BigDecimal.ZERO : rule.getDiscountAmount(),
+                    rule.getStartTime() == null ? Long.MIN_VALUE : toMillis(rule.getStartTime()),
+                    rule.getEndTime() == null ? Long.MAX_VALUE : toMillis(rule.getEndTime()));
+        }
+
+        boolean matches(int unitCount, int userTier, boolean firstOrder, long nowMillis) {
+            return unitCount >= minUnits
+                    && userTier >= minUserTier
+                    && (type != TYPE_FIRST_ORDER || firstOrder)
+                    && nowMillis >= startMillis && nowMillis < endMillis;
+        }
+
+        /**
+         * 优惠金额：总额乘以比例加固定金额，不超过总额
+         */
+        BigDecimal discountOf(BigDecimal totalAmount) {
+            BigDecimal discount = totalAmount.multiply(discountRate).setScale(2, RoundingMode.HALF_UP).add(discountAmount);
+            return discount.min(totalAmount);
+        }
+
+        private static long toMillis(LocalDateTime time) {
+            return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        }
+    }
+}
@@ -0,0 +1,279 @@
+package com.ifarm.service.impl;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.ifarm.common.exception.BusinessException;
+import com.ifarm.common.util.TransactionUtils;
+import com.ifarm.dto.promotion.PromotionRuleCreateDTO;
+import com.ifarm.entity.AdoptionProject;
+import com.ifarm.entity.PromotionRule;
+import com.ifarm.entity.UserSummary;
+import com.ifarm.mapper.PromotionRuleMapper;
+import com.ifarm.service.IPromotionService;
+import com.ifarm.service.IUserSummaryService;
+import com.ifarm.vo.order.OrderQuoteVO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 促销服务实现类
+ *
+ * 启用的规则编译为 {@link PromotionRuleSet} 后以volatile引用发布，报价线程无锁读取；
+ * 本节点修改规则后在事务提交后重新编译，其他节点的修改由定时任务按规则最近更新时间发现。
+ * 用户等级按用户概览中的累计支付金额分档，与是否首单一起缓存，订单创建和支付后清除。
+ *
+ * @author ifarm
+ * @since 2025-01-19
+ */
+@Slf4j
+@Service
+public class PromotionServiceImpl implements IPromotionService {
+
+    /**
+     * 用户等级缓存条数上限，超过后整体清空
+     */
+    private static final int MAX_CACHED_USERS = 100_000;
+
+    private final PromotionRuleMapper promotionRuleMapper;
+    private final IUserSummaryService userSummaryService;
+    private final BigDecimal[] tierThresholds;
+    private final BigDecimal maxDiscountRate;
+    private final long userCacheMillis;
+
+    private final Map<Long, UserProfile> userProfiles = new ConcurrentHashMap<>();
+
+    private volatile PromotionRuleSet ruleSet;
+    private volatile LocalDateTime loadedVersion;
+
+    public PromotionServiceImpl(PromotionRuleMapper promotionRuleMapper,
+                                IUserSummaryService userSummaryService,
+                                @Value("${ifarm.promotion.tier-thresholds:1000,5000,20000}") String tierThresholds,
+                                @Value("${ifarm.promotion.max-discount-rate:0.5}") BigDecimal maxDiscountRate,
+                                @Value("${ifarm.promotion.user-cache-seconds:300}") long userCacheSeconds) {
+        this.promotionRuleMapper = promotionRuleMapper;
+        this.userSummaryService = userSummaryService;
+        this.tierThresholds = Arrays.stream(tierThresholds.split(","))
+                .map(String::trim)
+                .filter(s -> !s.isEmpty())
+                .map(BigDecimal::new)
+                .sorted()
+                .toArray(BigDecimal[]::new);
+        this.maxDiscountRate = maxDiscountRate;
+        this.userCacheMillis = userCacheSeconds * 1000;
+        this.ruleSet = PromotionRuleSet.empty(maxDiscountRate);
+    }
+
+    @Override
+    public OrderQuoteVO quote(Long userId, AdoptionProject project, Integer unitCount) {
+        if (userId == null || project == null || unitCount == null || unitCount <= 0) {
+            throw new BusinessException("参数无效");
+        }
+
+        long now = System.currentTimeMillis();
+        UserProfile profile = getUserProfile(userId, now);
+        return ruleSet.quote(project.getId(), project.getUnitPrice(), unitCount,
+                profile.tier(), profile.firstOrder(), now);
+    }
+
+    @Override
+    public synchronized int reload() {
+        try {
+            // 先读版本再读规则，期间的修改会在下次检查时再次加载
+            LocalDateTime version = promotionRuleMapper.selectLatestUpdateTime();
+            List<PromotionRule> rules = promotionRuleMapper.selectEffective(LocalDateTime.now());
+            long start = System.nanoTime();
+            ruleSet = PromotionRuleSet.compile(rules, maxDiscountRate);
+            loadedVersion = version;
+            log.info("促销规则编译完成: 规则{}条, 耗时{}μs", rules.size(), (System.nanoTime() - start) / 1000);
+            return rules.size();
+        } catch (Exception e) {
+            log.error("加载促销规则失败", e);
+            throw new BusinessException("加载促销规则失败");
+        }
+    }
+
+    /**
+     * 定时检查规则是否被其他节点修改
+     */
+    @Scheduled(initialDelayString = "${ifarm.promotion.reload-interval:30000}",
+            fixedDelayString = "${ifarm.promotion.reload-interval:30000}")
+    public void scheduledReload() {
+        try {
+            if (!Objects.equals(promotionRuleMapper.selectLatestUpdateTime(), loadedVersion)) {
+                reload();
+            }
+        } catch (Exception e) {
+            log.error("检查促销规则变更失败", e);
+        }
+    }
+
+    @Override
+    public void evictUser(Long userId) {
+        if (userId != null) {
+            userProfiles.remove(userId);
+        }
+    }
+
+    @Override
+    public List<PromotionRule> listRules() {
+        try {
+            return promotionRuleMapper.selectList(new LambdaQueryWrapper<PromotionRule>()
+                    .orderByAsc(PromotionRule::getRuleType)
+                    .orderByDesc(PromotionRule::getPriority)
+                    .orderByAsc(PromotionRule::getId));
+        } catch (Exception e) {
+            log.error("查询促销规则失败", e);
+            throw new BusinessException("查询促销规则失败");
+        }
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public PromotionRule createRule(PromotionRuleCreateDTO createDTO) {
+        if (createDTO == null) {
+            throw new BusinessException("规则信息不能为空");
+        }
+        BigDecimal discountRate = createDTO.getDiscountRate() != null ? createDTO.getDiscountRate() : BigDecimal.ZERO;
+        BigDecimal discountAmount = createDTO.getDiscountAmount() != null ? createDTO.getDiscountAmount() : BigDecimal.ZERO;
+        if (discountRate.signum() <= 0 && discountAmount.signum() <= 0) {
+            throw new BusinessException("优惠比例和固定优惠金额至少设置一项");
+        }
+        if (createDTO.getRuleType() == PromotionRuleSet.TYPE_CAMPAIGN
+                && (createDTO.getStartTime() == null || createDTO.getEndTime() == null)) {
+            throw new BusinessException("限时活动必须设置开始和结束时间");
+        }
+        if (createDTO.getStartTime() != null && createDTO.getEndTime() != null
+                && !createDTO.getEndTime().isAfter(createDTO.getStartTime())) {
+            throw new BusinessException("结束时间必须晚于开始时间");
+        }
+
+        log.info("创建促销规则: name={}, type={}, projectId={}",
+                createDTO.getName(), createDTO.getRuleType(), createDTO.getProjectId());
+        try {
+            PromotionRule rule = new PromotionRule();
+            rule.setName(createDTO.getName());
+            rule.setRuleType(createDTO.getRuleType());
+            rule.setProjectId(createDTO.getProjectId());
+            rule.setMinUnits(createDTO.getMinUnits() != null ? createDTO.getMinUnits() : 1);
+            rule.setMinUserTier(createDTO.getMinUserTier() != null ? createDTO.getMinUserTier() : 0);
+            rule.setDiscountRate(discountRate);
+            rule.setDiscountAmount(discountAmount);
+            rule.setStartTime(createDTO.getStartTime());
+            rule.setEndTime(createDTO.getEndTime());
+            rule.setPriority(createDTO.getPriority() != null ? createDTO.getPriority() : 0);
+            rule.setRuleStatus(1);
+            promotionRuleMapper.insert(rule);
+
+            TransactionUtils.afterCommit(this::reload);
+            return rule;
+        } catch (Exception e) {
+            log.error("创建促销规则失败", e);
+            throw new BusinessException("创建促销规则失败");
+        }
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public boolean updateRuleStatus(Long ruleId, Boolean enabled) {
+        if (ruleId == null || enabled == null) {
+            throw new BusinessException("参数不能为空");
+        }
+
+        try {
+            PromotionRule rule = new PromotionRule();
+            rule.setId(ruleId);
+            rule.setRuleStatus(enabled ? 1 : 0);
+            if (promotionRuleMapper.updateById(rule) == 0) {
+                throw new BusinessException("促销规则不存在");
+            }
+
+            log.info("促销规则{}: ruleId={}", enabled ? "启用" : "停用", ruleId);
+            TransactionUtils.afterCommit(this::reload);
+            return true;
+        } catch (BusinessException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("更新促销规则状态失败: ruleId={}", ruleId, e);
+            throw new BusinessException("更新促销规则状态失败");
+        }
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public boolean deleteRule(Long ruleId) {
+        if (ruleId == null) {
+            throw new BusinessException("规则ID不能为空");
+        }
+
+        try {
+            if (promotionRuleMapper.deleteById(ruleId) == 0) {
+                throw new BusinessException("促销规则不存在");
+            }
+
+            log.info("删除促销规则: ruleId={}", ruleId);
+            TransactionUtils.afterCommit(this::reload);
+            return true;
+        } catch (BusinessException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("删除促销规则失败: ruleId={}", ruleId, e);
+            throw new BusinessException("删除促销规则失败");
+        }
+    }
+
+    private UserProfile getUserProfile(Long userId, long now) {
+        UserProfile profile = userProfiles.get(userId);
+        if (profile != null && profile.expiresAt() > now) {
+            return profile;
+        }
+
+        UserSummary summary = userSummaryService.getUserSummary(userId);
+        int orderCount = count(summary.getPendingOrderCount()) + count(summary.getPaidOrderCount())
+                + count(summary.getCompletedOrderCount()) + count(summary.getRefundedOrderCount());
+        profile = new UserProfile(tierOf(summary.getPaidAmount()), orderCount == 0, now + userCacheMillis);
+
+        if (userProfiles.size() >= MAX_CACHED_USERS) {
+            userProfiles.clear();
+        }
+        userProfiles.put(userId, profile);
+        return profile;
+    }
+
+    /**
+     * 累计支付金额达到第n个阈值即为n级
+     */
+    private int tierOf(BigDecimal paidAmount) {
+        if (paidAmount == null) {
+            return 0;
+        }
+        int tier = 0;
+        while (tier < tierThresholds.length && paidAmount.compareTo(tierThresholds[tier]) >= 0) {
+            tier++;
+        }
+        return tier;
+    }
+
+    private static int count(Integer value) {
+        return value != null ? value : 0;
+    }
+
+    /**
+     * 缓存的用户报价信息
+     *
+     * @param tier 用户等级
+     * @param firstOrder 是否首单（没有未取消的订单）
+     * @param expiresAt 过期时间（毫秒）
+     */
+    private record UserProfile(int tier, boolean firstOrder, long expiresAt) {
+    }
+}
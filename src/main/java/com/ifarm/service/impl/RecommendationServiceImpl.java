@@ -0,0 +1,647 @@
+package com.ifarm.service.impl;
+
+import com.ifarm.common.util.LongIntHashMap;
+import com.ifarm.entity.AdoptionRecord;
+import com.ifarm.mapper.AdoptionProjectMapper;
+import com.ifarm.mapper.AdoptionRecordMapper;
+import com.ifarm.service.IProjectInventoryService;
+import com.ifarm.service.IRecommendationService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 推荐服务实现类
+ *
+ * 离线构建（单线程）：按用户顺序流式读取认养记录，每个用户的项目集合只保留在一个小缓冲区中，
+ * 用基本类型哈希表累计项目、作物、农场两两共同认养次数，以余弦相似度为每个物品保留前K个相似物品，
+ * 再用有界堆为每个用户计算候选项目和候选作物。构建完成后整体替换内存索引，
+ * 在线请求只做查找，售罄过滤使用库存计数器，未加载计数器的候选项目合并为一次批量查询。
+ *
+ * @author ifarm
+ * @since 2025-01-19
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RecommendationServiceImpl implements IRecommendationService {
+
+    /**
+     * 每个物品保留的相似物品数
+     */
+    private static final int NEIGHBOURS = 20;
+
+    /**
+     * 每个用户保留的候选项目数
+     */
+    private static final int CANDIDATES = 50;
+
+    /**
+     * 每个用户保留的候选作物数
+     */
+    private static final int CROP_CANDIDATES = 20;
+
+    /**
+     * 单个用户参与计算的最大项目数，限制两两组合的数量
+     */
+    private static final int MAX_BASKET = 50;
+
+    /**
+     * 作物、农场维度展开到项目时，每个作物或农场最多取的项目数（按热度）
+     */
+    private static final int MAX_PROJECTS_PER_GROUP = 50;
+
+    /**
+     * 热门项目数（无个性化结果时使用）
+     */
+    private static final int POPULAR = 100;
+
+    private static final float CROP_WEIGHT = 0.5f;
+    private static final float FARM_WEIGHT = 0.3f;
+
+    private final AdoptionRecordMapper adoptionRecordMapper;
+    private final AdoptionProjectMapper adoptionProjectMapper;
+    private final IProjectInventoryService projectInventoryService;
+
+    private final AtomicBoolean building = new AtomicBoolean();
+
+    private volatile RecommendationIndex index;
+
+    @Override
+    public List<Long> recommendProjectIds(Long userId, int limit) {
+        RecommendationIndex current = index;
+        if (current == null || limit <= 0) {
+            return Collections.emptyList();
+        }
+
+        // 个性化候选在前，热门项目补足；售罄过滤一次批量完成
+        LinkedHashSet<Long> candidates = new LinkedHashSet<>();
+        int position = userId == null ? -1 : current.positionOf(userId);
+        if (position >= 0) {
+            collect(current, current.userCandidates[position], candidates);
+        }
+        collect(current, current.popularProjects, candidates);
+
+        Map<Long, Integer> available = projectInventoryService.getAvailableUnits(candidates);
+        List<Long> result = new ArrayList<>(limit);
+        for (Long projectId : candidates) {
+            if (result.size() >= limit) {
+                break;
+            }
+            if (available.getOrDefault(projectId, 0) > 0) {
+                result.add(projectId);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public List<Long> recommendCropIds(Long userId, int limit) {
+        RecommendationIndex current = index;
+        int position = current == null || userId == null ? -1 : current.positionOf(userId);
+        if (position < 0 || limit <= 0) {
+            return Collections.emptyList();
+        }
+
+        int[] crops = current.userCrops[position];
+        List<Long> result = new ArrayList<>(Math.min(limit, crops.length));
+        for (int i = 0; i < crops.length && i < limit; i++) {
+            result.add(current.cropIds[crops[i]]);
+        }
+        return result;
+    }
+
+    @Override
+    public int getCropAdopterCount(Long cropId) {
+        RecommendationIndex current = index;
+        return current == null || cropId == null ? 0 : current.cropAdopters.get(cropId, 0);
+    }
+
+    @Override
+    public boolean isReady() {
+        return index != null;
+    }
+
+    /**
+     * 定时重建推荐索引
+     */
+    @Scheduled(initialDelayString = "${ifarm.recommend.initial-delay:60000}",
+            fixedDelayString = "${ifarm.recommend.rebuild-interval:21600000}")
+    public void scheduledRebuild() {
+        try {
+            rebuild();
+        } catch (Exception e) {
+            log.error("构建推荐索引失败", e);
+        }
+    }
+
+    @Override
+    public void rebuild() {
+        if (!building.compareAndSet(false, true)) {
+            log.info("推荐索引正在构建中，跳过本次构建");
+            return;
+        }
+
+        try {
+            long startTime = System.currentTimeMillis();
+            IndexBuilder builder = new IndexBuilder(adoptionProjectMapper.selectRecommendMeta());
+            adoptionRecordMapper.streamUserProjects(context -> builder.accept(context.getResultObject()));
+            index = builder.build();
+            log.info("推荐索引构建完成: 认养记录{}条, 用户{}个, 项目{}个, 项目共现{}对, 耗时{}ms",
+                    builder.records, builder.userCount, builder.projectIds.length,
+                    builder.projects.pairs.size(), System.currentTimeMillis() - startTime);
+        } finally {
+            building.set(false);
+        }
+    }
+
+    private void collect(RecommendationIndex current, int[] items, LinkedHashSet<Long> candidates) {
+        for (int item : items) {
+            candidates.add(current.projectIds[item]);
+        }
+    }
+
+    private static long toLong(Object value) {
+        return ((Number) value).longValue();
+    }
+
+    /**
+     * 推荐索引（构建后只读）
+     * 项目以稠密下标表示，用户按ID升序排列以便二分查找
+     */
+    private static final class RecommendationIndex {
+
+        private final long[] projectIds;
+        private final long[] cropIds;
+        private final long[] userIds;
+        private final int[][] userCandidates;
+        private final int[][] userCrops;
+        private final int[] popularProjects;
+        private final LongIntHashMap cropAdopters;
+
+        RecommendationIndex(long[] projectIds, long[] cropIds, long[] userIds, int[][] userCandidates,
+                            int[][] userCrops, int[] popularProjects, LongIntHashMap cropAdopters) {
+            this.projectIds = projectIds;
+            this.cropIds = cropIds;
+            this.userIds = userIds;
+            this.userCandidates = userCandidates;
+            this.userCrops = userCrops;
+            this.popularProjects = popularProjects;
+            this.cropAdopters = cropAdopters;
+        }
+
+        int positionOf(long userId) {
+            return Arrays.binarySearch(userIds, userId);
+        }
+    }
+
+    /**
+     * 索引构建器
+     */
+    private static final class IndexBuilder {
+
+        private final LongIntHashMap projectIndex;
+        private final long[] projectIds;
+        private final int[] projectCrop;
+        private final int[] projectFarm;
+        private final boolean[] open;
+        private final long[] cropIds;
+
+        private final CoOccurrence projects;
+        private final CoOccurrence crops;
+        private final CoOccurrence farms;
+
+        /**
+         * 用户项目集合的紧凑存储：第u个用户的项目为 basketItems[basketStart[u] .. basketStart[u+1])
+         */
+        private long[] userIds = new long[1024];
+        private int[] basketStart = new int[1025];
+        private int[] basketItems = new int[4096];
+        private int userCount;
+
+        private long currentUser = Long.MIN_VALUE;
+        private final int[] basket = new int[MAX_BASKET];
+        private final int[] groups = new int[MAX_BASKET];
+        private int basketSize;
+        private long records;
+
+        /**
+         * 计算用户候选时的临时状态
+         */
+        private float[] scores;
+        private int[] touched;
+        private int touchedCount;
+        private boolean[] owned;
+
+        IndexBuilder(List<Map<String, Object>> metas) {
+            int size = metas.size();
+            projectIndex = new LongIntHashMap(size);
+            projectIds = new long[size];
+            projectCrop = new int[size];
+            projectFarm = new int[size];
+            open = new boolean[size];
+
+            LongIntHashMap cropIndex = new LongIntHashMap(64);
+            LongIntHashMap farmIndex = new LongIntHashMap(64);
+            List<Long> cropIdList = new ArrayList<>();
+            for (int i = 0; i < size; i++) {
+                Map<String, Object> meta = metas.get(i);
+                projectIds[i] = toLong(meta.get("project_id"));
+                projectIndex.put(projectIds[i], i);
+
+                Object cropId = meta.get("crop_id");
+                projectCrop[i] = cropId == null ? -1 : cropIndex.putIfAbsent(toLong(cropId), cropIdList.size());
+                if (projectCrop[i] == cropIdList.size()) {
+                    cropIdList.add(toLong(cropId));
+                }
+
+                Object farmId = meta.get("farm_id");
+                projectFarm[i] = farmId == null ? -1 : farmIndex.putIfAbsent(toLong(farmId), farmIndex.size());
+
+                Object status = meta.get("project_status");
+                int projectStatus = status instanceof Number number ? number.intValue() : 0;
+                open[i] = projectStatus == 1 || projectStatus == 2;
+            }
+
+            cropIds = cropIdList.stream().mapToLong(Long::longValue).toArray();
+            projects = new CoOccurrence(size);
+            crops = new CoOccurrence(cropIds.length);
+            farms = new CoOccurrence(farmIndex.size());
+        }
+
+        void accept(AdoptionRecord record) {
+            if (record == null || record.getUserId() == null || record.getProjectId() == null) {
+                return;
+            }
+            records++;
+
+            long userId = record.getUserId();
+            if (userId != currentUser) {
+                flush();
+                currentUser = userId;
+            }
+
+            int item = projectIndex.get(record.getProjectId(), -1);
+            if (item < 0 || basketSize >= MAX_BASKET) {
+                return;
+            }
+            for (int i = 0; i < basketSize; i++) {
+                if (basket[i] == item) {
+                    return;
+                }
+            }
+            basket[basketSize++] = item;
+        }
+
+        /**
+         * 当前用户的记录读取完毕，累计共现并保存其项目集合
+         */
+        private void flush() {
+            if (basketSize == 0) {
+                return;
+            }
+
+            projects.add(basket, basketSize);
+            crops.add(groups, distinctGroups(projectCrop));
+            farms.add(groups, distinctGroups(projectFarm));
+
+            if (userCount == userIds.length) {
+                userIds = Arrays.copyOf(userIds, userCount << 1);
+                basketStart = Arrays.copyOf(basketStart, (userCount << 1) + 1);
+            }
+            int start = basketStart[userCount];
+            if (start + basketSize > basketItems.length) {
+                basketItems = Arrays.copyOf(basketItems, Math.max(basketItems.length << 1, start + basketSize));
+            }
+            System.arraycopy(basket, 0, basketItems, start, basketSize);
+            userIds[userCount] = currentUser;
+            basketStart[++userCount] = start + basketSize;
+            basketSize = 0;
+        }
+
+        /**
+         * 将当前项目集合映射为去重后的作物或农场下标，写入groups
+         */
+        private int distinctGroups(int[] projectGroup) {
+            int count = 0;
+            outer:
+            for (int i = 0; i < basketSize; i++) {
+                int group = projectGroup[basket[i]];
+                if (group < 0) {
+                    continue;
+                }
+                for (int j = 0; j < count; j++) {
+                    if (groups[j] == group) {
+                        continue outer;
+                    }
+                }
+                groups[count++] = group;
+            }
+            return count;
+        }
+
+        RecommendationIndex build() {
+            flush();
+
+            Neighbours projectNeighbours = projects.topNeighbours(NEIGHBOURS);
+            Neighbours cropNeighbours = crops.topNeighbours(NEIGHBOURS);
+            Neighbours farmNeighbours = farms.topNeighbours(NEIGHBOURS);
+            int[][] projectsByCrop = openProjectsByGroup(projectCrop, cropIds.length);
+            int[][] projectsByFarm = openProjectsByGroup(projectFarm, farms.itemCounts.length);
+
+            int size = projectIds.length;
+            scores = new float[size];
+            touched = new int[size];
+            owned = new boolean[size];
+            TopK heap = new TopK(1, CANDIDATES);
+            int[] candidateBuffer = new int[CANDIDATES];
+            int[][] userCandidates = new int[userCount][];
+            float[] cropScores = new float[cropIds.length];
+            TopK cropHeap = new TopK(1, CROP_CANDIDATES);
+            int[] cropBuffer = new int[CROP_CANDIDATES];
+            int[][] userCrops = new int[userCount][];
+
+            for (int u = 0; u < userCount; u++) {
+                int from = basketStart[u];
+                int to = basketStart[u + 1];
+                basketSize = 0;
+                for (int k = from; k < to; k++) {
+                    basket[basketSize++] = basketItems[k];
+                    owned[basketItems[k]] = true;
+                }
+
+                // 项目维度：已认养项目的相似项目
+                for (int k = 0; k < basketSize; k++) {
+                    int item = basket[k];
+                    for (int n = 0; n < projectNeighbours.ids[item].length; n++) {
+                        touch(projectNeighbours.ids[item][n], projectNeighbours.scores[item][n]);
+                    }
+                }
+                // 作物、农场维度：相同及相似作物（农场）下的项目
+                spreadGroups(projectCrop, cropNeighbours, projectsByCrop, CROP_WEIGHT);
+                spreadGroups(projectFarm, farmNeighbours, projectsByFarm, FARM_WEIGHT);
+
+                heap.reset(0);
+                for (int t = 0; t < touchedCount; t++) {
+                    heap.offer(0, touched[t], scores[touched[t]]);
+                    scores[touched[t]] = 0;
+                }
+                touchedCount = 0;
+                int count = heap.drain(0, candidateBuffer, null);
+                userCandidates[u] = Arrays.copyOf(candidateBuffer, count);
+
+                // 作物候选：已认养作物及其相似作物按相似度累计
+                int cropCount = distinctGroups(projectCrop);
+                for (int g = 0; g < cropCount; g++) {
+                    int crop = groups[g];
+                    cropScores[crop] += 1;
+                    for (int n = 0; n < cropNeighbours.ids[crop].length; n++) {
+                        cropScores[cropNeighbours.ids[crop][n]] += cropNeighbours.scores[crop][n];
+                    }
+                }
+                cropHeap.reset(0);
+                for (int g = 0; g < cropCount; g++) {
+                    int crop = groups[g];
+                    offerCrop(cropHeap, cropScores, crop);
+                    for (int n = 0; n < cropNeighbours.ids[crop].length; n++) {
+                        offerCrop(cropHeap, cropScores, cropNeighbours.ids[crop][n]);
+                    }
+                }
+                userCrops[u] = Arrays.copyOf(cropBuffer, cropHeap.drain(0, cropBuffer, null));
+
+                for (int k = 0; k < basketSize; k++) {
+                    owned[basket[k]] = false;
+                }
+            }
+
+            LongIntHashMap cropAdopters = new LongIntHashMap(cropIds.length);
+            for (int c = 0; c < cropIds.length; c++) {
+                cropAdopters.put(cropIds[c], crops.itemCounts[c]);
+            }
+
+            return new RecommendationIndex(projectIds, cropIds, Arrays.copyOf(userIds, userCount), userCandidates,
+                    userCrops, popularOpenProjects(), cropAdopters);
+        }
+
+        /**
+         * 将作物的累计得分放入堆并清零，同一作物只放入一次
+         */
+        private void offerCrop(TopK cropHeap, float[] cropScores, int crop) {
+            if (cropScores[crop] > 0) {
+                cropHeap.offer(0, crop, cropScores[crop]);
+                cropScores[crop] = 0;
+            }
+        }
+
+        private void spreadGroups(int[] projectGroup, Neighbours groupNeighbours, int[][] projectsByGroup, float weight) {
+            int count = distinctGroups(projectGroup);
+            for (int g = 0; g < count; g++) {
+                int group = groups[g];
+                spread(projectsByGroup[group], weight);
+                for (int n = 0; n < groupNeighbours.ids[group].length; n++) {
+                    spread(projectsByGroup[groupNeighbours.ids[group][n]], weight * groupNeighbours.scores[group][n]);
+                }
+            }
+        }
+
+        private void spread(int[] items, float score) {
+            for (int item : items) {
+                touch(item, score);
+            }
+        }
+
+        private void touch(int item, float score) {
+            if (!open[item] || owned[item] || score <= 0) {
+                return;
+            }
+            if (scores[item] == 0) {
+                touched[touchedCount++] = item;
+            }
+            scores[item] += score;
+        }
+
+        /**
+         * 按作物或农场分组的可认养项目（每组按热度取前若干个）
+         */
+        private int[][] openProjectsByGroup(int[] projectGroup, int groupCount) {
+            TopK heap = new TopK(groupCount, MAX_PROJECTS_PER_GROUP);
+            for (int i = 0; i < projectIds.length; i++) {
+                if (open[i] && projectGroup[i] >= 0) {
+                    heap.offer(projectGroup[i], i, projects.itemCounts[i] + 1);
+                }
+            }
+
+            int[][] result = new int[groupCount][];
+            int[] buffer = new int[MAX_PROJECTS_PER_GROUP];
+            for (int g = 0; g < groupCount; g++) {
+                result[g] = Arrays.copyOf(buffer, heap.drain(g, buffer, null));
+            }
+            return result;
+        }
+
+        private int[] popularOpenProjects() {
+            TopK heap = new TopK(1, POPULAR);
+            for (int i = 0; i < projectIds.length; i++) {
+                if (open[i]) {
+                    heap.offer(0, i, projects.itemCounts[i] + 1);
+                }
+            }
+            int[] buffer = new int[POPULAR];
+            return Arrays.copyOf(buffer, heap.drain(0, buffer, null));
+        }
+    }
+
+    /**
+     * 物品两两共同出现次数
+     * 键为 (较小下标 << 32) | 较大下标
+     */
+    private static final class CoOccurrence {
+
+        private final int[] itemCounts;
+        private final LongIntHashMap pairs;
+
+        CoOccurrence(int items) {
+            this.itemCounts = new int[items];
+            this.pairs = new LongIntHashMap(Math.max(16, items * 8));
+        }
+
+        void add(int[] items, int size) {
+            for (int i = 0; i < size; i++) {
+                itemCounts[items[i]]++;
+                for (int j = i + 1; j < size; j++) {
+                    int a = Math.min(items[i], items[j]);
+                    int b = Math.max(items[i], items[j]);
+                    pairs.addTo(((long) a << 32) | b, 1);
+                }
+            }
+        }
+
+        /**
+         * 以余弦相似度 count(a,b) / sqrt(count(a) * count(b)) 为每个物品保留前k个相似物品
+         */
+        Neighbours topNeighbours(int k) {
+            int size = itemCounts.length;
+            TopK heap = new TopK(size, k);
+            pairs.forEach((key, count) -> {
+                int a = (int) (key >>> 32);
+                int b = (int) key;
+                float score = (float) (count / Math.sqrt((double) itemCounts[a] * itemCounts[b]));
+                heap.offer(a, b, score);
+                heap.offer(b, a, score);
+            });
+
+            int[][] ids = new int[size][];
+            float[][] scores = new float[size][];
+            int[] idBuffer = new int[k];
+            float[] scoreBuffer = new float[k];
+            for (int i = 0; i < size; i++) {
+                int count = heap.drain(i, idBuffer, scoreBuffer);
+                ids[i] = Arrays.copyOf(idBuffer, count);
+                scores[i] = Arrays.copyOf(scoreBuffer, count);
+            }
+            return new Neighbours(ids, scores);
+        }
+    }
+
+    /**
+     * 每个物品的相似物品及相似度（按相似度降序）
+     */
+    private record Neighbours(int[][] ids, float[][] scores) {
+    }
+
+    /**
+     * 多组有界最小堆，每组最多保留k个得分最高的元素，存放在连续数组中
+     */
+    private static final class TopK {
+
+        private final int k;
+        private final int[] ids;
+        private final float[] scores;
+        private final int[] sizes;
+
+        TopK(int slots, int k) {
+            this.k = k;
+            this.ids = new int[slots * k];
+            this.scores = new float[slots * k];
+            this.sizes = new int[slots];
+        }
+
+        void offer(int slot, int id, float score) {
+            int base = slot * k;
+            int size = sizes[slot];
+            if (size < k) {
+                sizes[slot] = size + 1;
+                siftUp(base, size, id, score);
+            } else if (score > scores[base]) {
+                siftDown(base, size, id, score);
+            }
+        }
+
+        void reset(int slot) {
+            sizes[slot] = 0;
+        }
+
+        /**
+         * 按得分降序取出该组全部元素（取出后该组清空）
+         */
+        int drain(int slot, int[] outIds, float[] outScores) {
+            int base = slot * k;
+            int size = sizes[slot];
+            for (int i = size - 1; i >= 0; i--) {
+                outIds[i] = ids[base];
+                if (outScores != null) {
+                    outScores[i] = scores[base];
+                }
+                siftDown(base, i, ids[base + i], scores[base + i]);
+            }
+            sizes[slot] = 0;
+            return size;
+        }
+
+        private void siftUp(int base, int index, int id, float score) {
+            while (index > 0) {
+                int parent = (index - 1) >>> 1;
+                if (scores[base + parent] <= score) {
+                    break;
+                }
+                ids[base + index] = ids[base + parent];
+                scores[base + index] = scores[base + parent];
+                index = parent;
+            }
+            ids[base + index] = id;
+            scores[base + index] = score;
+        }
+
+        private void siftDown(int base, int size, int id, float score) {
+            int index = 0;
+            while (true) {
+                int child = 2 * index + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && scores[base + child + 1] < scores[base + child]) {
+                    child++;
+                }
+                if (score <= scores[base + child]) {
+                    break;
+                }
+                ids[base + index] = ids[base + child];
+                scores[base + index] = scores[base + child];
+                index = child;
+            }
+            if (size > 0) {
+                ids[base + index] = id;
+                scores[base + index] = score;
+            }
+        }
+    }
+}
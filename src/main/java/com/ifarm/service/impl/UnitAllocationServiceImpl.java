@@ -0,0 +1,253 @@
+package com.ifarm.service.impl;
+
+import com.ifarm.common.exception.BusinessException;
+import com.ifarm.common.util.TransactionUtils;
+import com.ifarm.entity.ProjectUnit;
+import com.ifarm.mapper.ProjectUnitMapper;
+import com.ifarm.service.IUnitAllocationService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 单元分配服务实现类
+ *
+ * 数据库中的单元状态是唯一依据：位图认领的单元仍需通过 FOR UPDATE SKIP LOCKED
+ * 锁定并条件更新才算分配成功；位图与数据库不一致时丢弃位图，下次访问重新加载。
+ *
+ * @author ifarm
+ * @since 2025-01-19
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class UnitAllocationServiceImpl implements IUnitAllocationService {
+
+    private static final int STATUS_AVAILABLE = 1;
+    private static final int STATUS_ADOPTED = 2;
+
+    private final ProjectUnitMapper projectUnitMapper;
+
+    private final Map<Long, UnitPool> pools = new ConcurrentHashMap<>();
+
+    @Override
+    public List<Long> allocate(Long projectId, Integer unitCount) {
+        if (projectId == null || unitCount == null || unitCount <= 0) {
+            throw new BusinessException("参数无效");
+        }
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new BusinessException("单元分配必须在事务中执行");
+        }
+
+        List<Long> allocated = new ArrayList<>(unitCount);
+        UnitPool pool = poolOf(projectId);
+        if (pool != null) {
+            // 事务回滚时归还本次分配的单元
+            TransactionUtils.afterCompletion(null, () -> pool.free(allocated));
+
+            List<Long> claimed = pool.claim(unitCount);
+            if (!claimed.isEmpty()) {
+                List<Long> locked = projectUnitMapper.lockUnitIdsByStatus(claimed, STATUS_AVAILABLE);
+                if (locked.size() < claimed.size()) {
+                    // 部分单元已被其他途径占用，位图已过期
+                    pools.remove(projectId, pool);
+                    log.warn("单元位图与数据库不一致，丢弃位图: projectId={}, 认领: {}, 锁定: {}",
+                            projectId, claimed.size(), locked.size());
+                }
+                if (!locked.isEmpty()) {
+                    projectUnitMapper.updateStatusIfMatch(locked, STATUS_AVAILABLE, STATUS_ADOPTED);
+                    allocated.addAll(locked);
+                }
+            }
+        }
+
+        // 位图不可用或不足时，由数据库直接锁定空闲单元
+        int shortage = unitCount - allocated.size();
+        if (shortage > 0) {
+            List<Long> locked = projectUnitMapper.lockFreeUnitIds(projectId, shortage);
+            if (!locked.isEmpty()) {
+                projectUnitMapper.updateStatusIfMatch(locked, STATUS_AVAILABLE, STATUS_ADOPTED);
+                allocated.addAll(locked);
+                if (pool != null) {
+                    pool.markAllocated(locked);
+                }
+            }
+            log.debug("数据库路径分配单元: projectId={}, 需要: {}, 锁定: {}", projectId, shortage, locked.size());
+        }
+
+        if (allocated.size() < unitCount) {
+            throw new BusinessException("可用单元数量不足");
+        }
+        return allocated;
+    }
+
+    @Override
+    public int release(List<Long> unitIds) {
+        if (unitIds == null || unitIds.isEmpty()) {
+            return 0;
+        }
+
+        int rows = projectUnitMapper.updateStatusIfMatch(unitIds, STATUS_ADOPTED, STATUS_AVAILABLE);
+        boolean complete = rows == unitIds.size();
+        TransactionUtils.afterCommit(() -> pools.forEach((projectId, pool) -> {
+            if (!pool.containsAny(unitIds)) {
+                return;
+            }
+            if (complete) {
+                pool.free(unitIds);
+            } else {
+                // 无法确定哪些单元被释放，重新加载
+                pools.remove(projectId, pool);
+            }
+        }));
+        return rows;
+    }
+
+    @Override
+    public void reload(Long projectId) {
+        if (projectId == null) {
+            return;
+        }
+
+        UnitPool pool = loadPool(projectId);
+        if (pool == null) {
+            pools.remove(projectId);
+        } else {
+            pools.put(projectId, pool);
+            log.debug("加载单元位图: projectId={}, 单元数: {}, 空闲: {}", projectId, pool.size(), pool.freeCount());
+        }
+    }
+
+    @Override
+    public void evict(Long projectId) {
+        if (projectId != null) {
+            pools.remove(projectId);
+        }
+    }
+
+    @Override
+    public int getFreeUnitCount(Long projectId) {
+        if (projectId == null) {
+            return 0;
+        }
+
+        UnitPool pool = poolOf(projectId);
+        return pool == null ? 0 : pool.freeCount();
+    }
+
+    /**
+     * 获取项目位图，不存在时从数据库加载
+     */
+    private UnitPool poolOf(Long projectId) {
+        return pools.computeIfAbsent(projectId, this::loadPool);
+    }
+
+    private UnitPool loadPool(Long projectId) {
+        List<ProjectUnit> units = projectUnitMapper.selectUnitStatesByProjectId(projectId);
+        return units.isEmpty() ? null : new UnitPool(units);
+    }
+
+    /**
+     * 空闲单元位图
+     * 单元ID按升序排列，第i位为1表示第i个单元空闲；
+     * 认领时从轮转的起始字开始CAS清位，使并发请求分散在不同的字上
+     */
+    private static final class UnitPool {
+
+        private final long[] unitIds;
+        private final AtomicLongArray words;
+        private final AtomicInteger cursor = new AtomicInteger();
+
+        UnitPool(List<ProjectUnit> units) {
+            this.unitIds = new long[units.size()];
+            this.words = new AtomicLongArray((units.size() + 63) >>> 6);
+            for (int i = 0; i < units.size(); i++) {
+                ProjectUnit unit = units.get(i);
+                unitIds[i] = unit.getId();
+                if (unit.getUnitStatus() != null && unit.getUnitStatus() == STATUS_AVAILABLE) {
+                    words.getAndAccumulate(i >>> 6, 1L << i, (word, bit) -> word | bit);
+                }
+            }
+        }
+
+        List<Long> claim(int count) {
+            List<Long> claimed = new ArrayList<>(count);
+            int length = words.length();
+            int start = Math.floorMod(cursor.getAndIncrement(), length);
+            for (int i = 0; i < length && claimed.size() < count; i++) {
+                int index = (start + i) % length;
+                while (true) {
+                    long word = words.get(index);
+                    if (word == 0) {
+                        break;
+                    }
+
+                    long mask = 0;
+                    long remaining = word;
+                    for (int need = count - claimed.size(); remaining != 0 && need > 0; need--) {
+                        long bit = Long.lowestOneBit(remaining);
+                        mask |= bit;
+                        remaining &= ~bit;
+                    }
+
+                    if (words.compareAndSet(index, word, word & ~mask)) {
+                        for (; mask != 0; mask &= mask - 1) {
+                            claimed.add(unitIds[(index << 6) + Long.numberOfTrailingZeros(mask)]);
+                        }
+                        break;
+                    }
+                }
+            }
+            return claimed;
+        }
+
+        void free(Collection<Long> ids) {
+            for (Long id : ids) {
+                int position = Arrays.binarySearch(unitIds, id);
+                if (position >= 0) {
+                    words.getAndAccumulate(position >>> 6, 1L << position, (word, bit) -> word | bit);
+                }
+            }
+        }
+
+        void markAllocated(Collection<Long> ids) {
+            for (Long id : ids) {
+                int position = Arrays.binarySearch(unitIds, id);
+                if (position >= 0) {
+                    words.getAndAccumulate(position >>> 6, 1L << position, (word, bit) -> word & ~bit);
+                }
+            }
+        }
+
+        boolean containsAny(Collection<Long> ids) {
+            for (Long id : ids) {
+                if (Arrays.binarySearch(unitIds, id) >= 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        int size() {
+            return unitIds.length;
+        }
+
+        int freeCount() {
+            int count = 0;
+            for (int i = 0; i < words.length(); i++) {
+                count += Long.bitCount(words.get(i));
+            }
+            return count;
+        }
+    }
+}
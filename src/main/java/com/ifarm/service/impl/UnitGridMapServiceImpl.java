@@ -0,0 +1,340 @@
+package com.ifarm.service.impl;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ifarm.common.exception.BusinessException;
+import com.ifarm.common.util.TransactionUtils;
+import com.ifarm.common.util.UnitLayout;
+import com.ifarm.entity.ProjectUnit;
+import com.ifarm.mapper.ProjectUnitMapper;
+import com.ifarm.service.IUnitGridMapService;
+import com.ifarm.vo.projectunit.UnitGridMapVO;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 项目单元网格图服务实现类
+ *
+ * 网格图首次访问时从数据库构建并缓存，之后随单元状态变化在事务提交后增量更新；
+ * 每次变化分配全局递增的版本号，并保留最近的变化记录用于增量轮询。
+ *
+ * @author ifarm
+ * @since 2025-01-19
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class UnitGridMapServiceImpl implements IUnitGridMapService {
+
+    private static final int BITS_PER_CELL = 3;
+
+    /**
+     * 每个项目保留的最近变化数
+     */
+    private static final int MAX_CHANGES = 4096;
+
+    /**
+     * 全局版本号，以启动时间为起点，保证重启或重建后版本号不回退
+     */
+    private static final AtomicLong VERSION = new AtomicLong(System.currentTimeMillis() * 1000);
+
+    private final ProjectUnitMapper projectUnitMapper;
+    private final ObjectMapper objectMapper;
+
+    private final Map<Long, GridMap> gridMaps = new ConcurrentHashMap<>();
+
+    @Override
+    public UnitGridMapVO getGridMap(Long projectId, Long sinceVersion) {
+        if (projectId == null) {
+            throw new BusinessException("项目ID不能为空");
+        }
+
+        log.debug("获取项目单元网格图: projectId={}, sinceVersion={}", projectId, sinceVersion);
+        try {
+            GridMap gridMap = gridMaps.computeIfAbsent(projectId, this::buildGridMap);
+            if (gridMap == null) {
+                throw new BusinessException("项目没有单元");
+            }
+            return gridMap.snapshot(projectId, sinceVersion);
+        } catch (BusinessException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("获取项目单元网格图失败", e);
+            throw new BusinessException("获取项目单元网格图失败");
+        }
+    }
+
+    @Override
+    public void onUnitStatusChanged(Collection<Long> unitIds, Integer unitStatus) {
+        if (unitIds == null || unitIds.isEmpty() || unitStatus == null) {
+            return;
+        }
+
+        List<Long> ids = List.copyOf(unitIds);
+        TransactionUtils.afterCommit(() -> gridMaps.values().forEach(gridMap -> gridMap.apply(ids, unitStatus)));
+    }
+
+    @Override
+    public void evictByUnitIds(Collection<Long> unitIds) {
+        if (unitIds == null || unitIds.isEmpty()) {
+            return;
+        }
+
+        List<Long> ids = List.copyOf(unitIds);
+        TransactionUtils.afterCommit(() -> gridMaps.entrySet().removeIf(entry -> entry.getValue().containsAny(ids)));
+    }
+
+    @Override
+    public void evict(Long projectId) {
+        if (projectId != null) {
+            TransactionUtils.afterCommit(() -> gridMaps.remove(projectId));
+        }
+    }
+
+    /**
+     * 从数据库构建网格图
+     * 优先使用单元位置信息中的行列；位置缺失、重复或过于稀疏时按默认网格顺序排列
+     */
+    private GridMap buildGridMap(Long projectId) {
+        List<ProjectUnit> units = projectUnitMapper.selectUnitGridByProjectId(projectId);
+        if (units.isEmpty()) {
+            return null;
+        }
+
+        int size = units.size();
+        int[] unitRows = new int[size];
+        int[] unitColumns = new int[size];
+        int rows = 0;
+        int columns = 0;
+        boolean located = true;
+        for (int i = 0; i < size && located; i++) {
+            int[] position = parsePosition(units.get(i).getLocationInfo());
+            if (position == null) {
+                located = false;
+            } else {
+                unitRows[i] = position[0];
+                unitColumns[i] = position[1];
+                rows = Math.max(rows, position[0]);
+                columns = Math.max(columns, position[1]);
+            }
+        }
+        if (located && (long) rows * columns > 4L * size + 1024) {
+            located = false;
+        }
+
+        if (!located) {
+            UnitLayout layout = UnitLayout.grid(UnitLayout.DEFAULT_COLUMNS);
+            columns = Math.min(size, UnitLayout.DEFAULT_COLUMNS);
+            rows = (size + UnitLayout.DEFAULT_COLUMNS - 1) / UnitLayout.DEFAULT_COLUMNS;
+            for (int i = 0; i < size; i++) {
+                int[] position = layout.locate(i + 1);
+                unitRows[i] = position[0];
+                unitColumns[i] = position[1];
+            }
+        }
+
+        GridMap gridMap = new GridMap(rows, columns, size);
+        for (int i = 0; i < size; i++) {
+            ProjectUnit unit = units.get(i);
+            int cell = (unitRows[i] - 1) * columns + (unitColumns[i] - 1);
+            if (gridMap.cells[cell] != 0) {
+                log.warn("项目单元位置重复，改用默认网格: projectId={}, unitId={}", projectId, unit.getId());
+                return buildSequentialGridMap(units);
+            }
+            gridMap.unitIds[i] = unit.getId();
+            gridMap.cellOf[i] = cell;
+            gridMap.cells[cell] = toCellValue(unit.getUnitStatus());
+        }
+        log.debug("构建项目单元网格图: projectId={}, {}行 x {}列, 单元数: {}", projectId, rows, columns, size);
+        return gridMap;
+    }
+
+    private GridMap buildSequentialGridMap(List<ProjectUnit> units) {
+        int size = units.size();
+        int columns = Math.min(size, UnitLayout.DEFAULT_COLUMNS);
+        GridMap gridMap = new GridMap((size + columns - 1) / columns, columns, size);
+        for (int i = 0; i < size; i++) {
+            gridMap.unitIds[i] = units.get(i).getId();
+            gridMap.cellOf[i] = i;
+            gridMap.cells[i] = toCellValue(units.get(i).getUnitStatus());
+        }
+        return gridMap;
+    }
+
+    private int[] parsePosition(String locationInfo) {
+        if (!StringUtils.hasText(locationInfo)) {
+            return null;
+        }
+        try {
+            JsonNode node = objectMapper.readTree(locationInfo);
+            int row = node.path("row").asInt(0);
+            int column = node.path("column").asInt(0);
+            return row > 0 && column > 0 ? new int[]{row, column} : null;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private static byte toCellValue(Integer unitStatus) {
+        return unitStatus == null || unitStatus < 1 || unitStatus > 7 ? 0 : unitStatus.byteValue();
+    }
+
+    /**
+     * 单个项目的网格图
+     * 单元ID按升序排列，cellOf[i]为第i个单元所在格子；cells按行优先存放各格子状态，0表示空位
+     */
+    private static final class GridMap {
+
+        private final int rows;
+        private final int columns;
+        private final long[] unitIds;
+        private final int[] cellOf;
+        private final byte[] cells;
+
+        /**
+         * 最近的变化记录：{版本号, 格子序号, 状态}
+         */
+        private final ArrayDeque<long[]> changes = new ArrayDeque<>();
+
+        /**
+         * 变化记录覆盖的起始版本（早于该版本的客户端只能取全量）
+         */
+        private long baseVersion;
+        private long version;
+
+        private long encodedVersion = -1;
+        private String encoding;
+        private String encodedData;
+
+        GridMap(int rows, int columns, int unitCount) {
+            this.rows = rows;
+            this.columns = columns;
+            this.unitIds = new long[unitCount];
+            this.cellOf = new int[unitCount];
+            this.cells = new byte[rows * columns];
+            this.version = VERSION.incrementAndGet();
+            this.baseVersion = version;
+        }
+
+        synchronized void apply(Collection<Long> ids, int unitStatus) {
+            byte value = toCellValue(unitStatus);
+            for (Long id : ids) {
+                int position = Arrays.binarySearch(unitIds, id);
+                if (position < 0) {
+                    continue;
+                }
+                int cell = cellOf[position];
+                if (cells[cell] == value) {
+                    continue;
+                }
+                cells[cell] = value;
+                version = VERSION.incrementAndGet();
+                changes.addLast(new long[]{version, cell, value});
+                if (changes.size() > MAX_CHANGES) {
+                    baseVersion = changes.removeFirst()[0];
+                }
+            }
+        }
+
+        boolean containsAny(Collection<Long> ids) {
+            for (Long id : ids) {
+                if (Arrays.binarySearch(unitIds, id) >= 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        synchronized UnitGridMapVO snapshot(Long projectId, Long sinceVersion) {
+            UnitGridMapVO vo = new UnitGridMapVO();
+            vo.setProjectId(projectId);
+            vo.setVersion(version);
+            vo.setRows(rows);
+            vo.setColumns(columns);
+            vo.setUnitCount(unitIds.length);
+            vo.setBitsPerCell(BITS_PER_CELL);
+
+            if (sinceVersion != null && sinceVersion == version) {
+                vo.setEncoding("NONE");
+                return vo;
+            }
+
+            if (sinceVersion != null && sinceVersion >= baseVersion && sinceVersion < version) {
+                List<Integer> diff = new ArrayList<>();
+                for (long[] change : changes) {
+                    if (change[0] > sinceVersion) {
+                        diff.add((int) change[1]);
+                        diff.add((int) change[2]);
+                    }
+                }
+                // 变化过多时全量数据更小
+                if (diff.size() / 2 <= cells.length / 8) {
+                    vo.setEncoding("DIFF");
+                    vo.setChanges(diff);
+                    return vo;
+                }
+            }
+
+            if (encodedVersion != version) {
+                byte[] packed = pack();
+                byte[] runs = runLengthEncode();
+                encoding = runs.length < packed.length ? "RLE" : "PACKED";
+                encodedData = Base64.getEncoder().encodeToString(runs.length < packed.length ? runs : packed);
+                encodedVersion = version;
+            }
+            vo.setEncoding(encoding);
+            vo.setData(encodedData);
+            return vo;
+        }
+
+        /**
+         * 每格3位按位打包，第i格位于第3i位起（字节内低位在前）
+         */
+        private byte[] pack() {
+            byte[] packed = new byte[(cells.length * BITS_PER_CELL + 7) / 8];
+            for (int i = 0; i < cells.length; i++) {
+                int bit = i * BITS_PER_CELL;
+                int value = cells[i] << (bit & 7);
+                packed[bit >>> 3] |= (byte) value;
+                if ((bit & 7) > 8 - BITS_PER_CELL) {
+                    packed[(bit >>> 3) + 1] |= (byte) (value >>> 8);
+                }
+            }
+            return packed;
+        }
+
+        /**
+         * 游程编码，每个游程写为无符号变长整数 (长度 << 3) | 状态
+         */
+        private byte[] runLengthEncode() {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            int i = 0;
+            while (i < cells.length) {
+                int start = i;
+                while (i < cells.length && cells[i] == cells[start]) {
+                    i++;
+                }
+                long run = ((long) (i - start) << BITS_PER_CELL) | cells[start];
+                while ((run & ~0x7FL) != 0) {
+                    out.write((int) ((run & 0x7F) | 0x80));
+                    run >>>= 7;
+                }
+                out.write((int) run);
+            }
+            return out.toByteArray();
+        }
+    }
+}
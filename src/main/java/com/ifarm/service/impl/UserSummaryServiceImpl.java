@@ -0,0 +1,194 @@
+package com.ifarm.service.impl;
+
+import com.ifarm.common.exception.BusinessException;
+import com.ifarm.entity.UserSummary;
+import com.ifarm.mapper.UserSummaryMapper;
+import com.ifarm.service.IUserSummaryService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.IntSupplier;
+
+/**
+ * 用户概览服务实现类
+ *
+ * 订单、认养、配送的状态变化以一条条件增减的UPDATE维护概览，与业务更新处于同一事务，
+ * 任一更新失败时整个业务事务回滚，概览不会与业务数据分离（订单支付经发件箱投递，与投递标记同一事务提交）；
+ * 概览行不存在（老用户首次变化或首次查询）时先插入空行，只有插入成功的事务按业务数据重建，重建结果已包含本次变化；
+ * 插入被忽略说明并发事务已创建该行（插入会等待对方提交），此时直接使用该行或重新执行增减，
+ * 避免多个事务各按自己读到的数据重建、后提交的结果覆盖先提交的变化。
+ * 支付事件异步投递，投递前的重建已按订单数据计入该支付：重建同时标记已计入的订单，投递时跳过已标记的订单。
+ * 批量或任意字段的认养记录更新按所属用户重新计算认养数和产量。
+ *
+ * @author ifarm
+ * @since 2025-01-19
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class UserSummaryServiceImpl implements IUserSummaryService {
+
+    private final UserSummaryMapper userSummaryMapper;
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public UserSummary getUserSummary(Long userId) {
+        if (userId == null) {
+            throw new BusinessException("用户ID不能为空");
+        }
+
+        try {
+            UserSummary summary = userSummaryMapper.selectById(userId);
+            if (summary == null) {
+                if (userSummaryMapper.insertIfAbsent(userId) > 0) {
+                    rebuildRow(userId);
+                }
+                summary = userSummaryMapper.selectById(userId);
+            }
+            return summary;
+        } catch (BusinessException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("获取用户概览失败: userId={}", userId, e);
+            throw new BusinessException("获取用户概览失败");
+        }
+    }
+
+    @Override
+    public void onOrderStatusChanged(Long userId, Integer fromStatus, Integer toStatus, BigDecimal amount, int adoptedUnits) {
+        if (userId == null || toStatus == null || (Objects.equals(fromStatus, toStatus) && adoptedUnits == 0)) {
+            return;
+        }
+
+        try {
+            BigDecimal orderAmount = amount != null ? amount : BigDecimal.ZERO;
+            applyDelta(userId, () -> userSummaryMapper.applyOrderDelta(userId, fromStatus, toStatus, orderAmount, adoptedUnits));
+        } catch (Exception e) {
+            log.error("更新用户订单概览失败: userId={}, {} -> {}", userId, fromStatus, toStatus, e);
+            throw new BusinessException("更新用户概览失败");
+        }
+    }
+
+    @Override
+    public void onOrderPaid(Long orderId, Long userId, BigDecimal amount, int adoptedUnits) {
+        if (orderId == null || userId == null) {
+            return;
+        }
+
+        try {
+            if (userSummaryMapper.markOrderApplied(orderId) == 0) {
+                log.debug("订单支付已由概览重建计入，跳过: orderId={}", orderId);
+                return;
+            }
+        } catch (Exception e) {
+            log.error("标记订单概览失败: orderId={}", orderId, e);
+            throw new BusinessException("更新用户概览失败");
+        }
+        onOrderStatusChanged(userId, 1, 2, amount, adoptedUnits);
+    }
+
+    @Override
+    public void onAdoptionStatusChanged(Long userId, Integer fromStatus, Integer toStatus, BigDecimal yieldDelta) {
+        boolean yieldChanged = yieldDelta != null && yieldDelta.signum() != 0;
+        if (userId == null || toStatus == null || (Objects.equals(fromStatus, toStatus) && !yieldChanged)) {
+            return;
+        }
+
+        try {
+            BigDecimal delta = yieldChanged ? yieldDelta : BigDecimal.ZERO;
+            applyDelta(userId, () -> userSummaryMapper.applyAdoptionDelta(userId, fromStatus, toStatus, delta));
+        } catch (Exception e) {
+            log.error("更新用户认养概览失败: userId={}, {} -> {}", userId, fromStatus, toStatus, e);
+            throw new BusinessException("更新用户概览失败");
+        }
+    }
+
+    @Override
+    public void onDeliveryStatusChanged(Long userId, Integer fromStatus, Integer toStatus) {
+        if (userId == null || toStatus == null || Objects.equals(fromStatus, toStatus)) {
+            return;
+        }
+
+        try {
+            applyDelta(userId, () -> userSummaryMapper.applyDeliveryDelta(userId, fromStatus, toStatus));
+        } catch (Exception e) {
+            log.error("更新用户配送概览失败: userId={}, {} -> {}", userId, fromStatus, toStatus, e);
+            throw new BusinessException("更新用户概览失败");
+        }
+    }
+
+    @Override
+    public void refreshAdoptions(List<Long> recordIds) {
+        if (recordIds == null || recordIds.isEmpty()) {
+            return;
+        }
+
+        try {
+            // 概览行不存在的用户在首次查询或下次状态变化时重建
+            userSummaryMapper.refreshAdoptionsByRecordIds(recordIds);
+        } catch (Exception e) {
+            log.error("重新计算用户认养概览失败: recordIds={}", recordIds, e);
+            throw new BusinessException("更新用户概览失败");
+        }
+    }
+
+    @Override
+    public void refreshProjectAdoptions(Long projectId) {
+        if (projectId == null) {
+            return;
+        }
+
+        try {
+            int users = userSummaryMapper.refreshAdoptionsByProject(projectId);
+            log.debug("重新计算项目认养用户概览: projectId={}, 用户{}个", projectId, users);
+        } catch (Exception e) {
+            log.error("重新计算项目认养用户概览失败: projectId={}", projectId, e);
+            throw new BusinessException("更新用户概览失败");
+        }
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public UserSummary rebuild(Long userId) {
+        if (userId == null) {
+            throw new BusinessException("用户ID不能为空");
+        }
+
+        log.info("重建用户概览: userId={}", userId);
+        try {
+            // 先锁定概览行，等待正在执行增减的事务提交后再重建
+            userSummaryMapper.insertIfAbsent(userId);
+            userSummaryMapper.lockRow(userId);
+            rebuildRow(userId);
+            return userSummaryMapper.selectById(userId);
+        } catch (Exception e) {
+            log.error("重建用户概览失败: userId={}", userId, e);
+            throw new BusinessException("重建用户概览失败");
+        }
+    }
+
+    /**
+     * 执行概览增减，概览行不存在时创建并重建；并发事务已创建该行时重新执行增减（须在事务中执行）
+     */
+    private void applyDelta(Long userId, IntSupplier delta) {
+        if (delta.getAsInt() > 0) {
+            return;
+        }
+        if (userSummaryMapper.insertIfAbsent(userId) > 0 || delta.getAsInt() == 0) {
+            rebuildRow(userId);
+        }
+    }
+
+    /**
+     * 重建概览行并标记已计入的订单（须在事务中执行，且本事务已插入或锁定该行）
+     */
+    private void rebuildRow(Long userId) {
+        userSummaryMapper.rebuild(userId);
+        userSummaryMapper.markUserOrdersApplied(userId);
+    }
+}
@@ -0,0 +1,349 @@
+package com.ifarm.service.impl;
+
+import com.ifarm.common.exception.BusinessException;
+import com.ifarm.common.util.TransactionUtils;
+import com.ifarm.entity.SystemConfig;
+import com.ifarm.mapper.AdoptionProjectMapper;
+import com.ifarm.service.ISystemConfigService;
+import com.ifarm.service.IWaitingRoomService;
+import com.ifarm.vo.waitingroom.WaitingRoomTicketVO;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 抢购排队服务实现类
+ *
+ * 每个开启限流抢购的项目维护一个递增的排队号序列和已放行的最大排队号，
+ * 定时任务按每秒放行人数推进已放行位置（不足一人的部分累计到下次），
+ * 排队号不大于已放行位置即获得入场资格，有效期从该批放行时开始计算。
+ * 排队状态只在内存中维护，限流抢购的开关与参数保存在系统配置中，重启后恢复。
+ *
+ * @author ifarm
+ * @since 2025-01-19
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class WaitingRoomServiceImpl implements IWaitingRoomService {
+
+    /**
+     * 系统配置键前缀，值为 "每秒放行人数,入场资格有效秒数"
+     */
+    private static final String CONFIG_KEY_PREFIX = "launch_mode_project_";
+
+    private static final int MAX_ADMIT_RATE = 10000;
+
+    private final AdoptionProjectMapper adoptionProjectMapper;
+    private final ISystemConfigService systemConfigService;
+
+    private final Map<Long, LaunchRoom> rooms = new ConcurrentHashMap<>();
+
+    private volatile long lastAdmitNanos = System.nanoTime();
+
+    /**
+     * 定时放行排队用户
+     */
+    @Scheduled(fixedRateString = "${ifarm.waiting-room.admit-interval:200}")
+    public void scheduledAdmit() {
+        try {
+            long now = System.nanoTime();
+            long elapsedMillis = (now - lastAdmitNanos) / 1_000_000;
+            lastAdmitNanos = now;
+            admit(elapsedMillis);
+        } catch (Exception e) {
+            log.error("放行抢购排队用户失败", e);
+        }
+    }
+
+    @Override
+    public boolean enableLaunchMode(Long projectId, Integer admitRate, Integer admissionTtlSeconds) {
+        if (projectId == null || admitRate == null || admissionTtlSeconds == null) {
+            throw new BusinessException("参数不能为空");
+        }
+        if (admitRate <= 0 || admitRate > MAX_ADMIT_RATE) {
+            throw new BusinessException("每秒放行人数必须在1到" + MAX_ADMIT_RATE + "之间");
+        }
+        if (admissionTtlSeconds <= 0) {
+            throw new BusinessException("入场资格有效期必须大于0");
+        }
+
+        log.info("开启限流抢购: projectId={}, admitRate={}/s, admissionTtl={}s", projectId, admitRate, admissionTtlSeconds);
+        try {
+            if (adoptionProjectMapper.selectById(projectId) == null) {
+                throw new BusinessException("项目不存在");
+            }
+
+            systemConfigService.setConfigValue(CONFIG_KEY_PREFIX + projectId, admitRate + "," + admissionTtlSeconds);
+            applyLaunchMode(projectId, admitRate, admissionTtlSeconds);
+            return true;
+        } catch (BusinessException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("开启限流抢购失败", e);
+            throw new BusinessException("开启限流抢购失败");
+        }
+    }
+
+    @Override
+    public boolean disableLaunchMode(Long projectId) {
+        if (projectId == null) {
+            throw new BusinessException("项目ID不能为空");
+        }
+
+        log.info("关闭限流抢购: projectId={}", projectId);
+        try {
+            String configKey = CONFIG_KEY_PREFIX + projectId;
+            if (systemConfigService.getConfigValue(configKey) != null) {
+                systemConfigService.deleteConfig(configKey);
+            }
+            return rooms.remove(projectId) != null;
+        } catch (BusinessException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("关闭限流抢购失败", e);
+            throw new BusinessException("关闭限流抢购失败");
+        }
+    }
+
+    @Override
+    public boolean isLaunchMode(Long projectId) {
+        return projectId != null && rooms.containsKey(projectId);
+    }
+
+    @Override
+    public WaitingRoomTicketVO takeTicket(Long userId, Long projectId) {
+        if (userId == null || projectId == null) {
+            throw new BusinessException("参数不能为空");
+        }
+
+        LaunchRoom room = rooms.get(projectId);
+        if (room == null) {
+            return notInLaunchMode(projectId);
+        }
+
+        long now = System.currentTimeMillis();
+        Ticket ticket = room.tickets.compute(userId, (id, existing) -> {
+            // 已使用或已过期的排队号需重新排队
+            if (existing != null && !existing.used.get() && !room.isExpired(existing.number, now)) {
+                return existing;
+            }
+            return new Ticket(room.ticketSequence.incrementAndGet());
+        });
+        return toVO(projectId, room, ticket, now);
+    }
+
+    @Override
+    public WaitingRoomTicketVO getTicket(Long userId, Long projectId) {
+        if (userId == null || projectId == null) {
+            throw new BusinessException("参数不能为空");
+        }
+
+        LaunchRoom room = rooms.get(projectId);
+        if (room == null) {
+            return notInLaunchMode(projectId);
+        }
+
+        Ticket ticket = room.tickets.get(userId);
+        if (ticket == null) {
+            WaitingRoomTicketVO vo = new WaitingRoomTicketVO();
+            vo.setProjectId(projectId);
+            vo.setLaunchMode(true);
+            vo.setAdmitted(false);
+            return vo;
+        }
+        return toVO(projectId, room, ticket, System.currentTimeMillis());
+    }
+
+    @Override
+    public boolean consumeAdmission(Long userId, Long projectId) {
+        LaunchRoom room = rooms.get(projectId);
+        if (room == null) {
+            return true;
+        }
+
+        Ticket ticket = room.tickets.get(userId);
+        if (ticket == null || !room.isAdmitted(ticket.number)
+                || room.isExpired(ticket.number, System.currentTimeMillis())) {
+            return false;
+        }
+        if (!ticket.used.compareAndSet(false, true)) {
+            return false;
+        }
+
+        // 下单失败时入场资格仍可在有效期内使用
+        TransactionUtils.afterCompletion(null, () -> ticket.used.set(false));
+        return true;
+    }
+
+    @Override
+    public void admit(long elapsedMillis) {
+        long now = System.currentTimeMillis();
+        for (LaunchRoom room : rooms.values()) {
+            room.admit(elapsedMillis, now);
+        }
+    }
+
+    @Override
+    public void reload() {
+        int restored = 0;
+        for (SystemConfig config : systemConfigService.getAllConfigs()) {
+            String key = config.getConfigKey();
+            if (key == null || !key.startsWith(CONFIG_KEY_PREFIX)) {
+                continue;
+            }
+            try {
+                Long projectId = Long.valueOf(key.substring(CONFIG_KEY_PREFIX.length()));
+                String[] values = config.getConfigValue().split(",");
+                applyLaunchMode(projectId, Integer.parseInt(values[0].trim()), Integer.parseInt(values[1].trim()));
+                restored++;
+            } catch (Exception e) {
+                log.error("限流抢购配置无效: {} = {}", key, config.getConfigValue());
+            }
+        }
+        log.info("限流抢购项目恢复完成: {}个项目", restored);
+    }
+
+    private void applyLaunchMode(Long projectId, int admitRate, int admissionTtlSeconds) {
+        LaunchRoom room = rooms.computeIfAbsent(projectId, id -> new LaunchRoom());
+        room.admitRate = admitRate;
+        room.admissionTtlMillis = admissionTtlSeconds * 1000L;
+    }
+
+    private WaitingRoomTicketVO notInLaunchMode(Long projectId) {
+        WaitingRoomTicketVO vo = new WaitingRoomTicketVO();
+        vo.setProjectId(projectId);
+        vo.setLaunchMode(false);
+        vo.setAdmitted(true);
+        return vo;
+    }
+
+    private WaitingRoomTicketVO toVO(Long projectId, LaunchRoom room, Ticket ticket, long now) {
+        WaitingRoomTicketVO vo = new WaitingRoomTicketVO();
+        vo.setProjectId(projectId);
+        vo.setLaunchMode(true);
+        vo.setTicketNumber(ticket.number);
+
+        if (room.isAdmitted(ticket.number)) {
+            Long admittedAt = room.admittedAt(ticket.number);
+            boolean valid = admittedAt != null && !ticket.used.get() && !room.isExpired(ticket.number, now);
+            vo.setAdmitted(valid);
+            vo.setAheadCount(0L);
+            vo.setEstimatedWaitSeconds(0L);
+            if (valid) {
+                vo.setAdmissionExpireTime(LocalDateTime.ofInstant(
+                        Instant.ofEpochMilli(admittedAt + room.admissionTtlMillis), ZoneId.systemDefault()));
+            }
+        } else {
+            long ahead = ticket.number - room.admittedUpTo - 1;
+            vo.setAdmitted(false);
+            vo.setAheadCount(ahead);
+            vo.setEstimatedWaitSeconds((ahead + room.admitRate) / room.admitRate);
+        }
+        return vo;
+    }
+
+    /**
+     * 单个项目的排队状态
+     */
+    private static class LaunchRoom {
+
+        private volatile int admitRate;
+        private volatile long admissionTtlMillis;
+
+        private final AtomicLong ticketSequence = new AtomicLong();
+        private final Map<Long, Ticket> tickets = new ConcurrentHashMap<>();
+
+        /**
+         * 已放行的最大排队号
+         */
+        private volatile long admittedUpTo;
+
+        /**
+         * 入场资格已全部过期的最大排队号
+         */
+        private volatile long expiredUpTo;
+
+        /**
+         * 每批放行的最大排队号 -> 放行时间
+         */
+        private final ConcurrentSkipListMap<Long, Long> admitBatches = new ConcurrentSkipListMap<>();
+
+        /**
+         * 不足一人的放行额度，只在放行任务中访问
+         */
+        private double carry;
+
+        boolean isAdmitted(long number) {
+            return number <= admittedUpTo;
+        }
+
+        boolean isExpired(long number, long now) {
+            if (number <= expiredUpTo) {
+                return true;
+            }
+            Long admittedAt = admittedAt(number);
+            return admittedAt != null && admittedAt + admissionTtlMillis < now;
+        }
+
+        Long admittedAt(long number) {
+            if (number <= expiredUpTo) {
+                return null;
+            }
+            Map.Entry<Long, Long> batch = admitBatches.ceilingEntry(number);
+            return batch == null ? null : batch.getValue();
+        }
+
+        synchronized void admit(long elapsedMillis, long now) {
+            long issued = ticketSequence.get();
+            if (admittedUpTo >= issued) {
+                // 无人排队时不累计额度，避免之后瞬间放行一大批
+                carry = 0;
+            } else {
+                carry += admitRate * elapsedMillis / 1000.0;
+                long count = (long) carry;
+                if (count > 0) {
+                    carry -= count;
+                    long upTo = Math.min(admittedUpTo + count, issued);
+                    admitBatches.put(upTo, now);
+                    admittedUpTo = upTo;
+                }
+            }
+
+            // 先更新过期位置再移除批次，读取方总能看到其中之一
+            long previousExpired = expiredUpTo;
+            Map.Entry<Long, Long> oldest;
+            while ((oldest = admitBatches.firstEntry()) != null && oldest.getValue() + admissionTtlMillis < now) {
+                expiredUpTo = oldest.getKey();
+                admitBatches.pollFirstEntry();
+            }
+            long expired = expiredUpTo;
+            if (expired > previousExpired) {
+                tickets.values().removeIf(ticket -> ticket.number <= expired);
+            }
+        }
+    }
+
+    /**
+     * 排队号
+     */
+    private static class Ticket {
+
+        private final long number;
+        private final AtomicBoolean used = new AtomicBoolean();
+
+        Ticket(long number) {
+            this.number = number;
+        }
+    }
+}
@@ -0,0 +1,476 @@
+package com.ifarm.service.impl;
+
+import com.ifarm.common.event.ProjectChangedEvent;
+import com.ifarm.common.exception.BusinessException;
+import com.ifarm.common.util.TransactionUtils;
+import com.ifarm.entity.AdoptionProject;
+import com.ifarm.entity.ProjectWaitlist;
+import com.ifarm.mapper.AdoptionProjectMapper;
+import com.ifarm.mapper.ProjectWaitlistMapper;
+import com.ifarm.service.IProjectInventoryService;
+import com.ifarm.service.IWaitlistService;
+import com.ifarm.vo.waitlist.WaitlistEntryVO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 认养候补服务实现类
+ *
+ * 每个项目一个内存队列（排队中按候补ID先后排列，另记已分配的候补），以候补表为准并在启动时恢复；
+ * 同一项目的队列操作串行执行。分配时在一个事务中预占库存并将队首标记为已分配，
+ * 保留期内用户下单直接使用该预占；保留超时、用户退出时释放预占并继续分配。
+ * 项目有人排队时，未获分配的新订单直接拒绝，避免售罄项目被反复重试下单。
+ * 候补单元数不能超过可释放的单元数（可用单元加待支付订单和候补分配占用的单元）；
+ * 队首因订单支付等原因再也无法满足时置为失效，避免一个候补长期阻塞整个项目。
+ *
+ * @author ifarm
+ * @since 2025-01-19
+ */
+@Slf4j
+@Service
+public class WaitlistServiceImpl implements IWaitlistService {
+
+    private static final int STATUS_WAITING = 1;
+    private static final int STATUS_OFFERED = 2;
+    private static final int STATUS_EXPIRED = 4;
+    private static final int STATUS_CANCELLED = 5;
+
+    private final ProjectWaitlistMapper projectWaitlistMapper;
+    private final AdoptionProjectMapper adoptionProjectMapper;
+    private final IProjectInventoryService projectInventoryService;
+    private final TransactionTemplate offerTransaction;
+
+    @Value("${ifarm.waitlist.offer-hold-seconds:300}")
+    private long offerHoldSeconds;
+
+    private final Map<Long, ProjectQueue> queues = new ConcurrentHashMap<>();
+
+    public WaitlistServiceImpl(ProjectWaitlistMapper projectWaitlistMapper,
+                               AdoptionProjectMapper adoptionProjectMapper,
+                               IProjectInventoryService projectInventoryService,
+                               PlatformTransactionManager transactionManager) {
+        this.projectWaitlistMapper = projectWaitlistMapper;
+        this.adoptionProjectMapper = adoptionProjectMapper;
+        this.projectInventoryService = projectInventoryService;
+        // 分配可能在订单事务的提交回调中执行，必须使用新事务
+        this.offerTransaction = new TransactionTemplate(transactionManager);
+        this.offerTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @Override
+    public WaitlistEntryVO joinWaitlist(Long userId, Long projectId, Integer unitCount) {
+        if (userId == null || projectId == null || unitCount == null || unitCount <= 0) {
+            throw new BusinessException("参数无效");
+        }
+
+        log.info("加入候补队列: userId={}, projectId={}, unitCount={}", userId, projectId, unitCount);
+        try {
+            AdoptionProject project = adoptionProjectMapper.selectById(projectId);
+            if (project == null) {
+                throw new BusinessException("项目不存在");
+            }
+            if (project.getProjectStatus() != 2) {
+                throw new BusinessException("项目不在认养中，无法候补");
+            }
+            int releasable = releasableUnits(projectId);
+            if (unitCount > releasable) {
+                throw new BusinessException("候补单元数超过可释放的单元数，最多可候补" + releasable + "个单元");
+            }
+
+            ProjectQueue queue = queues.computeIfAbsent(projectId, id -> new ProjectQueue());
+            synchronized (queue) {
+                if (queue.find(userId) != null) {
+                    throw new BusinessException("已在该项目的候补队列中");
+                }
+                if (queue.waiting.isEmpty() && projectInventoryService.getAvailableUnits(projectId) >= unitCount) {
+                    throw new BusinessException("项目仍有可认养单元，请直接下单");
+                }
+
+                ProjectWaitlist entry = new ProjectWaitlist();
+                entry.setProjectId(projectId);
+                entry.setUserId(userId);
+                entry.setUnitCount(unitCount);
+                entry.setWaitlistStatus(STATUS_WAITING);
+                if (projectWaitlistMapper.insert(entry) <= 0) {
+                    throw new BusinessException("加入候补队列失败");
+                }
+                queue.waiting.addLast(entry);
+            }
+
+            // 加入前释放的单元可能正好满足队首
+            offerNext(projectId);
+
+            log.info("加入候补队列成功: userId={}, projectId={}", userId, projectId);
+            return getWaitlistEntry(userId, projectId);
+        } catch (BusinessException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("加入候补队列失败", e);
+            throw new BusinessException("加入候补队列失败");
+        }
+    }
+
+    @Override
+    public boolean leaveWaitlist(Long userId, Long projectId) {
+        if (userId == null || projectId == null) {
+            throw new BusinessException("参数不能为空");
+        }
+
+        log.info("退出候补队列: userId={}, projectId={}", userId, projectId);
+        try {
+            ProjectQueue queue = queues.get(projectId);
+            if (queue == null) {
+                throw new BusinessException("未在该项目的候补队列中");
+            }
+
+            boolean released;
+            synchronized (queue) {
+                ProjectWaitlist entry = queue.find(userId);
+                if (entry == null) {
+                    throw new BusinessException("未在该项目的候补队列中");
+                }
+
+                released = entry.getWaitlistStatus() == STATUS_OFFERED;
+                if (released) {
+                    // 取消分配并归还预占
+                    Boolean done = offerTransaction.execute(status -> {
+                        if (projectWaitlistMapper.updateStatusIfMatch(entry.getId(), STATUS_OFFERED, STATUS_CANCELLED) == 0) {
+                            return false;
+                        }
+                        releaseOffer(entry);
+                        return true;
+                    });
+                    if (!Boolean.TRUE.equals(done)) {
+                        throw new BusinessException("候补已下单或已失效");
+                    }
+                    queue.offered.remove(entry);
+                } else {
+                    projectWaitlistMapper.updateStatusIfMatch(entry.getId(), STATUS_WAITING, STATUS_CANCELLED);
+                    queue.waiting.remove(entry);
+                }
+            }
+
+            if (released) {
+                offerNext(projectId);
+            }
+            return true;
+        } catch (BusinessException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("退出候补队列失败", e);
+            throw new BusinessException("退出候补队列失败");
+        }
+    }
+
+    @Override
+    public WaitlistEntryVO getWaitlistEntry(Long userId, Long projectId) {
+        if (userId == null || projectId == null) {
+            return null;
+        }
+
+        ProjectQueue queue = queues.get(projectId);
+        if (queue == null) {
+            return null;
+        }
+
+        synchronized (queue) {
+            ProjectWaitlist entry = queue.find(userId);
+            if (entry == null) {
+                return null;
+            }
+
+            WaitlistEntryVO vo = new WaitlistEntryVO();
+            vo.setId(entry.getId());
+            vo.setProjectId(projectId);
+            vo.setUnitCount(entry.getUnitCount());
+            vo.setWaitlistStatus(entry.getWaitlistStatus());
+            vo.setOfferExpireTime(entry.getOfferExpireTime());
+            vo.setPosition(entry.getWaitlistStatus() == STATUS_OFFERED ? 0 : queue.positionOf(entry));
+            return vo;
+        }
+    }
+
+    @Override
+    public boolean hasWaiting(Long projectId) {
+        ProjectQueue queue = projectId == null ? null : queues.get(projectId);
+        if (queue == null) {
+            return false;
+        }
+        synchronized (queue) {
+            return !queue.waiting.isEmpty();
+        }
+    }
+
+    @Override
+    public boolean claimOffer(Long userId, Long projectId, Integer unitCount) {
+        ProjectQueue queue = projectId == null ? null : queues.get(projectId);
+        if (queue == null || userId == null || unitCount == null) {
+            return false;
+        }
+
+        synchronized (queue) {
+            ProjectWaitlist entry = queue.find(userId);
+            if (entry == null || entry.getWaitlistStatus() != STATUS_OFFERED || !entry.getUnitCount().equals(unitCount)) {
+                return false;
+            }
+
+            // 在下单事务中更新，保留期已过或已被处理时不生效
+            if (projectWaitlistMapper.markClaimed(entry.getId()) == 0) {
+                return false;
+            }
+            TransactionUtils.afterCommit(() -> {
+                synchronized (queue) {
+                    queue.offered.remove(entry);
+                }
+            });
+            log.info("候补分配已下单: userId={}, projectId={}, unitCount={}", userId, projectId, unitCount);
+            return true;
+        }
+    }
+
+    @Override
+    public void onUnitsReleased(Long projectId) {
+        if (!hasWaiting(projectId)) {
+            return;
+        }
+
+        TransactionUtils.afterCommit(() -> {
+            try {
+                offerNext(projectId);
+            } catch (Exception e) {
+                log.error("候补分配失败: projectId={}", projectId, e);
+            }
+        });
+    }
+
+    /**
+     * 定时处理超过保留期的分配
+     */
+    @Scheduled(initialDelayString = "${ifarm.waitlist.expire-check-interval:10000}",
+            fixedDelayString = "${ifarm.waitlist.expire-check-interval:10000}")
+    public void scheduledExpire() {
+        try {
+            expireOffers();
+        } catch (Exception e) {
+            log.error("处理候补分配超时失败", e);
+        }
+    }
+
+    @Override
+    public int expireOffers() {
+        LocalDateTime now = LocalDateTime.now();
+        int expired = 0;
+
+        for (Map.Entry<Long, ProjectQueue> item : queues.entrySet()) {
+            Long projectId = item.getKey();
+            ProjectQueue queue = item.getValue();
+            boolean released = false;
+
+            synchronized (queue) {
+                Iterator<ProjectWaitlist> iterator = queue.offered.iterator();
+                while (iterator.hasNext()) {
+                    ProjectWaitlist entry = iterator.next();
+                    if (entry.getOfferExpireTime() == null || entry.getOfferExpireTime().isAfter(now)) {
+                        continue;
+                    }
+
+                    Boolean done = offerTransaction.execute(status -> {
+                        if (projectWaitlistMapper.updateStatusIfMatch(entry.getId(), STATUS_OFFERED, STATUS_EXPIRED) == 0) {
+                            return false;
+                        }
+                        releaseOffer(entry);
+                        return true;
+                    });
+                    // 未更新说明已下单（下单事务提交后会移出），保留在列表中等待
+                    if (Boolean.TRUE.equals(done)) {
+                        iterator.remove();
+                        released = true;
+                        expired++;
+                        log.info("候补分配超时: userId={}, projectId={}, unitCount={}",
+                                entry.getUserId(), projectId, entry.getUnitCount());
+                    }
+                }
+
+                if (queue.waiting.isEmpty() && queue.offered.isEmpty()) {
+                    queues.remove(projectId, queue);
+                }
+            }
+
+            // 有排队时定时重试分配：覆盖其他节点释放的单元，并使无法满足的队首失效
+            if (released || !queue.waiting.isEmpty()) {
+                offerNext(projectId);
+            }
+        }
+        return expired;
+    }
+
+    /**
+     * 归还候补分配保留的单元；归还失败时可用单元数已偏差，由库存核对修正，后续分配以数据库条件扣减为准
+     */
+    private void releaseOffer(ProjectWaitlist entry) {
+        if (!projectInventoryService.release(entry.getProjectId(), entry.getUnitCount())) {
+            log.warn("候补分配保留单元归还失败，等待库存核对修正: userId={}, projectId={}, 数量: {}",
+                    entry.getUserId(), entry.getProjectId(), entry.getUnitCount());
+        }
+    }
+
+    /**
+     * 项目变更事件处理：项目结束认养时排队中的候补全部失效
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProjectChanged(ProjectChangedEvent event) {
+        Long projectId = event.getProjectId();
+        ProjectQueue queue = projectId == null ? null : queues.get(projectId);
+        if (queue == null || (event.getChangeType() != ProjectChangedEvent.ChangeType.PROJECT_UPDATED
+                && event.getChangeType() != ProjectChangedEvent.ChangeType.PROJECT_DELETED)) {
+            return;
+        }
+
+        try {
+            AdoptionProject project = adoptionProjectMapper.selectById(projectId);
+            if (project != null && project.getProjectStatus() == 2) {
+                return;
+            }
+
+            synchronized (queue) {
+                int expired = projectWaitlistMapper.expireWaitingByProjectId(projectId);
+                queue.waiting.clear();
+                log.info("项目结束认养，候补失效: projectId={}, 失效{}条", projectId, expired);
+            }
+        } catch (Exception e) {
+            log.error("处理项目候补失效失败: projectId={}", projectId, e);
+        }
+    }
+
+    @Override
+    public void reload() {
+        List<ProjectWaitlist> entries = projectWaitlistMapper.selectActive();
+        queues.clear();
+        for (ProjectWaitlist entry : entries) {
+            ProjectQueue queue = queues.computeIfAbsent(entry.getProjectId(), id -> new ProjectQueue());
+            if (entry.getWaitlistStatus() == STATUS_OFFERED) {
+                queue.offered.add(entry);
+            } else {
+                queue.waiting.addLast(entry);
+            }
+        }
+        log.info("候补队列恢复完成: 项目{}个, 候补{}条", queues.size(), entries.size());
+    }
+
+    /**
+     * 按队列顺序向队首分配，库存不足以满足队首时停止（不跳过队首）；
+     * 队首需要的单元数超过可释放的单元数时永远无法满足，置为失效后继续分配下一位
+     */
+    private void offerNext(Long projectId) {
+        ProjectQueue queue = queues.get(projectId);
+        if (queue == null) {
+            return;
+        }
+
+        synchronized (queue) {
+            while (!queue.waiting.isEmpty()) {
+                ProjectWaitlist head = queue.waiting.peekFirst();
+                LocalDateTime offerTime = LocalDateTime.now();
+                LocalDateTime expireTime = offerTime.plusSeconds(offerHoldSeconds);
+
+                Boolean offered = offerTransaction.execute(status -> {
+                    if (!projectInventoryService.reserve(projectId, head.getUnitCount())) {
+                        return false;
+                    }
+                    if (projectWaitlistMapper.markOffered(head.getId(), offerTime, expireTime) == 0) {
+                        status.setRollbackOnly();
+                        return null;
+                    }
+                    return true;
+                });
+
+                if (offered == null) {
+                    // 候补已不在排队状态，丢弃后继续
+                    queue.waiting.pollFirst();
+                    continue;
+                }
+                if (!offered) {
+                    int releasable = releasableUnits(projectId);
+                    if (head.getUnitCount() <= releasable) {
+                        break;
+                    }
+                    projectWaitlistMapper.updateStatusIfMatch(head.getId(), STATUS_WAITING, STATUS_EXPIRED);
+                    queue.waiting.pollFirst();
+                    log.info("候补无法满足，已失效: userId={}, projectId={}, unitCount={}, 可释放单元{}个",
+                            head.getUserId(), projectId, head.getUnitCount(), releasable);
+                    continue;
+                }
+
+                queue.waiting.pollFirst();
+                head.setWaitlistStatus(STATUS_OFFERED);
+                head.setOfferTime(offerTime);
+                head.setOfferExpireTime(expireTime);
+                queue.offered.add(head);
+                log.info("候补分配成功: userId={}, projectId={}, unitCount={}, 保留至{}",
+                        head.getUserId(), projectId, head.getUnitCount(), expireTime);
+            }
+        }
+    }
+
+    /**
+     * 项目最多能分配给候补的单元数：当前可用单元加待支付订单和候补分配占用的单元（均可能被释放）
+     */
+    private int releasableUnits(Long projectId) {
+        List<Map<String, Object>> rows = adoptionProjectMapper.selectInventoryCounts(List.of(projectId));
+        if (rows.isEmpty()) {
+            return 0;
+        }
+        Map<String, Object> row = rows.get(0);
+        return ((Number) row.get("available_units")).intValue()
+                + ((Number) row.get("pending_units")).intValue()
+                + ((Number) row.get("offered_units")).intValue();
+    }
+
+    /**
+     * 单个项目的候补队列
+     */
+    private static final class ProjectQueue {
+
+        private final ArrayDeque<ProjectWaitlist> waiting = new ArrayDeque<>();
+        private final List<ProjectWaitlist> offered = new ArrayList<>();
+
+        ProjectWaitlist find(Long userId) {
+            for (ProjectWaitlist entry : offered) {
+                if (entry.getUserId().equals(userId)) {
+                    return entry;
+                }
+            }
+            for (ProjectWaitlist entry : waiting) {
+                if (entry.getUserId().equals(userId)) {
+                    return entry;
+                }
+            }
+            return null;
+        }
+
+        int positionOf(ProjectWaitlist target) {
+            int position = 1;
+            for (ProjectWaitlist entry : waiting) {
+                if (entry == target) {
+                    return position;
+                }
+                position++;
+            }
+            return 0;
+        }
+    }
+}
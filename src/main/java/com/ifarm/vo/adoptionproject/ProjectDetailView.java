@@ -0,0 +1,158 @@
+package com.ifarm.vo.adoptionproject;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * 项目详情读模型
+ * 由一次联表查询组装项目、农场、地块、作物、单元状态、最新生长记录及收获汇总
+ *
+ * @author ifarm
+ * @since 2025-01-19
+ */
+@Data
+@Schema(description = "项目详情")
+public class ProjectDetailView {
+
+    @Schema(description = "项目ID", example = "1")
+    private Long id;
+
+    @Schema(description = "项目名称", example = "有机西红柿认养计划")
+    private String name;
+
+    @Schema(description = "项目描述")
+    private String description;
+
+    @Schema(description = "总单元数", example = "100")
+    private Integer totalUnits;
+
+    @Schema(description = "可认养单元数", example = "80")
+    private Integer availableUnits;
+
+    @Schema(description = "单元面积（平方米）", example = "10.00")
+    private BigDecimal unitArea;
+
+    @Schema(description = "单元价格（元）", example = "299.00")
+    private BigDecimal unitPrice;
+
+    @Schema(description = "预期产量（公斤）", example = "50.00")
+    private BigDecimal expectedYield;
+
+    @Schema(description = "种植日期", example = "2025-03-01")
+    private LocalDate plantingDate;
+
+    @Schema(description = "预期收获日期", example = "2025-07-01")
+    private LocalDate expectedHarvestDate;
+
+    @Schema(description = "项目状态（1-筹备中 2-认养中 3-种植中 4-收获中 5-已完成 6-已取消）", example = "2")
+    private Integer projectStatus;
+
+    @Schema(description = "封面图片")
+    private String coverImage;
+
+    @Schema(description = "项目图片（JSON数组）")
+    private String images;
+
+    @Schema(description = "种植计划")
+    private String plantingPlan;
+
+    @Schema(description = "养护说明")
+    private String careInstructions;
+
+    @Schema(description = "收获说明")
+    private String harvestInstructions;
+
+    @Schema(description = "农场ID", example = "1")
+    private Long farmId;
+
+    @Schema(description = "农场名称", example = "绿野有机农场")
+    private String farmName;
+
+    @Schema(description = "省份", example = "浙江省")
+    private String farmProvince;
+
+    @Schema(description = "城市", example = "杭州市")
+    private String farmCity;
+
+    @Schema(description = "区县", example = "余杭区")
+    private String farmDistrict;
+
+    @Schema(description = "详细地址")
+    private String farmAddress;
+
+    @Schema(description = "农场联系电话")
+    private String farmContactPhone;
+
+    @Schema(description = "地块ID", example = "1")
+    private Long plotId;
+
+    @Schema(description = "地块名称", example = "A区1号地块")
+    private String plotName;
+
+    @Schema(description = "地块面积（亩）", example = "5.2")
+    private BigDecimal plotArea;
+
+    @Schema(description = "土壤类型", example = "黑土")
+    private String soilType;
+
+    @Schema(description = "灌溉方式", example = "滴灌")
+    private String irrigationType;
+
+    @Schema(description = "作物ID", example = "1")
+    private Long cropId;
+
+    @Schema(description = "作物名称", example = "西红柿")
+    private String cropName;
+
+    @Schema(description = "作物品种", example = "千禧")
+    private String cropVariety;
+
+    @Schema(description = "生长周期（天）", example = "120")
+    private Integer cropGrowthCycle;
+
+    @Schema(description = "作物封面图片")
+    private String cropCoverImage;
+
+    @Schema(description = "可认养单元数量", example = "80")
+    private Long availableUnitCount;
+
+    @Schema(description = "已认养单元数量", example = "20")
+    private Long adoptedUnitCount;
+
+    @Schema(description = "种植中单元数量", example = "0")
+    private Long plantingUnitCount;
+
+    @Schema(description = "待收获单元数量", example = "0")
+    private Long harvestingUnitCount;
+
+    @Schema(description = "已收获单元数量", example = "0")
+    private Long harvestedUnitCount;
+
+    @Schema(description = "最新生长记录日期", example = "2025-04-01")
+    private LocalDate latestGrowthDate;
+
+    @Schema(description = "最新生长阶段", example = "开花期")
+    private String latestGrowthStage;
+
+    @Schema(description = "最新生长状态", example = "良好")
+    private String latestGrowthStatus;
+
+    @Schema(description = "最新株高（厘米）", example = "45.5")
+    private BigDecimal latestGrowthHeight;
+
+    @Schema(description = "最新生长记录图片（JSON数组）")
+    private String latestGrowthImages;
+
+    @Schema(description = "收获记录数", example = "0")
+    private Long harvestRecordCount;
+
+    @Schema(description = "累计收获量（公斤）", example = "0")
+    private BigDecimal totalHarvestQuantity;
+
+    @Schema(description = "读模型刷新时间")
+    private LocalDateTime refreshTime;
+}
@@ -0,0 +1,35 @@
+package com.ifarm.vo.adoptionproject;
+
+import com.ifarm.entity.AdoptionProject;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 项目筛选结果VO
+ * 
+ * @author ifarm
+ * @since 2025-01-19
+ */
+@Data
+@Schema(description = "项目筛选结果")
+public class ProjectFacetResultVO {
+
+    @Schema(description = "符合条件的项目总数", example = "36")
+    private Long total;
+
+    @Schema(description = "页码", example = "1")
+    private Long current;
+
+    @Schema(description = "每页数量", example = "10")
+    private Long size;
+
+    @Schema(description = "当前页项目（按项目ID倒序）")
+    private List<AdoptionProject> records;
+
+    @Schema(description = "各筛选维度的取值计数（维度 -> 取值 -> 项目数），每个维度的计数不受该维度自身条件限制",
+            example = "{\"cropId\":{\"1\":12,\"2\":5},\"province\":{\"浙江省\":9}}")
+    private Map<String, Map<String, Integer>> facets;
+}
@@ -0,0 +1,33 @@
+package com.ifarm.vo.order;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * 命中的促销规则VO
+ *
+ * @author ifarm
+ * @since 2025-01-19
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "命中的促销规则")
+public class AppliedPromotionVO {
+
+    @Schema(description = "规则ID", example = "1")
+    private Long ruleId;
+
+    @Schema(description = "规则名称", example = "满5单元9折")
+    private String name;
+
+    @Schema(description = "规则类型：1-数量阶梯，2-用户等级，3-限时活动，4-首单优惠", example = "1")
+    private Integer ruleType;
+
+    @Schema(description = "该规则的优惠金额", example = "49.50")
+    private BigDecimal discountAmount;
+}
@@ -0,0 +1,42 @@
+package com.ifarm.vo.order;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * 订单报价VO
+ *
+ * @author ifarm
+ * @since 2025-01-19
+ */
+@Data
+@Schema(description = "订单报价")
+public class OrderQuoteVO {
+
+    @Schema(description = "项目ID", example = "1")
+    private Long projectId;
+
+    @Schema(description = "单元价格", example = "99.00")
+    private BigDecimal unitPrice;
+
+    @Schema(description = "单元数量", example = "5")
+    private Integer unitCount;
+
+    @Schema(description = "订单总额", example = "495.00")
+    private BigDecimal totalAmount;
+
+    @Schema(description = "优惠金额", example = "49.50")
+    private BigDecimal discountAmount;
+
+    @Schema(description = "实付金额", example = "445.50")
+    private BigDecimal actualAmount;
+
+    @Schema(description = "优惠是否达到上限（达到上限时各规则优惠之和大于优惠金额）", example = "false")
+    private Boolean discountCapped;
+
+    @Schema(description = "命中的促销规则")
+    private List<AppliedPromotionVO> promotions;
+}
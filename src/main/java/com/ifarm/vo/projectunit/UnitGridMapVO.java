@@ -0,0 +1,45 @@
+package com.ifarm.vo.projectunit;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 项目单元网格图VO
+ * 
+ * @author ifarm
+ * @since 2025-01-19
+ */
+@Data
+@Schema(description = "项目单元网格图")
+public class UnitGridMapVO {
+
+    @Schema(description = "项目ID", example = "1")
+    private Long projectId;
+
+    @Schema(description = "版本号，单元状态每次变化后递增", example = "1737250000000001")
+    private Long version;
+
+    @Schema(description = "网格行数", example = "20")
+    private Integer rows;
+
+    @Schema(description = "网格列数", example = "10")
+    private Integer columns;
+
+    @Schema(description = "单元数量", example = "200")
+    private Integer unitCount;
+
+    @Schema(description = "每个格子的状态位数", example = "3")
+    private Integer bitsPerCell;
+
+    @Schema(description = "编码方式（NONE-未变化 DIFF-增量 PACKED-按位打包 RLE-游程编码）", example = "RLE")
+    private String encoding;
+
+    @Schema(description = "Base64编码的网格状态数据（按行优先，0表示空位，1-5为单元状态）；" +
+            "PACKED：每格3位，第i格位于第3i位起；RLE：由无符号变长整数组成，每个值为 (游程长度 << 3) | 状态")
+    private String data;
+
+    @Schema(description = "增量变化，依次为 [格子序号, 状态, 格子序号, 状态, ...]")
+    private List<Integer> changes;
+}
@@ -0,0 +1,38 @@
+package com.ifarm.vo.waitingroom;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 抢购排队号VO
+ *
+ * @author ifarm
+ * @since 2025-01-19
+ */
+@Data
+@Schema(description = "抢购排队号信息")
+public class WaitingRoomTicketVO {
+
+    @Schema(description = "项目ID", example = "1")
+    private Long projectId;
+
+    @Schema(description = "项目是否处于限流抢购模式（未开启时可直接下单）", example = "true")
+    private Boolean launchMode;
+
+    @Schema(description = "排队号", example = "1024")
+    private Long ticketNumber;
+
+    @Schema(description = "前面还有多少人（已入场时为0）", example = "300")
+    private Long aheadCount;
+
+    @Schema(description = "预计等待秒数", example = "6")
+    private Long estimatedWaitSeconds;
+
+    @Schema(description = "是否已获得入场资格", example = "false")
+    private Boolean admitted;
+
+    @Schema(description = "入场资格截止时间（已入场时有值，需在此之前下单）", example = "2024-06-01 10:05:00")
+    private LocalDateTime admissionExpireTime;
+}
@@ -0,0 +1,35 @@
+package com.ifarm.vo.waitlist;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 认养候补VO
+ * 
+ * @author ifarm
+ * @since 2025-01-19
+ */
+@Data
+@Schema(description = "认养候补信息")
+public class WaitlistEntryVO {
+
+    @Schema(description = "候补ID", example = "1")
+    private Long id;
+
+    @Schema(description = "项目ID", example = "1")
+    private Long projectId;
+
+    @Schema(description = "候补单元数", example = "2")
+    private Integer unitCount;
+
+    @Schema(description = "候补状态：1-排队中，2-已分配", example = "1")
+    private Integer waitlistStatus;
+
+    @Schema(description = "排队位置（从1开始，已分配时为0）", example = "3")
+    private Integer position;
+
+    @Schema(description = "分配保留截止时间（已分配时有值，需在此之前下单）", example = "2024-06-01 10:05:00")
+    private LocalDateTime offerExpireTime;
+}
@@ -0,0 +1,515 @@
+package com.ifarm.benchmark;
+
+import com.ifarm.IFarmApplication;
+import com.ifarm.common.exception.BusinessException;
+import com.ifarm.entity.AdoptionOrder;
+import com.ifarm.service.IAdoptionOrderService;
+import com.ifarm.service.IProjectInventoryService;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 并发下单基准与正确性校验
+ * 在H2（MySQL模式）上按 database/ifarm_schema.sql 建表并预置项目和单元，启动完整应用上下文，
+ * 多线程混合执行下单、支付、取消、退款，输出各操作吞吐量和p50/p99/p999延迟，
+ * 最后校验：单元不被重复分配、available_units 与单元和订单状态一致、
+ * 已支付订单的认养记录数等于单元数、内存库存计数与数据库一致、发件箱事件投递完成后用户概览与订单一致。
+ * 直接运行main方法即可（工作目录为项目根目录），参数可用系统属性调整：
+ * -Dbench.threads=32 -Dbench.operations=200 -Dbench.projects=4 -Dbench.units=500 -Dbench.users=200
+ * 下单模式：-Dbench.modes=java,procedure 依次以各模式重建数据并运行，最后对比下单吞吐量和延迟。
+ * procedure 模式需要MySQL（H2不支持存储过程，自动跳过）。ifarm_schema.sql 开头会创建并切换到 ifarm_dev，
+ * 而每个模式运行前会清空全部表，因此去掉这两行后导入单独的基准库，在项目根目录执行：
+ * <pre>
+ * mysql -uroot -p -e "CREATE DATABASE ifarm_bench DEFAULT CHARACTER SET utf8mb4 COLLATE utf8mb4_general_ci"
+ * sed '/^CREATE DATABASE/d; /^USE /d' database/ifarm_schema.sql | mysql -uroot -p ifarm_bench
+ * mvn -q test-compile dependency:build-classpath -Dmdep.outputFile=target/bench.classpath
+ * java -cp "target/test-classes:target/classes:$(cat target/bench.classpath)" -Dbench.modes=java,procedure \
+ *   -Dbench.jdbc-url="jdbc:mysql://localhost:3306/ifarm_bench?useSSL=false&amp;serverTimezone=Asia/Shanghai&amp;allowPublicKeyRetrieval=true" \
+ *   -Dbench.jdbc-user=root -Dbench.jdbc-password=... com.ifarm.benchmark.CheckoutBenchmark
+ * </pre>
+ * 校验失败时以非0退出码结束。
+ *
+ * @author ifarm
+ * @since 2025-01-19
+ */
+public class CheckoutBenchmark {
+
+    private static final int THREADS = Integer.getInteger("bench.threads", 32);
+    private static final int OPERATIONS_PER_THREAD = Integer.getInteger("bench.operations", 200);
+    private static final int PROJECTS = Integer.getInteger("bench.projects", 4);
+    private static final int UNITS_PER_PROJECT = Integer.getInteger("bench.units", 500);
+    private static final int USERS = Integer.getInteger("bench.users", 200);
+    private static final long FIRST_USER_ID = 100_000L;
+
+    private static final List<String> MODES = List.of(System.getProperty("bench.modes", "java").split(","));
+    private static final String JDBC_URL = System.getProperty("bench.jdbc-url",
+            "jdbc:h2:mem:checkout_bench;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000");
+    private static final String JDBC_USER = System.getProperty("bench.jdbc-user", "sa");
+    private static final String JDBC_PASSWORD = System.getProperty("bench.jdbc-password", "");
+    private static final boolean H2 = JDBC_URL.startsWith("jdbc:h2:");
+    private static final Pattern CREATE_TABLE = Pattern.compile(
+            "CREATE TABLE (\\w+) \\((.*?)\\n\\)\\s*ENGINE[^;]*;", Pattern.DOTALL);
+    private static final Pattern INDEX_LINE = Pattern.compile("^(UNIQUE KEY|KEY) (\\w+) (\\(.*\\))$");
+
+    private static final String OP_CREATE = "create";
+    private static final String OP_PAY = "pay";
+    private static final String OP_CANCEL = "cancel";
+    private static final String OP_REFUND = "refund";
+
+    private final Map<String, ConcurrentLinkedQueue<Long>> latencies = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> rejected = new ConcurrentHashMap<>();
+    private final LongAdder errors = new LongAdder();
+    private final ConcurrentLinkedQueue<String> errorSamples = new ConcurrentLinkedQueue<>();
+    private final List<String> violations = new ArrayList<>();
+    private final String mode;
+    private long elapsedNanos;
+
+    private CheckoutBenchmark(String mode) {
+        this.mode = mode;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Path schema = Path.of(System.getProperty("bench.schema", "database/ifarm_schema.sql"));
+        String mysqlSchema = Files.readString(schema, StandardCharsets.UTF_8);
+
+        List<CheckoutBenchmark> finished = new ArrayList<>();
+        boolean failed = false;
+        for (String mode : MODES) {
+            if ("procedure".equals(mode) && H2) {
+                System.out.println("H2不支持存储过程，跳过procedure模式（用 -Dbench.jdbc-url 指定已执行建表脚本的MySQL库）");
+                continue;
+            }
+            System.out.printf("%n==== 下单模式: %s ====%n", mode);
+            try (Connection connection = DriverManager.getConnection(JDBC_URL, JDBC_USER, JDBC_PASSWORD)) {
+                prepareSchema(connection, mysqlSchema);
+                seed(connection);
+            }
+
+            // 以命令行参数传入，优先级高于 application.yml（builder.properties 是默认属性，会被配置文件覆盖）
+            ConfigurableApplicationContext context = new SpringApplicationBuilder(IFarmApplication.class)
+                    .web(WebApplicationType.SERVLET)
+                    .run(applicationArguments(mode));
+            try {
+                CheckoutBenchmark benchmark = new CheckoutBenchmark(mode);
+                benchmark.run(context.getBean(IAdoptionOrderService.class));
+                JdbcTemplate jdbc = context.getBean(JdbcTemplate.class);
+                benchmark.awaitOutbox(jdbc);
+                benchmark.verify(jdbc, context.getBean(IProjectInventoryService.class));
+                finished.add(benchmark);
+                failed |= !benchmark.violations.isEmpty();
+            } finally {
+                context.close();
+            }
+        }
+
+        if (finished.size() > 1) {
+            compare(finished);
+        }
+        System.exit(failed ? 1 : 0);
+    }
+
+    /**
+     * H2每次删除全部对象后按建表脚本重建；MySQL（已执行建表脚本）清空脚本中的全部表
+     */
+    private static void prepareSchema(Connection connection, String mysqlSchema) throws Exception {
+        if (H2) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("DROP ALL OBJECTS");
+            }
+            createSchema(connection, mysqlSchema);
+            return;
+        }
+
+        Matcher matcher = CREATE_TABLE.matcher(mysqlSchema);
+        int tables = 0;
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("SET FOREIGN_KEY_CHECKS = 0");
+            while (matcher.find()) {
+                statement.execute("TRUNCATE TABLE " + matcher.group(1));
+                tables++;
+            }
+            statement.execute("SET FOREIGN_KEY_CHECKS = 1");
+        }
+        System.out.printf("清空完成: %d张表%n", tables);
+    }
+
+    /**
+     * 把MySQL建表语句转换为H2可执行的语句：去掉外键和表选项，索引改为独立的CREATE INDEX（H2索引名全库唯一）
+     */
+    private static void createSchema(Connection connection, String mysqlSchema) throws Exception {
+        Matcher matcher = CREATE_TABLE.matcher(mysqlSchema);
+        int tables = 0;
+        try (Statement statement = connection.createStatement()) {
+            while (matcher.find()) {
+                String table = matcher.group(1);
+                List<String> columns = new ArrayList<>();
+                List<String> indexes = new ArrayList<>();
+                for (String line : matcher.group(2).split("\n")) {
+                    String definition = line.strip();
+                    if (definition.endsWith(",")) {
+                        definition = definition.substring(0, definition.length() - 1).strip();
+                    }
+                    if (definition.isEmpty() || definition.startsWith("FOREIGN KEY")) {
+                        continue;
+                    }
+                    Matcher index = INDEX_LINE.matcher(definition);
+                    if (index.matches()) {
+                        String unique = index.group(1).startsWith("UNIQUE") ? "UNIQUE " : "";
+                        indexes.add("CREATE " + unique + "INDEX " + table + "_" + index.group(2)
+                                + " ON " + table + " " + index.group(3));
+                    } else {
+                        columns.add(definition);
+                    }
+                }
+                statement.execute("CREATE TABLE " + table + " (\n" + String.join(",\n", columns) + "\n)");
+                for (String index : indexes) {
+                    statement.execute(index);
+                }
+                tables++;
+            }
+        }
+        System.out.printf("建表完成: %d张表%n", tables);
+    }
+
+    /**
+     * 预置认养中的项目和可认养单元；用户概览行由应用在首次变更时按订单重建
+     */
+    private static void seed(Connection connection) throws Exception {
+        // 用户ID从较大值开始，不与应用启动时初始化的用户冲突（MySQL下订单和概览有外键）
+        try (PreparedStatement user = connection.prepareStatement(
+                "INSERT INTO users (id, username, password) VALUES (?, ?, 'benchmark')")) {
+            for (int i = 0; i < USERS; i++) {
+                user.setLong(1, FIRST_USER_ID + i);
+                user.setString(2, "bench_user_" + i);
+                user.addBatch();
+            }
+            user.executeBatch();
+        }
+
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("INSERT INTO categories (id, name) VALUES (1, '基准分类')");
+            statement.execute("INSERT INTO crops (id, category_id, name, growth_cycle) VALUES (1, 1, '基准作物', 90)");
+            statement.execute("INSERT INTO farms (id, owner_id, name, province, city, district, address) "
+                    + "VALUES (1, " + FIRST_USER_ID + ", '基准农场', '省', '市', '区', '地址')");
+            statement.execute("INSERT INTO farm_plots (id, farm_id, name, area) VALUES (1, 1, '基准地块', 10000)");
+        }
+
+        try (PreparedStatement project = connection.prepareStatement(
+                "INSERT INTO adoption_projects (id, plot_id, crop_id, name, total_units, available_units, unit_area, "
+                        + "unit_price, project_status) VALUES (?, 1, 1, ?, ?, ?, 1.00, 99.00, 2)");
+             PreparedStatement unit = connection.prepareStatement(
+                     "INSERT INTO project_units (project_id, unit_number, unit_status) VALUES (?, ?, 1)")) {
+            for (long projectId = 1; projectId <= PROJECTS; projectId++) {
+                project.setLong(1, projectId);
+                project.setString(2, "基准项目" + projectId);
+                project.setInt(3, UNITS_PER_PROJECT);
+                project.setInt(4, UNITS_PER_PROJECT);
+                project.executeUpdate();
+                for (int i = 1; i <= UNITS_PER_PROJECT; i++) {
+                    unit.setLong(1, projectId);
+                    unit.setString(2, String.format("U%05d", i));
+                    unit.addBatch();
+                }
+                unit.executeBatch();
+            }
+        }
+
+        System.out.printf("预置完成: %d个项目, 每个项目%d个单元, %d个用户%n", PROJECTS, UNITS_PER_PROJECT, USERS);
+    }
+
+    private static String[] applicationArguments(String mode) {
+        Map<String, Object> properties = new LinkedHashMap<>();
+        properties.put("spring.profiles.active", "benchmark");
+        properties.put("server.port", "0");
+        properties.put("ifarm.checkout.mode", mode);
+        if (H2) {
+            properties.put("spring.datasource.driver-class-name", "org.h2.Driver");
+            properties.put("spring.jpa.properties.hibernate.dialect", "org.hibernate.dialect.H2Dialect");
+        }
+        properties.put("spring.datasource.url", JDBC_URL);
+        properties.put("spring.datasource.username", JDBC_USER);
+        properties.put("spring.datasource.password", JDBC_PASSWORD);
+        properties.put("spring.datasource.hikari.maximum-pool-size", String.valueOf(THREADS + 8));
+        properties.put("spring.datasource.hikari.minimum-idle", String.valueOf(THREADS));
+        properties.put("spring.jpa.hibernate.ddl-auto", "none");
+        properties.put("spring.jpa.show-sql", "false");
+        properties.put("mybatis-plus.configuration.log-impl", "org.apache.ibatis.logging.nologging.NoLoggingImpl");
+        properties.put("logging.level.root", "WARN");
+        properties.put("logging.level.com.ifarm", "WARN");
+        // 基准期间推迟与下单无关的后台任务
+        long day = TimeUnit.DAYS.toMillis(1);
+        for (String key : List.of("ifarm.lifecycle.initial-delay", "ifarm.reconcile.initial-delay",
+                "ifarm.recommend.initial-delay", "ifarm.popularity.flush-interval", "ifarm.facet.rebuild-interval",
+                "ifarm.payment.retry-interval", "ifarm.waitlist.expire-check-interval")) {
+            properties.put(key, String.valueOf(day));
+        }
+        properties.put("ifarm.payment.worker-threads", "1");
+        return properties.entrySet().stream()
+                .map(property -> "--" + property.getKey() + "=" + property.getValue())
+                .toArray(String[]::new);
+    }
+
+    /**
+     * 多线程混合执行：每次随机用户和项目下单1-3个单元，之后60%支付（其中10%再退款）、25%取消、15%保持待支付
+     */
+    private void run(IAdoptionOrderService orderService) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch startSignal = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(THREADS);
+        for (int t = 0; t < THREADS; t++) {
+            executor.execute(() -> {
+                try {
+                    startSignal.await();
+                    for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                        checkout(orderService);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+
+        long start = System.nanoTime();
+        startSignal.countDown();
+        done.await();
+        elapsedNanos = System.nanoTime() - start;
+        executor.shutdown();
+
+        report();
+    }
+
+    private void checkout(IAdoptionOrderService orderService) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long userId = FIRST_USER_ID + random.nextInt(USERS);
+        long projectId = 1 + random.nextInt(PROJECTS);
+        int unitCount = 1 + random.nextInt(3);
+
+        AdoptionOrder order = timed(OP_CREATE, () -> orderService.createOrder(userId, projectId, unitCount, null));
+        if (order == null) {
+            return;
+        }
+
+        int action = random.nextInt(100);
+        if (action < 60) {
+            Boolean paid = timed(OP_PAY, () -> orderService.payOrder(order.getId(), "benchmark", "BENCH" + order.getId()));
+            if (Boolean.TRUE.equals(paid) && random.nextInt(100) < 10) {
+                timed(OP_REFUND, () -> orderService.applyRefund(order.getId(), userId, "benchmark"));
+            }
+        } else if (action < 85) {
+            timed(OP_CANCEL, () -> orderService.cancelOrder(order.getId(), userId));
+        }
+    }
+
+    /**
+     * 执行并记录延迟；业务拒绝（如库存不足）计入拒绝数，其他异常（死锁、超时等）计入错误
+     */
+    private <T> T timed(String operation, Supplier<T> action) {
+        long start = System.nanoTime();
+        try {
+            T result = action.get();
+            latencies.computeIfAbsent(operation, k -> new ConcurrentLinkedQueue<>()).add(System.nanoTime() - start);
+            return result;
+        } catch (BusinessException e) {
+            rejected.computeIfAbsent(operation, k -> new LongAdder()).increment();
+            return null;
+        } catch (Exception e) {
+            errors.increment();
+            if (errorSamples.size() < 10) {
+                errorSamples.add(operation + ": " + e);
+            }
+            return null;
+        }
+    }
+
+    private void report() {
+        double seconds = elapsedNanos / 1e9;
+        long total = latencies.values().stream().mapToLong(ConcurrentLinkedQueue::size).sum();
+        System.out.printf("%n线程数: %d, 耗时: %.2fs, 成功操作: %d, 吞吐量: %.1f ops/s, 错误: %d%n",
+                THREADS, seconds, total, total / seconds, errors.sum());
+        System.out.printf("%-8s %8s %8s %10s %10s %10s %10s%n", "操作", "成功", "拒绝", "ops/s", "p50(ms)", "p99(ms)", "p999(ms)");
+        for (String operation : List.of(OP_CREATE, OP_PAY, OP_CANCEL, OP_REFUND)) {
+            long[] samples = sortedLatencies(operation);
+            long rejectedCount = rejected.getOrDefault(operation, new LongAdder()).sum();
+            System.out.printf("%-8s %8d %8d %10.1f %10.2f %10.2f %10.2f%n", operation, samples.length, rejectedCount,
+                    samples.length / seconds, percentile(samples, 0.50), percentile(samples, 0.99),
+                    percentile(samples, 0.999));
+        }
+        errorSamples.forEach(sample -> System.out.println("错误示例: " + sample));
+    }
+
+    /**
+     * 对比各模式的下单吞吐量和延迟
+     */
+    private static void compare(List<CheckoutBenchmark> benchmarks) {
+        System.out.printf("%n下单模式对比（%d线程, %d个项目）:%n", THREADS, PROJECTS);
+        System.out.printf("%-10s %8s %8s %10s %10s %10s %10s %6s%n",
+                "模式", "下单成功", "拒绝", "ops/s", "p50(ms)", "p99(ms)", "p999(ms)", "校验");
+        for (CheckoutBenchmark benchmark : benchmarks) {
+            long[] samples = benchmark.sortedLatencies(OP_CREATE);
+            double seconds = benchmark.elapsedNanos / 1e9;
+            long rejectedCount = benchmark.rejected.getOrDefault(OP_CREATE, new LongAdder()).sum();
+            System.out.printf("%-10s %8d %8d %10.1f %10.2f %10.2f %10.2f %6s%n", benchmark.mode, samples.length,
+                    rejectedCount, samples.length / seconds, percentile(samples, 0.50), percentile(samples, 0.99),
+                    percentile(samples, 0.999), benchmark.violations.isEmpty() ? "通过" : "失败");
+        }
+    }
+
+    private long[] sortedLatencies(String operation) {
+        long[] samples = latencies.getOrDefault(operation, new ConcurrentLinkedQueue<>())
+                .stream().mapToLong(Long::longValue).toArray();
+        Arrays.sort(samples);
+        return samples;
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1e6;
+    }
+
+    /**
+     * 等待发件箱中的事件投递完成（用户概览的支付计数经发件箱异步更新）
+     */
+    private void awaitOutbox(JdbcTemplate jdbc) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(60);
+        int pending;
+        while ((pending = jdbc.queryForObject(
+                "SELECT COUNT(*) FROM outbox_events WHERE event_status = 1", Integer.class)) > 0) {
+            if (System.currentTimeMillis() > deadline) {
+                violations.add("60秒内发件箱仍有" + pending + "个事件未投递");
+                return;
+            }
+            Thread.sleep(100);
+        }
+    }
+
+    private void verify(JdbcTemplate jdbc, IProjectInventoryService inventoryService) {
+        // 1. 有效订单（已支付、已完成）的认养记录不指向同一单元
+        List<Long> duplicated = jdbc.queryForList(
+                "SELECT r.unit_id FROM adoption_records r JOIN adoption_orders o ON o.id = r.order_id "
+                        + "WHERE o.order_status IN (2, 3) AND r.deleted = 0 GROUP BY r.unit_id HAVING COUNT(*) > 1",
+                Long.class);
+        check(duplicated.isEmpty(), "单元被重复分配: " + duplicated);
+
+        // 2. 已支付订单的认养记录数等于订单单元数
+        List<Long> incomplete = jdbc.queryForList(
+                "SELECT o.id FROM adoption_orders o LEFT JOIN adoption_records r ON r.order_id = o.id AND r.deleted = 0 "
+                        + "WHERE o.order_status IN (2, 3) GROUP BY o.id, o.unit_count HAVING COUNT(r.id) <> o.unit_count",
+                Long.class);
+        check(incomplete.isEmpty(), "认养记录数与订单单元数不一致的订单: " + incomplete);
+
+        for (long projectId = 1; projectId <= PROJECTS; projectId++) {
+            int available = jdbc.queryForObject(
+                    "SELECT available_units FROM adoption_projects WHERE id = ?", Integer.class, projectId);
+            int freeUnits = jdbc.queryForObject(
+                    "SELECT COUNT(*) FROM project_units WHERE project_id = ? AND unit_status = 1 AND deleted = 0",
+                    Integer.class, projectId);
+            int adoptedUnits = jdbc.queryForObject(
+                    "SELECT COUNT(*) FROM project_units WHERE project_id = ? AND unit_status = 2 AND deleted = 0",
+                    Integer.class, projectId);
+            int pendingUnits = jdbc.queryForObject(
+                    "SELECT COALESCE(SUM(unit_count), 0) FROM adoption_orders "
+                            + "WHERE project_id = ? AND order_status = 1 AND deleted = 0", Integer.class, projectId);
+            int offeredUnits = jdbc.queryForObject(
+                    "SELECT COALESCE(SUM(unit_count), 0) FROM project_waitlist "
+                            + "WHERE project_id = ? AND waitlist_status = 2 AND deleted = 0", Integer.class, projectId);
+            int paidRecords = jdbc.queryForObject(
+                    "SELECT COUNT(*) FROM adoption_records r JOIN adoption_orders o ON o.id = r.order_id "
+                            + "WHERE r.project_id = ? AND o.order_status IN (2, 3) AND r.deleted = 0",
+                    Integer.class, projectId);
+
+            // 3. 可认养数 = 空闲单元 - 待支付订单预占 - 候补已分配预占
+            check(available == freeUnits - pendingUnits - offeredUnits, String.format(
+                    "项目%d available_units=%d, 空闲单元%d - 待支付%d - 候补%d = %d", projectId, available,
+                    freeUnits, pendingUnits, offeredUnits, freeUnits - pendingUnits - offeredUnits));
+            check(available >= 0 && available <= UNITS_PER_PROJECT,
+                    String.format("项目%d available_units越界: %d", projectId, available));
+            // 4. 已认养单元数 = 有效订单的认养记录数
+            check(adoptedUnits == paidRecords, String.format(
+                    "项目%d 已认养单元%d与有效认养记录%d不一致", projectId, adoptedUnits, paidRecords));
+            // 5. 内存库存计数与数据库一致
+            int cached = inventoryService.getAvailableUnits(projectId);
+            check(cached == available, String.format(
+                    "项目%d 内存可认养数%d与数据库%d不一致", projectId, cached, available));
+        }
+
+        // 6. 用户概览的订单计数与订单表一致
+        List<Long> driftedUsers = jdbc.queryForList(
+                "SELECT s.user_id FROM user_summary s WHERE "
+                        + "s.pending_order_count <> (SELECT COUNT(*) FROM adoption_orders o "
+                        + "WHERE o.user_id = s.user_id AND o.order_status = 1 AND o.deleted = 0) OR "
+                        + "s.paid_order_count <> (SELECT COUNT(*) FROM adoption_orders o "
+                        + "WHERE o.user_id = s.user_id AND o.order_status = 2 AND o.deleted = 0) OR "
+                        + "s.cancelled_order_count <> (SELECT COUNT(*) FROM adoption_orders o "
+                        + "WHERE o.user_id = s.user_id AND o.order_status = 4 AND o.deleted = 0) OR "
+                        + "s.refunded_order_count <> (SELECT COUNT(*) FROM adoption_orders o "
+                        + "WHERE o.user_id = s.user_id AND o.order_status = 5 AND o.deleted = 0)",
+                Long.class);
+        check(driftedUsers.isEmpty(), "用户概览与订单不一致的用户: " + driftedUsers);
+        for (Long userId : driftedUsers.subList(0, Math.min(5, driftedUsers.size()))) {
+            violations.add("用户" + userId + " 概览(待支付,已支付,已取消,已退款): " + jdbc.queryForList(
+                    "SELECT pending_order_count, paid_order_count, cancelled_order_count, refunded_order_count "
+                            + "FROM user_summary WHERE user_id = ?", userId).get(0).values()
+                    + ", 订单: " + jdbc.queryForList("SELECT "
+                    + "SUM(CASE WHEN order_status = 1 THEN 1 ELSE 0 END), SUM(CASE WHEN order_status = 2 THEN 1 ELSE 0 END), "
+                    + "SUM(CASE WHEN order_status = 4 THEN 1 ELSE 0 END), SUM(CASE WHEN order_status = 5 THEN 1 ELSE 0 END) "
+                    + "FROM adoption_orders WHERE user_id = ? AND deleted = 0", userId).get(0).values());
+        }
+        List<Long> missingUsers = jdbc.queryForList(
+                "SELECT DISTINCT o.user_id FROM adoption_orders o WHERE o.deleted = 0 AND NOT EXISTS "
+                        + "(SELECT 1 FROM user_summary s WHERE s.user_id = o.user_id)", Long.class);
+        check(missingUsers.isEmpty(), "有订单但没有用户概览的用户: " + missingUsers);
+
+        int failedEvents = jdbc.queryForObject(
+                "SELECT COUNT(*) FROM outbox_events WHERE event_status = 3", Integer.class);
+        check(failedEvents == 0, "发件箱中有" + failedEvents + "个事件投递失败");
+
+        check(errors.sum() == 0, "执行过程中出现" + errors.sum() + "个非业务异常（死锁、锁超时等）");
+        // 支付没有库存不足之类的正常拒绝原因，全部失败说明环境有问题（如数据库不支持所用语法）
+        check(!latencies.getOrDefault(OP_PAY, new ConcurrentLinkedQueue<>()).isEmpty(),
+                "没有成功的支付（拒绝" + rejected.getOrDefault(OP_PAY, new LongAdder()).sum() + "次）");
+
+        if (violations.isEmpty()) {
+            System.out.println("\n校验通过");
+        } else {
+            System.out.println("\n校验失败:");
+            violations.forEach(violation -> System.out.println("  - " + violation));
+        }
+    }
+
+    private void check(boolean condition, String message) {
+        if (!condition) {
+            violations.add(message);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.ifarm.common.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * ID生成器并发测试
+ * 模拟多个节点（不同节点号的生成器）各自多线程同时生成ID和单号，
+ * 校验全部结果无重复、同一线程内ID严格递增、单号不超过32位。
+ *
+ * @author ifarm
+ * @since 2025-01-19
+ */
+class IdGeneratorTest {
+
+    private static final int NODES = 4;
+    private static final int THREADS_PER_NODE = 4;
+    private static final int IDS_PER_THREAD = 20_000;
+    private static final int NOS_PER_THREAD = 2_000;
+
+    @Test
+    void idsAreUniqueAcrossNodesAndIncreasingPerThread() throws Exception {
+        List<long[]> results = runConcurrently(generator -> {
+            long[] ids = new long[IDS_PER_THREAD];
+            for (int i = 0; i < IDS_PER_THREAD; i++) {
+                ids[i] = generator.nextId();
+            }
+            return ids;
+        });
+
+        Set<Long> all = new HashSet<>();
+        for (long[] ids : results) {
+            for (int i = 0; i < ids.length; i++) {
+                if (i > 0) {
+                    assertTrue(ids[i] > ids[i - 1], "同一线程内ID未递增: " + ids[i - 1] + " -> " + ids[i]);
+                }
+                assertTrue(all.add(ids[i]), "ID重复: " + ids[i]);
+            }
+        }
+        assertEquals(NODES * THREADS_PER_NODE * IDS_PER_THREAD, all.size());
+    }
+
+    @Test
+    void orderNosAreUniqueAcrossNodes() throws Exception {
+        List<String[]> results = runConcurrently(generator -> {
+            String[] nos = new String[NOS_PER_THREAD];
+            for (int i = 0; i < NOS_PER_THREAD; i++) {
+                nos[i] = generator.nextNo("AD");
+            }
+            return nos;
+        });
+
+        Set<String> all = new HashSet<>();
+        for (String[] nos : results) {
+            for (String no : nos) {
+                assertTrue(no.length() <= 32, "单号超过32位: " + no);
+                assertTrue(all.add(no), "单号重复: " + no);
+            }
+        }
+        assertEquals(NODES * THREADS_PER_NODE * NOS_PER_THREAD, all.size());
+    }
+
+    /**
+     * 每个节点THREADS_PER_NODE个线程同时开始生成，返回各线程的结果
+     */
+    private static <T> List<T> runConcurrently(Generation<T> generation) throws Exception {
+        IdGenerator[] nodes = new IdGenerator[NODES];
+        for (int i = 0; i < NODES; i++) {
+            nodes[i] = new IdGenerator(i * 127 % (IdGenerator.MAX_WORKER_ID + 1));
+        }
+
+        int threads = NODES * THREADS_PER_NODE;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch startSignal = new CountDownLatch(1);
+            List<Future<T>> futures = new ArrayList<>(threads);
+            for (int t = 0; t < threads; t++) {
+                IdGenerator generator = nodes[t % NODES];
+                futures.add(executor.submit(() -> {
+                    startSignal.await();
+                    return generation.generate(generator);
+                }));
+            }
+            startSignal.countDown();
+
+            List<T> results = new ArrayList<>(threads);
+            for (Future<T> future : futures) {
+                results.add(future.get(30, TimeUnit.SECONDS));
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @FunctionalInterface
+    private interface Generation<T> {
+        T generate(IdGenerator generator);
+    }
+}
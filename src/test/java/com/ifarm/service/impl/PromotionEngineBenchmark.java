@@ -0,0 +1,211 @@
+package com.ifarm.service.impl;
+
+import com.ifarm.entity.PromotionRule;
+import com.ifarm.vo.order.OrderQuoteVO;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+
+/**
+ * 促销规则引擎基准
+ * 生成约200条规则（50个项目的专属规则加通用规则），比较预编译规则集与逐次过滤排序实体列表的解释执行方式的单次报价耗时，
+ * 并校验两种方式对同一输入的报价一致。直接运行main方法即可，不一致时以状态码1退出。
+ *
+ * @author ifarm
+ * @since 2025-01-19
+ */
+public class PromotionEngineBenchmark {
+
+    private static final int PROJECTS = 50;
+    private static final int INPUTS = 4096;
+    private static final int WARMUP_ROUNDS = 20;
+    private static final int MEASURE_ROUNDS = 50;
+    private static final BigDecimal MAX_DISCOUNT_RATE = new BigDecimal("0.5");
+
+    private static final Comparator<PromotionRule> RULE_ORDER = Comparator
+            .comparingInt(PromotionRule::getRuleType)
+            .thenComparing(Comparator.comparingInt(PromotionRule::getPriority).reversed())
+            .thenComparing(Comparator.comparingInt(PromotionRule::getMinUnits).reversed())
+            .thenComparing(Comparator.comparingInt(PromotionRule::getMinUserTier).reversed())
+            .thenComparingLong(PromotionRule::getId);
+
+    private static volatile Object sink;
+
+    public static void main(String[] args) {
+        Random random = new Random(42);
+        List<PromotionRule> rules = generateRules(random);
+        PromotionRuleSet ruleSet = PromotionRuleSet.compile(rules, MAX_DISCOUNT_RATE);
+        Input[] inputs = generateInputs(random);
+        System.out.printf("规则%d条, 报价输入%d组%n", ruleSet.size(), INPUTS);
+
+        int mismatches = 0;
+        for (Input input : inputs) {
+            OrderQuoteVO compiled = quoteCompiled(ruleSet, input);
+            OrderQuoteVO interpreted = quoteInterpreted(rules, input);
+            if (!sameQuote(compiled, interpreted)) {
+                if (mismatches++ < 5) {
+                    System.out.printf("报价不一致: %s%n  预编译: %s%n  解释执行: %s%n", input, compiled, interpreted);
+                }
+            }
+        }
+
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            runCompiled(ruleSet, inputs);
+            runInterpreted(rules, inputs);
+        }
+        double compiledNs = measure(() -> runCompiled(ruleSet, inputs));
+        double interpretedNs = measure(() -> runInterpreted(rules, inputs));
+
+        System.out.printf("预编译规则集: %.0f ns/op%n", compiledNs);
+        System.out.printf("解释执行:     %.0f ns/op (%.1fx)%n", interpretedNs, interpretedNs / compiledNs);
+        if (mismatches > 0) {
+            System.out.printf("校验失败: %d组报价不一致%n", mismatches);
+            System.exit(1);
+        }
+        System.out.println("校验通过: 两种方式报价一致");
+    }
+
+    private static double measure(Runnable round) {
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURE_ROUNDS; i++) {
+            round.run();
+        }
+        return (System.nanoTime() - start) / (double) (MEASURE_ROUNDS * INPUTS);
+    }
+
+    private static void runCompiled(PromotionRuleSet ruleSet, Input[] inputs) {
+        for (Input input : inputs) {
+            sink = quoteCompiled(ruleSet, input);
+        }
+    }
+
+    private static void runInterpreted(List<PromotionRule> rules, Input[] inputs) {
+        for (Input input : inputs) {
+            sink = quoteInterpreted(rules, input);
+        }
+    }
+
+    private static OrderQuoteVO quoteCompiled(PromotionRuleSet ruleSet, Input input) {
+        return ruleSet.quote(input.projectId(), input.unitPrice(), input.unitCount(),
+                input.userTier(), input.firstOrder(), input.nowMillis());
+    }
+
+    /**
+     * 对照实现：每次报价过滤实体列表、排序，再逐条换算比例和时间
+     */
+    private static OrderQuoteVO quoteInterpreted(List<PromotionRule> rules, Input input) {
+        BigDecimal totalAmount = input.unitPrice().multiply(BigDecimal.valueOf(input.unitCount()));
+        List<PromotionRule> candidates = new ArrayList<>();
+        for (PromotionRule rule : rules) {
+            if (rule.getProjectId() == null || rule.getProjectId().equals(input.projectId())) {
+                candidates.add(rule);
+            }
+        }
+        candidates.sort(RULE_ORDER);
+
+        BigDecimal discountAmount = BigDecimal.ZERO;
+        int appliedType = 0;
+        for (PromotionRule rule : candidates) {
+            long startMillis = rule.getStartTime() == null ? Long.MIN_VALUE : toMillis(rule.getStartTime());
+            long endMillis = rule.getEndTime() == null ? Long.MAX_VALUE : toMillis(rule.getEndTime());
+            boolean matches = rule.getRuleType() != appliedType
+                    && input.unitCount() >= rule.getMinUnits()
+                    && input.userTier() >= rule.getMinUserTier()
+                    && (rule.getRuleType() != PromotionRuleSet.TYPE_FIRST_ORDER || input.firstOrder())
+                    && input.nowMillis() >= startMillis && input.nowMillis() < endMillis;
+            if (!matches) {
+                continue;
+            }
+            BigDecimal discount = totalAmount.multiply(rule.getDiscountRate()).setScale(2, RoundingMode.HALF_UP)
+                    .add(rule.getDiscountAmount()).min(totalAmount);
+            if (discount.signum() > 0) {
+                discountAmount = discountAmount.add(discount);
+                appliedType = rule.getRuleType();
+            }
+        }
+
+        BigDecimal maxDiscount = totalAmount.multiply(MAX_DISCOUNT_RATE).setScale(2, RoundingMode.DOWN);
+        OrderQuoteVO quote = new OrderQuoteVO();
+        quote.setTotalAmount(totalAmount);
+        quote.setDiscountAmount(discountAmount.min(maxDiscount));
+        quote.setActualAmount(totalAmount.subtract(quote.getDiscountAmount()));
+        return quote;
+    }
+
+    private static boolean sameQuote(OrderQuoteVO a, OrderQuoteVO b) {
+        return a.getTotalAmount().compareTo(b.getTotalAmount()) == 0
+                && a.getDiscountAmount().compareTo(b.getDiscountAmount()) == 0
+                && Objects.equals(a.getActualAmount().stripTrailingZeros(), b.getActualAmount().stripTrailingZeros());
+    }
+
+    private static List<PromotionRule> generateRules(Random random) {
+        LocalDateTime now = LocalDateTime.now();
+        List<PromotionRule> rules = new ArrayList<>();
+        long id = 1;
+        // 通用规则：数量阶梯、等级、首单各几档
+        for (int i = 1; i <= 3; i++) {
+            rules.add(rule(id++, PromotionRuleSet.TYPE_QUANTITY, null, i * 5, 0, "0.0" + (i * 2), "0", null, null, 0));
+            rules.add(rule(id++, PromotionRuleSet.TYPE_USER_TIER, null, 1, i, "0.0" + i, "0", null, null, 0));
+        }
+        rules.add(rule(id++, PromotionRuleSet.TYPE_FIRST_ORDER, null, 1, 0, "0", "10", null, null, 0));
+
+        // 项目专属规则：数量阶梯和限时活动，部分活动未开始或已结束
+        for (long projectId = 1; projectId <= PROJECTS; projectId++) {
+            for (int i = 0; i < 3; i++) {
+                rules.add(rule(id++, PromotionRuleSet.TYPE_QUANTITY, projectId, 2 + random.nextInt(20), 0,
+                        "0.0" + (1 + random.nextInt(9)), "0", null, null, random.nextInt(3)));
+            }
+            LocalDateTime start = now.plusDays(random.nextInt(7) - 5);
+            rules.add(rule(id++, PromotionRuleSet.TYPE_CAMPAIGN, projectId, 1, random.nextInt(2),
+                    "0", String.valueOf(5 + random.nextInt(20)), start, start.plusDays(3), random.nextInt(3)));
+        }
+        return rules;
+    }
+
+    private static PromotionRule rule(long id, int type, Long projectId, int minUnits, int minUserTier,
+                                      String rate, String amount, LocalDateTime start, LocalDateTime end,
+                                      int priority) {
+        PromotionRule rule = new PromotionRule();
+        rule.setId(id);
+        rule.setName("规则" + id);
+        rule.setRuleType(type);
+        rule.setProjectId(projectId);
+        rule.setMinUnits(minUnits);
+        rule.setMinUserTier(minUserTier);
+        rule.setDiscountRate(new BigDecimal(rate));
+        rule.setDiscountAmount(new BigDecimal(amount));
+        rule.setStartTime(start);
+        rule.setEndTime(end);
+        rule.setPriority(priority);
+        rule.setRuleStatus(1);
+        return rule;
+    }
+
+    private static Input[] generateInputs(Random random) {
+        long now = System.currentTimeMillis();
+        Input[] inputs = new Input[INPUTS];
+        for (int i = 0; i < INPUTS; i++) {
+            // 含没有专属规则的项目
+            long projectId = 1 + random.nextInt(PROJECTS + 10);
+            BigDecimal unitPrice = BigDecimal.valueOf(50 + random.nextInt(450)).setScale(2, RoundingMode.UNNECESSARY);
+            inputs[i] = new Input(projectId, unitPrice, 1 + random.nextInt(30), random.nextInt(4),
+                    random.nextInt(5) == 0, now);
+        }
+        return inputs;
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private record Input(Long projectId, BigDecimal unitPrice, int unitCount, int userTier, boolean firstOrder,
+                         long nowMillis) {
+    }
+}